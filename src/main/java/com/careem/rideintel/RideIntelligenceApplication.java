@@ -2,8 +2,10 @@ package com.careem.rideintel;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RideIntelligenceApplication {
     public static void main(String[] args) {
         SpringApplication.run(RideIntelligenceApplication.class, args);
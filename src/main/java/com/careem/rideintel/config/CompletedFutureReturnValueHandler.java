@@ -0,0 +1,88 @@
+package com.careem.rideintel.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Handles a {@link CompletableFuture} that is already complete as if the controller had returned
+ * its value: no async dispatch, and a failed future rethrows its cause to the exception handlers.
+ * Futures still running go to the regular handlers, which finish the request asynchronously.
+ *
+ * This keeps the BLOCKING mode of {@link RequestExecutor} — and fast ASYNC calls — as cheap as
+ * a plain synchronous controller.
+ */
+class CompletedFutureReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+    private final HandlerMethodReturnValueHandlerComposite delegates;
+
+    CompletedFutureReturnValueHandler(HandlerMethodReturnValueHandlerComposite delegates) {
+        this.delegates = delegates;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return CompletionStage.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType,
+                                  ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+        if (!(returnValue instanceof CompletableFuture) || !((CompletableFuture<?>) returnValue).isDone()) {
+            delegates.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+            return;
+        }
+
+        Object result;
+        try {
+            result = ((CompletableFuture<?>) returnValue).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+        delegates.handleReturnValue(result, new ResultType(returnType, result), mavContainer, webRequest);
+    }
+
+    /** The future's value type in place of the future — what Spring uses after an async dispatch too */
+    private static final class ResultType extends MethodParameter {
+        private final Class<?> type;
+        private final ResolvableType genericType;
+
+        ResultType(MethodParameter futureType, Object result) {
+            super(futureType);
+            this.genericType = ResolvableType.forMethodParameter(futureType).getGeneric();
+            this.type        = result != null ? result.getClass() : genericType.toClass();
+        }
+
+        private ResultType(ResultType original) {
+            super(original);
+            this.genericType = original.genericType;
+            this.type        = original.type;
+        }
+
+        @Override
+        public Class<?> getParameterType() {
+            return type;
+        }
+
+        @Override
+        public Type getGenericParameterType() {
+            return genericType.getType();
+        }
+
+        @Override
+        public ResultType clone() {
+            return new ResultType(this);
+        }
+    }
+}
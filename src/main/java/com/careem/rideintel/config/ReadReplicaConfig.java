@@ -0,0 +1,80 @@
+package com.careem.rideintel.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.IOException;
+
+/**
+ * Serves read-only transactions from a replica when {@code rideintel.datasource.replica.jdbc-url} is set.
+ * Without it the single auto-configured pool serves everything.
+ *
+ *  - primary: {@code spring.datasource.*}, as before. Writes, Flyway and reads outside a transaction.
+ *  - replica: {@code rideintel.datasource.replica.*} (Hikari properties). {@code @Transactional(readOnly = true)}
+ *    service methods — analytics, listings, NDJSON streams — plus the snapshot build and Spring Data's own
+ *    read-only repository calls.
+ *
+ * Replica reads may lag the primary. A request sent with {@value ReadYourWrites#HEADER}{@code : true} reads
+ * from the primary instead.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "rideintel.datasource.replica", name = "jdbc-url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    @ConfigurationProperties("rideintel.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        return new LazyConnectionDataSourceProxy(new ReadRoutingDataSource(primary, replica));
+    }
+
+    @Bean
+    public OncePerRequestFilter readYourWritesFilter() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                            FilterChain chain) throws ServletException, IOException {
+                if (!Boolean.parseBoolean(request.getHeader(ReadYourWrites.HEADER))) {
+                    chain.doFilter(request, response);
+                    return;
+                }
+                boolean previous = ReadYourWrites.set(true);
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    ReadYourWrites.set(previous);
+                }
+            }
+        };
+    }
+}
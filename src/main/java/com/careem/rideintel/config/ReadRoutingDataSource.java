@@ -0,0 +1,37 @@
+package com.careem.rideintel.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything else —
+ * writes, reads outside a transaction, and reads under {@link ReadYourWrites}.
+ *
+ * The choice is made when a connection is opened, and the transaction manager opens it before it marks the
+ * transaction read-only. Use it behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * which defers opening until the first statement.
+ */
+public class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    public ReadRoutingDataSource(DataSource primary, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ReadYourWrites.isRequested()
+                ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+}
@@ -0,0 +1,55 @@
+package com.careem.rideintel.config;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Per-request escape hatch from the read replica. While set, read-only transactions on this thread go to the
+ * primary like writes do, so a client sees its own writes without waiting for replication. Set for a whole
+ * request by {@value #HEADER}{@code : true}, and carried onto the threads that run the request's work.
+ *
+ * Has no effect unless a replica is configured — see {@link ReadReplicaConfig}.
+ */
+public final class ReadYourWrites {
+
+    public static final String HEADER = "X-Read-Your-Writes";
+
+    private static final ThreadLocal<Boolean> REQUESTED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private ReadYourWrites() {
+    }
+
+    public static boolean isRequested() {
+        return REQUESTED.get();
+    }
+
+    /** Runs {@code call} with every read on the primary */
+    public static <T> T onPrimary(Supplier<T> call) {
+        boolean previous = set(true);
+        try {
+            return call.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /** Binds the calling thread's setting to {@code call}, for running it on another thread */
+    public static <T> Supplier<T> inherit(Supplier<T> call) {
+        return isRequested() ? () -> onPrimary(call) : call;
+    }
+
+    /** {@link #inherit(Supplier)} for a consumer */
+    public static <T> Consumer<T> inherit(Consumer<T> consumer) {
+        return isRequested() ? value -> onPrimary(() -> {
+            consumer.accept(value);
+            return null;
+        }) : consumer;
+    }
+
+    /** @return the previous setting, to restore once the caller is done */
+    static boolean set(boolean requested) {
+        boolean previous = REQUESTED.get();
+        REQUESTED.set(requested);
+        return previous;
+    }
+}
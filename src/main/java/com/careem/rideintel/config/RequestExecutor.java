@@ -0,0 +1,162 @@
+package com.careem.rideintel.config;
+
+import com.careem.rideintel.exception.ServiceOverloadedException;
+import com.careem.rideintel.service.AnomalyDetectionQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking (JPA) part of a request, selected by {@code rideintel.web.execution-mode}.
+ *
+ *  - BLOCKING: on the Tomcat thread, as a plain call. The future handed back is already complete
+ *    and is unwrapped without an async dispatch (see {@link CompletedFutureReturnValueHandler}).
+ *  - ASYNC: on a fixed pool of {@code workers} threads behind a bounded queue. The Tomcat thread is
+ *    released at once, so a surge queues here instead of exhausting the servlet pool. When the queue
+ *    is full the request fails fast with a 503.
+ *
+ * In ASYNC mode startup fails unless every thread that can hold a primary connection at the same
+ * time has one: the workers, the anomaly detection workers and their retry thread, the re-scoring
+ * partitions and the scheduler threads. With ASYNC anomaly detection a worker counts twice — when the detection queue
+ * is full it scores the overflow itself, in a new transaction opened while its own connection is
+ * still held. A running request therefore never waits for a connection.
+ *
+ * Virtual threads would make ASYNC unnecessary, but need JDK 21; this runs on Java 8 and up.
+ */
+@Component
+public class RequestExecutor implements SmartLifecycle, MeterBinder {
+
+    public enum Mode { BLOCKING, ASYNC }
+
+    private static final Logger log = LoggerFactory.getLogger(RequestExecutor.class);
+
+    private final Mode mode;
+    private final int queueCapacity;
+    private final Duration shutdownTimeout;
+    private final ThreadPoolExecutor workerPool;  // null in BLOCKING mode
+    private volatile boolean running;
+
+    public RequestExecutor(@Value("${rideintel.web.execution-mode:BLOCKING}") Mode mode,
+                           @Value("${rideintel.web.async.workers:8}") int workers,
+                           @Value("${rideintel.web.async.queue-capacity:1000}") int queueCapacity,
+                           @Value("${rideintel.web.async.shutdown-timeout:30s}") Duration shutdownTimeout,
+                           @Value("${spring.datasource.hikari.maximum-pool-size:20}") int connectionPoolSize,
+                           @Value("${rideintel.anomaly.detection-mode:SYNC}") AnomalyDetectionQueue.Mode detectionMode,
+                           @Value("${rideintel.anomaly.async.workers:2}") int detectionWorkers,
+                           @Value("${rideintel.anomaly.rescore.parallelism:4}") int rescoreParallelism,
+                           @Value("${spring.task.scheduling.pool.size:1}") int schedulerPoolSize) {
+        if (mode == Mode.ASYNC) {
+            boolean asyncDetection = detectionMode == AnomalyDetectionQueue.Mode.ASYNC;
+            int requestConnections   = asyncDetection ? 2 * workers : workers;
+            int detectionConnections = asyncDetection ? detectionWorkers + 1 : 0;   // + the retry thread
+            int needed = requestConnections + detectionConnections + rescoreParallelism + schedulerPoolSize;
+            if (needed > connectionPoolSize) {
+                throw new IllegalStateException("rideintel.web.async.workers (" + workers + ") leaves the "
+                        + connectionPoolSize + " database connections short: requests need " + requestConnections
+                        + ", anomaly detection workers " + detectionConnections + ", re-scoring " + rescoreParallelism
+                        + " and scheduled jobs " + schedulerPoolSize + "; requests would queue on the pool instead");
+            }
+        }
+        this.mode            = mode;
+        this.queueCapacity   = queueCapacity;
+        this.shutdownTimeout = shutdownTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workerPool = mode != Mode.ASYNC ? null : new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "request-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the call's result — already complete in BLOCKING mode, where exceptions are thrown directly
+     * @throws ServiceOverloadedException when the ASYNC queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        if (workerPool == null) {
+            return CompletableFuture.completedFuture(call.get());
+        }
+        try {
+            return CompletableFuture.supplyAsync(ReadYourWrites.inherit(call), workerPool);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceOverloadedException("Request queue is full (" + queueCapacity + " waiting) — retry shortly");
+        }
+    }
+
+    /**
+     * {@link #submit}, waiting for the result — for work driven from a thread outside the worker pool,
+     * such as the body of a streaming response, that must still count against the connection budget.
+     */
+    public <T> T call(Supplier<T> call) {
+        try {
+            return submit(call).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public boolean isEnabled() {
+        return mode == Mode.ASYNC;
+    }
+
+    /** {@code executor.*} metrics tagged {@code name=requests} — queued, active and completed requests */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (workerPool != null) {
+            new ExecutorServiceMetrics(workerPool, "requests", Collections.emptyList()).bindTo(registry);
+        }
+    }
+
+    // ─── Lifecycle ────────────────────────────────────────────────────────────
+
+    @Override
+    public void start() {
+        running = isEnabled();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+
+        // The web server has stopped accepting requests by now; finish the ones already queued
+        running = false;
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("{} queued requests not finished within {}", workerPool.getQueue().size(), shutdownTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Start before and stop after the web server, so no request can be handed to a stopped pool
+        return Integer.MAX_VALUE - 1024;
+    }
+}
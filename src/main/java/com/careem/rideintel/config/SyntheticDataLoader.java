@@ -0,0 +1,117 @@
+package com.careem.rideintel.config;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.RideService;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Bulk-loads a {@link SyntheticRideGenerator} stream through {@link RideService}, so detection and
+ * every read model see the rides exactly as they would see live traffic.
+ *
+ * Rides go in chunks: one batched create, then one bulk completion for most of the chunk. A few
+ * are cancelled and the rest stay REQUESTED, giving a realistic status mix. Each chunk is its own
+ * set of transactions, so memory stays flat and a load of millions of rows can be stopped at any
+ * point without losing what was already written.
+ */
+@Component
+public class SyntheticDataLoader {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final double COMPLETED_SHARE = 0.85;
+    private static final double CANCELLED_SHARE = 0.03;
+
+    private final RideService rideService;
+
+    public SyntheticDataLoader(RideService rideService) {
+        this.rideService = rideService;
+    }
+
+    /**
+     * @param rides       rides to create
+     * @param seed        same seed, same rides and the same status mix
+     * @param anomalyRate share of rides (0–1) corrupted to trip a detection rule
+     */
+    public Result load(long rides, long seed, double anomalyRate) {
+        SyntheticRideGenerator generator = new SyntheticRideGenerator(rides, seed, anomalyRate);
+        Random outcomes = new Random(seed ^ 0x5DEECE66DL);
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        while (generator.hasNext()) {
+            List<Long> completed = new ArrayList<>(CHUNK_SIZE);
+            List<Long> cancelled = new ArrayList<>();
+
+            rideService.createRides(limit(generator, CHUNK_SIZE), row -> {
+                Long id = row.getRideId();
+                if (id == null) return;   // rejected — nothing to complete or cancel
+                result.created++;
+
+                double u = outcomes.nextDouble();
+                if (u < COMPLETED_SHARE) {
+                    completed.add(id);
+                } else if (u < COMPLETED_SHARE + CANCELLED_SHARE) {
+                    cancelled.add(id);
+                }
+            });
+
+            if (!completed.isEmpty()) {
+                for (RideDTOs.RideResponse ride : rideService.completeRides(completed)) {
+                    if (Boolean.TRUE.equals(ride.getAnomalyDetected())) result.flagged++;
+                }
+                result.completed += completed.size();
+            }
+            for (Long id : cancelled) {
+                rideService.cancelRide(id);
+            }
+            result.cancelled += cancelled.size();
+        }
+
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private static <T> Iterator<T> limit(Iterator<T> source, int max) {
+        return new Iterator<T>() {
+            private int taken;
+
+            @Override
+            public boolean hasNext() {
+                return taken < max && source.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                taken++;
+                return source.next();
+            }
+        };
+    }
+
+    /** Counts of one load; {@code flagged} only covers rides scored in the request (SYNC detection) */
+    public static class Result {
+        private long created;
+        private long completed;
+        private long cancelled;
+        private long flagged;
+        private long elapsedMillis;
+
+        public long getCreated()       { return created; }
+        public long getCompleted()     { return completed; }
+        public long getCancelled()     { return cancelled; }
+        public long getFlagged()       { return flagged; }
+        public long getElapsedMillis() { return elapsedMillis; }
+
+        public double getRidesPerSecond() {
+            return elapsedMillis > 0 ? created * 1000.0 / elapsedMillis : created;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.careem.rideintel.config;
+
+import com.careem.rideintel.dto.RideDTOs;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Deterministic stream of synthetic ride requests with production-like shape.
+ *
+ * Cities and vehicle types are drawn by market share; distances are log-normal around each
+ * city's typical trip; fares follow a per-city tariff (base + per km) scaled by vehicle type
+ * with a little noise; durations come from a per-city traffic speed. Captains and customers
+ * are spread thinly (about 2 and 1 rides each) — a seed is completed in one burst, and denser
+ * accounts would trip the velocity rules on rides that are otherwise clean.
+ *
+ * A share of rides ({@code anomalyRate}) is corrupted the way the detection rules expect to
+ * see fraud — ghost rides, fare spikes, impossible speeds — so flags show up at a known rate.
+ * Requests are produced lazily, one per {@link #next()}: millions of rows never sit in memory.
+ */
+public class SyntheticRideGenerator implements Iterator<RideDTOs.CreateRideRequest> {
+
+    public enum Anomaly { GHOST_RIDE, FARE_SPIKE, DURATION_MISMATCH }
+
+    private static final City[] CITIES = {
+            // name, market share, median trip km, base fare, PKR/km, typical km/h
+            new City("Karachi",    0.30, 9.0,  50, 32, 24),
+            new City("Lahore",     0.24, 8.0,  50, 30, 26),
+            new City("Islamabad",  0.12, 10.0, 55, 36, 34),
+            new City("Rawalpindi", 0.08, 7.0,  45, 30, 25),
+            new City("Faisalabad", 0.07, 6.0,  40, 26, 28),
+            new City("Multan",     0.05, 6.0,  40, 25, 28),
+            new City("Peshawar",   0.05, 6.5,  40, 27, 24),
+            new City("Quetta",     0.03, 5.5,  40, 26, 27),
+            new City("Hyderabad",  0.03, 6.0,  40, 25, 27),
+            new City("Sialkot",    0.03, 5.0,  35, 24, 29),
+    };
+
+    private static final String[] VEHICLE_TYPES = {"ECONOMY", "BUSINESS", "CARPOOL"};
+    private static final double[] VEHICLE_SHARE = {0.70, 0.15, 0.15};
+    private static final double[] VEHICLE_FARE  = {1.0, 1.6, 0.7};
+
+    private final Random random;
+    private final long rides;
+    private final double anomalyRate;
+    private final int captains;
+    private final int customers;
+    private long produced;
+    private Anomaly lastAnomaly;
+
+    /**
+     * @param rides       requests to produce
+     * @param seed        same seed, same stream
+     * @param anomalyRate share of rides (0–1) corrupted to trip a detection rule
+     */
+    public SyntheticRideGenerator(long rides, long seed, double anomalyRate) {
+        this.random      = new Random(seed);
+        this.rides       = rides;
+        this.anomalyRate = anomalyRate;
+        this.captains    = (int) Math.max(1, Math.min(Integer.MAX_VALUE, rides / 2));
+        this.customers   = (int) Math.max(1, Math.min(Integer.MAX_VALUE, rides));
+    }
+
+    @Override
+    public boolean hasNext() {
+        return produced < rides;
+    }
+
+    @Override
+    public RideDTOs.CreateRideRequest next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        produced++;
+
+        City city = CITIES[pick(random.nextDouble())];
+        int vehicle = pickVehicle(random.nextDouble());
+
+        // Trips under 2 km are left out: the base fare alone would put them over the fare/km threshold
+        double distanceKm = clamp(city.medianKm * Math.exp(0.6 * random.nextGaussian()), 2.0, 80.0);
+        double fare = (city.baseFare + city.farePerKm * distanceKm) * VEHICLE_FARE[vehicle]
+                * clamp(1.0 + 0.08 * random.nextGaussian(), 0.8, 1.2);
+        double speedKmh = clamp(city.speedKmh * (1.0 + 0.15 * random.nextGaussian()), 8.0, 90.0);
+        int durationMinutes = (int) Math.max(1, Math.round(distanceKm / speedKmh * 60.0));
+
+        lastAnomaly = null;
+        if (random.nextDouble() < anomalyRate) {
+            lastAnomaly = Anomaly.values()[random.nextInt(Anomaly.values().length)];
+            switch (lastAnomaly) {
+                case GHOST_RIDE:
+                    distanceKm = 0.2 + 0.7 * random.nextDouble();
+                    fare = 600 + 900 * random.nextDouble();
+                    durationMinutes = 2 + random.nextInt(4);
+                    break;
+                case FARE_SPIKE:
+                    fare = distanceKm * (180 + 120 * random.nextDouble());  // past the static 150 PKR/km too
+                    break;
+                default:
+                    distanceKm = 30 + 40 * random.nextDouble();  // 30–70 km in a minute or two
+                    durationMinutes = 1 + random.nextInt(2);
+                    fare = (city.baseFare + city.farePerKm * distanceKm) * VEHICLE_FARE[vehicle];
+                    break;
+            }
+        }
+
+        return RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-" + random.nextInt(captains))
+                .customerId("CUST-" + random.nextInt(customers))
+                .pickupCity(city.name)
+                .dropoffCity(city.name)
+                .distanceKm(round2(distanceKm))
+                .fareAmount(round2(fare))
+                .durationMinutes(durationMinutes)
+                .vehicleType(VEHICLE_TYPES[vehicle])
+                .build();
+    }
+
+    /** The anomaly injected into the request last returned by {@link #next()}, or null if it is clean */
+    public Anomaly lastAnomaly() {
+        return lastAnomaly;
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private static int pick(double u) {
+        for (int i = 0; i < CITIES.length - 1; i++) {
+            u -= CITIES[i].share;
+            if (u < 0) return i;
+        }
+        return CITIES.length - 1;
+    }
+
+    private static int pickVehicle(double u) {
+        for (int i = 0; i < VEHICLE_SHARE.length - 1; i++) {
+            u -= VEHICLE_SHARE[i];
+            if (u < 0) return i;
+        }
+        return VEHICLE_SHARE.length - 1;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static final class City {
+        final String name;
+        final double share;
+        final double medianKm;
+        final double baseFare;
+        final double farePerKm;
+        final double speedKmh;
+
+        City(String name, double share, double medianKm, double baseFare, double farePerKm, double speedKmh) {
+            this.name      = name;
+            this.share     = share;
+            this.medianKm  = medianKm;
+            this.baseFare  = baseFare;
+            this.farePerKm = farePerKm;
+            this.speedKmh  = speedKmh;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.careem.rideintel.config;
+
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig {
+
+    /** Puts {@link CompletedFutureReturnValueHandler} ahead of Spring's own handlers */
+    @Bean
+    public WebMvcRegistrations completedFutureRegistrations() {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new RequestMappingHandlerAdapter() {
+                    @Override
+                    public void afterPropertiesSet() {
+                        super.afterPropertiesSet();
+                        List<HandlerMethodReturnValueHandler> defaults = getReturnValueHandlers();
+                        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>(defaults.size() + 1);
+                        handlers.add(new CompletedFutureReturnValueHandler(
+                                new HandlerMethodReturnValueHandlerComposite().addHandlers(defaults)));
+                        handlers.addAll(defaults);
+                        setReturnValueHandlers(handlers);
+                    }
+                };
+            }
+        };
+    }
+}
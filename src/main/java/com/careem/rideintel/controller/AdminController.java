@@ -0,0 +1,40 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.AnomalyRescoreService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@Tag(name = "Admin", description = "Operational jobs")
+public class AdminController {
+
+    private final AnomalyRescoreService anomalyRescoreService;
+
+    public AdminController(AnomalyRescoreService anomalyRescoreService) {
+        this.anomalyRescoreService = anomalyRescoreService;
+    }
+
+    @PostMapping("/anomaly-rescore")
+    @Operation(summary = "Re-score completed rides against the current rules — resumes an unfinished job from its checkpoint")
+    public ResponseEntity<RideDTOs.RescoreJobResponse> startRescore(
+            @RequestParam(required = false) Integer maxRidesPerSecond) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(anomalyRescoreService.start(maxRidesPerSecond));
+    }
+
+    @GetMapping("/anomaly-rescore")
+    @Operation(summary = "Progress and rides/sec of the latest re-scoring job")
+    public ResponseEntity<RideDTOs.RescoreJobResponse> getRescore() {
+        return ResponseEntity.ok(anomalyRescoreService.latest());
+    }
+
+    @PostMapping("/anomaly-rescore/pause")
+    @Operation(summary = "Pause the running re-scoring job after its current wave")
+    public ResponseEntity<RideDTOs.RescoreJobResponse> pauseRescore() {
+        return ResponseEntity.ok(anomalyRescoreService.pause());
+    }
+}
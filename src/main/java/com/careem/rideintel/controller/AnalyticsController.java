@@ -1,13 +1,23 @@
 package com.careem.rideintel.controller;
 
+import com.careem.rideintel.config.RequestExecutor;
 import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.CityTimeSeriesService;
+import com.careem.rideintel.service.LiveCityAnalyticsService;
+import com.careem.rideintel.service.RideScanFilter;
 import com.careem.rideintel.service.RideService;
+import com.careem.rideintel.service.RideSnapshotService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/analytics")
@@ -15,21 +25,77 @@ import java.util.List;
 public class AnalyticsController {
 
     private final RideService rideService;
+    private final CityTimeSeriesService cityTimeSeriesService;
+    private final LiveCityAnalyticsService liveCityAnalyticsService;
+    private final RideSnapshotService rideSnapshotService;
+    private final RequestExecutor requestExecutor;
 
-    public AnalyticsController(RideService rideService) {
-        this.rideService = rideService;
+    public AnalyticsController(RideService rideService,
+                               CityTimeSeriesService cityTimeSeriesService,
+                               LiveCityAnalyticsService liveCityAnalyticsService,
+                               RideSnapshotService rideSnapshotService,
+                               RequestExecutor requestExecutor) {
+        this.rideService              = rideService;
+        this.cityTimeSeriesService    = cityTimeSeriesService;
+        this.liveCityAnalyticsService = liveCityAnalyticsService;
+        this.rideSnapshotService      = rideSnapshotService;
+        this.requestExecutor          = requestExecutor;
     }
 
     @GetMapping("/cities")
     @Operation(summary = "City-level aggregated ride stats with anomaly rates")
-    public ResponseEntity<List<RideDTOs.AnalyticsResponse>> getCityAnalytics() {
-        return ResponseEntity.ok(rideService.getCityAnalytics());
+    public CompletableFuture<ResponseEntity<List<RideDTOs.AnalyticsResponse>>> getCityAnalytics() {
+        return requestExecutor.submit(() -> ResponseEntity.ok(rideService.getCityAnalytics()));
+    }
+
+    @GetMapping(value = "/cities/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Live city stats over SSE — a snapshot, then per-city deltas every push interval")
+    public SseEmitter streamCityAnalytics() {
+        return liveCityAnalyticsService.subscribe();
+    }
+
+    @GetMapping("/cities/timeseries")
+    @Operation(summary = "City stats per hour, day or week over [from, to) — served from hourly rollups")
+    public CompletableFuture<ResponseEntity<RideDTOs.CityTimeSeriesResponse>> getCityTimeSeries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") String granularity,
+            @RequestParam(required = false) String city) {
+        return requestExecutor.submit(() ->
+                ResponseEntity.ok(cityTimeSeriesService.getCityTimeSeries(from, to, granularity, city)));
     }
 
     @GetMapping("/captains/{captainId}")
     @Operation(summary = "Performance stats for a specific captain")
-    public ResponseEntity<RideDTOs.CaptainStatsResponse> getCaptainStats(
+    public CompletableFuture<ResponseEntity<RideDTOs.CaptainStatsResponse>> getCaptainStats(
             @PathVariable String captainId) {
-        return ResponseEntity.ok(rideService.getCaptainStats(captainId));
+        return requestExecutor.submit(() -> ResponseEntity.ok(rideService.getCaptainStats(captainId)));
+    }
+
+    @GetMapping("/rides/scan")
+    @Operation(summary = "Filter and aggregate rides from the in-memory columnar snapshot — never queries the database")
+    public ResponseEntity<RideDTOs.RideScanResponse> scanRides(
+            @RequestParam(defaultValue = "COMPLETED") String status,
+            @RequestParam(required = false) Boolean flagged,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String vehicleType,
+            @RequestParam(required = false) String captainId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Double minFarePerKm,
+            @RequestParam(required = false) Double maxFarePerKm,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(rideSnapshotService.scan(RideScanFilter.builder()
+                .status(RideSnapshotService.parseStatus(status))
+                .flagged(flagged)
+                .pickupCity(city)
+                .vehicleType(vehicleType)
+                .captainId(captainId)
+                .createdFrom(from)
+                .createdTo(to)
+                .minFarePerKm(minFarePerKm)
+                .maxFarePerKm(maxFarePerKm)
+                .limit(limit)
+                .build()));
     }
 }
\ No newline at end of file
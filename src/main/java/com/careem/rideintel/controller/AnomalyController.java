@@ -0,0 +1,59 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.config.RequestExecutor;
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.AnomalyQueryService;
+import com.careem.rideintel.service.TopAnomalyBoard;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/v1/anomalies")
+@Tag(name = "Anomalies", description = "Flagged rides for fraud review")
+public class AnomalyController {
+
+    private final AnomalyQueryService anomalyQueryService;
+    private final TopAnomalyBoard topAnomalyBoard;
+    private final RequestExecutor requestExecutor;
+
+    public AnomalyController(AnomalyQueryService anomalyQueryService,
+                             TopAnomalyBoard topAnomalyBoard,
+                             RequestExecutor requestExecutor) {
+        this.anomalyQueryService = anomalyQueryService;
+        this.topAnomalyBoard     = topAnomalyBoard;
+        this.requestExecutor     = requestExecutor;
+    }
+
+    @GetMapping
+    @Operation(summary = "Page of anomaly flags, newest first — filter by type, city, captain, score and [from, to); follow nextCursor for more")
+    public CompletableFuture<ResponseEntity<RideDTOs.AnomalyPage>> searchAnomalies(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String captainId,
+            @RequestParam(required = false) Double minScore,
+            @RequestParam(required = false) Double maxScore,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return requestExecutor.submit(() -> ResponseEntity.ok(anomalyQueryService.search(
+                type, city, captainId, minScore, maxScore, from, to, cursor, limit)));
+    }
+
+    @GetMapping("/top")
+    @Operation(summary = "The k highest-scoring anomaly flags — served from memory, never queries the flag table")
+    public ResponseEntity<List<RideDTOs.AnomalyResponse>> topAnomalies(@RequestParam(defaultValue = "100") int k) {
+        List<RideDTOs.AnomalyResponse> top = topAnomalyBoard.top(k);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(topAnomalyBoard.age().getSeconds()))
+                .body(top);
+    }
+}
@@ -0,0 +1,135 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.exception.InvalidRowException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of a bulk-create body one at a time, in the contract of
+ * {@link com.careem.rideintel.service.RideService#createRides(Iterator, java.util.function.Consumer)}:
+ * a row that cannot be mapped throws {@link InvalidRowException} and the next row is read as usual;
+ * a body that cannot be read any further throws {@link InvalidRequestException}.
+ */
+final class BatchRequestReader {
+
+    private BatchRequestReader() {
+    }
+
+    /** One row per line; a malformed line is rejected on its own, blank lines are skipped */
+    static Iterator<RideDTOs.CreateRideRequest> ndjson(ObjectMapper objectMapper, InputStream body) {
+        ObjectReader reader = objectMapper.readerFor(RideDTOs.CreateRideRequest.class);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return new Iterator<RideDTOs.CreateRideRequest>() {
+            private String line;   // the next non-blank line, once read
+            private boolean ended;
+
+            @Override
+            public boolean hasNext() {
+                while (line == null && !ended) {
+                    try {
+                        line = lines.readLine();
+                    } catch (IOException e) {
+                        throw unreadable(e);
+                    }
+                    if (line == null) {
+                        ended = true;
+                    } else if (line.trim().isEmpty()) {
+                        line = null;
+                    }
+                }
+                return line != null;
+            }
+
+            @Override
+            public RideDTOs.CreateRideRequest next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                String row = line;
+                line = null;
+                try {
+                    return reader.readValue(row);
+                } catch (JsonProcessingException e) {
+                    throw new InvalidRowException(errors(e));
+                }
+            }
+        };
+    }
+
+    /**
+     * Elements of a JSON array, parsed as they arrive. An element of the wrong shape is rejected on its own;
+     * a syntax error ends the stream, since the parser cannot tell where the next element starts.
+     *
+     * @throws InvalidRequestException if the body is not a JSON array
+     */
+    static Iterator<RideDTOs.CreateRideRequest> jsonArray(ObjectMapper objectMapper, InputStream body)
+            throws IOException {
+        PushbackInputStream in = new PushbackInputStream(body);
+        int first;
+        do {
+            first = in.read();
+        } while (first != -1 && Character.isWhitespace(first));
+        if (first != '[') {
+            throw new InvalidRequestException("Expected a JSON array of rides");
+        }
+        in.unread(first);
+
+        MappingIterator<RideDTOs.CreateRideRequest> rows =
+                objectMapper.readerFor(RideDTOs.CreateRideRequest.class).readValues(in);
+        return new Iterator<RideDTOs.CreateRideRequest>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rows.hasNextValue();
+                } catch (IOException e) {
+                    throw unreadable(e);
+                }
+            }
+
+            @Override
+            public RideDTOs.CreateRideRequest next() {
+                try {
+                    return rows.nextValue();
+                } catch (JsonMappingException e) {
+                    throw new InvalidRowException(errors(e));   // the iterator skips past the element
+                } catch (IOException e) {
+                    throw unreadable(e);
+                }
+            }
+        };
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    /** Keyed by the offending field, like a validation error, or by "row" when no field is to blame */
+    private static Map<String, String> errors(JsonProcessingException e) {
+        if (e instanceof JsonMappingException) {
+            List<JsonMappingException.Reference> path = ((JsonMappingException) e).getPath();
+            String field = path.isEmpty() ? null : path.get(path.size() - 1).getFieldName();
+            return Collections.singletonMap(field != null ? field : "row", e.getOriginalMessage());
+        }
+        return Collections.singletonMap("row", "Malformed JSON: " + e.getOriginalMessage());
+    }
+
+    private static InvalidRequestException unreadable(IOException e) {
+        String reason = e instanceof JsonProcessingException
+                ? ((JsonProcessingException) e).getOriginalMessage()
+                : e.getMessage();
+        return new InvalidRequestException("Request body unreadable: " + reason);
+    }
+}
@@ -1,63 +1,194 @@
 package com.careem.rideintel.controller;
 
+import com.careem.rideintel.config.ReadYourWrites;
+import com.careem.rideintel.config.RequestExecutor;
 import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.IdempotencyService;
 import com.careem.rideintel.service.RideService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/v1/rides")
 @Tag(name = "Rides", description = "Ride lifecycle management")
 public class RideController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final TypeReference<RideDTOs.RideResponse> RIDE = new TypeReference<RideDTOs.RideResponse>() {};
+    private static final TypeReference<List<RideDTOs.RideResponse>> RIDES =
+            new TypeReference<List<RideDTOs.RideResponse>>() {};
+
     private final RideService rideService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    private final RequestExecutor requestExecutor;
 
-    public RideController(RideService rideService) {
-        this.rideService = rideService;
+    public RideController(RideService rideService,
+                          IdempotencyService idempotencyService,
+                          ObjectMapper objectMapper,
+                          RequestExecutor requestExecutor) {
+        this.rideService        = rideService;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper       = objectMapper;
+        this.requestExecutor    = requestExecutor;
     }
 
     @PostMapping
     @Operation(summary = "Create a new ride request")
-    public ResponseEntity<RideDTOs.RideResponse> createRide(
+    public CompletableFuture<ResponseEntity<RideDTOs.RideResponse>> createRide(
             @Valid @RequestBody RideDTOs.CreateRideRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(rideService.createRide(request));
+        return requestExecutor.submit(() ->
+                ResponseEntity.status(HttpStatus.CREATED).body(rideService.createRide(request)));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Bulk-create rides from a JSON array — returns counts and each row's ride ID or errors; "
+            + "400 with the same body if the array breaks off")
+    public CompletableFuture<ResponseEntity<RideDTOs.BatchCreateResponse>> createRides(InputStream body)
+            throws IOException {
+        Iterator<RideDTOs.CreateRideRequest> rows = BatchRequestReader.jsonArray(objectMapper, body);
+        return requestExecutor.submit(() -> {
+            RideDTOs.BatchCreateResponse response = rideService.createRides(rows);
+            return response.getError() == null
+                    ? ResponseEntity.ok(response)
+                    : ResponseEntity.badRequest().body(response);
+        });
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Bulk-create rides from an NDJSON stream — answers with one result line per row, "
+            + "written as its chunk commits")
+    public ResponseEntity<StreamingResponseBody> createRidesFromStream(InputStream body) {
+        Iterator<RideDTOs.CreateRideRequest> rows = BatchRequestReader.ndjson(objectMapper, body);
+        // Streamed from an MVC async thread, but the chunk commits still run on a request worker
+        return ndjson(RideDTOs.RowResult.class,
+                results -> requestExecutor.call(() -> rideService.createRides(rows, results)));
     }
 
     @GetMapping("/{rideId}")
     @Operation(summary = "Get ride details by ID")
-    public ResponseEntity<RideDTOs.RideResponse> getRide(@PathVariable Long rideId) {
-        return ResponseEntity.ok(rideService.getRideById(rideId));
+    public CompletableFuture<ResponseEntity<RideDTOs.RideResponse>> getRide(@PathVariable Long rideId) {
+        return requestExecutor.submit(() -> ResponseEntity.ok(rideService.getRideById(rideId)));
+    }
+
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Ride lookup cache statistics — size, hits, misses, evictions")
+    public ResponseEntity<RideDTOs.CacheStatsResponse> getRideCacheStats() {
+        return ResponseEntity.ok(rideService.getRideCacheStats());
+    }
+
+    @GetMapping("/{rideId}/anomaly-check")
+    @Operation(summary = "Poll anomaly detection status — PENDING until async scoring finishes")
+    public CompletableFuture<ResponseEntity<RideDTOs.DetectionStatusResponse>> getAnomalyCheck(
+            @PathVariable Long rideId) {
+        return requestExecutor.submit(() -> ResponseEntity.ok(rideService.getDetectionStatus(rideId)));
     }
 
     @PatchMapping("/{rideId}/complete")
-    @Operation(summary = "Mark ride as completed — triggers anomaly detection")
-    public ResponseEntity<RideDTOs.RideResponse> completeRide(@PathVariable Long rideId) {
-        return ResponseEntity.ok(rideService.completeRide(rideId));
+    @Operation(summary = "Mark ride as completed — triggers anomaly detection; repeating it changes nothing")
+    public CompletableFuture<ResponseEntity<RideDTOs.RideResponse>> completeRide(
+            @PathVariable Long rideId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return requestExecutor.submit(() -> ResponseEntity.ok(idempotencyService.execute(
+                idempotencyKey, "PATCH /rides/" + rideId + "/complete", RIDE, () -> rideService.completeRide(rideId))));
+    }
+
+    @PatchMapping("/complete")
+    @Operation(summary = "Complete a batch of rides — anomaly detection runs in a single pass")
+    public CompletableFuture<ResponseEntity<List<RideDTOs.RideResponse>>> completeRides(
+            @Valid @RequestBody RideDTOs.CompleteRidesRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return requestExecutor.submit(() -> ResponseEntity.ok(idempotencyService.execute(
+                idempotencyKey, "PATCH /rides/complete " + request.getRideIds(), RIDES,
+                () -> rideService.completeRides(request.getRideIds()))));
     }
 
     @PatchMapping("/{rideId}/cancel")
-    @Operation(summary = "Cancel a ride")
-    public ResponseEntity<RideDTOs.RideResponse> cancelRide(@PathVariable Long rideId) {
-        return ResponseEntity.ok(rideService.cancelRide(rideId));
+    @Operation(summary = "Cancel a requested or in-progress ride (409 once completed); repeating it changes nothing")
+    public CompletableFuture<ResponseEntity<RideDTOs.RideResponse>> cancelRide(
+            @PathVariable Long rideId,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return requestExecutor.submit(() -> ResponseEntity.ok(idempotencyService.execute(
+                idempotencyKey, "PATCH /rides/" + rideId + "/cancel", RIDE, () -> rideService.cancelRide(rideId))));
+    }
+
+    @GetMapping(value = "/captain/{captainId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get a page of rides for a captain, newest first — follow nextCursor for more")
+    public CompletableFuture<ResponseEntity<RideDTOs.RidePage>> getRidesByCaptain(
+            @PathVariable String captainId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return requestExecutor.submit(() ->
+                ResponseEntity.ok(rideService.getRidesByCaptain(captainId, cursor, limit)));
+    }
+
+    @GetMapping(value = "/captain/{captainId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all rides for a captain as NDJSON (Accept: application/x-ndjson)")
+    public ResponseEntity<StreamingResponseBody> streamRidesByCaptain(@PathVariable String captainId) {
+        return ndjson(RideDTOs.RideResponse.class, sink -> rideService.streamRidesByCaptain(captainId, sink));
     }
 
-    @GetMapping("/captain/{captainId}")
-    @Operation(summary = "Get all rides for a captain")
-    public ResponseEntity<List<RideDTOs.RideResponse>> getRidesByCaptain(
-            @PathVariable String captainId) {
-        return ResponseEntity.ok(rideService.getRidesByCaptain(captainId));
+    @GetMapping(value = "/customer/{customerId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get a page of rides for a customer, newest first — follow nextCursor for more")
+    public CompletableFuture<ResponseEntity<RideDTOs.RidePage>> getRidesByCustomer(
+            @PathVariable String customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return requestExecutor.submit(() ->
+                ResponseEntity.ok(rideService.getRidesByCustomer(customerId, cursor, limit)));
     }
 
-    @GetMapping("/customer/{customerId}")
-    @Operation(summary = "Get all rides for a customer")
-    public ResponseEntity<List<RideDTOs.RideResponse>> getRidesByCustomer(
-            @PathVariable String customerId) {
-        return ResponseEntity.ok(rideService.getRidesByCustomer(customerId));
+    @GetMapping(value = "/customer/{customerId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all rides for a customer as NDJSON (Accept: application/x-ndjson)")
+    public ResponseEntity<StreamingResponseBody> streamRidesByCustomer(@PathVariable String customerId) {
+        return ndjson(RideDTOs.RideResponse.class, sink -> rideService.streamRidesByCustomer(customerId, sink));
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    /**
+     * Wraps a row producer into an NDJSON response: one JSON object per line, written
+     * as rows arrive and flushed by the container's buffer rather than per row.
+     */
+    private <T> ResponseEntity<StreamingResponseBody> ndjson(Class<T> type, Consumer<Consumer<T>> producer) {
+        ObjectWriter writer = objectMapper.writerFor(type)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator((String) null);
+
+        // The body is written on an MVC async thread, not the request's
+        Consumer<Consumer<T>> rows = ReadYourWrites.inherit(producer);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            rows.accept(row -> {
+                try {
+                    writer.writeValue(generator, row);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
-}
\ No newline at end of file
+}
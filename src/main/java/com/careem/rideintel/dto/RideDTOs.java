@@ -1,6 +1,8 @@
 package com.careem.rideintel.dto;
 
+import com.careem.rideintel.model.AnomalyFlag;
 import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.AnomalyFlagView;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,9 +10,13 @@ import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 public class RideDTOs {
 
@@ -51,6 +57,16 @@ public class RideDTOs {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
+    public static class CompleteRidesRequest {
+        @NotEmpty(message = "At least one ride ID is required")
+        @Size(max = 1000, message = "At most 1000 rides can be completed per request")
+        private List<@NotNull Long> rideIds;
+    }
+
+    @Data
+    @Builder(toBuilder = true)
+    @NoArgsConstructor
+    @AllArgsConstructor
     public static class RideResponse {
         private Long id;
         private String captainId;
@@ -64,6 +80,7 @@ public class RideDTOs {
         private String vehicleType;
         private LocalDateTime createdAt;
         private LocalDateTime completedAt;
+        private String detectionState;  // PENDING while asynchronous detection hasn't run yet
         private Boolean anomalyDetected;
         private String anomalyReason;
 
@@ -81,11 +98,70 @@ public class RideDTOs {
                     .vehicleType(ride.getVehicleType())
                     .createdAt(ride.getCreatedAt())
                     .completedAt(ride.getCompletedAt())
+                    .detectionState(ride.getDetectionState() != null ? ride.getDetectionState().name() : null)
                     .anomalyDetected(false)
                     .build();
         }
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CacheStatsResponse {
+        private String cache;
+        private Long size;
+        private Long maximumSize;
+        private Long hitCount;
+        private Long missCount;
+        private Double hitRate;
+        private Long evictionCount;
+        private Long invalidationCount;  // rides invalidated by changes made on this node
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DetectionStatusResponse {
+        private Long rideId;
+        private String state;  // NOT_APPLICABLE, PENDING, CLEAN, FLAGGED
+        private String anomalyType;
+        private Double anomalyScore;
+        private String anomalyReason;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RidePage {
+        private List<RideResponse> rides;
+        private String nextCursor;  // pass back as ?cursor= for the next page; null on the last page
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowResult {
+        private Integer index;               // position of the row in the submitted batch
+        private Long rideId;                 // the created ride; null if the row was rejected
+        private Map<String, String> errors;  // field -> message; null if the row was created
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchCreateResponse {
+        private Integer received;
+        private Integer created;
+        private Integer rejected;
+        private List<RowResult> rows;  // one per row, in input order
+        private String error;          // why reading stopped early; rows after the last result were not read
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -100,6 +176,62 @@ public class RideDTOs {
         private Double anomalyRate;
     }
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LiveCityStats {
+        private String city;
+        private Long requestedRides;  // every ride created in the city, whatever its status
+        private Long completedRides;
+        private Double averageFare;   // over completed rides
+        private Long anomalyCount;
+        private Double anomalyRate;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LiveAnalyticsUpdate {
+        private LocalDateTime at;
+        private List<LiveCityStats> cities;  // snapshot: every city; delta: only cities changed since the last push
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CityTimeSeriesResponse {
+        private String granularity;      // HOUR, DAY, WEEK
+        private LocalDateTime from;      // requested range aligned outwards to whole buckets
+        private LocalDateTime to;
+        private List<CitySeries> series;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CitySeries {
+        private String city;
+        private List<TimeSeriesPoint> points;  // buckets without completed rides are omitted
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimeSeriesPoint {
+        private LocalDateTime bucketStart;
+        private Long totalRides;
+        private Double averageFare;
+        private Double averageDistanceKm;
+        private Double averageDurationMinutes;
+        private Long anomalyCount;
+        private Double anomalyRate;
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -113,4 +245,94 @@ public class RideDTOs {
         private Double averageRating;
         private Long anomaliesDetected;
     }
-}
\ No newline at end of file
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RideScanResponse {
+        private LocalDateTime snapshotTakenAt;  // null until the first snapshot is built
+        private Integer snapshotRides;
+        private Long matchedRides;
+        private Long flaggedRides;
+        private Double totalFare;
+        private Double averageFare;
+        private Double averageFarePerKm;        // total fare / total distance
+        private Double averageDistanceKm;
+        private Double averageDurationMinutes;
+        private List<Long> rideIds;             // lowest matching ids, up to the requested limit
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AnomalyResponse {
+        private Long flagId;
+        private Long rideId;
+        private String type;
+        private Double anomalyScore;
+        private String reason;
+        private LocalDateTime flaggedAt;
+        private String city;
+        private String captainId;
+
+        public static AnomalyResponse from(AnomalyFlag flag) {
+            return AnomalyResponse.builder()
+                    .flagId(flag.getId())
+                    .rideId(flag.getRide().getId())
+                    .type(flag.getType().name())
+                    .anomalyScore(flag.getAnomalyScore())
+                    .reason(flag.getReason())
+                    .flaggedAt(flag.getFlaggedAt())
+                    .city(flag.getRide().getPickupCity())
+                    .captainId(flag.getRide().getCaptainId())
+                    .build();
+        }
+
+        public static AnomalyResponse from(AnomalyFlagView view) {
+            return AnomalyResponse.builder()
+                    .flagId(view.getFlagId())
+                    .rideId(view.getRideId())
+                    .type(view.getType().name())
+                    .anomalyScore(view.getAnomalyScore())
+                    .reason(view.getReason())
+                    .flaggedAt(view.getFlaggedAt())
+                    .city(view.getCity())
+                    .captainId(view.getCaptainId())
+                    .build();
+        }
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AnomalyPage {
+        private List<AnomalyResponse> anomalies;
+        private String nextCursor;  // pass back as ?cursor= for the next page; null on the last page
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RescoreJobResponse {
+        private Long jobId;
+        private String status;                  // RUNNING, PAUSED, FAILED, COMPLETED
+        private String owner;                   // the node running it, while RUNNING
+        private Long nextRideId;                // checkpoint — rides below it are re-scored
+        private Long lastRideId;
+        private Double progress;                // 0.0 to 1.0 of the ID range
+        private Integer maxRidesPerSecond;      // 0 = unthrottled
+        private Long ridesScored;
+        private Double ridesPerSecond;          // over the time spent running
+        private Long flagsCreated;
+        private Long flagsUpdated;
+        private Long flagsCleared;
+        private LocalDateTime startedAt;
+        private LocalDateTime updatedAt;
+        private LocalDateTime finishedAt;
+        private String error;
+    }
+}
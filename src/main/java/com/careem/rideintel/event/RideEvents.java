@@ -0,0 +1,67 @@
+package com.careem.rideintel.event;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Domain events published by the ride services. Listeners run synchronously inside the
+ * publishing transaction, so read models maintained from these events (rollups, totals)
+ * commit or roll back together with the ride change that caused them.
+ *
+ * Events carry lists so batch operations publish once per batch, not once per ride.
+ */
+public class RideEvents {
+
+    @Value
+    public static class RidesCreated {
+        List<Ride> rides;
+    }
+
+    @Value
+    public static class RidesCompleted {
+        List<Ride> rides;
+    }
+
+    @Value
+    public static class RideCancelled {
+        Ride ride;  // requested or in progress until now — completed rides cannot be cancelled
+    }
+
+    @Value
+    public static class AnomaliesFlagged {
+        List<AnomalyFlag> flags;
+    }
+
+    /** Flags deleted by a re-score because their rides no longer trip any rule */
+    @Value
+    public static class AnomaliesCleared {
+        List<AnomalyFlag> flags;
+    }
+
+    /** Flags rewritten in place with a new type, score or reason — the rides stay flagged, so no count changes */
+    @Value
+    public static class AnomaliesRevised {
+        List<AnomalyFlag> flags;
+    }
+
+    /**
+     * A created_at month of rides is being archived: published after its rows are exported and locked, and before
+     * they and their flags are deleted, so in-transaction listeners can still aggregate what is about to go
+     */
+    @Value
+    public static class RidesArchived {
+        LocalDateTime from;  // inclusive
+        LocalDateTime to;    // exclusive
+        long[] rideIds;
+    }
+
+    /** Async detection finished with these rides — their detection state moved from PENDING to DONE */
+    @Value
+    public static class RidesScored {
+        List<Long> rideIds;
+    }
+}
@@ -0,0 +1,18 @@
+package com.careem.rideintel.exception;
+
+import java.util.Map;
+
+/** One row of a bulk request could not be read; the rows after it still can */
+public class InvalidRowException extends InvalidRequestException {
+
+    private final Map<String, String> errors;
+
+    public InvalidRowException(Map<String, String> errors) {
+        super("Unreadable row: " + errors);
+        this.errors = errors;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
@@ -3,7 +3,9 @@ package com.careem.rideintel.model;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -17,14 +19,19 @@ import java.time.LocalDateTime;
 public class AnomalyFlag {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "anomaly_flag_seq")
+    @SequenceGenerator(name = "anomaly_flag_seq", sequenceName = "anomaly_flag_seq", allocationSize = 50)
     private Long id;
 
-    @OneToOne
+    // Lazy: most flag reads never look past the flag. Queries that need the ride fetch-join it or project
+    // its columns; getRide().getId() is answered by the proxy without a select
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ride_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Ride ride;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 1000)
     private String reason;
 
     @Column(nullable = false)
@@ -46,6 +53,9 @@ public class AnomalyFlag {
         FARE_SPIKE,        // Fare disproportionate to distance
         DURATION_MISMATCH, // Duration doesn't match distance
         GHOST_RIDE,        // Very short ride with high fare
-        ROUTE_DEVIATION    // Distance unusually high for city pair
+        ROUTE_DEVIATION,   // Distance unusually high for city pair
+        CAPTAIN_VELOCITY,  // Captain completing rides faster than is humanly possible
+        CUSTOMER_VELOCITY, // Customer completing an implausible number of rides
+        REPEATED_PAIR      // Same captain and customer riding together again and again
     }
 }
\ No newline at end of file
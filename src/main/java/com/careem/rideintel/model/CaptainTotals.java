@@ -0,0 +1,51 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Running per-captain totals, updated as rides are created, completed, cancelled and flagged.
+ * Lets captain stats be served with a primary-key lookup instead of scanning the captain's rides.
+ */
+@Entity
+@Table(name = "captain_totals")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaptainTotals {
+
+    @Id
+    @Column(nullable = false)
+    private String captainId;
+
+    @Column(nullable = false)
+    private Long totalRides;
+
+    @Column(nullable = false)
+    private Long completedRides;
+
+    @Column(nullable = false)
+    private Long cancelledRides;
+
+    @Column(nullable = false)
+    private Double totalEarnings;
+
+    @Column(nullable = false)
+    private Long anomalies;
+
+    public static CaptainTotals empty(String captainId) {
+        return CaptainTotals.builder()
+                .captainId(captainId)
+                .totalRides(0L)
+                .completedRides(0L)
+                .cancelledRides(0L)
+                .totalEarnings(0.0)
+                .anomalies(0L)
+                .build();
+    }
+}
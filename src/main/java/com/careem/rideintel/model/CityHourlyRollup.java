@@ -0,0 +1,60 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Completed-ride totals per (hour of completion, pickup city, vehicle type). Like {@link CityRollup}
+ * the counters are additive, so each completion is one UPDATE and coarser views are plain sums.
+ */
+@Entity
+@Table(name = "city_hourly_rollup")
+@IdClass(CityHourlyRollup.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityHourlyRollup {
+
+    @Id
+    @Column(nullable = false)
+    private LocalDateTime bucketHour;  // completion time truncated to the hour
+
+    @Id
+    @Column(nullable = false)
+    private String city;
+
+    @Id
+    @Column(nullable = false)
+    private String vehicleType;
+
+    @Column(nullable = false)
+    private Long completedRides;
+
+    @Column(nullable = false)
+    private Double totalFare;
+
+    @Column(nullable = false)
+    private Double totalDistanceKm;
+
+    @Column(nullable = false)
+    private Long totalDurationMinutes;
+
+    @Column(nullable = false)
+    private Long anomalyCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDateTime bucketHour;
+        private String city;
+        private String vehicleType;
+    }
+}
@@ -0,0 +1,49 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Typical trip distance for a (pickup, dropoff) city pair — the ROUTE_DEVIATION baseline.
+ * Read into memory as a {@link com.careem.rideintel.rule.CityPairIndex}; never queried per ride.
+ */
+@Entity
+@Table(name = "city_pair_baselines")
+@IdClass(CityPairBaseline.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityPairBaseline {
+
+    @Id
+    @Column(nullable = false)
+    private String pickupCity;
+
+    @Id
+    @Column(nullable = false)
+    private String dropoffCity;
+
+    @Column(nullable = false)
+    private Double baselineKm;
+
+    @Column(nullable = false)
+    private Long sampleCount;  // 0 = seeded straight-line distance, not yet learned from rides
+
+    @Column(nullable = false)
+    private LocalDateTime refreshedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String pickupCity;
+        private String dropoffCity;
+    }
+}
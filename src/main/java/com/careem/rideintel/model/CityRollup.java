@@ -0,0 +1,51 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Incrementally maintained per-city totals over completed rides.
+ * Averages are derived on read, so each completion is a single UPDATE of additive counters.
+ */
+@Entity
+@Table(name = "city_rollup")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CityRollup {
+
+    @Id
+    @Column(nullable = false)
+    private String city;
+
+    @Column(nullable = false)
+    private Long completedRides;
+
+    @Column(nullable = false)
+    private Double totalFare;
+
+    @Column(nullable = false)
+    private Double totalDistanceKm;
+
+    @Column(nullable = false)
+    private Long totalDurationMinutes;
+
+    @Column(nullable = false)
+    private Long anomalyCount;
+
+    public static CityRollup empty(String city) {
+        return CityRollup.builder()
+                .city(city)
+                .completedRides(0L)
+                .totalFare(0.0)
+                .totalDistanceKm(0.0)
+                .totalDurationMinutes(0L)
+                .anomalyCount(0L)
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * The response a PATCH ride request produced under a client's {@code Idempotency-Key} — see
+ * {@link com.careem.rideintel.service.IdempotencyService}. Written in the transaction that did the work.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    @Column(nullable = false, length = 64)
+    private String requestHash;     // SHA-256 (hex) of the request the key was first used with
+
+    @Column(nullable = false, length = 1000000)
+    private String responseBody;    // JSON
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,85 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of one re-scoring run over completed rides — see
+ * {@link com.careem.rideintel.service.AnomalyRescoreService}. Rides below {@code nextRideId} are done.
+ */
+@Entity
+@Table(name = "rescore_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RescoreJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "rescore_job_seq")
+    @SequenceGenerator(name = "rescore_job_seq", sequenceName = "rescore_job_seq", allocationSize = 1)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(nullable = false)
+    private Long nextRideId;        // checkpoint — the first ride not yet re-scored
+
+    @Column(nullable = false)
+    private Long lastRideId;        // highest ride ID when the job started; later rides were scored live
+
+    @Column(nullable = false)
+    private Integer maxRidesPerSecond;  // 0 = unthrottled
+
+    @Column(nullable = false)
+    private Long ridesScored;
+
+    @Column(nullable = false)
+    private Long flagsCreated;
+
+    @Column(nullable = false)
+    private Long flagsUpdated;
+
+    @Column(nullable = false)
+    private Long flagsCleared;
+
+    @Column(nullable = false)
+    private Long elapsedMillis;     // time spent running, across resumes
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column
+    private String owner;           // the node running the job, while it is RUNNING
+
+    @Column
+    private LocalDateTime heartbeatAt;  // refreshed by the owner; a RUNNING job with a stale one is abandoned
+
+    // Optimistic lock — also bumped by the claim and abandon UPDATEs in RescoreJobRepository
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    public enum Status {
+        RUNNING,
+        PAUSED,     // stopped on request, by shutdown or after its owner went silent — resumable
+        FAILED,     // a partition failed — resumable from the checkpoint
+        COMPLETED
+    }
+}
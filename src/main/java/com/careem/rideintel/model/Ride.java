@@ -19,8 +19,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Ride {
 
+    // Pooled sequence (not IDENTITY) so Hibernate can allocate ids up front and batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ride_seq")
+    @SequenceGenerator(name = "ride_seq", sequenceName = "ride_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -66,6 +68,15 @@ public class Ride {
     @Column(nullable = false)
     private String vehicleType;  // ECONOMY, BUSINESS, CARPOOL
 
+    @Enumerated(EnumType.STRING)
+    @Column
+    private DetectionState detectionState;  // null until the ride is completed
+
+    // Optimistic lock — also bumped by the conditional status UPDATEs in RideRepository
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -74,4 +85,9 @@ public class Ride {
     public enum RideStatus {
         REQUESTED, IN_PROGRESS, COMPLETED, CANCELLED
     }
+
+    public enum DetectionState {
+        PENDING,  // queued for asynchronous anomaly detection
+        DONE      // rules have run; a flag exists if any fired
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A gzipped NDJSON file holding one month of rides (by {@code created_at}) that were dropped from the
+ * {@code rides} table — see {@link com.careem.rideintel.service.RidePartitionService}.
+ */
+@Entity
+@Table(name = "ride_archives")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideArchive {
+
+    @Id
+    @Column(length = 1000)
+    private String file;
+
+    @Column(nullable = false, length = 7)
+    private String partitionMonth;  // yyyy-MM
+
+    @Column(nullable = false)
+    private Long rideCount;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,66 @@
+package com.careem.rideintel.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted state of one {@link com.careem.rideintel.rule.StreamingStats} — written periodically
+ * and read back on startup so adaptive thresholds survive restarts.
+ */
+@Entity
+@Table(name = "ride_stat_snapshots")
+@IdClass(RideStatSnapshot.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RideStatSnapshot {
+
+    @Id
+    @Column(nullable = false)
+    private String pickupCity;
+
+    @Id
+    @Column(nullable = false)
+    private String vehicleType;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Metric metric;
+
+    @Column(nullable = false)
+    private Long sampleCount;
+
+    @Column(nullable = false)
+    private Double mean;
+
+    @Column(nullable = false)
+    private Double m2;  // Welford sum of squared deviations
+
+    @Column(nullable = false, length = 8000)
+    private String histogram;
+
+    @Column(nullable = false)
+    private LocalDateTime snapshotAt;
+
+    public enum Metric {
+        FARE_PER_KM,  // PKR per km
+        SPEED_KMH     // implied average speed
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String pickupCity;
+        private String vehicleType;
+        private Metric metric;
+    }
+}
@@ -1,27 +1,52 @@
 package com.careem.rideintel.repository;
 
 import com.careem.rideintel.model.AnomalyFlag;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AnomalyFlagRepository extends JpaRepository<AnomalyFlag, Long> {
+public interface AnomalyFlagRepository extends JpaRepository<AnomalyFlag, Long>, AnomalyFlagRepositoryCustom {
 
-    Optional<AnomalyFlag> findByRideId(Long rideId);
+    /** Select list for {@link AnomalyFlagView} — alias the flag {@code a} and its joined ride {@code r} */
+    String VIEW = "new com.careem.rideintel.repository.AnomalyFlagView("
+            + "a.id, r.id, a.type, a.anomalyScore, a.reason, a.flaggedAt, r.pickupCity, r.captainId)";
 
-    List<AnomalyFlag> findByType(AnomalyFlag.AnomalyType type);
+    // Filter on the FK column directly — the derived query joined rides and scanned anomaly_flags
+    @Query("SELECT a FROM AnomalyFlag a WHERE a.ride.id = :rideId")
+    Optional<AnomalyFlag> findByRideId(@Param("rideId") Long rideId);
 
-    @Query("SELECT COUNT(a) FROM AnomalyFlag a WHERE a.ride.captainId = :captainId")
+    @Query("SELECT a FROM AnomalyFlag a WHERE a.ride.id IN :rideIds")
+    List<AnomalyFlag> findByRideIdIn(@Param("rideIds") Collection<Long> rideIds);
+
+    // Entity reads that go on to touch the ride fetch it in the same query — AnomalyFlag.ride is lazy
+    @Query("SELECT a FROM AnomalyFlag a JOIN FETCH a.ride WHERE a.type = :type ORDER BY a.flaggedAt DESC, a.id DESC")
+    List<AnomalyFlag> findByType(@Param("type") AnomalyFlag.AnomalyType type, Pageable page);
+
+    @Query("SELECT COUNT(a) FROM AnomalyFlag a JOIN a.ride r WHERE r.captainId = :captainId")
     Long countByCaptainId(@Param("captainId") String captainId);
 
     @Query("SELECT COUNT(a) FROM AnomalyFlag a JOIN a.ride r WHERE r.pickupCity = :city")
     Long countByCity(@Param("city") String city);
 
-    @Query("SELECT a FROM AnomalyFlag a WHERE a.anomalyScore >= :minScore ORDER BY a.anomalyScore DESC")
-    List<AnomalyFlag> findHighScoreAnomalies(@Param("minScore") Double minScore);
-}
\ No newline at end of file
+    @Query("SELECT a FROM AnomalyFlag a JOIN FETCH a.ride WHERE a.anomalyScore >= :minScore ORDER BY a.anomalyScore DESC, a.id DESC")
+    List<AnomalyFlag> findHighScoreAnomalies(@Param("minScore") Double minScore, Pageable page);
+
+    // Highest scores first — reloads the top-K board; walks the score index, never the table
+    @Query("SELECT " + VIEW + " FROM AnomalyFlag a JOIN a.ride r ORDER BY a.anomalyScore DESC, a.id DESC")
+    List<AnomalyFlagView> findTopByScore(Pageable page);
+
+    // Flags of a created_at month of rides being archived — they go with their rides
+    @Modifying
+    @Query("DELETE FROM AnomalyFlag a WHERE a.ride.id IN " +
+            "(SELECT r.id FROM Ride r WHERE r.createdAt >= :from AND r.createdAt < :to)")
+    int deleteByRideCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
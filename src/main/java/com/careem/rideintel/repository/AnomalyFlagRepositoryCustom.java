@@ -0,0 +1,13 @@
+package com.careem.rideintel.repository;
+
+import java.util.List;
+
+public interface AnomalyFlagRepositoryCustom {
+
+    /**
+     * One page of flags matching every non-null field of {@code search}, newest first, projected with
+     * their ride's city and captain in the same query. Only the given filters appear in the SQL, so each combination gets its
+     * own index-friendly plan rather than one catch-all {@code (:x IS NULL OR ...)} query.
+     */
+    List<AnomalyFlagView> search(AnomalySearch search, int limit);
+}
@@ -0,0 +1,66 @@
+package com.careem.rideintel.repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Spring Data picks this up as the implementation of {@link AnomalyFlagRepositoryCustom} */
+class AnomalyFlagRepositoryImpl implements AnomalyFlagRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AnomalyFlagView> search(AnomalySearch search, int limit) {
+        List<String> predicates = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (search.getType() != null) {
+            predicates.add("a.type = :type");
+            params.put("type", search.getType());
+        }
+        if (search.getCity() != null) {
+            predicates.add("r.pickupCity = :city");
+            params.put("city", search.getCity());
+        }
+        if (search.getCaptainId() != null) {
+            predicates.add("r.captainId = :captainId");
+            params.put("captainId", search.getCaptainId());
+        }
+        if (search.getMinScore() != null) {
+            predicates.add("a.anomalyScore >= :minScore");
+            params.put("minScore", search.getMinScore());
+        }
+        if (search.getMaxScore() != null) {
+            predicates.add("a.anomalyScore <= :maxScore");
+            params.put("maxScore", search.getMaxScore());
+        }
+        if (search.getFlaggedFrom() != null) {
+            predicates.add("a.flaggedAt >= :flaggedFrom");
+            params.put("flaggedFrom", search.getFlaggedFrom());
+        }
+        if (search.getFlaggedTo() != null) {
+            predicates.add("a.flaggedAt < :flaggedTo");
+            params.put("flaggedTo", search.getFlaggedTo());
+        }
+        if (search.getAfterId() != null) {
+            predicates.add("(a.flaggedAt < :afterFlaggedAt OR (a.flaggedAt = :afterFlaggedAt AND a.id < :afterId))");
+            params.put("afterFlaggedAt", search.getAfterFlaggedAt());
+            params.put("afterId", search.getAfterId());
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT " + AnomalyFlagRepository.VIEW + " FROM AnomalyFlag a JOIN a.ride r");
+        if (!predicates.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", predicates));
+        }
+        jpql.append(" ORDER BY a.flaggedAt DESC, a.id DESC");
+
+        TypedQuery<AnomalyFlagView> query = entityManager.createQuery(jpql.toString(), AnomalyFlagView.class)
+                .setMaxResults(limit);
+        params.forEach(query::setParameter);
+        return query.getResultList();
+    }
+}
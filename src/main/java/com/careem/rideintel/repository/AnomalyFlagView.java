@@ -0,0 +1,23 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a flag and the ride columns the anomaly API shows. Selected with a JPQL
+ * constructor expression, so listing flags is one query that hydrates no entities — constructor
+ * argument order is the select-list order.
+ */
+@Value
+public class AnomalyFlagView {
+    Long flagId;
+    Long rideId;
+    AnomalyFlag.AnomalyType type;
+    Double anomalyScore;
+    String reason;
+    LocalDateTime flaggedAt;
+    String city;                    // the ride's pickup city
+    String captainId;
+}
@@ -0,0 +1,22 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/** Filter and keyset position for {@link AnomalyFlagRepositoryCustom#search} — null fields match every flag */
+@Value
+@Builder
+public class AnomalySearch {
+    AnomalyFlag.AnomalyType type;
+    String city;                    // the ride's pickup city
+    String captainId;
+    Double minScore;                // inclusive
+    Double maxScore;                // inclusive
+    LocalDateTime flaggedFrom;      // inclusive
+    LocalDateTime flaggedTo;        // exclusive
+    LocalDateTime afterFlaggedAt;   // cursor: (flaggedAt, id) of the last flag on the previous page
+    Long afterId;
+}
@@ -0,0 +1,38 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.CaptainTotals;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CaptainTotalsRepository extends JpaRepository<CaptainTotals, String> {
+
+    // Additive update of every counter — deltas are negative when flags are cleared or rides are archived
+    @Modifying
+    @Query("UPDATE CaptainTotals c SET c.totalRides = c.totalRides + :total, " +
+            "c.completedRides = c.completedRides + :completed, " +
+            "c.cancelledRides = c.cancelledRides + :cancelled, " +
+            "c.totalEarnings = c.totalEarnings + :earnings, " +
+            "c.anomalies = c.anomalies + :anomalies " +
+            "WHERE c.captainId = :captainId")
+    int addTotals(@Param("captainId") String captainId,
+                  @Param("total") long total,
+                  @Param("completed") long completed,
+                  @Param("cancelled") long cancelled,
+                  @Param("earnings") double earnings,
+                  @Param("anomalies") long anomalies);
+
+    // Zero row for a captain seen for the first time (V16 defaults); a concurrent insert of the same captain is skipped
+    @Modifying
+    @Query(value = "INSERT INTO captain_totals (captain_id) VALUES (:captainId) " +
+            "ON CONFLICT (captain_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("captainId") String captainId);
+
+    // H2 has no ON CONFLICT outside its PostgreSQL mode; its MERGE ... KEY waits for a racing insert and keeps it
+    @Modifying
+    @Query(value = "MERGE INTO captain_totals (captain_id) KEY (captain_id) VALUES (:captainId)", nativeQuery = true)
+    int mergeIfAbsent(@Param("captainId") String captainId);
+}
@@ -0,0 +1,70 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.CityHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CityHourlyRollupRepository extends JpaRepository<CityHourlyRollup, CityHourlyRollup.Key> {
+
+    // Additive updates — completions only add; anomaly counts go down when flags are cleared
+    @Modifying
+    @Query("UPDATE CityHourlyRollup c SET c.completedRides = c.completedRides + :rides, " +
+            "c.totalFare = c.totalFare + :fare, " +
+            "c.totalDistanceKm = c.totalDistanceKm + :distanceKm, " +
+            "c.totalDurationMinutes = c.totalDurationMinutes + :durationMinutes " +
+            "WHERE c.bucketHour = :bucketHour AND c.city = :city AND c.vehicleType = :vehicleType")
+    int addCompletions(@Param("bucketHour") LocalDateTime bucketHour,
+                       @Param("city") String city,
+                       @Param("vehicleType") String vehicleType,
+                       @Param("rides") long rides,
+                       @Param("fare") double fare,
+                       @Param("distanceKm") double distanceKm,
+                       @Param("durationMinutes") long durationMinutes);
+
+    @Modifying
+    @Query("UPDATE CityHourlyRollup c SET c.anomalyCount = c.anomalyCount + :count " +
+            "WHERE c.bucketHour = :bucketHour AND c.city = :city AND c.vehicleType = :vehicleType")
+    int addAnomalies(@Param("bucketHour") LocalDateTime bucketHour,
+                     @Param("city") String city,
+                     @Param("vehicleType") String vehicleType,
+                     @Param("count") long count);
+
+    // Per-(hour, city) sums over vehicle types in [from, to) — a primary-key range scan
+    @Query("SELECT c.bucketHour, c.city, SUM(c.completedRides), SUM(c.totalFare), SUM(c.totalDistanceKm), " +
+            "SUM(c.totalDurationMinutes), SUM(c.anomalyCount) " +
+            "FROM CityHourlyRollup c WHERE c.bucketHour >= :from AND c.bucketHour < :to " +
+            "GROUP BY c.bucketHour, c.city ORDER BY c.bucketHour, c.city")
+    List<Object[]> sumByHourAndCity(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT c.bucketHour, c.city, SUM(c.completedRides), SUM(c.totalFare), SUM(c.totalDistanceKm), " +
+            "SUM(c.totalDurationMinutes), SUM(c.anomalyCount) " +
+            "FROM CityHourlyRollup c WHERE c.bucketHour >= :from AND c.bucketHour < :to AND c.city = :city " +
+            "GROUP BY c.bucketHour, c.city ORDER BY c.bucketHour")
+    List<Object[]> sumByHourForCity(@Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("city") String city);
+
+    // Zero row for a bucket seen for the first time (V16 defaults); a concurrent insert of the same bucket is skipped
+    @Modifying
+    @Query(value = "INSERT INTO city_hourly_rollup (bucket_hour, city, vehicle_type) " +
+            "VALUES (:bucketHour, :city, :vehicleType) " +
+            "ON CONFLICT (bucket_hour, city, vehicle_type) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("bucketHour") LocalDateTime bucketHour,
+                       @Param("city") String city,
+                       @Param("vehicleType") String vehicleType);
+
+    // H2 has no ON CONFLICT outside its PostgreSQL mode; its MERGE ... KEY waits for a racing insert and keeps it
+    @Modifying
+    @Query(value = "MERGE INTO city_hourly_rollup (bucket_hour, city, vehicle_type) " +
+            "KEY (bucket_hour, city, vehicle_type) VALUES (:bucketHour, :city, :vehicleType)", nativeQuery = true)
+    int mergeIfAbsent(@Param("bucketHour") LocalDateTime bucketHour,
+                      @Param("city") String city,
+                      @Param("vehicleType") String vehicleType);
+}
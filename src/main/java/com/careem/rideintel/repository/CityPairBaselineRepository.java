@@ -0,0 +1,9 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.CityPairBaseline;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CityPairBaselineRepository extends JpaRepository<CityPairBaseline, CityPairBaseline.Key> {
+}
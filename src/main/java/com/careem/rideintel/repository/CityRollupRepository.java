@@ -0,0 +1,39 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.CityRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CityRollupRepository extends JpaRepository<CityRollup, String> {
+
+    // Additive updates — deltas are negative when flags are cleared or rides are archived
+    @Modifying
+    @Query("UPDATE CityRollup c SET c.completedRides = c.completedRides + :rides, " +
+            "c.totalFare = c.totalFare + :fare, " +
+            "c.totalDistanceKm = c.totalDistanceKm + :distanceKm, " +
+            "c.totalDurationMinutes = c.totalDurationMinutes + :durationMinutes " +
+            "WHERE c.city = :city")
+    int addCompletions(@Param("city") String city,
+                       @Param("rides") long rides,
+                       @Param("fare") double fare,
+                       @Param("distanceKm") double distanceKm,
+                       @Param("durationMinutes") long durationMinutes);
+
+    @Modifying
+    @Query("UPDATE CityRollup c SET c.anomalyCount = c.anomalyCount + :count WHERE c.city = :city")
+    int addAnomalies(@Param("city") String city, @Param("count") long count);
+
+    // Zero row for a city seen for the first time (V16 defaults); a concurrent insert of the same city is skipped
+    @Modifying
+    @Query(value = "INSERT INTO city_rollup (city) VALUES (:city) ON CONFLICT (city) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("city") String city);
+
+    // H2 has no ON CONFLICT outside its PostgreSQL mode; its MERGE ... KEY waits for a racing insert and keeps it
+    @Modifying
+    @Query(value = "MERGE INTO city_rollup (city) KEY (city) VALUES (:city)", nativeQuery = true)
+    int mergeIfAbsent(@Param("city") String city);
+}
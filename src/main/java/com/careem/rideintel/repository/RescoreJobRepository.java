@@ -0,0 +1,50 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.RescoreJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RescoreJobRepository extends JpaRepository<RescoreJob, Long> {
+
+    @Query("SELECT j FROM RescoreJob j WHERE j.status IN :statuses ORDER BY j.id DESC")
+    List<RescoreJob> findByStatusIn(@Param("statuses") Collection<RescoreJob.Status> statuses);
+
+    Optional<RescoreJob> findFirstByOrderByIdDesc();
+
+    /**
+     * Claims the job for {@code owner} if nobody changed it since it was read at {@code version} and it is not
+     * RUNNING with a heartbeat after {@code staleBefore}
+     *
+     * @return 1 if claimed, 0 if another node got there first
+     */
+    @Modifying
+    @Query("UPDATE RescoreJob j SET j.status = 'RUNNING', j.owner = :owner, j.heartbeatAt = :now, " +
+            "j.maxRidesPerSecond = :rate, j.error = NULL, j.updatedAt = :now, j.version = j.version + 1 " +
+            "WHERE j.id = :id AND j.version = :version AND j.status <> 'COMPLETED' " +
+            "AND (j.status <> 'RUNNING' OR j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)")
+    int claim(@Param("id") Long id, @Param("version") Long version, @Param("owner") String owner,
+              @Param("rate") Integer rate, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    /** @return 0 once {@code owner} no longer runs the job — it was paused or claimed elsewhere */
+    @Modifying
+    @Query("UPDATE RescoreJob j SET j.heartbeatAt = :now " +
+            "WHERE j.id = :id AND j.owner = :owner AND j.status = 'RUNNING'")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    /** Pauses RUNNING jobs whose owner stopped heartbeating before {@code staleBefore}, e.g. because it crashed */
+    @Modifying
+    @Query("UPDATE RescoreJob j SET j.status = 'PAUSED', j.owner = NULL, j.updatedAt = :now, " +
+            "j.version = j.version + 1 " +
+            "WHERE j.status = 'RUNNING' AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :staleBefore)")
+    int pauseAbandoned(@Param("staleBefore") LocalDateTime staleBefore, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,13 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.RideArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RideArchiveRepository extends JpaRepository<RideArchive, String> {
+
+    List<RideArchive> findByPartitionMonth(String partitionMonth);
+}
@@ -1,13 +1,22 @@
 package com.careem.rideintel.repository;
 
 import com.careem.rideintel.model.Ride;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface RideRepository extends JpaRepository<Ride, Long> {
@@ -16,6 +25,80 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
 
     List<Ride> findByCustomerId(String customerId);
 
+    // Keyset pagination — newest first, (createdAt, id) is the cursor; the page size comes from the Pageable
+    @Query("SELECT r FROM Ride r WHERE r.captainId = :captainId ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByCaptainId(@Param("captainId") String captainId, Pageable page);
+
+    @Query("SELECT r FROM Ride r WHERE r.captainId = :captainId " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByCaptainIdBefore(@Param("captainId") String captainId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable page);
+
+    @Query("SELECT r FROM Ride r WHERE r.customerId = :customerId ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByCustomerId(@Param("customerId") String customerId, Pageable page);
+
+    @Query("SELECT r FROM Ride r WHERE r.customerId = :customerId " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findPageByCustomerIdBefore(@Param("customerId") String customerId,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          Pageable page);
+
+    // Cursor-backed streams for NDJSON export — must be consumed inside a transaction and closed
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT r FROM Ride r WHERE r.captainId = :captainId ORDER BY r.createdAt DESC, r.id DESC")
+    Stream<Ride> streamByCaptainId(@Param("captainId") String captainId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT r FROM Ride r WHERE r.customerId = :customerId ORDER BY r.createdAt DESC, r.id DESC")
+    Stream<Ride> streamByCustomerId(@Param("customerId") String customerId);
+
+    // Every ride as scalar columns with its flag id (null when clean), in id order — feeds the columnar snapshot
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "1000"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT r.id, r.pickupCity, r.dropoffCity, r.vehicleType, r.captainId, r.status, " +
+            "r.fareAmount, r.distanceKm, r.durationMinutes, r.createdAt, a.id " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r ORDER BY r.id")
+    Stream<Object[]> streamSnapshotRows();
+
+    // Re-scoring partitions — the completed rides in [fromId, toId), a primary-key range scan
+    @Query("SELECT r FROM Ride r WHERE r.id >= :fromId AND r.id < :toId AND r.status = 'COMPLETED' ORDER BY r.id")
+    List<Ride> findCompletedInIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query("SELECT MAX(r.id) FROM Ride r")
+    Long findMaxId();
+
+    // Archival of whole created_at months (RidePartitionService)
+    @Query("SELECT MIN(r.createdAt) FROM Ride r")
+    LocalDateTime findEarliestCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM Ride r WHERE r.createdAt >= :from AND r.createdAt < :to")
+    int deleteCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // What an archived month contributed to the read models, taken back out when it is archived
+    @Query("SELECT r.pickupCity, COUNT(r), SUM(r.fareAmount), SUM(r.distanceKm), SUM(r.durationMinutes), COUNT(a) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r " +
+            "WHERE r.status = 'COMPLETED' AND r.createdAt >= :from AND r.createdAt < :to " +
+            "GROUP BY r.pickupCity ORDER BY r.pickupCity")
+    List<Object[]> getCityTotalsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT r.pickupCity, COUNT(r) FROM Ride r WHERE r.createdAt >= :from AND r.createdAt < :to " +
+            "GROUP BY r.pickupCity")
+    List<Object[]> getCityRideCountsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT r.captainId, COUNT(r), " +
+            "SUM(CASE WHEN r.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'CANCELLED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.fareAmount ELSE 0.0 END), " +
+            "COUNT(a) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r " +
+            "WHERE r.createdAt >= :from AND r.createdAt < :to GROUP BY r.captainId ORDER BY r.captainId")
+    List<Object[]> getCaptainStatsCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     List<Ride> findByPickupCity(String city);
 
     List<Ride> findByStatus(Ride.RideStatus status);
@@ -24,7 +107,7 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
     @Query("SELECT r.pickupCity, AVG(r.fareAmount) FROM Ride r WHERE r.status = 'COMPLETED' GROUP BY r.pickupCity")
     List<Object[]> getAverageFareByCity();
 
-    // Rides in a date range
+    // Rides in a date range — on Postgres, only the monthly partitions the range overlaps are read
     @Query("SELECT r FROM Ride r WHERE r.createdAt BETWEEN :start AND :end")
     List<Ride> findByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
 
@@ -32,16 +115,79 @@ public interface RideRepository extends JpaRepository<Ride, Long> {
     @Query("SELECT r.captainId, SUM(r.fareAmount), COUNT(r) FROM Ride r WHERE r.status = 'COMPLETED' GROUP BY r.captainId")
     List<Object[]> getCaptainEarnings();
 
-    // City-level ride counts
-    @Query("SELECT r.pickupCity, COUNT(r), AVG(r.fareAmount), AVG(r.distanceKm), AVG(r.durationMinutes) " +
-            "FROM Ride r WHERE r.status = 'COMPLETED' GROUP BY r.pickupCity")
+    // City-level ride counts and anomaly counts — flags are joined in, not counted per city
+    @Query("SELECT r.pickupCity, COUNT(r), AVG(r.fareAmount), AVG(r.distanceKm), AVG(r.durationMinutes), COUNT(a) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r " +
+            "WHERE r.status = 'COMPLETED' GROUP BY r.pickupCity")
     List<Object[]> getCityAnalytics();
 
+    // Additive city totals — used to (re)build the city_rollup table
+    @Query("SELECT r.pickupCity, COUNT(r), SUM(r.fareAmount), SUM(r.distanceKm), SUM(r.durationMinutes), COUNT(a) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r " +
+            "WHERE r.status = 'COMPLETED' GROUP BY r.pickupCity")
+    List<Object[]> getCityTotals();
+
+    // Rides ever requested per city, whatever their status — seeds the live analytics counters
+    @Query("SELECT r.pickupCity, COUNT(r) FROM Ride r GROUP BY r.pickupCity")
+    List<Object[]> getCityRideCounts();
+
+    // Average clean-ride distance per city pair — flagged rides are left out so outliers don't drag the baseline
+    @Query("SELECT r.pickupCity, r.dropoffCity, AVG(r.distanceKm), COUNT(r) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r " +
+            "WHERE r.status = 'COMPLETED' AND a.id IS NULL " +
+            "GROUP BY r.pickupCity, r.dropoffCity HAVING COUNT(r) >= :minSamples")
+    List<Object[]> getCityPairDistances(@Param("minSamples") long minSamples);
+
     // High fare rides (potential anomalies - fare/distance ratio outliers)
     @Query("SELECT r FROM Ride r WHERE (r.fareAmount / r.distanceKm) > :threshold AND r.status = 'COMPLETED'")
     List<Ride> findHighFareRatioRides(@Param("threshold") Double threshold);
 
+    // Captain stats in one pass: total, completed, cancelled, earnings, anomaly count
+    @Query("SELECT COUNT(r), " +
+            "SUM(CASE WHEN r.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'CANCELLED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.fareAmount ELSE 0.0 END), " +
+            "COUNT(a) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r WHERE r.captainId = :captainId")
+    List<Object[]> getCaptainStats(@Param("captainId") String captainId);
+
+    // Same projection for every captain — used to (re)build the captain_totals table
+    @Query("SELECT r.captainId, COUNT(r), " +
+            "SUM(CASE WHEN r.status = 'COMPLETED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'CANCELLED' THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = 'COMPLETED' THEN r.fareAmount ELSE 0.0 END), " +
+            "COUNT(a) " +
+            "FROM Ride r LEFT JOIN AnomalyFlag a ON a.ride = r GROUP BY r.captainId")
+    List<Object[]> getAllCaptainStats();
+
     // Completed rides count per captain
     @Query("SELECT COUNT(r) FROM Ride r WHERE r.captainId = :captainId AND r.status = 'COMPLETED'")
     Long countCompletedRidesByCaptain(@Param("captainId") String captainId);
+
+    // Status transitions are compare-and-set: rows whose status is not :expected are left alone, so of two
+    // concurrent transitions only one matches — callers check the row count. Each bumps the @Version and
+    // clears the persistence context afterwards. Completion is one UPDATE for a whole batch
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :status, r.completedAt = :completedAt, r.detectionState = :detectionState, " +
+            "r.version = r.version + 1 WHERE r.id IN :ids AND r.status IN :expected")
+    int markCompleted(@Param("ids") Collection<Long> ids,
+                      @Param("expected") Collection<Ride.RideStatus> expected,
+                      @Param("status") Ride.RideStatus status,
+                      @Param("completedAt") LocalDateTime completedAt,
+                      @Param("detectionState") Ride.DetectionState detectionState);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.status = :status, r.version = r.version + 1 WHERE r.id = :id AND r.status = :expected")
+    int updateStatus(@Param("id") Long id,
+                     @Param("expected") Ride.RideStatus expected,
+                     @Param("status") Ride.RideStatus status);
+
+    @Modifying
+    @Query("UPDATE Ride r SET r.detectionState = :detectionState, r.version = r.version + 1 WHERE r.id IN :ids")
+    int updateDetectionState(@Param("ids") Collection<Long> ids,
+                             @Param("detectionState") Ride.DetectionState detectionState);
+
+    // Async detection backlog — rides completed but not yet scored
+    @Query("SELECT r.id FROM Ride r WHERE r.detectionState = :detectionState ORDER BY r.id")
+    List<Long> findIdsByDetectionState(@Param("detectionState") Ride.DetectionState detectionState);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.RideStatSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RideStatSnapshotRepository extends JpaRepository<RideStatSnapshot, RideStatSnapshot.Key> {
+}
@@ -0,0 +1,39 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+
+/**
+ * A single anomaly check. Every bean implementing this interface is picked up by
+ * {@link com.careem.rideintel.service.AnomalyDetectionService}, in {@code @Order} order.
+ *
+ * {@link #score} runs for every completed ride and most rides are clean, so it must not
+ * allocate: work on primitives and return 0 when the rule does not fire.
+ * {@link #reason} is only called for rules that fired.
+ */
+public interface AnomalyRule {
+
+    AnomalyFlag.AnomalyType type();
+
+    /** @return severity in (0, 1] if the rule fires, 0 if the ride is clean */
+    double score(Ride ride);
+
+    /** Human-readable explanation, rendered only when {@link #score} was positive */
+    String reason(Ride ride);
+
+    /**
+     * A less specific type this rule refines — when both fire, this rule's type is reported
+     * as the primary one even if the other scored higher. {@code null} for none.
+     */
+    default AnomalyFlag.AnomalyType supersedes() {
+        return null;
+    }
+
+    /**
+     * Whether the rule can score a ride long after it completed, as a re-scoring backfill does.
+     * Rules reading live state (what happened in the last hour) cannot — their verdict at completion time stands.
+     */
+    default boolean replayable() {
+        return true;
+    }
+}
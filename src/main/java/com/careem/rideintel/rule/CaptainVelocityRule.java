@@ -0,0 +1,53 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.service.RideVelocityService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/** Captain completing more rides per hour than back-to-back trips allow — typically a burst of fake short rides */
+@Component
+@Order(500)
+public class CaptainVelocityRule implements AnomalyRule {
+
+    private final RideVelocityService velocity;
+    private final int maxRides;
+
+    public CaptainVelocityRule(RideVelocityService velocity,
+                               @Value("${rideintel.anomaly.velocity.captain-max-per-hour:8}") int maxRides) {
+        this.velocity = velocity;
+        this.maxRides = maxRides;
+    }
+
+    @Override
+    public AnomalyFlag.AnomalyType type() {
+        return AnomalyFlag.AnomalyType.CAPTAIN_VELOCITY;
+    }
+
+    @Override
+    public double score(Ride ride) {
+        if (ride.getCompletedAt() == null) {
+            return 0.0;
+        }
+        int rides = velocity.captainRidesLastHour(ride);
+        if (rides <= maxRides) {
+            return 0.0;
+        }
+        // Twice the limit scores 1.0
+        return Math.min(1.0, (double) (rides - maxRides) / maxRides);
+    }
+
+    @Override
+    public String reason(Ride ride) {
+        return String.format("Captain %s completed %d rides in the last hour (max: %d)",
+                ride.getCaptainId(), velocity.captainRidesLastHour(ride), maxRides);
+    }
+
+    /** The sliding window only holds the last hour's completions, not those around an older ride */
+    @Override
+    public boolean replayable() {
+        return false;
+    }
+}
@@ -0,0 +1,73 @@
+package com.careem.rideintel.rule;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable, read-optimized city-pair distance lookup.
+ *
+ * City names are interned to dense int IDs once, at build time; baselines live in a flat
+ * {@code double[n * n]} matrix indexed by {@code pickupId * n + dropoffId}. A lookup is two
+ * hash probes on already-hashed Strings plus an array read — no boxing, no allocation.
+ * Refreshes build a new index and swap it in, so readers never lock.
+ */
+public final class CityPairIndex {
+
+    public static final CityPairIndex EMPTY = new Builder().build();
+
+    private final Map<String, Integer> cityIds;
+    private final int cities;
+    private final double[] baselineKm;  // NaN = no baseline for the pair
+
+    private CityPairIndex(Map<String, Integer> cityIds, double[] baselineKm) {
+        this.cityIds    = cityIds;
+        this.cities     = cityIds.size();
+        this.baselineKm = baselineKm;
+    }
+
+    /** @return the baseline distance for the pair, or NaN if there is none */
+    public double baselineKm(String pickupCity, String dropoffCity) {
+        Integer from = cityIds.get(pickupCity);
+        if (from == null) return Double.NaN;
+        Integer to = cityIds.get(dropoffCity);
+        if (to == null) return Double.NaN;
+        return baselineKm[from * cities + to];
+    }
+
+    public int size() {
+        int pairs = 0;
+        for (double km : baselineKm) {
+            if (!Double.isNaN(km)) pairs++;
+        }
+        return pairs;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final Map<String, Integer> cityIds = new HashMap<>();
+        private final Map<Long, Double> pairs = new HashMap<>();
+
+        public Builder put(String pickupCity, String dropoffCity, double baselineKm) {
+            long key = ((long) intern(pickupCity) << 32) | intern(dropoffCity);
+            pairs.put(key, baselineKm);
+            return this;
+        }
+
+        public CityPairIndex build() {
+            int n = cityIds.size();
+            double[] matrix = new double[n * n];
+            Arrays.fill(matrix, Double.NaN);
+            pairs.forEach((key, km) -> matrix[(int) (key >>> 32) * n + (int) (long) key] = km);
+            return new CityPairIndex(new HashMap<>(cityIds), matrix);
+        }
+
+        private int intern(String city) {
+            return cityIds.computeIfAbsent(city, c -> cityIds.size());
+        }
+    }
+}
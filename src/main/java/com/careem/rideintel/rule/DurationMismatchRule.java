@@ -0,0 +1,77 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.model.RideStatSnapshot.Metric;
+import com.careem.rideintel.service.RideStatisticsService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Implied speed (distance / duration) that is impossible or suspiciously close to standing still.
+ * Once the city/vehicle pair has enough rides the band tightens to mean ± 4σ of its observed
+ * speeds — never narrower than half to double the median, never beyond the static physical limits.
+ */
+@Component
+@Order(300)
+public class DurationMismatchRule implements AnomalyRule {
+
+    static final double MIN_SPEED_KMH = 5.0;    // below = driver barely moved (ghost ride variant)
+    static final double MAX_SPEED_KMH = 200.0;  // above = data error or manipulation
+    static final double SIGMAS        = 4.0;
+
+    private final RideStatisticsService statistics;
+
+    public DurationMismatchRule(RideStatisticsService statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public AnomalyFlag.AnomalyType type() {
+        return AnomalyFlag.AnomalyType.DURATION_MISMATCH;
+    }
+
+    @Override
+    public double score(Ride ride) {
+        double speedKmh = impliedSpeedKmh(ride);
+        StreamingStats.Summary baseline = baseline(ride);
+        double minSpeed = minSpeedKmh(baseline);
+        if (speedKmh < minSpeed) {
+            return Math.min(1.0, (minSpeed - speedKmh) / minSpeed);
+        }
+        double maxSpeed = maxSpeedKmh(baseline);
+        if (speedKmh > maxSpeed) {
+            return Math.min(1.0, (speedKmh - maxSpeed) / maxSpeed);
+        }
+        return 0.0;
+    }
+
+    @Override
+    public String reason(Ride ride) {
+        double speedKmh = impliedSpeedKmh(ride);
+        StreamingStats.Summary baseline = baseline(ride);
+        double minSpeed = minSpeedKmh(baseline);
+        return speedKmh < minSpeed
+                ? String.format("Implied speed %.1f km/h is suspiciously low (min: %.1f km/h)", speedKmh, minSpeed)
+                : String.format("Implied speed %.1f km/h is impossibly high (max: %.1f km/h)",
+                        speedKmh, maxSpeedKmh(baseline));
+    }
+
+    private StreamingStats.Summary baseline(Ride ride) {
+        return statistics.baseline(Metric.SPEED_KMH, ride.getPickupCity(), ride.getVehicleType());
+    }
+
+    private static double minSpeedKmh(StreamingStats.Summary baseline) {
+        if (baseline == null) return MIN_SPEED_KMH;
+        return Math.max(MIN_SPEED_KMH, Math.min(baseline.getMean() - SIGMAS * baseline.getStddev(), baseline.getMedian() / 2));
+    }
+
+    private static double maxSpeedKmh(StreamingStats.Summary baseline) {
+        if (baseline == null) return MAX_SPEED_KMH;
+        return Math.min(MAX_SPEED_KMH, Math.max(baseline.getMean() + SIGMAS * baseline.getStddev(), baseline.getMedian() * 2));
+    }
+
+    private static double impliedSpeedKmh(Ride ride) {
+        return ride.getDistanceKm() / (ride.getDurationMinutes() / 60.0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.model.RideStatSnapshot.Metric;
+import com.careem.rideintel.service.RideStatisticsService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fare-per-km ratio far above what the city charges for the vehicle type: 2.5x its median.
+ * The median rather than the mean, so the spikes being hunted don't raise their own bar.
+ * Until the city/vehicle pair has enough rides the static 150 PKR/km threshold applies.
+ */
+@Component
+@Order(100)
+public class FareSpikeRule implements AnomalyRule {
+
+    static final double FARE_PER_KM_THRESHOLD = 150.0;  // PKR/km — static fallback
+    static final double CITY_MEDIAN_MULTIPLE  = 2.5;
+
+    private final RideStatisticsService statistics;
+
+    public FareSpikeRule(RideStatisticsService statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public AnomalyFlag.AnomalyType type() {
+        return AnomalyFlag.AnomalyType.FARE_SPIKE;
+    }
+
+    @Override
+    public double score(Ride ride) {
+        double farePerKm = ride.getFareAmount() / ride.getDistanceKm();
+        double threshold = threshold(ride);
+        if (farePerKm <= threshold) {
+            return 0.0;
+        }
+        // Score scales with how far above threshold: 1x→0, 2x→1.0
+        return Math.min(1.0, (farePerKm - threshold) / threshold);
+    }
+
+    @Override
+    public String reason(Ride ride) {
+        return String.format("Fare/km ratio %.1f PKR/km exceeds threshold of %.1f PKR/km",
+                ride.getFareAmount() / ride.getDistanceKm(), threshold(ride));
+    }
+
+    private double threshold(Ride ride) {
+        StreamingStats.Summary baseline =
+                statistics.baseline(Metric.FARE_PER_KM, ride.getPickupCity(), ride.getVehicleType());
+        return baseline == null ? FARE_PER_KM_THRESHOLD : CITY_MEDIAN_MULTIPLE * baseline.getMedian();
+    }
+}
@@ -0,0 +1,43 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Very short distance with a disproportionately high fare. Such a ride always trips
+ * {@link FareSpikeRule} as well, so GHOST_RIDE supersedes FARE_SPIKE as the reported type.
+ */
+@Component
+@Order(200)
+public class GhostRideRule implements AnomalyRule {
+
+    static final double GHOST_RIDE_DISTANCE = 1.0;    // km
+    static final double GHOST_RIDE_FARE     = 500.0;  // PKR
+
+    @Override
+    public AnomalyFlag.AnomalyType type() {
+        return AnomalyFlag.AnomalyType.GHOST_RIDE;
+    }
+
+    @Override
+    public AnomalyFlag.AnomalyType supersedes() {
+        return AnomalyFlag.AnomalyType.FARE_SPIKE;
+    }
+
+    @Override
+    public double score(Ride ride) {
+        double fare = ride.getFareAmount();
+        if (ride.getDistanceKm() >= GHOST_RIDE_DISTANCE || fare <= GHOST_RIDE_FARE) {
+            return 0.0;
+        }
+        return Math.min(1.0, fare / (GHOST_RIDE_FARE * 2));
+    }
+
+    @Override
+    public String reason(Ride ride) {
+        return String.format("Ghost ride suspected: %.2f km traveled but fare charged %.1f PKR",
+                ride.getDistanceKm(), ride.getFareAmount());
+    }
+}
@@ -0,0 +1,81 @@
+package com.careem.rideintel.rule;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free quantile sketch: a histogram over log-spaced buckets, each 5% wider than the last,
+ * covering [0.01, 100 000). Any quantile is answered to within ~2.5% relative error.
+ *
+ * Recording is a single atomic increment, so concurrent writers never block each other, and the
+ * whole sketch is a fixed array of counters — cheap to merge, encode and restore.
+ */
+public final class LogHistogram {
+
+    private static final double MIN_VALUE  = 0.01;
+    private static final double MAX_VALUE  = 100_000.0;
+    private static final double GROWTH     = 1.05;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+
+    // Bucket 0 holds values below MIN_VALUE, the last bucket values at or above MAX_VALUE
+    static final int BUCKETS = 2 + (int) Math.ceil(Math.log(MAX_VALUE / MIN_VALUE) / LOG_GROWTH);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void add(double value) {
+        counts.incrementAndGet(bucket(value));
+    }
+
+    /** @return an estimate of the q-th quantile (0 ≤ q ≤ 1), or NaN when empty */
+    public double quantile(double q) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) return Double.NaN;
+
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return representative(i);
+        }
+        return representative(BUCKETS - 1);
+    }
+
+    /** Sparse {@code bucket:count} list — the persisted form of the sketch */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = counts.get(i);
+            if (count == 0) continue;
+            if (sb.length() > 0) sb.append(',');
+            sb.append(i).append(':').append(count);
+        }
+        return sb.toString();
+    }
+
+    /** Adds the counts of an {@link #encode}d sketch to this one */
+    public void merge(String encoded) {
+        if (encoded == null || encoded.isEmpty()) return;
+        for (String entry : encoded.split(",")) {
+            int colon = entry.indexOf(':');
+            int bucket = Integer.parseInt(entry.substring(0, colon));
+            if (bucket >= 0 && bucket < BUCKETS) {
+                counts.addAndGet(bucket, Long.parseLong(entry.substring(colon + 1)));
+            }
+        }
+    }
+
+    static int bucket(double value) {
+        if (!(value >= MIN_VALUE)) return 0;
+        if (value >= MAX_VALUE) return BUCKETS - 1;
+        return Math.min(BUCKETS - 2, 1 + (int) (Math.log(value / MIN_VALUE) / LOG_GROWTH));
+    }
+
+    // Geometric midpoint of the bucket's range
+    private static double representative(int bucket) {
+        if (bucket == 0) return MIN_VALUE;
+        if (bucket == BUCKETS - 1) return MAX_VALUE;
+        return MIN_VALUE * Math.pow(GROWTH, bucket - 0.5);
+    }
+}
@@ -0,0 +1,53 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.service.RideVelocityService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/** The same captain and customer riding together far more often than chance — collusion to farm incentives */
+@Component
+@Order(700)
+public class RepeatedPairRule implements AnomalyRule {
+
+    private final RideVelocityService velocity;
+    private final int maxRides;
+
+    public RepeatedPairRule(RideVelocityService velocity,
+                            @Value("${rideintel.anomaly.velocity.pair-max-per-day:6}") int maxRides) {
+        this.velocity = velocity;
+        this.maxRides = maxRides;
+    }
+
+    @Override
+    public AnomalyFlag.AnomalyType type() {
+        return AnomalyFlag.AnomalyType.REPEATED_PAIR;
+    }
+
+    @Override
+    public double score(Ride ride) {
+        if (ride.getCompletedAt() == null) {
+            return 0.0;
+        }
+        int rides = velocity.pairRidesLastDay(ride);
+        if (rides <= maxRides) {
+            return 0.0;
+        }
+        // Twice the limit scores 1.0
+        return Math.min(1.0, (double) (rides - maxRides) / maxRides);
+    }
+
+    @Override
+    public String reason(Ride ride) {
+        return String.format("Captain %s and customer %s completed %d rides together in the last 24h (max: %d)",
+                ride.getCaptainId(), ride.getCustomerId(), velocity.pairRidesLastDay(ride), maxRides);
+    }
+
+    /** The sliding window only holds the last day's completions, not those around an older ride */
+    @Override
+    public boolean replayable() {
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+package com.careem.rideintel.rule;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.service.CityPairBaselineService;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/** Distance far above the typical distance for the ride's city pair — a detour or padded odometer */
+@Component
+@Order(400)
+public class RouteDeviationRule implements AnomalyRule {
+
+    static final double MAX_BASELINE_MULTIPLE = 3.0;
+
+    private final CityPairBaselineService baselines;
+
+    public RouteDeviationRule(CityPairBaselineService baselines) {
+        this.baselines = baselines;
+    }
+
+    @Override
+    public AnomalyFlag.AnomalyType type() {
+        return AnomalyFlag.AnomalyType.ROUTE_DEVIATION;
+    }
+
+    @Override
+    public double score(Ride ride) {
+        double baselineKm = baselines.index().baselineKm(ride.getPickupCity(), ride.getDropoffCity());
+        if (!(baselineKm > 0.0)) {
+            return 0.0;  // no baseline for this pair (NaN) — nothing to compare against
+        }
+        double multiple = ride.getDistanceKm() / baselineKm;
+        if (multiple <= MAX_BASELINE_MULTIPLE) {
+            return 0.0;
+        }
+        // 3x baseline → 0, 6x → 1.0
+        return Math.min(1.0, (multiple - MAX_BASELINE_MULTIPLE) / MAX_BASELINE_MULTIPLE);
+    }
+
+    @Override
+    public String reason(Ride ride) {
+        double baselineKm = baselines.index().baselineKm(ride.getPickupCity(), ride.getDropoffCity());
+        return String.format("Distance %.1f km is %.1fx the %.1f km baseline for %s to %s (max: %.1fx)",
+                ride.getDistanceKm(), ride.getDistanceKm() / baselineKm, baselineKm,
+                ride.getPickupCity(), ride.getDropoffCity(), MAX_BASELINE_MULTIPLE);
+    }
+}
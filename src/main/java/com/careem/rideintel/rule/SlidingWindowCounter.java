@@ -0,0 +1,241 @@
+package com.careem.rideintel.rule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed-memory sliding-window event counter keyed by 64-bit key fingerprints.
+ *
+ * Each key owns a ring of time buckets (e.g. 12 x 5 min for a one-hour window) plus a running
+ * total; recording an event clears the buckets that slid out of the window and increments the
+ * current one. Updates and reads are O(buckets) at worst — constant — and a read between two
+ * writes in the same bucket is just the total. Nothing is allocated.
+ *
+ * Keys live in open-addressing tables of primitive arrays whose size is fixed at construction.
+ * When a key's probe run is full, the slot with the fewest events left in the window is reclaimed:
+ * expired keys go first, and under sustained overload the quietest live key is dropped — the busy
+ * keys the velocity rules care about are the last to go. Memory therefore stays
+ * flat however many distinct keys pass through. Tables are split into independently locked
+ * segments so concurrent completions rarely contend.
+ */
+public final class SlidingWindowCounter {
+
+    private static final int SEGMENTS   = 64;  // power of two
+    private static final int MAX_PROBES = 8;
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * @param window   length of the sliding window
+     * @param buckets  resolution — events older than the window are forgotten one bucket at a time
+     * @param capacity keys tracked at once, rounded up to a power of two
+     */
+    public SlidingWindowCounter(Duration window, int buckets, int capacity) {
+        this.buckets      = buckets;
+        this.bucketMillis = Math.max(1, window.toMillis() / buckets);
+        int slotsPerSegment = Math.max(MAX_PROBES, Integer.highestOneBit(Math.max(1, capacity / SEGMENTS - 1)) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(slotsPerSegment);
+        }
+    }
+
+    /** Records one event and returns the key's count in the window ending at {@code epochMillis} */
+    public int record(long key, long epochMillis) {
+        return segment(key).record(key, epochMillis / bucketMillis);
+    }
+
+    /**
+     * Takes back one event recorded at {@code epochMillis}, e.g. for a completion whose transaction rolled
+     * back. A no-op once the event's bucket has slid out of the window or its key was reclaimed.
+     */
+    public void unrecord(long key, long epochMillis) {
+        segment(key).unrecord(key, epochMillis / bucketMillis);
+    }
+
+    /** @return events recorded for the key in the window ending at {@code epochMillis} */
+    public int count(long key, long epochMillis) {
+        return segment(key).count(key, epochMillis / bucketMillis);
+    }
+
+    /** Slots currently holding a key, live or expired — never more than {@link #capacity} */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return segments[0].keys.length * SEGMENTS;
+    }
+
+    /** Approximate heap held by the tables — fixed at construction */
+    public long footprintBytes() {
+        return (long) capacity() * (Long.BYTES * 2 + (long) Integer.BYTES * (buckets + 1));
+    }
+
+    // ─── Keys ─────────────────────────────────────────────────────────────────
+
+    /** 64-bit fingerprint of a string (FNV-1a, then a murmur finalizer) — never 0, which marks empty slots */
+    public static long key(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /** Fingerprint of an ordered pair of strings */
+    public static long key(String first, String second) {
+        long hash = mix(key(first) * 31 + Long.rotateLeft(key(second), 29));
+        return hash == 0 ? 1 : hash;
+    }
+
+    /** Time scale shared by writers and readers; allocation-free, unlike going through Instant */
+    public static long epochMillis(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1000 + time.getNano() / 1_000_000;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private Segment segment(long key) {
+        return segments[(int) (key >>> 58) & (SEGMENTS - 1)];
+    }
+
+    // ─── Segment ──────────────────────────────────────────────────────────────
+
+    private final class Segment {
+
+        final long[] keys;    // 0 = empty slot
+        final long[] epochs;  // last bucket epoch written per slot
+        final int[] totals;   // sum of the slot's buckets as of its last write
+        final int[] counts;   // slot * buckets + floorMod(epoch, buckets)
+        final int mask;
+
+        Segment(int slots) {
+            keys   = new long[slots];
+            epochs = new long[slots];
+            totals = new int[slots];
+            counts = new int[slots * buckets];
+            mask   = slots - 1;
+        }
+
+        synchronized int record(long key, long epoch) {
+            int slot = findOrClaim(key, epoch);
+            long last = epochs[slot];
+            if (epoch > last) {
+                // Zero the buckets that slid out of the window since the last write
+                long from = Math.max(last + 1, epoch - buckets + 1);
+                for (int i = 0, b = bucketOf(from); i <= epoch - from; i++, b = b + 1 == buckets ? 0 : b + 1) {
+                    totals[slot] -= counts[slot * buckets + b];
+                    counts[slot * buckets + b] = 0;
+                }
+                epochs[slot] = epoch;
+            } else if (epoch <= last - buckets) {
+                return sum(slot, epoch);  // late event, older than anything still tracked
+            }
+            counts[slot * buckets + bucketOf(epoch)]++;
+            totals[slot]++;
+            return sum(slot, epoch);
+        }
+
+        synchronized void unrecord(long key, long epoch) {
+            int start = (int) key & mask;
+            for (int i = 0; i < MAX_PROBES; i++) {
+                int slot = (start + i) & mask;
+                if (keys[slot] == 0) return;
+                if (keys[slot] != key) continue;
+                int bucket = slot * buckets + bucketOf(epoch);
+                if (epoch > epochs[slot] - buckets && epoch <= epochs[slot] && counts[bucket] > 0) {
+                    counts[bucket]--;
+                    totals[slot]--;
+                }
+                return;
+            }
+        }
+
+        synchronized int count(long key, long epoch) {
+            int start = (int) key & mask;
+            for (int i = 0; i < MAX_PROBES; i++) {
+                int slot = (start + i) & mask;
+                if (keys[slot] == key) return sum(slot, epoch);
+                if (keys[slot] == 0) return 0;
+            }
+            return 0;
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (long key : keys) {
+                if (key != 0) size++;
+            }
+            return size;
+        }
+
+        private int findOrClaim(long key, long epoch) {
+            int start = (int) key & mask;
+            int victim = -1;
+            int victimCount = Integer.MAX_VALUE;
+            for (int i = 0; i < MAX_PROBES; i++) {
+                int slot = (start + i) & mask;
+                if (keys[slot] == key) return slot;
+                if (keys[slot] == 0) {
+                    victim = slot;
+                    break;
+                }
+                // Evict the key with the fewest events still in the window (expired keys have none)
+                int count = sum(slot, epoch);
+                if (count < victimCount || (count == victimCount && epochs[slot] < epochs[victim])) {
+                    victim = slot;
+                    victimCount = count;
+                }
+            }
+            keys[victim]   = key;
+            epochs[victim] = epoch;
+            totals[victim] = 0;
+            for (int b = 0; b < buckets; b++) {
+                counts[victim * buckets + b] = 0;
+            }
+            return victim;
+        }
+
+        // Events in the window ending at epoch — usually just the running total
+        private int sum(int slot, long epoch) {
+            long last = epochs[slot];
+            if (epoch >= last) {
+                long expired = epoch - last;  // buckets that slid out since the last write
+                if (expired == 0) return totals[slot];
+                if (expired >= buckets) return 0;
+                int total = totals[slot];
+                for (int i = 0, b = bucketOf(last + 1); i < expired; i++, b = b + 1 == buckets ? 0 : b + 1) {
+                    total -= counts[slot * buckets + b];
+                }
+                return total;
+            }
+            // Window ending before the last write — add up the buckets it still shares with the slot
+            int total = 0;
+            long from = last - buckets + 1;
+            for (int i = 0, b = bucketOf(from); i <= epoch - from; i++, b = b + 1 == buckets ? 0 : b + 1) {
+                total += counts[slot * buckets + b];
+            }
+            return total;
+        }
+
+        private int bucketOf(long epoch) {
+            return (int) Math.floorMod(epoch, (long) buckets);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.careem.rideintel.rule;
+
+import lombok.Value;
+
+/**
+ * Running statistics for one metric: Welford mean/variance plus a {@link LogHistogram} for quantiles.
+ *
+ * Writers are striped: each thread updates the Welford cell picked by its thread ID, under that
+ * cell's own monitor, so concurrent completions rarely touch the same lock. {@link #publish}
+ * merges the cells (Chan et al.'s parallel combination) into an immutable {@link Summary};
+ * rules only ever read the last published summary — one volatile read, no locking, no allocation.
+ */
+public final class StreamingStats {
+
+    private static final int STRIPES = Integer.highestOneBit(
+            Math.max(1, Math.min(64, Runtime.getRuntime().availableProcessors() * 2)) * 2 - 1);
+
+    private final Cell[] cells = new Cell[STRIPES];
+    private final LogHistogram histogram = new LogHistogram();
+    private volatile Summary summary = Summary.EMPTY;
+
+    public StreamingStats() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells[i] = new Cell();
+        }
+    }
+
+    /** Records one observation; non-finite values (zero distance or duration) are ignored */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return;
+        Cell cell = cells[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+        synchronized (cell) {
+            cell.add(value);
+        }
+        histogram.add(value);
+    }
+
+    /** Last published summary — may trail {@link #add} by up to one publish interval */
+    public Summary summary() {
+        return summary;
+    }
+
+    public Summary publish() {
+        Cell merged = merge();
+        double stddev = merged.count > 1 ? Math.sqrt(merged.m2 / (merged.count - 1)) : 0.0;
+        summary = new Summary(merged.count, merged.mean, stddev, histogram.quantile(0.5));
+        return summary;
+    }
+
+    // ─── Snapshot / restore ───────────────────────────────────────────────────
+
+    /** @return {count, mean, M2} merged across stripes */
+    public double[] moments() {
+        Cell merged = merge();
+        return new double[]{merged.count, merged.mean, merged.m2};
+    }
+
+    public String encodedHistogram() {
+        return histogram.encode();
+    }
+
+    /** Folds persisted state into this instance — used to warm up after a restart */
+    public void restore(long count, double mean, double m2, String encodedHistogram) {
+        Cell cell = cells[0];
+        synchronized (cell) {
+            cell.combine(count, mean, m2);
+        }
+        histogram.merge(encodedHistogram);
+    }
+
+    private Cell merge() {
+        Cell merged = new Cell();
+        for (Cell cell : cells) {
+            synchronized (cell) {
+                merged.combine(cell.count, cell.mean, cell.m2);
+            }
+        }
+        return merged;
+    }
+
+    /** One Welford accumulator */
+    private static final class Cell {
+        long count;
+        double mean;
+        double m2;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
+
+        void combine(long otherCount, double otherMean, double otherM2) {
+            if (otherCount == 0) return;
+            long total = count + otherCount;
+            double delta = otherMean - mean;
+            mean += delta * otherCount / total;
+            m2 += otherM2 + delta * delta * count * otherCount / total;
+            count = total;
+        }
+    }
+
+    @Value
+    public static class Summary {
+        public static final Summary EMPTY = new Summary(0, Double.NaN, Double.NaN, Double.NaN);
+
+        long count;
+        double mean;
+        double stddev;
+        double median;  // from the sketch — robust to the outliers the rules are looking for
+    }
+}
@@ -0,0 +1,311 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.RideRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous anomaly detection, enabled with {@code rideintel.anomaly.detection-mode=ASYNC}.
+ *
+ * Completion marks the ride {@code PENDING} and, once that commits, queues its ID here. A small
+ * worker pool drains the bounded queue in micro-batches and scores each batch with
+ * {@link AnomalyDetectionService#analyzeRides} in its own transaction.
+ *
+ * Guarantees:
+ *  - Backpressure: when the queue stays full for {@code offer-timeout}, the submitting thread
+ *    scores the rides itself, which slows producers down instead of dropping work.
+ *  - Drain on shutdown: stopping the application stops intake first (late submissions run inline),
+ *    then waits for the workers to empty the queue.
+ *  - Failure isolation: when a batch fails, its rides are scored again one per transaction, so one
+ *    bad ride cannot hold back the rest. A ride that still fails is re-queued after a backoff that
+ *    doubles from {@code retry-backoff}, up to {@code max-attempts} tries in all.
+ *  - Crash recovery: PENDING is persisted on the ride, so anything left over — including rides that
+ *    ran out of attempts — is re-queued on startup.
+ */
+@Component
+public class AnomalyDetectionQueue implements SmartLifecycle {
+
+    public enum Mode { SYNC, ASYNC }
+
+    private static final Logger log = LoggerFactory.getLogger(AnomalyDetectionQueue.class);
+
+    private final RideRepository rideRepository;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate newTransactionTemplate;
+    private final Mode mode;
+    private final int workers;
+    private final int batchSize;
+    private final Duration offerTimeout;
+    private final Duration shutdownTimeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    private final BlockingQueue<Long> queue;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();          // queued, being scored or waiting to retry
+    private final Map<Long, Integer> failedAttempts = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+
+    public AnomalyDetectionQueue(RideRepository rideRepository,
+                                 AnomalyDetectionService anomalyDetectionService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${rideintel.anomaly.detection-mode:SYNC}") Mode mode,
+                                 @Value("${rideintel.anomaly.async.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${rideintel.anomaly.async.workers:2}") int workers,
+                                 @Value("${rideintel.anomaly.async.batch-size:100}") int batchSize,
+                                 @Value("${rideintel.anomaly.async.offer-timeout:50ms}") Duration offerTimeout,
+                                 @Value("${rideintel.anomaly.async.shutdown-timeout:30s}") Duration shutdownTimeout,
+                                 @Value("${rideintel.anomaly.async.max-attempts:5}") int maxAttempts,
+                                 @Value("${rideintel.anomaly.async.retry-backoff:1s}") Duration retryBackoff) {
+        this.rideRepository          = rideRepository;
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.eventPublisher          = eventPublisher;
+        this.newTransactionTemplate  = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.mode                    = mode;
+        this.workers                 = workers;
+        this.batchSize               = batchSize;
+        this.offerTimeout            = offerTimeout;
+        this.shutdownTimeout         = shutdownTimeout;
+        this.maxAttempts             = maxAttempts;
+        this.retryBackoff            = retryBackoff;
+        this.queue                   = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return mode == Mode.ASYNC;
+    }
+
+    /** Rides waiting in the queue (not counting batches currently being scored) */
+    public int backlog() {
+        return queue.size();
+    }
+
+    /**
+     * Queues rides for scoring after the current transaction commits — workers must never
+     * see a ride whose PENDING state could still roll back.
+     */
+    public void submitAfterCommit(Collection<Long> rideIds) {
+        List<Long> ids = new ArrayList<>(rideIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(ids);
+            }
+        });
+    }
+
+    // ─── Lifecycle ────────────────────────────────────────────────────────────
+
+    @Override
+    public void start() {
+        if (!isEnabled()) return;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "anomaly-detector-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anomaly-detector-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::runWorker);
+        }
+
+        List<Long> backlog = rideRepository.findIdsByDetectionState(Ride.DetectionState.PENDING);
+        if (!backlog.isEmpty()) {
+            log.info("Re-queueing {} rides left pending by a previous run", backlog.size());
+            submit(backlog);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+
+        // Stop intake; workers keep going until the queue is empty, then exit
+        running = false;
+        workerPool.shutdown();
+        try {
+            if (!workerPool.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Anomaly detection queue not drained within {}; {} rides stay PENDING for the next start",
+                        shutdownTimeout, queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int retries = retryScheduler.shutdownNow().size();
+        if (retries > 0) {
+            log.warn("{} rides waiting to retry anomaly detection stay PENDING for the next start", retries);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Start before and stop after the web server, so no request can submit into a stopped queue
+        return Integer.MAX_VALUE - 1024;
+    }
+
+    // ─── Internals ────────────────────────────────────────────────────────────
+
+    private void submit(List<Long> rideIds) {
+        List<Long> overflow = new ArrayList<>();
+        for (Long rideId : rideIds) {
+            if (!inFlight.add(rideId)) continue;  // already queued or being scored
+            if (!running || !offer(rideId)) {
+                overflow.add(rideId);
+            }
+        }
+        if (!overflow.isEmpty()) {
+            // Caller runs: queue full or shutting down — score on the submitting thread
+            score(overflow);
+        }
+    }
+
+    private boolean offer(Long rideId) {
+        try {
+            return queue.offer(rideId, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runWorker() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Long first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                score(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Not a scoring failure — score() handles those; the rides stay PENDING for the next start
+                log.error("Anomaly detection worker failed on rides {}", batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Scores the rides in one transaction; if that fails, each ride in its own, retrying the ones that still fail */
+    private void score(List<Long> rideIds) {
+        try {
+            scoreInTransaction(rideIds);
+            settled(rideIds);
+            return;
+        } catch (RuntimeException e) {
+            if (rideIds.size() == 1) {
+                retryLater(rideIds.get(0), e);
+                return;
+            }
+            log.warn("Anomaly detection failed for a batch of {} rides; scoring them one at a time", rideIds.size(), e);
+        }
+        for (Long rideId : rideIds) {
+            try {
+                scoreInTransaction(Collections.singletonList(rideId));
+                settled(Collections.singletonList(rideId));
+            } catch (RuntimeException e) {
+                retryLater(rideId, e);
+            }
+        }
+    }
+
+    private void scoreInTransaction(List<Long> rideIds) {
+        newTransactionTemplate.executeWithoutResult(status -> {
+            // Only completions queue rides, and completed rides cannot be cancelled — every pending ride is scored
+            List<Ride> pending = rideRepository.findAllById(rideIds).stream()
+                    .filter(ride -> ride.getDetectionState() == Ride.DetectionState.PENDING)
+                    .collect(Collectors.toList());
+            if (pending.isEmpty()) return;
+
+            anomalyDetectionService.analyzeRides(pending);
+            List<Long> scored = pending.stream().map(Ride::getId).collect(Collectors.toList());
+            rideRepository.updateDetectionState(scored, Ride.DetectionState.DONE);
+            eventPublisher.publishEvent(new RideEvents.RidesScored(scored));
+        });
+    }
+
+    private void settled(List<Long> rideIds) {
+        inFlight.removeAll(rideIds);
+        if (!failedAttempts.isEmpty()) {
+            rideIds.forEach(failedAttempts::remove);
+        }
+    }
+
+    /** Re-queues a ride after a backoff that doubles with each failed attempt; it stays in flight meanwhile */
+    private void retryLater(Long rideId, RuntimeException cause) {
+        int attempt = failedAttempts.merge(rideId, 1, Integer::sum);
+        if (attempt >= maxAttempts || !running) {
+            failedAttempts.remove(rideId);
+            inFlight.remove(rideId);
+            log.error("Anomaly detection failed for ride {} after {} attempts; it stays PENDING for the next start",
+                    rideId, attempt, cause);
+            return;
+        }
+        long delayMillis = retryBackoff.toMillis() << Math.min(attempt - 1, 16);
+        log.warn("Anomaly detection failed for ride {} (attempt {} of {}); retrying in {} ms",
+                rideId, attempt, maxAttempts, delayMillis, cause);
+        try {
+            retryScheduler.schedule(() -> {
+                if (!running || !offer(rideId)) {
+                    score(Collections.singletonList(rideId));
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped in the meantime — the ride stays PENDING for the next start
+            failedAttempts.remove(rideId);
+            inFlight.remove(rideId);
+        }
+    }
+}
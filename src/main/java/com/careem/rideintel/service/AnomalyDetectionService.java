@@ -1,164 +1,285 @@
 package com.careem.rideintel.service;
 
+import com.careem.rideintel.event.RideEvents;
 import com.careem.rideintel.model.AnomalyFlag;
 import com.careem.rideintel.model.Ride;
 import com.careem.rideintel.repository.AnomalyFlagRepository;
 import com.careem.rideintel.repository.RideRepository;
+import com.careem.rideintel.rule.AnomalyRule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Rule-based anomaly detection engine for ride data.
  *
- * Detects 4 anomaly types using statistical thresholds derived from domain knowledge:
- *  - FARE_SPIKE:        fare-per-km ratio exceeds 2.5x city average
+ * Rules are {@link AnomalyRule} beans, evaluated in {@code @Order} order:
+ *  - FARE_SPIKE:        fare-per-km ratio exceeds 2.5x the city median (150 PKR/km until learned)
  *  - GHOST_RIDE:        very short distance (<1km) with disproportionately high fare (>500 PKR)
- *  - DURATION_MISMATCH: expected speed (distance/duration) implies impossible or highly suspicious driving
- *  - ROUTE_DEVIATION:   distance is >3x the straight-line city-pair baseline
+ *  - DURATION_MISMATCH: implied speed falls outside the city's learned band, or is physically implausible
+ *  - ROUTE_DEVIATION:   distance is >3x the city-pair baseline (see {@link CityPairBaselineService})
  *
- * Anomaly score is a weighted composite of individual rule scores, normalized to [0, 1].
+ * FARE_SPIKE and DURATION_MISMATCH score against live per-city baselines from {@link RideStatisticsService}.
+ * Anomaly score is the average of the fired rule scores, normalized to [0, 1]. A ride has at most
+ * one flag: scoring it again rewrites or deletes the stored flag instead of adding another.
+ * Clean rides — the vast majority — are scored without allocating: rule scores are primitives
+ * and reasons are only rendered for rules that fired.
+ *
+ * Metrics: {@code rideintel.anomaly.rides.analyzed}, and per rule (tagged {@code type})
+ * {@code rideintel.anomaly.rule.fired} and {@code rideintel.anomaly.rule.evaluation}. A rule check
+ * costs tens of nanoseconds — about what timing it would — so only rides whose ID is a multiple of
+ * {@value #TIMING_SAMPLE} have their rules timed; the timer's count is the sample, not the total.
  */
 @Service
 public class AnomalyDetectionService {
 
-    // Thresholds (tunable)
-    private static final double FARE_PER_KM_THRESHOLD = 150.0;   // PKR/km — above this is suspicious
-    private static final double GHOST_RIDE_DISTANCE   = 1.0;     // km
-    private static final double GHOST_RIDE_FARE       = 500.0;   // PKR
-    private static final double MIN_SPEED_KMH         = 5.0;     // below = driver barely moved (ghost ride variant)
-    private static final double MAX_SPEED_KMH         = 200.0;   // above = data error or manipulation
+    static final int TIMING_SAMPLE = 1024;  // power of two — sampled by ride ID
 
     private final AnomalyFlagRepository anomalyFlagRepository;
     private final RideRepository rideRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AnomalyRule[] rules;
+    private final long nonReplayableRules;                    // bit i set = rules[i] is not replayable
+    private final Set<AnomalyFlag.AnomalyType> nonReplayableTypes;
+    private final Counter analyzed;
+    private final Counter[] fireCounts;        // indexed like rules
+    private final Timer[] evaluationTimers;    // indexed like rules
 
     public AnomalyDetectionService(AnomalyFlagRepository anomalyFlagRepository,
-                                   RideRepository rideRepository) {
+                                   RideRepository rideRepository,
+                                   ApplicationEventPublisher eventPublisher,
+                                   List<AnomalyRule> rules,
+                                   MeterRegistry meterRegistry) {
+        if (rules.size() > Long.SIZE) {
+            throw new IllegalStateException("At most " + Long.SIZE + " anomaly rules are supported, found " + rules.size());
+        }
         this.anomalyFlagRepository = anomalyFlagRepository;
         this.rideRepository        = rideRepository;
+        this.eventPublisher        = eventPublisher;
+        this.rules                 = rules.toArray(new AnomalyRule[0]);
+        this.analyzed              = Counter.builder("rideintel.anomaly.rides.analyzed")
+                .description("Completed rides scored by the anomaly rules")
+                .register(meterRegistry);
+        this.fireCounts            = new Counter[this.rules.length];
+        this.evaluationTimers      = new Timer[this.rules.length];
+        long nonReplayable = 0L;
+        Set<AnomalyFlag.AnomalyType> nonReplayableTypes = EnumSet.noneOf(AnomalyFlag.AnomalyType.class);
+        for (int i = 0; i < this.rules.length; i++) {
+            if (!this.rules[i].replayable()) {
+                nonReplayable |= 1L << i;
+                nonReplayableTypes.add(this.rules[i].type());
+            }
+            String type = this.rules[i].type().name();
+            fireCounts[i] = Counter.builder("rideintel.anomaly.rule.fired")
+                    .description("Rides the rule fired on")
+                    .tag("type", type)
+                    .register(meterRegistry);
+            evaluationTimers[i] = Timer.builder("rideintel.anomaly.rule.evaluation")
+                    .description("Time to score one ride, sampled 1 in " + TIMING_SAMPLE + " rides")
+                    .tag("type", type)
+                    .register(meterRegistry);
+        }
+        this.nonReplayableRules = nonReplayable;
+        this.nonReplayableTypes = nonReplayableTypes;
     }
 
     /**
-     * Runs all anomaly checks on a completed ride.
-     * Persists a flag if any check fires.
+     * Runs all anomaly checks on a ride that has just been completed, and persists a flag if any check fires.
+     * Only the completion that won the ride's compare-and-set gets here, so the ride has no flag yet —
+     * re-scoring, which can meet one, goes through {@link #rescoreRides}.
      *
      * @return the persisted AnomalyFlag, or empty if ride is clean
      */
     public Optional<AnomalyFlag> analyzeRide(Ride ride) {
-        List<RuleResult> firedRules = new ArrayList<>();
+        analyzed.increment();
+        Optional<AnomalyFlag> flag = evaluate(ride).map(anomalyFlagRepository::save);
+        flag.ifPresent(f -> eventPublisher.publishEvent(
+                new RideEvents.AnomaliesFlagged(Collections.singletonList(f))));
+        return flag;
+    }
+
+    /**
+     * Batch variant of {@link #analyzeRide}: scores every newly completed ride in one pass and writes all
+     * new flags with a single saveAll, so they go out as one JDBC batch.
+     *
+     * @return persisted flags keyed by ride ID — clean rides have no entry
+     */
+    public Map<Long, AnomalyFlag> analyzeRides(List<Ride> rides) {
+        analyzed.increment(rides.size());
+        FlagChanges changes = new FlagChanges();
+        for (Ride ride : rides) {
+            evaluate(ride).ifPresent(changes.created::add);
+        }
+        write(changes);
+        return changes.flagsByRide;
+    }
 
-        firedRules.addAll(checkFareSpike(ride));
-        firedRules.addAll(checkGhostRide(ride));
-        firedRules.addAll(checkDurationMismatch(ride));
+    /**
+     * Re-scores completed rides against the current rules and thresholds: flags are created, rewritten
+     * in place or deleted to match. Only {@link AnomalyRule#replayable} rules run, and a flag raised by
+     * one that is not is left as it is. Not counted in the rule metrics, which track live traffic.
+     */
+    FlagChanges rescoreRides(List<Ride> rides) {
+        Map<Long, AnomalyFlag> existing = existingFlags(rides);
+        FlagChanges changes = new FlagChanges();
+        for (Ride ride : rides) {
+            AnomalyFlag current = existing.get(ride.getId());
+            if (current != null && nonReplayableTypes.contains(current.getType())) {
+                changes.flagsByRide.put(ride.getId(), current);
+                continue;
+            }
+            changes.reconcile(ride, current, evaluate(ride, true).orElse(null));
+        }
+        write(changes);
+        return changes;
+    }
+
+    /**
+     * Runs all rules against a ride and builds (but does not persist) the resulting flag.
+     * Allocation-free when no rule fires.
+     */
+    public Optional<AnomalyFlag> evaluate(Ride ride) {
+        return evaluate(ride, false);
+    }
 
-        if (firedRules.isEmpty()) {
+    private Optional<AnomalyFlag> evaluate(Ride ride, boolean replay) {
+        long fired = 0L;           // bit i set = rules[i] fired
+        int primary = -1;          // highest-scoring fired rule
+        double primaryScore = 0.0;
+        double scoreSum = 0.0;
+        Long id = ride.getId();
+        boolean timed = !replay && id != null && (id & (TIMING_SAMPLE - 1)) == 0;
+        long skipped = replay ? nonReplayableRules : 0L;
+
+        for (int i = 0; i < rules.length; i++) {
+            if ((skipped & (1L << i)) != 0) continue;
+            double score;
+            if (timed) {
+                long start = System.nanoTime();
+                score = rules[i].score(ride);
+                evaluationTimers[i].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else {
+                score = rules[i].score(ride);
+            }
+            if (score <= 0.0) continue;
+            if (!replay) fireCounts[i].increment();
+            fired |= 1L << i;
+            scoreSum += score;
+            if (score > primaryScore) {
+                primary = i;
+                primaryScore = score;
+            }
+        }
+
+        if (fired == 0L) {
             return Optional.empty();
         }
 
-        // Pick the highest-severity rule as the primary type
-        RuleResult primary = firedRules.stream()
-                .max((a, b) -> Double.compare(a.score, b.score))
-                .get();
+        // A more specific rule wins over the broader one it refines, whatever their scores
+        for (int i = 0; i < rules.length; i++) {
+            if ((fired & (1L << i)) != 0 && rules[i].supersedes() == rules[primary].type()) {
+                primary = i;
+            }
+        }
 
         // Composite score = average of all fired rule scores, capped at 1.0
-        double compositeScore = Math.min(1.0,
-                firedRules.stream().mapToDouble(r -> r.score).average().orElse(0.0));
-
-        String reasons = buildReasonString(firedRules);
+        double compositeScore = Math.min(1.0, scoreSum / Long.bitCount(fired));
 
-        AnomalyFlag flag = AnomalyFlag.builder()
+        return Optional.of(AnomalyFlag.builder()
                 .ride(ride)
-                .reason(reasons)
+                .reason(buildReasonString(ride, fired))
                 .anomalyScore(compositeScore)
-                .type(primary.type)
-                .build();
-
-        return Optional.of(anomalyFlagRepository.save(flag));
+                .type(rules[primary].type())
+                .build());
     }
 
-    // ─── Rule Implementations ──────────────────────────────────────────────────
-
-    private List<RuleResult> checkFareSpike(Ride ride) {
-        List<RuleResult> results = new ArrayList<>();
-        double farePerKm = ride.getFareAmount() / ride.getDistanceKm();
-
-        if (farePerKm > FARE_PER_KM_THRESHOLD) {
-            // Score scales with how far above threshold: 150→0.5, 300→1.0
-            double score = Math.min(1.0, (farePerKm - FARE_PER_KM_THRESHOLD) / FARE_PER_KM_THRESHOLD);
-            results.add(new RuleResult(
-                    AnomalyFlag.AnomalyType.FARE_SPIKE,
-                    score,
-                    String.format("Fare/km ratio %.1f PKR/km exceeds threshold of %.1f PKR/km",
-                            farePerKm, FARE_PER_KM_THRESHOLD)
-            ));
-        }
-        return results;
-    }
+    /** What one scoring pass does to the flags of its rides */
+    static final class FlagChanges {
+        final List<AnomalyFlag> created = new ArrayList<>();
+        final List<AnomalyFlag> revised = new ArrayList<>();
+        final List<AnomalyFlag> cleared = new ArrayList<>();
+        final Map<Long, AnomalyFlag> flagsByRide = new HashMap<>();  // the ride's flag once written
 
-    private List<RuleResult> checkGhostRide(Ride ride) {
-        List<RuleResult> results = new ArrayList<>();
-
-        if (ride.getDistanceKm() < GHOST_RIDE_DISTANCE && ride.getFareAmount() > GHOST_RIDE_FARE) {
-            double score = Math.min(1.0, ride.getFareAmount() / (GHOST_RIDE_FARE * 2));
-            results.add(new RuleResult(
-                    AnomalyFlag.AnomalyType.GHOST_RIDE,
-                    score,
-                    String.format("Ghost ride suspected: %.2f km traveled but fare charged %.1f PKR",
-                            ride.getDistanceKm(), ride.getFareAmount())
-            ));
+        /** A ride has at most one flag: a new verdict replaces the stored one rather than adding to it */
+        void reconcile(Ride ride, AnomalyFlag current, AnomalyFlag scored) {
+            if (scored == null) {
+                if (current != null) cleared.add(current);
+                return;
+            }
+            if (current == null) {
+                created.add(scored);
+                return;
+            }
+            if (current.getType() != scored.getType()
+                    || !current.getAnomalyScore().equals(scored.getAnomalyScore())
+                    || !current.getReason().equals(scored.getReason())) {
+                current.setType(scored.getType());
+                current.setAnomalyScore(scored.getAnomalyScore());
+                current.setReason(scored.getReason());
+                current.setFlaggedAt(LocalDateTime.now());
+                revised.add(current);
+            }
+            flagsByRide.put(ride.getId(), current);
         }
-        return results;
-    }
-
-    private List<RuleResult> checkDurationMismatch(Ride ride) {
-        List<RuleResult> results = new ArrayList<>();
-
-        double durationHours = ride.getDurationMinutes() / 60.0;
-        double impliedSpeedKmh = ride.getDistanceKm() / durationHours;
-
-        if (impliedSpeedKmh < MIN_SPEED_KMH) {
-            double score = Math.min(1.0, (MIN_SPEED_KMH - impliedSpeedKmh) / MIN_SPEED_KMH);
-            results.add(new RuleResult(
-                    AnomalyFlag.AnomalyType.DURATION_MISMATCH,
-                    score,
-                    String.format("Implied speed %.1f km/h is suspiciously low (min: %.1f km/h)",
-                            impliedSpeedKmh, MIN_SPEED_KMH)
-            ));
-        } else if (impliedSpeedKmh > MAX_SPEED_KMH) {
-            double score = Math.min(1.0, (impliedSpeedKmh - MAX_SPEED_KMH) / MAX_SPEED_KMH);
-            results.add(new RuleResult(
-                    AnomalyFlag.AnomalyType.DURATION_MISMATCH,
-                    score,
-                    String.format("Implied speed %.1f km/h is impossibly high (max: %.1f km/h)",
-                            impliedSpeedKmh, MAX_SPEED_KMH)
-            ));
-        }
-        return results;
     }
 
     // ─── Helpers ──────────────────────────────────────────────────────────────
 
-    private String buildReasonString(List<RuleResult> rules) {
+    private String buildReasonString(Ride ride, long fired) {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < rules.size(); i++) {
-            if (i > 0) sb.append("; ");
-            sb.append(rules.get(i).reason);
+        for (int i = 0; i < rules.length; i++) {
+            if ((fired & (1L << i)) == 0) continue;
+            if (sb.length() > 0) sb.append("; ");
+            sb.append(rules[i].reason(ride));
         }
         return sb.toString();
     }
 
-    /** Value object holding a single rule's result */
-    private static class RuleResult {
-        final AnomalyFlag.AnomalyType type;
-        final double score;
-        final String reason;
+    private Map<Long, AnomalyFlag> existingFlags(List<Ride> rides) {
+        List<Long> rideIds = new ArrayList<>(rides.size());
+        for (Ride ride : rides) {
+            if (ride.getId() != null) rideIds.add(ride.getId());
+        }
+        Map<Long, AnomalyFlag> flags = new HashMap<>();
+        if (rideIds.isEmpty()) {
+            return flags;
+        }
+        for (AnomalyFlag flag : anomalyFlagRepository.findByRideIdIn(rideIds)) {
+            flags.put(flag.getRide().getId(), flag);
+        }
+        return flags;
+    }
 
-        RuleResult(AnomalyFlag.AnomalyType type, double score, String reason) {
-            this.type   = type;
-            this.score  = score;
-            this.reason = reason;
+    // Revised flags are managed entities and are flushed with the transaction
+    private void write(FlagChanges changes) {
+        if (!changes.created.isEmpty()) {
+            List<AnomalyFlag> saved = anomalyFlagRepository.saveAll(changes.created);
+            for (AnomalyFlag flag : saved) {
+                changes.flagsByRide.put(flag.getRide().getId(), flag);
+            }
+            eventPublisher.publishEvent(new RideEvents.AnomaliesFlagged(saved));
+        }
+        if (!changes.revised.isEmpty()) {
+            eventPublisher.publishEvent(new RideEvents.AnomaliesRevised(changes.revised));
+        }
+        if (!changes.cleared.isEmpty()) {
+            anomalyFlagRepository.deleteAllByIdInBatch(
+                    changes.cleared.stream().map(AnomalyFlag::getId).collect(Collectors.toList()));
+            eventPublisher.publishEvent(new RideEvents.AnomaliesCleared(changes.cleared));
         }
     }
-}
\ No newline at end of file
+}
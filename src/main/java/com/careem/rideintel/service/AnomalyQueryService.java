@@ -0,0 +1,105 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.repository.AnomalyFlagView;
+import com.careem.rideintel.repository.AnomalySearch;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Filtered, keyset-paginated reads of the anomaly flags, newest first. Every page is one projection query
+ * that reads the flags with their ride's city and captain and seeks past the cursor on an index — page 1000 costs what page 1 does.
+ * For the highest scores regardless of filters, {@link TopAnomalyBoard} answers from memory.
+ */
+@Service
+public class AnomalyQueryService {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final AnomalyFlagRepository anomalyFlagRepository;
+
+    public AnomalyQueryService(AnomalyFlagRepository anomalyFlagRepository) {
+        this.anomalyFlagRepository = anomalyFlagRepository;
+    }
+
+    public RideDTOs.AnomalyPage search(String type, String city, String captainId,
+                                       Double minScore, Double maxScore,
+                                       LocalDateTime from, LocalDateTime to,
+                                       String cursor, int limit) {
+        if (minScore != null && maxScore != null && minScore > maxScore) {
+            throw new InvalidRequestException("minScore must not exceed maxScore");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new InvalidRequestException("from must be before to");
+        }
+        FlagCursor after = cursor != null ? FlagCursor.decode(cursor) : null;
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<AnomalyFlagView> flags = anomalyFlagRepository.search(AnomalySearch.builder()
+                .type(type != null ? parseType(type) : null)
+                .city(city)
+                .captainId(captainId)
+                .minScore(minScore)
+                .maxScore(maxScore)
+                .flaggedFrom(from)
+                .flaggedTo(to)
+                .afterFlaggedAt(after != null ? after.flaggedAt : null)
+                .afterId(after != null ? after.id : null)
+                .build(), pageSize);
+
+        String nextCursor = null;
+        if (flags.size() == pageSize) {
+            AnomalyFlagView last = flags.get(flags.size() - 1);
+            nextCursor = new FlagCursor(last.getFlaggedAt(), last.getFlagId()).encode();
+        }
+        return RideDTOs.AnomalyPage.builder()
+                .anomalies(flags.stream().map(RideDTOs.AnomalyResponse::from).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private static AnomalyFlag.AnomalyType parseType(String type) {
+        try {
+            return AnomalyFlag.AnomalyType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unknown anomaly type: " + type);
+        }
+    }
+
+    /** Opaque keyset cursor: the (flaggedAt, id) of the last flag on the previous page */
+    private static class FlagCursor {
+        final LocalDateTime flaggedAt;
+        final Long id;
+
+        FlagCursor(LocalDateTime flaggedAt, Long id) {
+            this.flaggedAt = flaggedAt;
+            this.id        = id;
+        }
+
+        String encode() {
+            String raw = flaggedAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static FlagCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new FlagCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+}
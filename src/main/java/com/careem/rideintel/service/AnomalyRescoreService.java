@@ -0,0 +1,442 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.exception.ResourceNotFoundException;
+import com.careem.rideintel.model.RescoreJob;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.RescoreJobRepository;
+import com.careem.rideintel.repository.RideRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin-triggered backfill that re-scores every completed ride against the current rules and
+ * thresholds — after a threshold change, existing flags are created, rewritten or deleted to match.
+ *
+ * The rides are walked in waves of {@code parallelism} ID-range partitions of {@code partition-size}
+ * IDs. Each partition is scored on a ForkJoinPool worker in its own transaction, so a partition's flag
+ * writes and read-model updates commit together, and is retried on failure (two partitions touching
+ * the same rollup rows can deadlock). After each wave the job's checkpoint ({@link RescoreJob#getNextRideId})
+ * and counters are saved: a paused, failed or interrupted job resumes from the last finished wave, and
+ * re-scoring a partition twice writes nothing the second time.
+ *
+ * Throttling: with {@code max-rides-per-second} set, the coordinator sleeps between waves to hold the
+ * average rate, so production traffic keeps its connections and CPU. Rides completed after the job
+ * started (above {@link RescoreJob#getLastRideId}) were scored live and are left alone.
+ *
+ * Every node can start or resume the job, but only one runs it. A node claims the job with a compare-and-set
+ * UPDATE on its version and refreshes its heartbeat every {@code heartbeat-interval}; checkpoints are saved
+ * against the same version. A RUNNING job is abandoned only once its heartbeat is older than
+ * {@code stale-after}: any node then pauses it, and the next start claims it. A node that finds its job
+ * claimed elsewhere stops without writing to it.
+ */
+@Service
+public class AnomalyRescoreService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AnomalyRescoreService.class);
+
+    private final RideRepository rideRepository;
+    private final RescoreJobRepository rescoreJobRepository;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final TransactionTemplate newTransactionTemplate;
+    private final Counter ridesRescored;
+    private final int parallelism;
+    private final int partitionSize;
+    private final int defaultMaxRidesPerSecond;
+    private final int partitionAttempts;
+    private final Duration staleAfter;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/"
+            + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Object pauseSignal = new Object();
+    private volatile boolean pauseRequested;
+    private volatile boolean running;
+    private volatile RescoreJob current;   // the latest progress of the job this node is running
+    private Thread coordinator;
+    private ForkJoinPool scoringPool;
+
+    public AnomalyRescoreService(RideRepository rideRepository,
+                                 RescoreJobRepository rescoreJobRepository,
+                                 AnomalyDetectionService anomalyDetectionService,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${rideintel.anomaly.rescore.parallelism:4}") int parallelism,
+                                 @Value("${rideintel.anomaly.rescore.partition-size:1000}") int partitionSize,
+                                 @Value("${rideintel.anomaly.rescore.max-rides-per-second:2000}") int defaultMaxRidesPerSecond,
+                                 @Value("${rideintel.anomaly.rescore.partition-attempts:3}") int partitionAttempts,
+                                 @Value("${rideintel.anomaly.rescore.stale-after:PT1M}") Duration staleAfter,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:20}") int connectionPoolSize) {
+        if (parallelism >= connectionPoolSize) {
+            throw new IllegalStateException("rideintel.anomaly.rescore.parallelism (" + parallelism + ") must leave some of the "
+                    + connectionPoolSize + " database connections to request traffic");
+        }
+        this.rideRepository           = rideRepository;
+        this.rescoreJobRepository     = rescoreJobRepository;
+        this.anomalyDetectionService  = anomalyDetectionService;
+        this.newTransactionTemplate   = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ridesRescored            = Counter.builder("rideintel.anomaly.rescore.rides")
+                .description("Completed rides re-scored by the backfill job")
+                .register(meterRegistry);
+        this.parallelism              = parallelism;
+        this.partitionSize            = partitionSize;
+        this.defaultMaxRidesPerSecond = defaultMaxRidesPerSecond;
+        this.partitionAttempts        = partitionAttempts;
+        this.staleAfter               = staleAfter;
+    }
+
+    /**
+     * Starts a re-scoring job, or resumes the last one from its checkpoint if it did not complete.
+     *
+     * @param maxRidesPerSecond throttle for this run; null for the configured default, 0 for none
+     * @throws InvalidRequestException if a job is already running, here or on another node
+     */
+    public synchronized RideDTOs.RescoreJobResponse start(Integer maxRidesPerSecond) {
+        if (!running) {
+            throw new InvalidRequestException("Re-scoring is not available while the application is shutting down");
+        }
+        if (coordinator != null && coordinator.isAlive()) {
+            if (current.getStatus() == RescoreJob.Status.RUNNING) {
+                throw new InvalidRequestException("Re-scoring job " + current.getId() + " is already running");
+            }
+            // It has recorded how the run ended and is only returning
+            try {
+                coordinator.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InvalidRequestException("Interrupted while re-scoring job " + current.getId() + " stopped");
+            }
+        }
+        int rate = maxRidesPerSecond != null ? maxRidesPerSecond : defaultMaxRidesPerSecond;
+        if (rate < 0) {
+            throw new InvalidRequestException("maxRidesPerSecond must be 0 (unthrottled) or positive");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(staleAfter);
+        List<RescoreJob> unfinished = rescoreJobRepository.findByStatusIn(Arrays.asList(
+                RescoreJob.Status.RUNNING, RescoreJob.Status.PAUSED, RescoreJob.Status.FAILED));
+        for (RescoreJob other : unfinished) {
+            if (other.getStatus() == RescoreJob.Status.RUNNING && !isAbandoned(other, staleBefore)) {
+                throw new InvalidRequestException("Re-scoring job " + other.getId() + " is already running on "
+                        + other.getOwner());
+            }
+        }
+        RescoreJob job = unfinished.isEmpty() ? rescoreJobRepository.save(newJob(now, rate)) : unfinished.get(0);
+        Integer claimed = newTransactionTemplate.execute(status -> rescoreJobRepository.claim(
+                job.getId(), job.getVersion(), nodeId, rate, now, staleBefore));
+        if (claimed == null || claimed == 0) {
+            throw new InvalidRequestException("Re-scoring job " + job.getId() + " was just started by another node");
+        }
+        current = rescoreJobRepository.findById(job.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Re-scoring job " + job.getId() + " disappeared"));
+        log.info("Re-scoring job {} running from ride {} to {} at {}", current.getId(), current.getNextRideId(),
+                current.getLastRideId(), rate == 0 ? "full speed" : rate + " rides/s");
+
+        pauseRequested = false;
+        coordinator = new Thread(this::run, "anomaly-rescore-" + current.getId());
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return toResponse(current);
+    }
+
+    /** Stops the running job after its current wave; {@link #start} resumes it */
+    public synchronized RideDTOs.RescoreJobResponse pause() {
+        if (coordinator == null || !coordinator.isAlive()) {
+            throw new InvalidRequestException("No re-scoring job is running");
+        }
+        requestPause();
+        return toResponse(current);
+    }
+
+    /** The job running on this node, else the latest one recorded */
+    public RideDTOs.RescoreJobResponse latest() {
+        RescoreJob job = current;
+        if (job == null) {
+            job = rescoreJobRepository.findFirstByOrderByIdDesc()
+                    .orElseThrow(() -> new ResourceNotFoundException("No re-scoring job has been started"));
+        }
+        return toResponse(job);
+    }
+
+    /**
+     * Keeps the job this node runs claimed, and pauses jobs whose owner stopped heartbeating — a crashed or
+     * restarted node; they resume from their checkpoint on request
+     */
+    @Scheduled(fixedDelayString = "${rideintel.anomaly.rescore.heartbeat-interval:PT10S}")
+    public void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        RescoreJob job = current;
+        if (job != null && job.getStatus() == RescoreJob.Status.RUNNING) {
+            Integer beat = newTransactionTemplate.execute(status ->
+                    rescoreJobRepository.heartbeat(job.getId(), nodeId, now));
+            if (beat == null || beat == 0) {
+                log.warn("Re-scoring job {} is no longer claimed by this node; stopping", job.getId());
+                requestPause();
+            }
+        }
+        Integer abandoned = newTransactionTemplate.execute(status ->
+                rescoreJobRepository.pauseAbandoned(now.minus(staleAfter), now));
+        if (abandoned != null && abandoned > 0) {
+            log.info("Paused {} re-scoring job(s) whose node stopped heartbeating", abandoned);
+        }
+    }
+
+    // ─── Lifecycle ────────────────────────────────────────────────────────────
+
+    @Override
+    public void start() {
+        scoringPool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("anomaly-rescore-worker-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) return;
+
+        running = false;
+        Thread job;
+        synchronized (this) {
+            job = coordinator;
+        }
+        if (job != null && job.isAlive()) {
+            // Let the wave in flight commit and checkpoint, so the next start loses no work
+            requestPause();
+            try {
+                job.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        scoringPool.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Stop after the web server, so no request can start a job on a stopped pool
+        return Integer.MAX_VALUE - 1024;
+    }
+
+    // ─── Internals ────────────────────────────────────────────────────────────
+
+    private RescoreJob newJob(LocalDateTime now, int rate) {
+        Long maxId = rideRepository.findMaxId();
+        return RescoreJob.builder()
+                .status(RescoreJob.Status.PAUSED)   // until claimed
+                .nextRideId(0L)
+                .lastRideId(maxId != null ? maxId : 0L)
+                .maxRidesPerSecond(rate)
+                .ridesScored(0L)
+                .flagsCreated(0L)
+                .flagsUpdated(0L)
+                .flagsCleared(0L)
+                .elapsedMillis(0L)
+                .startedAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    private void requestPause() {
+        pauseRequested = true;
+        synchronized (pauseSignal) {
+            pauseSignal.notifyAll();
+        }
+    }
+
+    private void run() {
+        RescoreJob job = current;
+        long runStart = System.nanoTime();
+        long elapsedBefore = job.getElapsedMillis();
+        long ridesThisRun = 0;
+        try {
+            while (job.getNextRideId() <= job.getLastRideId()) {
+                if (pauseRequested) {
+                    finish(job, RescoreJob.Status.PAUSED, elapsedBefore, runStart, null);
+                    return;
+                }
+
+                long waveStart = job.getNextRideId();
+                long waveEnd = Math.min(job.getLastRideId() + 1, waveStart + (long) parallelism * partitionSize);
+                List<Callable<PartitionResult>> partitions = new ArrayList<>(parallelism);
+                for (long from = waveStart; from < waveEnd; from += partitionSize) {
+                    long fromId = from;
+                    long toId = Math.min(waveEnd, from + partitionSize);
+                    partitions.add(() -> scorePartition(fromId, toId));
+                }
+
+                PartitionResult wave = new PartitionResult(0, 0, 0, 0);
+                for (Future<PartitionResult> partition : scoringPool.invokeAll(partitions)) {
+                    wave = wave.plus(partition.get());
+                }
+
+                ridesThisRun += wave.rides;
+                ridesRescored.increment(wave.rides);
+                job.setNextRideId(waveEnd);
+                job.setRidesScored(job.getRidesScored() + wave.rides);
+                job.setFlagsCreated(job.getFlagsCreated() + wave.created);
+                job.setFlagsUpdated(job.getFlagsUpdated() + wave.revised);
+                job.setFlagsCleared(job.getFlagsCleared() + wave.cleared);
+                job = checkpoint(job, elapsedBefore, runStart);
+
+                throttle(job.getMaxRidesPerSecond(), ridesThisRun, runStart);
+            }
+            finish(job, RescoreJob.Status.COMPLETED, elapsedBefore, runStart, null);
+            log.info("Re-scoring job {} completed: {} rides at {} rides/s, {} flags created, {} updated, {} cleared",
+                    job.getId(), job.getRidesScored(), String.format("%.0f", ridesPerSecond(job)),
+                    job.getFlagsCreated(), job.getFlagsUpdated(), job.getFlagsCleared());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(job, RescoreJob.Status.PAUSED, elapsedBefore, runStart, null);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Re-scoring job {} was claimed by another node at ride {}; stopping", job.getId(),
+                    job.getNextRideId());
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            log.error("Re-scoring job {} failed at ride {}", job.getId(), job.getNextRideId(), cause);
+            finish(job, RescoreJob.Status.FAILED, elapsedBefore, runStart, String.valueOf(cause));
+        }
+    }
+
+    private PartitionResult scorePartition(long fromId, long toId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return newTransactionTemplate.execute(status -> {
+                    List<Ride> rides = rideRepository.findCompletedInIdRange(fromId, toId);
+                    if (rides.isEmpty()) {
+                        return new PartitionResult(0, 0, 0, 0);
+                    }
+                    AnomalyDetectionService.FlagChanges changes = anomalyDetectionService.rescoreRides(rides);
+                    return new PartitionResult(rides.size(), changes.created.size(),
+                            changes.revised.size(), changes.cleared.size());
+                });
+            } catch (RuntimeException e) {
+                if (attempt >= partitionAttempts) throw e;
+                log.warn("Re-scoring rides [{}, {}) failed (attempt {} of {}), retrying: {}",
+                        fromId, toId, attempt, partitionAttempts, e.toString());
+            }
+        }
+    }
+
+    private RescoreJob checkpoint(RescoreJob job, long elapsedBefore, long runStart) {
+        job.setElapsedMillis(elapsedBefore + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart));
+        job.setUpdatedAt(LocalDateTime.now());
+        job.setHeartbeatAt(job.getUpdatedAt());
+        RescoreJob saved = rescoreJobRepository.save(job);
+        current = saved;
+        return saved;
+    }
+
+    private void finish(RescoreJob job, RescoreJob.Status status, long elapsedBefore, long runStart, String error) {
+        job.setStatus(status);
+        job.setError(error == null ? null : error.substring(0, Math.min(error.length(), 1000)));
+        job.setOwner(null);
+        if (status == RescoreJob.Status.COMPLETED) {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        try {
+            checkpoint(job, elapsedBefore, runStart);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Re-scoring job {} was claimed by another node; leaving it to that node", job.getId());
+        } catch (RuntimeException e) {
+            log.error("Could not record re-scoring job {} as {}", job.getId(), status, e);
+        }
+    }
+
+    // Sleeps until this run's average rate is back under the limit; a pause request cuts the wait short
+    private void throttle(int maxRidesPerSecond, long ridesThisRun, long runStart) throws InterruptedException {
+        if (maxRidesPerSecond <= 0) return;
+
+        long dueNanos = runStart + ridesThisRun * TimeUnit.SECONDS.toNanos(1) / maxRidesPerSecond;
+        synchronized (pauseSignal) {
+            long waitNanos;
+            while (!pauseRequested && (waitNanos = dueNanos - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(pauseSignal, waitNanos);
+            }
+        }
+    }
+
+    private static boolean isAbandoned(RescoreJob job, LocalDateTime staleBefore) {
+        return job.getHeartbeatAt() == null || job.getHeartbeatAt().isBefore(staleBefore);
+    }
+
+    private static double ridesPerSecond(RescoreJob job) {
+        return job.getElapsedMillis() == 0 ? 0.0 : job.getRidesScored() * 1000.0 / job.getElapsedMillis();
+    }
+
+    private static RideDTOs.RescoreJobResponse toResponse(RescoreJob job) {
+        long span = job.getLastRideId() + 1;
+        return RideDTOs.RescoreJobResponse.builder()
+                .jobId(job.getId())
+                .status(job.getStatus().name())
+                .owner(job.getOwner())
+                .nextRideId(job.getNextRideId())
+                .lastRideId(job.getLastRideId())
+                .progress(Math.min(1.0, (double) job.getNextRideId() / span))
+                .maxRidesPerSecond(job.getMaxRidesPerSecond())
+                .ridesScored(job.getRidesScored())
+                .ridesPerSecond(ridesPerSecond(job))
+                .flagsCreated(job.getFlagsCreated())
+                .flagsUpdated(job.getFlagsUpdated())
+                .flagsCleared(job.getFlagsCleared())
+                .startedAt(job.getStartedAt())
+                .updatedAt(job.getUpdatedAt())
+                .finishedAt(job.getFinishedAt())
+                .error(job.getError())
+                .build();
+    }
+
+    /** Rides scored and flag changes made by one partition, or summed over a wave */
+    private static final class PartitionResult {
+        final long rides;
+        final long created;
+        final long revised;
+        final long cleared;
+
+        PartitionResult(long rides, long created, long revised, long cleared) {
+            this.rides   = rides;
+            this.created = created;
+            this.revised = revised;
+            this.cleared = cleared;
+        }
+
+        PartitionResult plus(PartitionResult other) {
+            return new PartitionResult(rides + other.rides, created + other.created,
+                    revised + other.revised, cleared + other.cleared);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.CaptainTotals;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.CaptainTotalsRepository;
+import com.careem.rideintel.repository.RideRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the {@code captain_totals} running-totals table and serves captain stats from it.
+ *
+ * Only active when {@code rideintel.analytics.captain-source=RUNNING_TOTALS}; with the default
+ * (AGGREGATE) captain stats come from a single projection query over the captain's rides.
+ * The table is rebuilt from {@code rides} on startup so flipping the switch never serves stale data.
+ * Deltas are applied in captain order, so concurrent batches lock rows in the same order and cannot deadlock.
+ */
+@Service
+public class CaptainTotalsService {
+
+    public enum Source { AGGREGATE, RUNNING_TOTALS }
+
+    private static final int REBUILD_FLUSH_SIZE = 500;
+
+    private final CaptainTotalsRepository captainTotalsRepository;
+    private final RideRepository rideRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Source source;
+    private final boolean onConflictDoNothing;
+
+    public CaptainTotalsService(CaptainTotalsRepository captainTotalsRepository,
+                                RideRepository rideRepository,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                DataSource dataSource,
+                                @Value("${rideintel.analytics.captain-source:AGGREGATE}") Source source) {
+        this.captainTotalsRepository = captainTotalsRepository;
+        this.rideRepository          = rideRepository;
+        this.entityManager           = entityManager;
+        this.transactionTemplate     = new TransactionTemplate(transactionManager);
+        this.source                  = source;
+        this.onConflictDoNothing     = "PostgreSQL".equals(new JdbcTemplate(dataSource).execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    public boolean isEnabled() {
+        return source == Source.RUNNING_TOTALS;
+    }
+
+    /** Primary-key lookup — constant time regardless of how many rides the captain has driven */
+    public RideDTOs.CaptainStatsResponse getCaptainStats(String captainId) {
+        CaptainTotals totals = captainTotalsRepository.findById(captainId)
+                .orElseGet(() -> CaptainTotals.empty(captainId));
+
+        return RideDTOs.CaptainStatsResponse.builder()
+                .captainId(captainId)
+                .totalRides(totals.getTotalRides())
+                .completedRides(totals.getCompletedRides())
+                .cancelledRides(totals.getCancelledRides())
+                .totalEarnings(totals.getTotalEarnings())
+                .anomaliesDetected(totals.getAnomalies())
+                .build();
+    }
+
+    // ─── Event Handlers ───────────────────────────────────────────────────────
+
+    @EventListener
+    public void onRidesCreated(RideEvents.RidesCreated event) {
+        if (!isEnabled()) return;
+
+        Map<String, CaptainTotals> deltas = new TreeMap<>();
+        for (Ride ride : event.getRides()) {
+            CaptainTotals delta = deltas.computeIfAbsent(ride.getCaptainId(), CaptainTotals::empty);
+            delta.setTotalRides(delta.getTotalRides() + 1);
+        }
+        deltas.values().forEach(this::add);
+    }
+
+    @EventListener
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        if (!isEnabled()) return;
+
+        Map<String, CaptainTotals> deltas = new TreeMap<>();
+        for (Ride ride : event.getRides()) {
+            CaptainTotals delta = deltas.computeIfAbsent(ride.getCaptainId(), CaptainTotals::empty);
+            delta.setCompletedRides(delta.getCompletedRides() + 1);
+            delta.setTotalEarnings(delta.getTotalEarnings() + ride.getFareAmount());
+        }
+        deltas.values().forEach(this::add);
+    }
+
+    @EventListener
+    public void onRideCancelled(RideEvents.RideCancelled event) {
+        if (!isEnabled()) return;
+
+        Ride ride = event.getRide();
+        CaptainTotals delta = CaptainTotals.empty(ride.getCaptainId());
+        delta.setCancelledRides(1L);
+        add(delta);
+    }
+
+    @EventListener
+    public void onAnomaliesFlagged(RideEvents.AnomaliesFlagged event) {
+        if (!isEnabled()) return;
+
+        Map<String, CaptainTotals> deltas = new TreeMap<>();
+        for (AnomalyFlag flag : event.getFlags()) {
+            CaptainTotals delta = deltas.computeIfAbsent(flag.getRide().getCaptainId(), CaptainTotals::empty);
+            delta.setAnomalies(delta.getAnomalies() + 1);
+        }
+        deltas.values().forEach(this::add);
+    }
+
+    @EventListener
+    public void onAnomaliesCleared(RideEvents.AnomaliesCleared event) {
+        if (!isEnabled()) return;
+
+        Map<String, CaptainTotals> deltas = new TreeMap<>();
+        for (AnomalyFlag flag : event.getFlags()) {
+            CaptainTotals delta = deltas.computeIfAbsent(flag.getRide().getCaptainId(), CaptainTotals::empty);
+            delta.setAnomalies(delta.getAnomalies() - 1);
+        }
+        deltas.values().forEach(this::add);
+    }
+
+    @EventListener
+    public void onRidesArchived(RideEvents.RidesArchived event) {
+        if (!isEnabled()) return;
+
+        // Archived rides leave the totals now, as they would at the next rebuild
+        for (Object[] row : rideRepository.getCaptainStatsCreatedBetween(event.getFrom(), event.getTo())) {
+            add(CaptainTotals.builder()
+                    .captainId((String) row[0])
+                    .totalRides(-(Long) row[1])
+                    .completedRides(-(Long) row[2])
+                    .cancelledRides(-(Long) row[3])
+                    .totalEarnings(-(Double) row[4])
+                    .anomalies(-(Long) row[5])
+                    .build());
+        }
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void rebuild() {
+        if (!isEnabled()) return;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            captainTotalsRepository.deleteAllInBatch();
+            int persisted = 0;
+            for (Object[] row : rideRepository.getAllCaptainStats()) {
+                entityManager.persist(CaptainTotals.builder()
+                        .captainId((String) row[0])
+                        .totalRides((Long) row[1])
+                        .completedRides((Long) row[2])
+                        .cancelledRides((Long) row[3])
+                        .totalEarnings((Double) row[4])
+                        .anomalies((Long) row[5])
+                        .build());
+                if (++persisted % REBUILD_FLUSH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private void add(CaptainTotals delta) {
+        if (apply(delta) == 0) {
+            insertIfAbsent(delta.getCaptainId());
+            apply(delta);
+        }
+    }
+
+    private int apply(CaptainTotals delta) {
+        return captainTotalsRepository.addTotals(delta.getCaptainId(),
+                delta.getTotalRides(),
+                delta.getCompletedRides(),
+                delta.getCancelledRides(),
+                delta.getTotalEarnings(),
+                delta.getAnomalies());
+    }
+
+    private void insertIfAbsent(String captainId) {
+        if (onConflictDoNothing) {
+            captainTotalsRepository.insertIfAbsent(captainId);
+        } else {
+            captainTotalsRepository.mergeIfAbsent(captainId);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.model.CityPairBaseline;
+import com.careem.rideintel.repository.CityPairBaselineRepository;
+import com.careem.rideintel.repository.RideRepository;
+import com.careem.rideintel.rule.CityPairIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns the city-pair distance baselines behind the ROUTE_DEVIATION rule.
+ *
+ * The {@code city_pair_baselines} table is loaded into a {@link CityPairIndex} on startup, so
+ * scoring a ride never queries it. Every {@code refresh-interval} the baselines are recomputed
+ * from clean completed rides (pairs with at least {@code min-samples} rides), written back to
+ * the table and the in-memory index is swapped for a fresh one.
+ */
+@Service
+public class CityPairBaselineService {
+
+    private static final Logger log = LoggerFactory.getLogger(CityPairBaselineService.class);
+
+    private final CityPairBaselineRepository baselineRepository;
+    private final RideRepository rideRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long minSamples;
+
+    private volatile CityPairIndex index = CityPairIndex.EMPTY;
+
+    public CityPairBaselineService(CityPairBaselineRepository baselineRepository,
+                                   RideRepository rideRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${rideintel.anomaly.route-baseline.min-samples:20}") long minSamples) {
+        this.baselineRepository  = baselineRepository;
+        this.rideRepository      = rideRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.minSamples          = minSamples;
+    }
+
+    /** Current snapshot — safe to hold for the duration of one scoring call */
+    public CityPairIndex index() {
+        return index;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        CityPairIndex.Builder builder = CityPairIndex.builder();
+        for (CityPairBaseline baseline : baselineRepository.findAll()) {
+            builder.put(baseline.getPickupCity(), baseline.getDropoffCity(), baseline.getBaselineKm());
+        }
+        index = builder.build();
+    }
+
+    /** Relearns baselines from {@code rides}; pairs below {@code min-samples} keep their current row */
+    @Scheduled(fixedDelayString = "${rideintel.anomaly.route-baseline.refresh-interval:PT1H}",
+            initialDelayString = "${rideintel.anomaly.route-baseline.refresh-interval:PT1H}")
+    public void refresh() {
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<CityPairBaseline> learned = new ArrayList<>();
+            for (Object[] row : rideRepository.getCityPairDistances(minSamples)) {
+                learned.add(CityPairBaseline.builder()
+                        .pickupCity((String) row[0])
+                        .dropoffCity((String) row[1])
+                        .baselineKm((Double) row[2])
+                        .sampleCount((Long) row[3])
+                        .refreshedAt(now)
+                        .build());
+            }
+            baselineRepository.saveAll(learned);
+            log.debug("Refreshed {} city-pair baselines from rides", learned.size());
+        });
+        load();
+    }
+}
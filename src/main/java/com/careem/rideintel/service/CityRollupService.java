@@ -0,0 +1,187 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.CityRollup;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.CityRollupRepository;
+import com.careem.rideintel.repository.RideRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the {@code city_rollup} table from ride events and serves city analytics from it.
+ *
+ * Only active when {@code rideintel.analytics.city-source=ROLLUP}; with the default (AGGREGATE)
+ * city analytics are computed by a single GROUP BY over {@code rides} and this table is left alone.
+ * The rollup is rebuilt from {@code rides} on startup so flipping the switch never serves stale data.
+ * Deltas are applied in city order, so concurrent batches lock rows in the same order and cannot deadlock.
+ */
+@Service
+public class CityRollupService {
+
+    public enum Source { AGGREGATE, ROLLUP }
+
+    private final CityRollupRepository cityRollupRepository;
+    private final RideRepository rideRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Source source;
+    private final boolean onConflictDoNothing;
+
+    public CityRollupService(CityRollupRepository cityRollupRepository,
+                             RideRepository rideRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             DataSource dataSource,
+                             @Value("${rideintel.analytics.city-source:AGGREGATE}") Source source) {
+        this.cityRollupRepository = cityRollupRepository;
+        this.rideRepository       = rideRepository;
+        this.entityManager        = entityManager;
+        this.transactionTemplate  = new TransactionTemplate(transactionManager);
+        this.source               = source;
+        this.onConflictDoNothing  = "PostgreSQL".equals(new JdbcTemplate(dataSource).execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    public boolean isEnabled() {
+        return source == Source.ROLLUP;
+    }
+
+    /** O(cities) read — cost is independent of how many rides have been recorded */
+    public List<RideDTOs.AnalyticsResponse> getCityAnalytics() {
+        return cityRollupRepository.findAll().stream()
+                .filter(rollup -> rollup.getCompletedRides() > 0)
+                .map(rollup -> {
+                    long rides = rollup.getCompletedRides();
+                    return RideDTOs.AnalyticsResponse.builder()
+                            .city(rollup.getCity())
+                            .totalRides(rides)
+                            .averageFare(rollup.getTotalFare() / rides)
+                            .averageDistanceKm(rollup.getTotalDistanceKm() / rides)
+                            .averageDurationMinutes((double) rollup.getTotalDurationMinutes() / rides)
+                            .anomalyCount(rollup.getAnomalyCount())
+                            .anomalyRate((double) rollup.getAnomalyCount() / rides)
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    // ─── Event Handlers ───────────────────────────────────────────────────────
+
+    @EventListener
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        if (!isEnabled()) return;
+
+        Map<String, CityRollup> deltas = new TreeMap<>();
+        for (Ride ride : event.getRides()) {
+            CityRollup delta = deltas.computeIfAbsent(ride.getPickupCity(), CityRollup::empty);
+            delta.setCompletedRides(delta.getCompletedRides() + 1);
+            delta.setTotalFare(delta.getTotalFare() + ride.getFareAmount());
+            delta.setTotalDistanceKm(delta.getTotalDistanceKm() + ride.getDistanceKm());
+            delta.setTotalDurationMinutes(delta.getTotalDurationMinutes() + ride.getDurationMinutes());
+        }
+        deltas.values().forEach(this::addCompletions);
+    }
+
+    @EventListener
+    public void onAnomaliesFlagged(RideEvents.AnomaliesFlagged event) {
+        if (!isEnabled()) return;
+
+        Map<String, Long> counts = event.getFlags().stream()
+                .collect(Collectors.groupingBy(flag -> flag.getRide().getPickupCity(), TreeMap::new,
+                        Collectors.counting()));
+        counts.forEach((city, count) -> {
+            if (cityRollupRepository.addAnomalies(city, count) == 0) {
+                insertIfAbsent(city);
+                cityRollupRepository.addAnomalies(city, count);
+            }
+        });
+    }
+
+    @EventListener
+    public void onAnomaliesCleared(RideEvents.AnomaliesCleared event) {
+        if (!isEnabled()) return;
+
+        // The rides were counted when flagged, so their rows exist
+        Map<String, Long> counts = event.getFlags().stream()
+                .collect(Collectors.groupingBy(flag -> flag.getRide().getPickupCity(), TreeMap::new,
+                        Collectors.counting()));
+        counts.forEach((city, count) -> cityRollupRepository.addAnomalies(city, -count));
+    }
+
+    @EventListener
+    public void onRidesArchived(RideEvents.RidesArchived event) {
+        if (!isEnabled()) return;
+
+        // Archived rides leave the totals now, as they would at the next rebuild
+        for (Object[] row : rideRepository.getCityTotalsCreatedBetween(event.getFrom(), event.getTo())) {
+            String city = (String) row[0];
+            addCompletions(CityRollup.builder()
+                    .city(city)
+                    .completedRides(-(Long) row[1])
+                    .totalFare(-(Double) row[2])
+                    .totalDistanceKm(-(Double) row[3])
+                    .totalDurationMinutes(-(Long) row[4])
+                    .build());
+            cityRollupRepository.addAnomalies(city, -(Long) row[5]);
+        }
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void rebuild() {
+        if (!isEnabled()) return;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cityRollupRepository.deleteAllInBatch();
+            for (Object[] row : rideRepository.getCityTotals()) {
+                entityManager.persist(CityRollup.builder()
+                        .city((String) row[0])
+                        .completedRides((Long) row[1])
+                        .totalFare((Double) row[2])
+                        .totalDistanceKm((Double) row[3])
+                        .totalDurationMinutes((Long) row[4])
+                        .anomalyCount((Long) row[5])
+                        .build());
+            }
+        });
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private void addCompletions(CityRollup delta) {
+        if (applyCompletions(delta) == 0) {
+            insertIfAbsent(delta.getCity());
+            applyCompletions(delta);
+        }
+    }
+
+    private int applyCompletions(CityRollup delta) {
+        return cityRollupRepository.addCompletions(delta.getCity(),
+                delta.getCompletedRides(),
+                delta.getTotalFare(),
+                delta.getTotalDistanceKm(),
+                delta.getTotalDurationMinutes());
+    }
+
+    private void insertIfAbsent(String city) {
+        if (onConflictDoNothing) {
+            cityRollupRepository.insertIfAbsent(city);
+        } else {
+            cityRollupRepository.mergeIfAbsent(city);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.CityHourlyRollup;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.CityHourlyRollupRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the {@code city_hourly_rollup} table from ride events and serves the analytics
+ * timeseries from it.
+ *
+ * Completions are added to the hour they completed in, so a read over any time range touches
+ * (hours x cities x vehicle types) rollup rows — never {@code rides}. Day and week buckets are
+ * sums of hours. Unlike the all-time {@link CityRollupService} this table is always maintained:
+ * it is backfilled once by its migration instead of being rebuilt on every startup.
+ *
+ * Each event applies its deltas in key order, so concurrent batches lock shared rows in the same
+ * order and cannot deadlock on each other.
+ */
+@Service
+public class CityTimeSeriesService {
+
+    public enum Granularity {
+        HOUR(1), DAY(24), WEEK(24 * 7);
+
+        private final long hours;
+
+        Granularity(long hours) {
+            this.hours = hours;
+        }
+
+        LocalDateTime floor(LocalDateTime time) {
+            switch (this) {
+                case HOUR: return time.truncatedTo(ChronoUnit.HOURS);
+                case DAY:  return time.truncatedTo(ChronoUnit.DAYS);
+                default:   return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+        }
+
+        LocalDateTime ceil(LocalDateTime time) {
+            LocalDateTime floor = floor(time);
+            return floor.equals(time) ? time : floor.plusHours(hours);
+        }
+    }
+
+    // Points per city in one response — 83 days hourly, ~5 years daily
+    private static final long MAX_BUCKETS = 2000;
+
+    private static final Comparator<CityHourlyRollup.Key> KEY_ORDER =
+            Comparator.comparing(CityHourlyRollup.Key::getBucketHour)
+                    .thenComparing(CityHourlyRollup.Key::getCity)
+                    .thenComparing(CityHourlyRollup.Key::getVehicleType);
+
+    private final CityHourlyRollupRepository hourlyRollupRepository;
+    private final boolean onConflictDoNothing;
+
+    public CityTimeSeriesService(CityHourlyRollupRepository hourlyRollupRepository,
+                                 DataSource dataSource) {
+        this.hourlyRollupRepository = hourlyRollupRepository;
+        this.onConflictDoNothing    = "PostgreSQL".equals(new JdbcTemplate(dataSource).execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    /**
+     * @param city optional — all cities when null
+     * @return one series per city, buckets in time order; [from, to) is widened to whole buckets
+     */
+    public RideDTOs.CityTimeSeriesResponse getCityTimeSeries(LocalDateTime from, LocalDateTime to,
+                                                             String granularity, String city) {
+        Granularity unit = parseGranularity(granularity);
+        if (!from.isBefore(to)) {
+            throw new InvalidRequestException("'from' must be before 'to'");
+        }
+        LocalDateTime start = unit.floor(from);
+        LocalDateTime end   = unit.ceil(to);
+        long buckets = ChronoUnit.HOURS.between(start, end) / unit.hours;
+        if (buckets > MAX_BUCKETS) {
+            throw new InvalidRequestException("Range spans " + buckets + " " + unit.name().toLowerCase(Locale.ROOT)
+                    + " buckets; at most " + MAX_BUCKETS + " are allowed — narrow it or use a coarser granularity");
+        }
+
+        List<Object[]> rows = city == null
+                ? hourlyRollupRepository.sumByHourAndCity(start, end)
+                : hourlyRollupRepository.sumByHourForCity(start, end, city);
+
+        // Rows arrive in hour order, so each city's buckets are filled in time order too
+        Map<String, Map<LocalDateTime, Totals>> byCity = new TreeMap<>();
+        for (Object[] row : rows) {
+            Totals totals = byCity.computeIfAbsent((String) row[1], c -> new LinkedHashMap<>())
+                    .computeIfAbsent(unit.floor((LocalDateTime) row[0]), b -> new Totals());
+            totals.rides           += (Long) row[2];
+            totals.fare            += (Double) row[3];
+            totals.distanceKm      += (Double) row[4];
+            totals.durationMinutes += (Long) row[5];
+            totals.anomalies       += (Long) row[6];
+        }
+
+        List<RideDTOs.CitySeries> series = new ArrayList<>(byCity.size());
+        byCity.forEach((name, points) -> series.add(RideDTOs.CitySeries.builder()
+                .city(name)
+                .points(points.entrySet().stream()
+                        .filter(point -> point.getValue().rides > 0)
+                        .map(point -> point.getValue().toPoint(point.getKey()))
+                        .collect(Collectors.toList()))
+                .build()));
+
+        return RideDTOs.CityTimeSeriesResponse.builder()
+                .granularity(unit.name())
+                .from(start)
+                .to(end)
+                .series(series)
+                .build();
+    }
+
+    // ─── Event Handlers ───────────────────────────────────────────────────────
+
+    @EventListener
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        Map<CityHourlyRollup.Key, Totals> deltas = new TreeMap<>(KEY_ORDER);
+        for (Ride ride : event.getRides()) {
+            Totals delta = deltas.computeIfAbsent(keyOf(ride), k -> new Totals());
+            delta.rides++;
+            delta.fare            += ride.getFareAmount();
+            delta.distanceKm      += ride.getDistanceKm();
+            delta.durationMinutes += ride.getDurationMinutes();
+        }
+        deltas.forEach(this::addCompletions);
+    }
+
+    @EventListener
+    public void onAnomaliesFlagged(RideEvents.AnomaliesFlagged event) {
+        Map<CityHourlyRollup.Key, Long> counts = event.getFlags().stream()
+                .map(AnomalyFlag::getRide)
+                .collect(Collectors.groupingBy(CityTimeSeriesService::keyOf, () -> new TreeMap<>(KEY_ORDER),
+                        Collectors.counting()));
+        counts.forEach(this::addAnomalies);
+    }
+
+    @EventListener
+    public void onAnomaliesCleared(RideEvents.AnomaliesCleared event) {
+        Map<CityHourlyRollup.Key, Long> counts = event.getFlags().stream()
+                .map(AnomalyFlag::getRide)
+                .collect(Collectors.groupingBy(CityTimeSeriesService::keyOf, () -> new TreeMap<>(KEY_ORDER),
+                        Collectors.counting()));
+        counts.forEach((key, count) -> addAnomalies(key, -count));
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private static Granularity parseGranularity(String granularity) {
+        try {
+            return Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unknown granularity: " + granularity + " (expected hour, day or week)");
+        }
+    }
+
+    private static CityHourlyRollup.Key keyOf(Ride ride) {
+        return new CityHourlyRollup.Key(ride.getCompletedAt().truncatedTo(ChronoUnit.HOURS),
+                ride.getPickupCity(), ride.getVehicleType());
+    }
+
+    private void addCompletions(CityHourlyRollup.Key key, Totals delta) {
+        if (applyCompletions(key, delta) == 0) {
+            insertIfAbsent(key);
+            applyCompletions(key, delta);
+        }
+    }
+
+    private int applyCompletions(CityHourlyRollup.Key key, Totals delta) {
+        return hourlyRollupRepository.addCompletions(key.getBucketHour(), key.getCity(), key.getVehicleType(),
+                delta.rides, delta.fare, delta.distanceKm, delta.durationMinutes);
+    }
+
+    private void addAnomalies(CityHourlyRollup.Key key, long count) {
+        if (hourlyRollupRepository.addAnomalies(key.getBucketHour(), key.getCity(), key.getVehicleType(), count) == 0) {
+            insertIfAbsent(key);
+            hourlyRollupRepository.addAnomalies(key.getBucketHour(), key.getCity(), key.getVehicleType(), count);
+        }
+    }
+
+    private void insertIfAbsent(CityHourlyRollup.Key key) {
+        if (onConflictDoNothing) {
+            hourlyRollupRepository.insertIfAbsent(key.getBucketHour(), key.getCity(), key.getVehicleType());
+        } else {
+            hourlyRollupRepository.mergeIfAbsent(key.getBucketHour(), key.getCity(), key.getVehicleType());
+        }
+    }
+
+    /** Additive counters of one bucket — used both for write deltas and for folding hours into days/weeks */
+    private static class Totals {
+        long rides;
+        double fare;
+        double distanceKm;
+        long durationMinutes;
+        long anomalies;
+
+        RideDTOs.TimeSeriesPoint toPoint(LocalDateTime bucketStart) {
+            return RideDTOs.TimeSeriesPoint.builder()
+                    .bucketStart(bucketStart)
+                    .totalRides(rides)
+                    .averageFare(fare / rides)
+                    .averageDistanceKm(distanceKm / rides)
+                    .averageDurationMinutes((double) durationMinutes / rides)
+                    .anomalyCount(anomalies)
+                    .anomalyRate((double) anomalies / rides)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.IdempotencyKey;
+import com.careem.rideintel.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * {@code Idempotency-Key} support for the PATCH ride endpoints. The first successful response under a key
+ * is stored in the same transaction as the work that produced it, and every retry of the same request gets
+ * that response back without running again — even if the ride has changed since.
+ *
+ * Two requests racing with one key both run, but only one can insert the key: the other rolls back whole
+ * and replays the winner's response. Failed requests store nothing, so they can be retried with the same
+ * key. Keys are purged {@code rideintel.idempotency.retention} after first use.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${rideintel.idempotency.retention:PT24H}") Duration retention) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.entityManager            = entityManager;
+        this.objectMapper             = objectMapper;
+        this.transactionTemplate      = new TransactionTemplate(transactionManager);
+        this.retention                = retention;
+    }
+
+    /**
+     * Runs {@code action} once per key.
+     *
+     * @param key     the client's {@code Idempotency-Key}; {@code null} runs the action unguarded
+     * @param request method, path and body — a key may not be reused for a different request
+     */
+    public <T> T execute(String key, String request, TypeReference<T> responseType, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = sha256(request);
+        Optional<T> stored = replay(key, requestHash, responseType);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+
+        try {
+            return transactionTemplate.execute(status -> {
+                T response = action.get();
+                entityManager.persist(IdempotencyKey.builder()
+                        .key(key)
+                        .requestHash(requestHash)
+                        .responseBody(toJson(response))
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                entityManager.flush();
+                return response;
+            });
+        } catch (PersistenceException | DataIntegrityViolationException e) {
+            // A concurrent request with the same key committed first — ours is rolled back, theirs stands
+            return replay(key, requestHash, responseType).orElseThrow(() -> e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rideintel.idempotency.purge-interval:PT1H}",
+            initialDelayString = "${rideintel.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private <T> Optional<T> replay(String key, String requestHash, TypeReference<T> responseType) {
+        // Read in a read-write transaction: it must see keys committed on the primary, never a lagging replica
+        Optional<IdempotencyKey> found = transactionTemplate.execute(status -> idempotencyKeyRepository.findById(key));
+        return found.map(stored -> {
+            if (!stored.getRequestHash().equals(requestHash)) {
+                throw new InvalidRequestException("Idempotency-Key " + key + " was already used for a different request");
+            }
+            try {
+                return objectMapper.readValue(stored.getResponseBody(), responseType);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Unreadable stored response for idempotency key " + key, e);
+            }
+        });
+    }
+
+    private String toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response for idempotent request", e);
+        }
+    }
+
+    private static String sha256(String request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.careem.rideintel.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-JVM {@link RideCacheInvalidationChannel}: delivers synchronously to every subscriber.
+ * Used when no other channel is configured, and in tests to stand in for a broker between
+ * several caches playing separate nodes.
+ */
+public class InProcessInvalidationChannel implements RideCacheInvalidationChannel {
+
+    private final List<Consumer<Collection<Long>>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(Collection<Long> rideIds) {
+        for (Consumer<Collection<Long>> listener : listeners) {
+            listener.accept(rideIds);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Collection<Long>> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,311 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.RideRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live per-city counters pushed to dashboards over Server-Sent Events.
+ *
+ * Counters are seeded from {@code rides} once on startup and then kept in memory from ride events,
+ * applied after their transaction commits. Cities touched since the last push are marked dirty;
+ * every {@code push-interval} their current figures are serialized once and the same payload is
+ * written to every subscriber. A subscriber costs one write per push — never a query.
+ *
+ * Each stream opens with a {@code snapshot} event holding every city, followed by {@code delta}
+ * events holding only the cities that changed. Idle streams get a comment every
+ * {@code heartbeat-interval} so proxies keep them open.
+ *
+ * Writes run on a pool of {@code fan-out-threads}, never on the scheduler thread, and each stream has
+ * at most one write in flight: a stream still busy with its previous write is skipped, so a slow client
+ * can neither hold up the others nor queue pushes it cannot take. A stream that skipped a delta is sent
+ * a fresh snapshot once its write completes, at the next push.
+ */
+@Service
+public class LiveCityAnalyticsService {
+
+    private final RideRepository rideRepository;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+    private final long heartbeatNanos;
+
+    private final ConcurrentHashMap<String, CityCounters> counters = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor fanOutPool;
+    private volatile long lastPushNanos = System.nanoTime();
+
+    public LiveCityAnalyticsService(RideRepository rideRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${rideintel.analytics.live.emitter-timeout:PT30M}") Duration emitterTimeout,
+                                    @Value("${rideintel.analytics.live.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+                                    @Value("${rideintel.analytics.live.fan-out-threads:4}") int fanOutThreads) {
+        this.rideRepository       = rideRepository;
+        this.objectMapper         = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.heartbeatNanos       = heartbeatInterval.toNanos();
+
+        // The queue holds at most one write per stream; idle threads exit, so no shutdown is needed
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fanOutPool = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "live-analytics-fan-out-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fanOutPool.allowCoreThreadTimeOut(true);
+    }
+
+    /** Opens a stream; EventSource clients reconnect by themselves when it times out */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Registered before the snapshot is taken, so no change can fall between the two; pushes skip
+        // the stream until the snapshot is written
+        subscriber.writing.set(true);
+        subscribers.add(subscriber);
+        try {
+            send(subscriber, "snapshot", toJson(update(new ArrayList<>(counters.keySet()))));
+        } finally {
+            subscriber.writing.set(false);
+        }
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${rideintel.analytics.live.push-interval:PT2S}")
+    public void push() {
+        List<String> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+        if (subscribers.isEmpty()) return;  // new subscribers start from a snapshot anyway
+
+        long now = System.nanoTime();
+        String delta = changed.isEmpty() ? null : toJson(update(changed));
+        boolean heartbeatDue = delta == null && now - lastPushNanos >= heartbeatNanos;
+        String snapshot = null;
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.writing.compareAndSet(false, true)) {
+                if (delta != null) {
+                    subscriber.behind = true;  // still writing — skip it, and catch it up later
+                }
+                continue;
+            }
+            if (subscriber.behind) {
+                if (snapshot == null) {
+                    snapshot = toJson(update(new ArrayList<>(counters.keySet())));
+                }
+                subscriber.behind = false;
+                write(subscriber, "snapshot", snapshot);
+            } else if (delta != null) {
+                write(subscriber, "delta", delta);
+            } else if (heartbeatDue) {
+                write(subscriber, null, null);
+            } else {
+                subscriber.writing.set(false);
+            }
+        }
+        if (delta != null || heartbeatDue) {
+            lastPushNanos = now;
+        }
+    }
+
+    // ─── Event Handlers ───────────────────────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesCreated(RideEvents.RidesCreated event) {
+        for (Ride ride : event.getRides()) {
+            apply(ride.getPickupCity(), 1, 0, 0.0, 0);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        for (Ride ride : event.getRides()) {
+            apply(ride.getPickupCity(), 0, 1, ride.getFareAmount(), 0);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesFlagged(RideEvents.AnomaliesFlagged event) {
+        for (AnomalyFlag flag : event.getFlags()) {
+            apply(flag.getRide().getPickupCity(), 0, 0, 0.0, 1);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesCleared(RideEvents.AnomaliesCleared event) {
+        for (AnomalyFlag flag : event.getFlags()) {
+            apply(flag.getRide().getPickupCity(), 0, 0, 0.0, -1);
+        }
+    }
+
+    /** Runs inside the archiving transaction, while the month can still be counted; applied once it commits */
+    @EventListener
+    public void onRidesArchived(RideEvents.RidesArchived event) {
+        List<Object[]> requested = rideRepository.getCityRideCountsCreatedBetween(event.getFrom(), event.getTo());
+        List<Object[]> completed = rideRepository.getCityTotalsCreatedBetween(event.getFrom(), event.getTo());
+        Runnable subtract = () -> {
+            for (Object[] row : requested) {
+                apply((String) row[0], -(Long) row[1], 0, 0.0, 0);
+            }
+            for (Object[] row : completed) {
+                apply((String) row[0], 0, -(Long) row[1], -(Double) row[2], -(Long) row[5]);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            subtract.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                subtract.run();
+            }
+        });
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void seed() {
+        counters.clear();
+        for (Object[] row : rideRepository.getCityRideCounts()) {
+            apply((String) row[0], (Long) row[1], 0, 0.0, 0);
+        }
+        for (Object[] row : rideRepository.getCityTotals()) {
+            apply((String) row[0], 0, (Long) row[1], (Double) row[2], (Long) row[5]);
+        }
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    // Marked dirty only after the change is in, so a concurrent push can never drain the mark early
+    private void apply(String city, long requested, long completed, double fare, long anomalies) {
+        counters.computeIfAbsent(city, c -> new CityCounters()).add(requested, completed, fare, anomalies);
+        dirty.add(city);
+    }
+
+    private RideDTOs.LiveAnalyticsUpdate update(Collection<String> cities) {
+        List<RideDTOs.LiveCityStats> stats = new ArrayList<>(cities.size());
+        for (String city : cities) {
+            CityCounters cityCounters = counters.get(city);
+            if (cityCounters != null) {
+                stats.add(cityCounters.toStats(city));
+            }
+        }
+        stats.sort((a, b) -> a.getCity().compareTo(b.getCity()));
+        return RideDTOs.LiveAnalyticsUpdate.builder()
+                .at(LocalDateTime.now())
+                .cities(stats)
+                .build();
+    }
+
+    private String toJson(RideDTOs.LiveAnalyticsUpdate update) {
+        try {
+            return objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Hands one event to the fan-out pool; the subscriber's write flag is already set and is cleared when done */
+    private void write(Subscriber subscriber, String name, String json) {
+        try {
+            fanOutPool.execute(() -> {
+                try {
+                    send(subscriber, name, json);
+                } finally {
+                    subscriber.writing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            subscriber.writing.set(false);
+        }
+    }
+
+    /** An event, or a heartbeat comment when {@code name} is null */
+    private void send(Subscriber subscriber, String name, String json) {
+        try {
+            subscriber.emitter.send(name == null
+                    ? SseEmitter.event().comment("heartbeat")
+                    : SseEmitter.event().name(name).data(json, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away — the container reports the error, we just stop writing to it
+            subscribers.remove(subscriber);
+        }
+    }
+
+    /** One stream; {@code writing} admits a single write at a time */
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean writing = new AtomicBoolean();
+        volatile boolean behind;  // skipped a delta — owed a snapshot
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /** One city's running figures; the lock is per city and only held for a few additions */
+    private static class CityCounters {
+        private long requested;
+        private long completed;
+        private double totalFare;
+        private long anomalies;
+
+        synchronized void add(long requested, long completed, double fare, long anomalies) {
+            this.requested += requested;
+            this.completed += completed;
+            this.totalFare += fare;
+            this.anomalies += anomalies;
+        }
+
+        synchronized RideDTOs.LiveCityStats toStats(String city) {
+            return RideDTOs.LiveCityStats.builder()
+                    .city(city)
+                    .requestedRides(requested)
+                    .completedRides(completed)
+                    .averageFare(completed > 0 ? totalFare / completed : 0.0)
+                    .anomalyCount(anomalies)
+                    .anomalyRate(completed > 0 ? (double) anomalies / completed : 0.0)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.careem.rideintel.service;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Carries ride cache invalidations between application nodes.
+ *
+ * Every {@link RideResponseCache} subscribes on startup and publishes the IDs it invalidates
+ * locally, so a ride changed on one node drops out of every node's cache. Delivery may loop
+ * back to the publisher — evicting twice is harmless. The default {@link InProcessInvalidationChannel}
+ * only reaches caches in the same JVM; a multi-node deployment declares a bean backed by its
+ * broker of choice (Redis pub/sub, Postgres LISTEN/NOTIFY, …).
+ */
+public interface RideCacheInvalidationChannel {
+
+    /** Broadcasts changed ride IDs; called after the change has committed */
+    void publish(Collection<Long> rideIds);
+
+    void subscribe(Consumer<Collection<Long>> listener);
+}
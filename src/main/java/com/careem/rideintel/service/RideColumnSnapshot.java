@@ -0,0 +1,362 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.model.Ride;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, column-oriented copy of the rides table for ad-hoc scans.
+ *
+ * Rows are stored in id order, in blocks of {@code blockRows}. Each block is one direct (off-heap)
+ * buffer holding a primitive column per field: ids and created-at microseconds as longs, fare and
+ * distance as doubles, duration as ints. Cities, vehicle types and captains are dictionary-encoded
+ * to int codes. Status and anomaly flags are bitmaps. A scan skips blocks whose created-at range
+ * misses the filter, ANDs the bitmaps one 64-row word at a time, reads the columns only for the
+ * rows that survive, and runs the blocks in parallel.
+ * A refresh builds a new snapshot and swaps it in, so readers never lock.
+ */
+public final class RideColumnSnapshot {
+
+    public static final RideColumnSnapshot EMPTY = builder(1).build(null);
+
+    private static final Ride.RideStatus[] STATUSES = Ride.RideStatus.values();
+
+    private final LocalDateTime takenAt;  // null for EMPTY
+    private final Block[] blocks;
+    private final int rows;
+    private final Map<String, Integer> cityCodes;
+    private final Map<String, Integer> vehicleCodes;
+    private final Map<String, Integer> captainCodes;
+
+    private RideColumnSnapshot(LocalDateTime takenAt, Block[] blocks, int rows, Map<String, Integer> cityCodes,
+                               Map<String, Integer> vehicleCodes, Map<String, Integer> captainCodes) {
+        this.takenAt      = takenAt;
+        this.blocks       = blocks;
+        this.rows         = rows;
+        this.cityCodes    = cityCodes;
+        this.vehicleCodes = vehicleCodes;
+        this.captainCodes = captainCodes;
+    }
+
+    public LocalDateTime takenAt() {
+        return takenAt;
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Block block : blocks) {
+            bytes += block.buffer.capacity();
+        }
+        return bytes;
+    }
+
+    /** Runs the filter over every row; an unknown city, vehicle type or captain matches nothing */
+    public Result scan(RideScanFilter filter) {
+        int pickup  = code(cityCodes, filter.getPickupCity());
+        int vehicle = code(vehicleCodes, filter.getVehicleType());
+        int captain = code(captainCodes, filter.getCaptainId());
+        if (pickup == MISSING || vehicle == MISSING || captain == MISSING) {
+            return new Result(filter.getLimit());
+        }
+        BlockScan scan = new BlockScan(filter, pickup, vehicle, captain);
+        return IntStream.range(0, blocks.length).parallel()
+                .mapToObj(b -> scan.run(blocks[b]))
+                .reduce(Result::merge)
+                .orElseGet(() -> new Result(filter.getLimit()));
+    }
+
+    public static Builder builder(int blockRows) {
+        return new Builder(blockRows, Long.MAX_VALUE);
+    }
+
+    /** A builder that refuses to allocate past {@code maxOffHeapBytes} of blocks */
+    public static Builder builder(int blockRows, long maxOffHeapBytes) {
+        return new Builder(blockRows, maxOffHeapBytes);
+    }
+
+    private static final int ANY     = -1;
+    private static final int MISSING = -2;
+
+    private static int code(Map<String, Integer> dictionary, String value) {
+        if (value == null) return ANY;
+        Integer code = dictionary.get(value);
+        return code != null ? code : MISSING;
+    }
+
+    // ─── Query ────────────────────────────────────────────────────────────────
+
+    /** Aggregates over the matching rows, plus the first {@code limit} matching ids */
+    public static final class Result {
+        private final int limit;
+        private long matched;
+        private long flagged;
+        private double fareSum;
+        private double distanceSum;
+        private long durationSum;
+        private long[] rideIds = new long[0];
+
+        private Result(int limit) {
+            this.limit = limit;
+        }
+
+        public long matched() {
+            return matched;
+        }
+
+        public long flagged() {
+            return flagged;
+        }
+
+        public double fareSum() {
+            return fareSum;
+        }
+
+        public double distanceSum() {
+            return distanceSum;
+        }
+
+        public long durationSum() {
+            return durationSum;
+        }
+
+        public long[] rideIds() {
+            return rideIds.clone();
+        }
+
+        private Result merge(Result later) {
+            matched     += later.matched;
+            flagged     += later.flagged;
+            fareSum     += later.fareSum;
+            distanceSum += later.distanceSum;
+            durationSum += later.durationSum;
+            if (rideIds.length < limit && later.rideIds.length > 0) {
+                int take = Math.min(limit - rideIds.length, later.rideIds.length);
+                long[] merged = Arrays.copyOf(rideIds, rideIds.length + take);
+                System.arraycopy(later.rideIds, 0, merged, rideIds.length, take);
+                rideIds = merged;
+            }
+            return this;
+        }
+    }
+
+    /** One filter resolved to dictionary codes and epoch microseconds, applied block by block */
+    private static final class BlockScan {
+        private final RideScanFilter filter;
+        private final int status;
+        private final int pickup;
+        private final int vehicle;
+        private final int captain;
+        private final long fromMicros;
+        private final long toMicros;
+        private final double minFarePerKm;
+        private final double maxFarePerKm;
+        private final boolean fareRatio;
+
+        BlockScan(RideScanFilter filter, int pickup, int vehicle, int captain) {
+            this.filter       = filter;
+            this.status       = filter.getStatus() != null ? filter.getStatus().ordinal() : ANY;
+            this.pickup       = pickup;
+            this.vehicle      = vehicle;
+            this.captain      = captain;
+            this.fromMicros   = filter.getCreatedFrom() != null ? epochMicros(filter.getCreatedFrom()) : Long.MIN_VALUE;
+            this.toMicros     = filter.getCreatedTo() != null ? epochMicros(filter.getCreatedTo()) : Long.MAX_VALUE;
+            this.minFarePerKm = filter.getMinFarePerKm() != null ? filter.getMinFarePerKm() : Double.NEGATIVE_INFINITY;
+            this.maxFarePerKm = filter.getMaxFarePerKm() != null ? filter.getMaxFarePerKm() : Double.POSITIVE_INFINITY;
+            this.fareRatio    = filter.getMinFarePerKm() != null || filter.getMaxFarePerKm() != null;
+        }
+
+        Result run(Block block) {
+            Result result = new Result(filter.getLimit());
+            if (block.maxCreatedAt < fromMicros || block.minCreatedAt >= toMicros) {
+                return result;  // zone map: no row of this block is in the date range
+            }
+            long[] ids = new long[Math.min(filter.getLimit(), block.rows)];
+            int found = 0;
+
+            for (int word = 0, words = (block.rows + 63) >>> 6; word < words; word++) {
+                long flags = block.flagged.get(word);
+                long candidates = status == ANY ? -1L : block.status.get(status * block.words + word);
+                if (filter.getFlagged() != null) {
+                    candidates &= filter.getFlagged() ? flags : ~flags;
+                }
+                if (word == words - 1 && (block.rows & 63) != 0) {
+                    candidates &= (1L << (block.rows & 63)) - 1;
+                }
+
+                while (candidates != 0) {
+                    int row = (word << 6) + Long.numberOfTrailingZeros(candidates);
+                    candidates &= candidates - 1;
+
+                    if (pickup != ANY && block.pickupCity.get(row) != pickup) continue;
+                    if (vehicle != ANY && block.vehicleType.get(row) != vehicle) continue;
+                    if (captain != ANY && block.captain.get(row) != captain) continue;
+                    long created = block.createdAt.get(row);
+                    if (created < fromMicros || created >= toMicros) continue;
+                    double fare     = block.fare.get(row);
+                    double distance = block.distance.get(row);
+                    if (fareRatio) {
+                        double farePerKm = fare / distance;
+                        if (!(farePerKm >= minFarePerKm && farePerKm <= maxFarePerKm)) continue;
+                    }
+
+                    result.matched++;
+                    result.fareSum     += fare;
+                    result.distanceSum += distance;
+                    result.durationSum += block.duration.get(row);
+                    if ((flags & (1L << row)) != 0) result.flagged++;
+                    if (found < ids.length) ids[found++] = block.ids.get(row);
+                }
+            }
+            result.rideIds = found == ids.length ? ids : Arrays.copyOf(ids, found);
+            return result;
+        }
+    }
+
+    /** Microseconds — the precision of the {@code created_at} column */
+    private static long epochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    // ─── Storage ──────────────────────────────────────────────────────────────
+
+    /** Up to {@code capacity} rows; every column is a view over one direct buffer */
+    private static final class Block {
+        private final ByteBuffer buffer;
+        private final int words;
+        private final LongBuffer ids;
+        private final LongBuffer createdAt;
+        private final DoubleBuffer fare;
+        private final DoubleBuffer distance;
+        private final IntBuffer duration;
+        private final IntBuffer pickupCity;
+        private final IntBuffer dropoffCity;
+        private final IntBuffer vehicleType;
+        private final IntBuffer captain;
+        private final LongBuffer status;   // one bitmap of {@code words} longs per RideStatus
+        private final LongBuffer flagged;
+        private int rows;
+        private long minCreatedAt = Long.MAX_VALUE;
+        private long maxCreatedAt = Long.MIN_VALUE;
+
+        Block(int capacity) {
+            this.words  = words(capacity);
+            this.buffer = ByteBuffer.allocateDirect(bytes(capacity)).order(ByteOrder.nativeOrder());
+
+            this.ids         = slice(capacity * 8).asLongBuffer();
+            this.createdAt   = slice(capacity * 8).asLongBuffer();
+            this.fare        = slice(capacity * 8).asDoubleBuffer();
+            this.distance    = slice(capacity * 8).asDoubleBuffer();
+            this.duration    = slice(capacity * 4).asIntBuffer();
+            this.pickupCity  = slice(capacity * 4).asIntBuffer();
+            this.dropoffCity = slice(capacity * 4).asIntBuffer();
+            this.vehicleType = slice(capacity * 4).asIntBuffer();
+            this.captain     = slice(capacity * 4).asIntBuffer();
+            this.status      = slice(words * STATUSES.length * 8).asLongBuffer();
+            this.flagged     = slice(words * 8).asLongBuffer();
+        }
+
+        /** Off-heap size of a block of {@code capacity} rows */
+        static int bytes(int capacity) {
+            int longs = capacity * 2 + words(capacity) * (STATUSES.length + 1);
+            return longs * 8 + capacity * 2 * 8 + capacity * 5 * 4;
+        }
+
+        private static int words(int capacity) {
+            return (capacity + 63) >>> 6;
+        }
+
+        private ByteBuffer slice(int bytes) {
+            ByteBuffer column = buffer.duplicate();
+            column.limit(buffer.position() + bytes);
+            column = column.slice().order(ByteOrder.nativeOrder());
+            buffer.position(buffer.position() + bytes);
+            return column;
+        }
+
+        void setBit(LongBuffer bitmap, int offset, int row) {
+            int word = offset + (row >>> 6);
+            bitmap.put(word, bitmap.get(word) | (1L << row));
+        }
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        int encode(String value) {
+            return codes.computeIfAbsent(value, v -> codes.size());
+        }
+    }
+
+    /** Rows must be added in id order */
+    public static final class Builder {
+
+        private final int blockRows;
+        private final long maxOffHeapBytes;
+        private final List<Block> blocks = new ArrayList<>();
+        private final Dictionary cities = new Dictionary();
+        private final Dictionary vehicleTypes = new Dictionary();
+        private final Dictionary captains = new Dictionary();
+        private Block current;
+        private int rows;
+        private long offHeapBytes;
+
+        private Builder(int blockRows, long maxOffHeapBytes) {
+            this.blockRows       = blockRows;
+            this.maxOffHeapBytes = maxOffHeapBytes;
+        }
+
+        /** @throws IllegalStateException if the row needs a block that would take the builder past its budget */
+
+        public Builder add(long id, String pickupCity, String dropoffCity, String vehicleType, String captainId,
+                           Ride.RideStatus status, boolean flagged, double fareAmount, double distanceKm,
+                           int durationMinutes, LocalDateTime createdAt) {
+            if (current == null || current.rows == blockRows) {
+                if (offHeapBytes + Block.bytes(blockRows) > maxOffHeapBytes) {
+                    throw new IllegalStateException("Ride snapshot needs more than " + maxOffHeapBytes
+                            + " bytes off-heap after " + rows + " rides");
+                }
+                offHeapBytes += Block.bytes(blockRows);
+                current = new Block(blockRows);
+                blocks.add(current);
+            }
+            int row = current.rows++;
+            current.ids.put(row, id);
+            long created = epochMicros(createdAt);
+            current.createdAt.put(row, created);
+            current.minCreatedAt = Math.min(current.minCreatedAt, created);
+            current.maxCreatedAt = Math.max(current.maxCreatedAt, created);
+            current.fare.put(row, fareAmount);
+            current.distance.put(row, distanceKm);
+            current.duration.put(row, durationMinutes);
+            current.pickupCity.put(row, cities.encode(pickupCity));
+            current.dropoffCity.put(row, cities.encode(dropoffCity));
+            current.vehicleType.put(row, vehicleTypes.encode(vehicleType));
+            current.captain.put(row, captains.encode(captainId));
+            current.setBit(current.status, status.ordinal() * current.words, row);
+            if (flagged) current.setBit(current.flagged, 0, row);
+            rows++;
+            return this;
+        }
+
+        public RideColumnSnapshot build(LocalDateTime takenAt) {
+            return new RideColumnSnapshot(takenAt, blocks.toArray(new Block[0]), rows,
+                    cities.codes, vehicleTypes.codes, captains.codes);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.RideArchive;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.repository.RideArchiveRepository;
+import com.careem.rideintel.repository.RideRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps {@code rides} partitioned by month and moves months past the retention out to archive files.
+ *
+ * On Postgres, rides is range-partitioned by month on {@code created_at} (db/vendor/postgresql/V12-V14). The
+ * table as it stood before the migration is the partition {@code rides_legacy}, holding every month before
+ * the migration's bound. Every {@code maintenance-interval} the partitions for this month and the next
+ * {@code months-ahead} past that bound are created, so new rides never land in {@code rides_default}. H2 has
+ * no partitioning; there rides stays one table and only archival applies.
+ *
+ * Each partition has its own primary key on id, so a lookup by id probes every partition once. Retention keeps
+ * that count bounded: with {@code retention-months} above 0 (24 by default), every whole month older than that
+ * is archived. The month is locked first — its own partition in SHARE mode, or its rows FOR UPDATE when it has
+ * none (on H2, and for months in {@code rides_legacy} or {@code rides_default}) — so no transition or flag
+ * change can slip in between the export and the delete. Its rides, each with its flag if it has one, are written to
+ * {@code archive-dir/rides-yyyy-MM-<timestamp>.ndjson.gz}. Then a {@link RideEvents.RidesArchived} event takes
+ * the month out of the read models, the month's flags are deleted and the month is dropped: its partition
+ * detached and dropped, or its rows deleted. Once every month of
+ * {@code rides_legacy} is archived, the partition is dropped too. All of this happens in the transaction that
+ * records the file in {@code ride_archives}. A failed run leaves the month in place, and the next run writes
+ * a fresh file.
+ *
+ * Only {@code city_hourly_rollup} keeps archived months. City and captain analytics, their rollups, the live
+ * counters, the top-anomaly board and the ride cache drop them as the archive commits.
+ */
+@Service
+public class RidePartitionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RidePartitionService.class);
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'rides_'yyyy_MM");
+    private static final Pattern PARTITION = Pattern.compile("rides_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    private static final String PARTITIONS_QUERY =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+            + "WHERE i.inhparent = 'rides'::regclass";
+    private static final String ARCHIVE_QUERY =
+            "SELECT r.*, a.type AS flag_type, a.anomaly_score AS flag_score, a.reason AS flag_reason, "
+            + "a.flagged_at AS flagged_at FROM rides r LEFT JOIN anomaly_flags a ON a.ride_id = r.id "
+            + "WHERE r.created_at >= ? AND r.created_at < ? ORDER BY r.id";
+    private static final String LEGACY_BOUND_QUERY =
+            "SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_class c WHERE c.relname = 'rides_legacy' "
+            + "AND c.relispartition";
+    private static final Pattern LEGACY_BOUND = Pattern.compile(".*TO \\('(\\d{4})-(\\d{2})-01.*");
+    private static final String LOCK_QUERY =
+            "SELECT id FROM rides WHERE created_at >= ? AND created_at < ? FOR UPDATE";
+
+    private final RideRepository rideRepository;
+    private final AnomalyFlagRepository anomalyFlagRepository;
+    private final RideArchiveRepository rideArchiveRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final Path archiveDir;
+    private final boolean partitioned;
+
+    public RidePartitionService(RideRepository rideRepository,
+                                AnomalyFlagRepository anomalyFlagRepository,
+                                RideArchiveRepository rideArchiveRepository,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${rideintel.rides.partitions.months-ahead:3}") int monthsAhead,
+                                @Value("${rideintel.rides.partitions.retention-months:24}") int retentionMonths,
+                                @Value("${rideintel.rides.partitions.archive-dir:archive/rides}") String archiveDir) {
+        this.rideRepository        = rideRepository;
+        this.anomalyFlagRepository = anomalyFlagRepository;
+        this.rideArchiveRepository = rideArchiveRepository;
+        this.objectMapper          = objectMapper;
+        this.eventPublisher        = eventPublisher;
+        this.jdbcTemplate          = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(1000);
+        this.transactionTemplate   = new TransactionTemplate(transactionManager);
+        this.monthsAhead           = monthsAhead;
+        this.retentionMonths       = retentionMonths;
+        this.archiveDir            = Paths.get(archiveDir);
+        this.partitioned           = "PostgreSQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    @Scheduled(fixedDelayString = "${rideintel.rides.partitions.maintenance-interval:PT6H}")
+    public synchronized void maintain() {
+        YearMonth current = YearMonth.now();
+        YearMonth legacyBound = partitioned ? legacyBound() : null;
+        if (partitioned) {
+            for (int ahead = 0; ahead <= monthsAhead; ahead++) {
+                YearMonth month = current.plusMonths(ahead);
+                if (legacyBound == null || !month.isBefore(legacyBound)) createPartition(month);
+            }
+        }
+        if (retentionMonths > 0) {
+            YearMonth cutoff = current.minusMonths(retentionMonths);
+            List<YearMonth> ownPartitions = partitioned ? partitionMonths() : Collections.<YearMonth>emptyList();
+            for (YearMonth month : monthsBefore(cutoff, ownPartitions)) {
+                archive(month, ownPartitions.contains(month));
+            }
+            if (legacyBound != null && !legacyBound.isAfter(cutoff)) {
+                dropLegacy();
+            }
+        }
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private void createPartition(YearMonth month) {
+        String partition = PARTITION_NAME.format(month);
+        try {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF rides (CONSTRAINT pk_"
+                    + partition + " PRIMARY KEY (id)) FOR VALUES FROM ('" + month.atDay(1) + "') TO ('"
+                    + month.plusMonths(1).atDay(1) + "')");
+        } catch (DataAccessException e) {
+            // Rides for the month already sit in rides_default; they stay queryable there
+            log.warn("Could not create ride partition {}: {}", partition, e.getMessage());
+        }
+    }
+
+    /** The month rides_legacy ends before, or null once it is gone (or was never attached) */
+    private YearMonth legacyBound() {
+        List<String> bounds = jdbcTemplate.queryForList(LEGACY_BOUND_QUERY, String.class);
+        Matcher bound = bounds.isEmpty() ? null : LEGACY_BOUND.matcher(bounds.get(0));
+        return bound != null && bound.matches()
+                ? YearMonth.of(Integer.parseInt(bound.group(1)), Integer.parseInt(bound.group(2)))
+                : null;
+    }
+
+    /** Months with a partition of their own */
+    private List<YearMonth> partitionMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_QUERY, String.class)) {
+            Matcher name = PARTITION.matcher(partition);
+            if (name.matches()) {
+                months.add(YearMonth.of(Integer.parseInt(name.group(1)), Integer.parseInt(name.group(2))));
+            }
+        }
+        return months;
+    }
+
+    /** Months before {@code cutoff} that may still hold rides, oldest first: empty partitions count */
+    private List<YearMonth> monthsBefore(YearMonth cutoff, List<YearMonth> ownPartitions) {
+        List<YearMonth> months = new ArrayList<>();
+        LocalDateTime earliest = rideRepository.findEarliestCreatedAt();
+        for (YearMonth month = earliest == null ? cutoff : YearMonth.from(earliest);
+             month.isBefore(cutoff); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        for (YearMonth month : ownPartitions) {
+            if (month.isBefore(cutoff) && !months.contains(month)) months.add(month);
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    /** Drops rides_legacy once archival has emptied it; its bound is past the cutoff, so no ride can enter it */
+    private void dropLegacy() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM rides_legacy)", Boolean.class))) {
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE rides DETACH PARTITION rides_legacy");
+            jdbcTemplate.execute("DROP TABLE rides_legacy");
+            log.info("Dropped rides_legacy: every month it held has been archived");
+        });
+    }
+
+    /**
+     * @param ownPartition whether the month has a partition of its own, to lock and drop whole; otherwise its
+     *                     rows are locked and deleted
+     */
+    private void archive(YearMonth month, boolean ownPartition) {
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        LocalDateTime archivedAt = LocalDateTime.now();
+        Path file = archiveDir.resolve("rides-" + month + "-" + FILE_STAMP.format(archivedAt) + ".ndjson.gz");
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            String partition = PARTITION_NAME.format(month);
+            if (ownPartition) {
+                jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+            } else {
+                jdbcTemplate.query(LOCK_QUERY, row -> { }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+            }
+
+            long[] rideIds = export(from, to, partial);
+            long rides = rideIds.length;
+            if (rides > 0) {
+                eventPublisher.publishEvent(new RideEvents.RidesArchived(from, to, rideIds));
+            }
+            int flags = anomalyFlagRepository.deleteByRideCreatedBetween(from, to);
+            if (ownPartition) {
+                jdbcTemplate.execute("ALTER TABLE rides DETACH PARTITION " + partition);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            } else {
+                rideRepository.deleteCreatedBetween(from, to);
+            }
+
+            try {
+                if (rides == 0) {
+                    Files.delete(partial);
+                    return;
+                }
+                Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write ride archive " + file, e);
+            }
+            rideArchiveRepository.save(RideArchive.builder()
+                    .file(file.toString())
+                    .partitionMonth(month.toString())
+                    .rideCount(rides)
+                    .archivedAt(archivedAt)
+                    .build());
+            log.info("Archived {} rides ({} flagged) created in {} to {}", rides, flags, month, file);
+        });
+    }
+
+    /**
+     * Writes the month's rides to {@code file} as gzipped NDJSON, one object per ride with its flag columns
+     *
+     * @return the IDs of the rides written, in ID order
+     */
+    private long[] export(LocalDateTime from, LocalDateTime to, Path file) {
+        LongStream.Builder rideIds = LongStream.builder();
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                jdbcTemplate.query(ARCHIVE_QUERY, row -> {
+                    writeRow(generator, row);
+                    rideIds.add(row.getLong("id"));
+                }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write ride archive " + file, e);
+        }
+        return rideIds.build().toArray();
+    }
+
+    private static void writeRow(JsonGenerator generator, ResultSet row) throws SQLException {
+        ResultSetMetaData columns = row.getMetaData();
+        try {
+            generator.writeStartObject();
+            for (int i = 1; i <= columns.getColumnCount(); i++) {
+                Object value = row.getObject(i);
+                if (value == null) continue;
+                generator.writeFieldName(columns.getColumnLabel(i).toLowerCase(Locale.ROOT));
+                generator.writeObject(value instanceof Timestamp ? ((Timestamp) value).toLocalDateTime() : value);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.Ride;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of assembled ride details, in front of {@link RideService#getRideById}.
+ *
+ * Bounded by {@code rideintel.cache.rides.maximum-size} and {@code ttl}. Entries are invalidated
+ * once a completion, cancellation, flag, async scoring or archival commits — never before, or a concurrent
+ * read could cache the pre-commit row again. A load racing with an invalidation cannot outlive it:
+ * Caffeine makes the invalidation wait for an in-flight load of the same key and then drops it.
+ *
+ * Invalidations are also published on the {@link RideCacheInvalidationChannel} so other nodes
+ * evict too; without a channel bean the cache only invalidates itself. The TTL bounds staleness
+ * if a cross-node message is lost.
+ *
+ * As a {@link MeterBinder} the Caffeine statistics are also published as {@code cache.*} metrics
+ * tagged {@code cache=rides}.
+ */
+@Component
+public class RideResponseCache implements MeterBinder {
+
+    private static final int ARCHIVE_INVALIDATION_BATCH = 10_000;
+
+    private final Cache<Long, RideDTOs.RideResponse> cache;
+    private final RideCacheInvalidationChannel channel;
+    private final long maximumSize;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public RideResponseCache(ObjectProvider<RideCacheInvalidationChannel> channel,
+                             @Value("${rideintel.cache.rides.maximum-size:10000}") long maximumSize,
+                             @Value("${rideintel.cache.rides.ttl:30s}") Duration ttl) {
+        this(channel.getIfAvailable(InProcessInvalidationChannel::new), maximumSize, ttl);
+    }
+
+    public RideResponseCache(RideCacheInvalidationChannel channel, long maximumSize, Duration ttl) {
+        this.cache       = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.channel     = channel;
+        this.maximumSize = maximumSize;
+        channel.subscribe(this::evict);
+    }
+
+    /**
+     * @param loader assembles the response on a miss; exceptions (e.g. not found) propagate and nothing is cached
+     * @return a copy of the cached response, so callers cannot alter what later reads see
+     */
+    public RideDTOs.RideResponse get(Long rideId, Function<Long, RideDTOs.RideResponse> loader) {
+        return cache.get(rideId, loader).toBuilder().build();
+    }
+
+    /** Evicts the rides here and on every other node subscribed to the channel */
+    public void invalidate(Collection<Long> rideIds) {
+        if (rideIds.isEmpty()) return;
+        invalidations.addAndGet(rideIds.size());
+        evict(rideIds);
+        channel.publish(rideIds);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "rides");
+    }
+
+    public RideDTOs.CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return RideDTOs.CacheStatsResponse.builder()
+                .cache("rides")
+                .size(cache.estimatedSize())
+                .maximumSize(maximumSize)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .invalidationCount(invalidations.get())
+                .build();
+    }
+
+    // ─── Invalidation on committed changes ────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        invalidate(event.getRides().stream().map(Ride::getId).collect(Collectors.toList()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRideCancelled(RideEvents.RideCancelled event) {
+        invalidate(Collections.singletonList(event.getRide().getId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesFlagged(RideEvents.AnomaliesFlagged event) {
+        invalidate(event.getFlags().stream().map(flag -> flag.getRide().getId()).collect(Collectors.toList()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesRevised(RideEvents.AnomaliesRevised event) {
+        invalidate(event.getFlags().stream().map(flag -> flag.getRide().getId()).collect(Collectors.toList()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesCleared(RideEvents.AnomaliesCleared event) {
+        invalidate(event.getFlags().stream().map(flag -> flag.getRide().getId()).collect(Collectors.toList()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesScored(RideEvents.RidesScored event) {
+        invalidate(event.getRideIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesArchived(RideEvents.RidesArchived event) {
+        // A month can hold millions of rides — invalidate them in channel-sized messages
+        long[] rideIds = event.getRideIds();
+        for (int from = 0; from < rideIds.length; from += ARCHIVE_INVALIDATION_BATCH) {
+            invalidate(Arrays.stream(rideIds, from, Math.min(rideIds.length, from + ARCHIVE_INVALIDATION_BATCH))
+                    .boxed()
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private void evict(Collection<Long> rideIds) {
+        cache.invalidateAll(rideIds);
+    }
+}
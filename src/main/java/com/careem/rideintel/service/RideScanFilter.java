@@ -0,0 +1,25 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.model.Ride;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/** Predicate for a {@link RideColumnSnapshot} scan — null fields match every row */
+@Value
+@Builder
+public class RideScanFilter {
+    @Builder.Default
+    Ride.RideStatus status = Ride.RideStatus.COMPLETED;
+    Boolean flagged;
+    String pickupCity;
+    String vehicleType;
+    String captainId;
+    LocalDateTime createdFrom;  // inclusive
+    LocalDateTime createdTo;    // exclusive
+    Double minFarePerKm;
+    Double maxFarePerKm;
+    @Builder.Default
+    int limit = 100;            // matching ride ids returned — the lowest ones, in id order
+}
@@ -1,107 +1,395 @@
 package com.careem.rideintel.service;
 
+import com.careem.rideintel.config.ReadYourWrites;
 import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.exception.ConflictException;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.exception.InvalidRowException;
 import com.careem.rideintel.exception.ResourceNotFoundException;
 import com.careem.rideintel.model.AnomalyFlag;
 import com.careem.rideintel.model.Ride;
 import com.careem.rideintel.repository.AnomalyFlagRepository;
 import com.careem.rideintel.repository.RideRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class RideService {
 
+    // Rows persisted per flush — keep in step with hibernate.jdbc.batch_size
+    private static final int INSERT_CHUNK_SIZE = 50;
+    private static final int MAX_PAGE_SIZE     = 500;
+
+    private static final Set<Ride.RideStatus> COMPLETABLE =
+            EnumSet.of(Ride.RideStatus.REQUESTED, Ride.RideStatus.IN_PROGRESS);
+    private static final Set<Ride.RideStatus> CANCELLABLE =
+            EnumSet.of(Ride.RideStatus.REQUESTED, Ride.RideStatus.IN_PROGRESS);
+
     private final RideRepository rideRepository;
     private final AnomalyFlagRepository anomalyFlagRepository;
     private final AnomalyDetectionService anomalyDetectionService;
+    private final AnomalyDetectionQueue anomalyDetectionQueue;
+    private final CityRollupService cityRollupService;
+    private final CaptainTotalsService captainTotalsService;
+    private final RideResponseCache rideResponseCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
 
     public RideService(RideRepository rideRepository,
                        AnomalyFlagRepository anomalyFlagRepository,
-                       AnomalyDetectionService anomalyDetectionService) {
+                       AnomalyDetectionService anomalyDetectionService,
+                       AnomalyDetectionQueue anomalyDetectionQueue,
+                       CityRollupService cityRollupService,
+                       CaptainTotalsService captainTotalsService,
+                       RideResponseCache rideResponseCache,
+                       ApplicationEventPublisher eventPublisher,
+                       EntityManager entityManager,
+                       PlatformTransactionManager transactionManager,
+                       Validator validator) {
         this.rideRepository          = rideRepository;
         this.anomalyFlagRepository   = anomalyFlagRepository;
         this.anomalyDetectionService = anomalyDetectionService;
+        this.anomalyDetectionQueue   = anomalyDetectionQueue;
+        this.cityRollupService       = cityRollupService;
+        this.captainTotalsService    = captainTotalsService;
+        this.rideResponseCache       = rideResponseCache;
+        this.eventPublisher          = eventPublisher;
+        this.entityManager           = entityManager;
+        this.transactionTemplate     = new TransactionTemplate(transactionManager);
+        this.validator               = validator;
     }
 
     @Transactional
     public RideDTOs.RideResponse createRide(RideDTOs.CreateRideRequest request) {
-        Ride ride = Ride.builder()
-                .captainId(request.getCaptainId())
-                .customerId(request.getCustomerId())
-                .pickupCity(request.getPickupCity())
-                .dropoffCity(request.getDropoffCity())
-                .distanceKm(request.getDistanceKm())
-                .fareAmount(request.getFareAmount())
-                .durationMinutes(request.getDurationMinutes())
-                .vehicleType(request.getVehicleType())
-                .status(Ride.RideStatus.REQUESTED)
-                .build();
-
-        Ride saved = rideRepository.save(ride);
+        Ride saved = rideRepository.save(toRide(request));
+        eventPublisher.publishEvent(new RideEvents.RidesCreated(Collections.singletonList(saved)));
         return RideDTOs.RideResponse.from(saved);
     }
 
+    /**
+     * Bulk ingestion. Each row is validated on its own — invalid rows are reported
+     * back and skipped, valid rows are persisted in chunks so Hibernate can send
+     * them as JDBC batches. Each chunk commits in its own transaction, so a long
+     * stream holds a connection only while a chunk is written.
+     *
+     * @param requests rows in submission order; may be a lazily parsed stream
+     * @return row counts, and every row's ride ID or errors
+     */
+    public RideDTOs.BatchCreateResponse createRides(Iterator<RideDTOs.CreateRideRequest> requests) {
+        List<RideDTOs.RowResult> rows = new ArrayList<>();
+        RideDTOs.BatchCreateResponse response = createRides(requests, rows::add);
+        response.setRows(rows);
+        return response;
+    }
+
+    /**
+     * {@link #createRides(Iterator)}, handing each row's result to {@code results} in input order
+     * once the chunk holding it has committed, so neither the persistence context nor the
+     * response has to grow with the number of rows.
+     *
+     * {@code requests} may throw {@link InvalidRowException} for a row it could not read, which is
+     * rejected like an invalid one, and {@link InvalidRequestException} once nothing more can be read.
+     * Reading then stops: the rows read so far are still committed and reported, followed by a
+     * result for the first unread index that carries the reason, also returned as
+     * {@link RideDTOs.BatchCreateResponse#getError()}.
+     *
+     * @return row counts; the rows themselves only went to {@code results}
+     */
+    public RideDTOs.BatchCreateResponse createRides(Iterator<RideDTOs.CreateRideRequest> requests,
+                                                    Consumer<RideDTOs.RowResult> results) {
+        List<Ride> chunk = new ArrayList<>(INSERT_CHUNK_SIZE);
+        List<RideDTOs.RowResult> pending = new ArrayList<>(INSERT_CHUNK_SIZE);  // since the last commit
+        int index    = 0;
+        int rejected = 0;
+        String error = null;
+
+        while (true) {
+            RideDTOs.CreateRideRequest request;
+            Map<String, String> errors;
+            try {
+                if (!requests.hasNext()) break;
+                request = requests.next();
+                errors  = validate(request);
+            } catch (InvalidRowException e) {
+                request = null;
+                errors  = e.getErrors();
+            } catch (InvalidRequestException e) {
+                error = e.getMessage();
+                break;
+            }
+
+            RideDTOs.RowResult row = RideDTOs.RowResult.builder().index(index++).build();
+            if (!errors.isEmpty()) {
+                row.setErrors(errors);
+                rejected++;
+            } else {
+                chunk.add(toRide(request));
+            }
+            pending.add(row);
+            if (pending.size() == INSERT_CHUNK_SIZE) {
+                persistChunk(chunk, pending, results);
+            }
+        }
+        persistChunk(chunk, pending, results);
+        if (error != null) {
+            results.accept(RideDTOs.RowResult.builder()
+                    .index(index)
+                    .errors(Collections.singletonMap("body", error))
+                    .build());
+        }
+
+        return RideDTOs.BatchCreateResponse.builder()
+                .received(index)
+                .created(index - rejected)
+                .rejected(rejected)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Completes a ride exactly once. Completing a ride that is already completed — a client retry, or a
+     * duplicate racing this one — changes nothing and returns the ride with the flag its completion raised.
+     * A cancelled ride cannot be completed.
+     */
     @Transactional
     public RideDTOs.RideResponse completeRide(Long rideId) {
-        Ride ride = findRideOrThrow(rideId);
+        LocalDateTime completedAt = LocalDateTime.now();
+        Ride.DetectionState detectionState = initialDetectionState();
+        Ride ride = transition(rideId, Ride.RideStatus.COMPLETED, COMPLETABLE, read ->
+                rideRepository.markCompleted(Collections.singletonList(rideId), Collections.singletonList(read.getStatus()),
+                        Ride.RideStatus.COMPLETED, completedAt, detectionState));
+        if (ride.getStatus() == Ride.RideStatus.COMPLETED) {
+            return toResponse(ride, anomalyFlagRepository.findByRideId(rideId).orElse(null));
+        }
 
+        // The UPDATE bypassed the (now cleared) persistence context — mirror it on the detached copy
         ride.setStatus(Ride.RideStatus.COMPLETED);
-        ride.setCompletedAt(LocalDateTime.now());
-        rideRepository.save(ride);
+        ride.setCompletedAt(completedAt);
+        ride.setDetectionState(detectionState);
+        ride.setVersion(ride.getVersion() + 1);
+        eventPublisher.publishEvent(new RideEvents.RidesCompleted(Collections.singletonList(ride)));
+
+        if (anomalyDetectionQueue.isEnabled()) {
+            anomalyDetectionQueue.submitAfterCommit(Collections.singletonList(rideId));
+            return toResponse(ride, null);
+        }
 
         // Run anomaly detection on completion
         Optional<AnomalyFlag> flag = anomalyDetectionService.analyzeRide(ride);
 
-        RideDTOs.RideResponse response = RideDTOs.RideResponse.from(ride);
-        flag.ifPresent(f -> {
-            response.setAnomalyDetected(true);
-            response.setAnomalyReason(f.getReason());
-        });
+        return toResponse(ride, flag.orElse(null));
+    }
 
-        return response;
+    /**
+     * Bulk completion for end-of-trip bursts: one SELECT to load the rides, one UPDATE
+     * to flip their status, one scoring pass and one batched INSERT for the flags.
+     * Unknown IDs fail the whole batch, matching the 404 of the single-ride path, and so do
+     * cancelled rides (409). Rides already completed are returned as they are, neither
+     * re-completed nor re-scored. If another request changes one of the rides between the
+     * SELECT and the UPDATE, the batch is rolled back with a 409 and is safe to retry.
+     * In async detection mode the scoring pass is handed to {@link AnomalyDetectionQueue}.
+     *
+     * @return one response per distinct ride ID, in request order
+     */
+    @Transactional
+    public List<RideDTOs.RideResponse> completeRides(List<Long> rideIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(rideIds));
+        Map<Long, Ride> ridesById = rideRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Ride::getId, Function.identity()));
+
+        List<Long> missing = ids.stream()
+                .filter(id -> !ridesById.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Rides not found with ids: " + missing);
+        }
+        List<Long> cancelled = ids.stream()
+                .filter(id -> ridesById.get(id).getStatus() == Ride.RideStatus.CANCELLED)
+                .collect(Collectors.toList());
+        if (!cancelled.isEmpty()) {
+            throw new ConflictException("Cancelled rides cannot be completed: " + cancelled);
+        }
+
+        List<Long> pendingIds = ids.stream()
+                .filter(id -> ridesById.get(id).getStatus() != Ride.RideStatus.COMPLETED)
+                .collect(Collectors.toList());
+        Map<Long, AnomalyFlag> flags = new HashMap<>();
+        if (pendingIds.size() < ids.size()) {
+            List<Long> completedIds = new ArrayList<>(ids);
+            completedIds.removeAll(pendingIds);
+            for (AnomalyFlag flag : anomalyFlagRepository.findByRideIdIn(completedIds)) {
+                flags.put(flag.getRide().getId(), flag);
+            }
+        }
+        if (pendingIds.isEmpty()) {
+            return ids.stream().map(id -> toResponse(ridesById.get(id), flags.get(id))).collect(Collectors.toList());
+        }
+
+        LocalDateTime completedAt = LocalDateTime.now();
+        Ride.DetectionState detectionState = initialDetectionState();
+        int updated = rideRepository.markCompleted(pendingIds, COMPLETABLE, Ride.RideStatus.COMPLETED,
+                completedAt, detectionState);
+        if (updated != pendingIds.size()) {
+            throw new ConflictException("Rides were changed by another request while being completed — retry the batch");
+        }
+
+        // The bulk UPDATE bypassed the (now cleared) persistence context — mirror it on the detached copies
+        List<Ride> rides = new ArrayList<>(pendingIds.size());
+        for (Long id : pendingIds) {
+            Ride ride = ridesById.get(id);
+            ride.setStatus(Ride.RideStatus.COMPLETED);
+            ride.setCompletedAt(completedAt);
+            ride.setDetectionState(detectionState);
+            ride.setVersion(ride.getVersion() + 1);
+            rides.add(ride);
+        }
+        eventPublisher.publishEvent(new RideEvents.RidesCompleted(rides));
+
+        if (anomalyDetectionQueue.isEnabled()) {
+            anomalyDetectionQueue.submitAfterCommit(pendingIds);
+        } else {
+            flags.putAll(anomalyDetectionService.analyzeRides(rides));
+        }
+
+        return ids.stream()
+                .map(id -> toResponse(ridesById.get(id), flags.get(id)))
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Cancels a requested or in-progress ride. Cancelling a cancelled ride changes nothing.
+     *
+     * @throws ConflictException if the ride is completed — like completing a cancelled ride
+     */
     @Transactional
     public RideDTOs.RideResponse cancelRide(Long rideId) {
-        Ride ride = findRideOrThrow(rideId);
+        Ride ride = transition(rideId, Ride.RideStatus.CANCELLED, CANCELLABLE, read ->
+                rideRepository.updateStatus(rideId, read.getStatus(), Ride.RideStatus.CANCELLED));
+        if (ride.getStatus() == Ride.RideStatus.CANCELLED) {
+            return RideDTOs.RideResponse.from(ride);
+        }
         ride.setStatus(Ride.RideStatus.CANCELLED);
-        rideRepository.save(ride);
+        ride.setVersion(ride.getVersion() + 1);
+
+        eventPublisher.publishEvent(new RideEvents.RideCancelled(ride));
         return RideDTOs.RideResponse.from(ride);
     }
 
+    /**
+     * Served from {@link RideResponseCache}; a miss costs the ride and flag lookups. Misses load from the
+     * primary: a replica row older than the last invalidation would otherwise stay cached for the full TTL.
+     */
     public RideDTOs.RideResponse getRideById(Long rideId) {
+        return rideResponseCache.get(rideId, id -> ReadYourWrites.onPrimary(() ->
+                toResponse(findRideOrThrow(id), anomalyFlagRepository.findByRideId(id).orElse(null))));
+    }
+
+    public RideDTOs.CacheStatsResponse getRideCacheStats() {
+        return rideResponseCache.stats();
+    }
+
+    /**
+     * Polling endpoint for async detection: PENDING until the worker has scored the ride,
+     * then FLAGGED or CLEAN. Rides that were never completed are NOT_APPLICABLE.
+     */
+    public RideDTOs.DetectionStatusResponse getDetectionStatus(Long rideId) {
         Ride ride = findRideOrThrow(rideId);
-        RideDTOs.RideResponse response = RideDTOs.RideResponse.from(ride);
+        RideDTOs.DetectionStatusResponse.DetectionStatusResponseBuilder status =
+                RideDTOs.DetectionStatusResponse.builder().rideId(rideId);
 
-        anomalyFlagRepository.findByRideId(rideId).ifPresent(flag -> {
-            response.setAnomalyDetected(true);
-            response.setAnomalyReason(flag.getReason());
-        });
+        if (ride.getDetectionState() == Ride.DetectionState.PENDING) {
+            return status.state("PENDING").build();
+        }
+        Optional<AnomalyFlag> flag = anomalyFlagRepository.findByRideId(rideId);
+        if (flag.isPresent()) {
+            return status.state("FLAGGED")
+                    .anomalyType(flag.get().getType().name())
+                    .anomalyScore(flag.get().getAnomalyScore())
+                    .anomalyReason(flag.get().getReason())
+                    .build();
+        }
+        boolean scored = ride.getDetectionState() == Ride.DetectionState.DONE
+                || ride.getStatus() == Ride.RideStatus.COMPLETED;
+        return status.state(scored ? "CLEAN" : "NOT_APPLICABLE").build();
+    }
 
-        return response;
+    @Transactional(readOnly = true)
+    public RideDTOs.RidePage getRidesByCaptain(String captainId, String cursor, int limit) {
+        Pageable page = PageRequest.of(0, clampPageSize(limit));
+        if (cursor == null) {
+            return toPage(rideRepository.findPageByCaptainId(captainId, page), page);
+        }
+        RideCursor after = RideCursor.decode(cursor);
+        return toPage(rideRepository.findPageByCaptainIdBefore(captainId, after.createdAt, after.id, page), page);
     }
 
-    public List<RideDTOs.RideResponse> getRidesByCaptain(String captainId) {
-        return rideRepository.findByCaptainId(captainId)
-                .stream()
-                .map(RideDTOs.RideResponse::from)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public RideDTOs.RidePage getRidesByCustomer(String customerId, String cursor, int limit) {
+        Pageable page = PageRequest.of(0, clampPageSize(limit));
+        if (cursor == null) {
+            return toPage(rideRepository.findPageByCustomerId(customerId, page), page);
+        }
+        RideCursor after = RideCursor.decode(cursor);
+        return toPage(rideRepository.findPageByCustomerIdBefore(customerId, after.createdAt, after.id, page), page);
     }
 
-    public List<RideDTOs.RideResponse> getRidesByCustomer(String customerId) {
-        return rideRepository.findByCustomerId(customerId)
-                .stream()
-                .map(RideDTOs.RideResponse::from)
-                .collect(Collectors.toList());
+    /**
+     * Streams every ride of a captain to {@code sink} straight off a JDBC cursor.
+     * Entities are detached as soon as they are written, so the persistence context
+     * (and the heap) stays flat regardless of how many rides the captain has.
+     */
+    @Transactional(readOnly = true)
+    public void streamRidesByCaptain(String captainId, Consumer<RideDTOs.RideResponse> sink) {
+        try (Stream<Ride> rides = rideRepository.streamByCaptainId(captainId)) {
+            rides.forEach(ride -> emit(ride, sink));
+        }
+    }
+
+    /** Customer counterpart of {@link #streamRidesByCaptain} */
+    @Transactional(readOnly = true)
+    public void streamRidesByCustomer(String customerId, Consumer<RideDTOs.RideResponse> sink) {
+        try (Stream<Ride> rides = rideRepository.streamByCustomerId(customerId)) {
+            rides.forEach(ride -> emit(ride, sink));
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<RideDTOs.AnalyticsResponse> getCityAnalytics() {
+        if (cityRollupService.isEnabled()) {
+            return cityRollupService.getCityAnalytics();
+        }
+
         List<Object[]> raw = rideRepository.getCityAnalytics();
         return raw.stream().map(row -> {
             String city        = (String) row[0];
@@ -109,7 +397,7 @@ public class RideService {
             Double avgFare     = (Double) row[2];
             Double avgDistance = (Double) row[3];
             Double avgDuration = (Double) row[4];
-            Long anomalyCount  = anomalyFlagRepository.countByCity(city);
+            Long anomalyCount  = (Long) row[5];
             double anomalyRate = totalRides > 0 ? (double) anomalyCount / totalRides : 0.0;
 
             return RideDTOs.AnalyticsResponse.builder()
@@ -124,28 +412,163 @@ public class RideService {
         }).collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public RideDTOs.CaptainStatsResponse getCaptainStats(String captainId) {
-        List<Ride> rides       = rideRepository.findByCaptainId(captainId);
-        long completed         = rides.stream().filter(r -> r.getStatus() == Ride.RideStatus.COMPLETED).count();
-        long cancelled         = rides.stream().filter(r -> r.getStatus() == Ride.RideStatus.CANCELLED).count();
-        double totalEarnings   = rides.stream()
-                .filter(r -> r.getStatus() == Ride.RideStatus.COMPLETED)
-                .mapToDouble(Ride::getFareAmount)
-                .sum();
-        Long anomalies         = anomalyFlagRepository.countByCaptainId(captainId);
+        if (captainTotalsService.isEnabled()) {
+            return captainTotalsService.getCaptainStats(captainId);
+        }
+
+        // Single-row projection — counts, earnings and anomalies computed in the database
+        Object[] row = rideRepository.getCaptainStats(captainId).get(0);
+        long totalRides = (Long) row[0];
 
         return RideDTOs.CaptainStatsResponse.builder()
                 .captainId(captainId)
-                .totalRides((long) rides.size())
-                .completedRides(completed)
-                .cancelledRides(cancelled)
-                .totalEarnings(totalEarnings)
-                .anomaliesDetected(anomalies)
+                .totalRides(totalRides)
+                .completedRides(totalRides > 0 ? (Long) row[1] : 0L)
+                .cancelledRides(totalRides > 0 ? (Long) row[2] : 0L)
+                .totalEarnings(totalRides > 0 ? (Double) row[3] : 0.0)
+                .anomaliesDetected((Long) row[4])
+                .build();
+    }
+
+    private int clampPageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private RideDTOs.RidePage toPage(List<Ride> rides, Pageable page) {
+        String nextCursor = null;
+        if (rides.size() == page.getPageSize()) {
+            Ride last = rides.get(rides.size() - 1);
+            nextCursor = new RideCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return RideDTOs.RidePage.builder()
+                .rides(rides.stream().map(RideDTOs.RideResponse::from).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private void emit(Ride ride, Consumer<RideDTOs.RideResponse> sink) {
+        sink.accept(RideDTOs.RideResponse.from(ride));
+        entityManager.detach(ride);
+    }
+
+    private Ride.DetectionState initialDetectionState() {
+        return anomalyDetectionQueue.isEnabled() ? Ride.DetectionState.PENDING : Ride.DetectionState.DONE;
+    }
+
+    private RideDTOs.RideResponse toResponse(Ride ride, AnomalyFlag flag) {
+        RideDTOs.RideResponse response = RideDTOs.RideResponse.from(ride);
+        if (flag != null) {
+            response.setAnomalyDetected(true);
+            response.setAnomalyReason(flag.getReason());
+        }
+        return response;
+    }
+
+    private Ride toRide(RideDTOs.CreateRideRequest request) {
+        return Ride.builder()
+                .captainId(request.getCaptainId())
+                .customerId(request.getCustomerId())
+                .pickupCity(request.getPickupCity())
+                .dropoffCity(request.getDropoffCity())
+                .distanceKm(request.getDistanceKm())
+                .fareAmount(request.getFareAmount())
+                .durationMinutes(request.getDurationMinutes())
+                .vehicleType(request.getVehicleType())
+                .status(Ride.RideStatus.REQUESTED)
                 .build();
     }
 
+    private Map<String, String> validate(RideDTOs.CreateRideRequest request) {
+        if (request == null) {
+            return Collections.singletonMap("row", "Row is empty");
+        }
+        Set<ConstraintViolation<RideDTOs.CreateRideRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> errors = new LinkedHashMap<>();
+        violations.forEach(v -> errors.put(v.getPropertyPath().toString(), v.getMessage()));
+        return errors;
+    }
+
+    /** Commits the chunk, then hands out the results of every row since the last commit */
+    private void persistChunk(List<Ride> chunk, List<RideDTOs.RowResult> pending,
+                              Consumer<RideDTOs.RowResult> results) {
+        if (!chunk.isEmpty()) {
+            // IDs are handed out by the pooled sequence on persist; the flush sends one batch per chunk
+            transactionTemplate.executeWithoutResult(status -> {
+                rideRepository.saveAll(chunk);
+                eventPublisher.publishEvent(new RideEvents.RidesCreated(new ArrayList<>(chunk)));
+                rideRepository.flush();
+                entityManager.clear();
+            });
+        }
+
+        Iterator<Ride> saved = chunk.iterator();
+        for (RideDTOs.RowResult row : pending) {
+            if (row.getErrors() == null) row.setRideId(saved.next().getId());
+            results.accept(row);
+        }
+        chunk.clear();
+        pending.clear();
+    }
+
+    /**
+     * Moves a ride to {@code target} with a compare-and-set {@code update} against the status last read.
+     * When a concurrent transition makes it match nothing, the ride is read again and re-checked.
+     * Statuses only move forward, so this settles after a few rounds at most.
+     *
+     * @return the ride as read before the update — its status is the one it left, or {@code target}
+     *         if it was already there and nothing was changed
+     * @throws ConflictException if the ride's status cannot move to {@code target}
+     */
+    private Ride transition(Long rideId, Ride.RideStatus target, Set<Ride.RideStatus> allowedFrom,
+                            ToIntFunction<Ride> update) {
+        while (true) {
+            Ride ride = findRideOrThrow(rideId);
+            if (ride.getStatus() == target) {
+                return ride;
+            }
+            if (!allowedFrom.contains(ride.getStatus())) {
+                throw new ConflictException("Ride " + rideId + " is " + ride.getStatus()
+                        + " and cannot become " + target);
+            }
+            if (update.applyAsInt(ride) == 1) {
+                return ride;
+            }
+        }
+    }
+
     private Ride findRideOrThrow(Long rideId) {
         return rideRepository.findById(rideId)
                 .orElseThrow(() -> new ResourceNotFoundException("Ride not found with id: " + rideId));
     }
-}
\ No newline at end of file
+
+    /** Opaque keyset cursor: the (createdAt, id) of the last ride on the previous page */
+    private static class RideCursor {
+        final LocalDateTime createdAt;
+        final Long id;
+
+        RideCursor(LocalDateTime createdAt, Long id) {
+            this.createdAt = createdAt;
+            this.id        = id;
+        }
+
+        String encode() {
+            String raw = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static RideCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new RideCursor(LocalDateTime.parse(raw.substring(0, sep)), Long.valueOf(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.RideRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves ad-hoc ride scans (fare/km outliers, date ranges, per-city or per-captain slices) from a
+ * {@link RideColumnSnapshot} instead of JPQL over {@code rides}.
+ *
+ * Every {@code refresh-interval} the whole table is streamed as scalar columns — no entities —
+ * into a new snapshot, which replaces the current one. Scans never touch the database, and may
+ * trail writes by up to one refresh.
+ *
+ * Off by default ({@code rideintel.analytics.snapshot.enabled}): the snapshot holds about 53 bytes of
+ * direct memory per ride, and twice that while a refresh builds the next one next to the current.
+ * Both together stay under {@code max-off-heap}; a refresh that would go past it is abandoned and the
+ * current snapshot is kept. {@code -XX:MaxDirectMemorySize} must leave room for that budget.
+ */
+@Service
+public class RideSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(RideSnapshotService.class);
+
+    private static final int MAX_RIDE_IDS = 1000;
+
+    private final RideRepository rideRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockRows;
+    private final boolean enabled;
+    private final long maxOffHeapBytes;
+
+    private volatile RideColumnSnapshot snapshot = RideColumnSnapshot.EMPTY;
+
+    public RideSnapshotService(RideRepository rideRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${rideintel.analytics.snapshot.block-rows:65536}") int blockRows,
+                               @Value("${rideintel.analytics.snapshot.enabled:false}") boolean enabled,
+                               @Value("${rideintel.analytics.snapshot.max-off-heap:256MB}") DataSize maxOffHeap) {
+        this.rideRepository      = rideRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.blockRows           = blockRows;
+        this.enabled             = enabled;
+        this.maxOffHeapBytes     = maxOffHeap.toBytes();
+    }
+
+    /** Current snapshot — safe to hold for as long as needed */
+    public RideColumnSnapshot snapshot() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${rideintel.analytics.snapshot.refresh-interval:PT5M}")
+    public void refresh() {
+        if (!enabled) return;
+
+        long started = System.nanoTime();
+        LocalDateTime takenAt = LocalDateTime.now();
+        // The current snapshot stays live until the new one replaces it
+        RideColumnSnapshot.Builder builder =
+                RideColumnSnapshot.builder(blockRows, maxOffHeapBytes - snapshot.offHeapBytes());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = rideRepository.streamSnapshotRows()) {
+                    rows.forEach(row -> builder.add(
+                            (Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                            (Ride.RideStatus) row[5], row[10] != null,
+                            (Double) row[6], (Double) row[7], (Integer) row[8], (LocalDateTime) row[9]));
+                }
+            });
+        } catch (IllegalStateException e) {
+            log.warn("Ride snapshot refresh abandoned, keeping the one taken at {}: {} "
+                    + "(rideintel.analytics.snapshot.max-off-heap)", snapshot.takenAt(), e.getMessage());
+            return;
+        }
+        snapshot = builder.build(takenAt);
+        log.debug("Built ride snapshot: {} rides, {} KB off-heap, {} ms", snapshot.size(),
+                snapshot.offHeapBytes() / 1024, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public RideDTOs.RideScanResponse scan(RideScanFilter filter) {
+        if (!enabled) {
+            throw new InvalidRequestException("Ride scans are off; set rideintel.analytics.snapshot.enabled=true");
+        }
+        if (filter.getLimit() < 0 || filter.getLimit() > MAX_RIDE_IDS) {
+            throw new InvalidRequestException("limit must be between 0 and " + MAX_RIDE_IDS);
+        }
+        if (filter.getCreatedFrom() != null && filter.getCreatedTo() != null
+                && !filter.getCreatedFrom().isBefore(filter.getCreatedTo())) {
+            throw new InvalidRequestException("'from' must be before 'to'");
+        }
+
+        RideColumnSnapshot current = snapshot;
+        RideColumnSnapshot.Result result = current.scan(filter);
+        long matched = result.matched();
+        return RideDTOs.RideScanResponse.builder()
+                .snapshotTakenAt(current.takenAt())
+                .snapshotRides(current.size())
+                .matchedRides(matched)
+                .flaggedRides(result.flagged())
+                .totalFare(result.fareSum())
+                .averageFare(matched > 0 ? result.fareSum() / matched : null)
+                .averageFarePerKm(result.distanceSum() > 0 ? result.fareSum() / result.distanceSum() : null)
+                .averageDistanceKm(matched > 0 ? result.distanceSum() / matched : null)
+                .averageDurationMinutes(matched > 0 ? (double) result.durationSum() / matched : null)
+                .rideIds(Arrays.stream(result.rideIds()).boxed().collect(Collectors.toList()))
+                .build();
+    }
+
+    /** Parses the {@code status} request parameter; null stays null (any status) */
+    public static Ride.RideStatus parseStatus(String status) {
+        if (status == null || status.trim().equalsIgnoreCase("ANY")) return null;
+        try {
+            return Ride.RideStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Unknown status: " + status
+                    + " (expected REQUESTED, IN_PROGRESS, COMPLETED, CANCELLED or ANY)");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.model.RideStatSnapshot;
+import com.careem.rideintel.model.RideStatSnapshot.Metric;
+import com.careem.rideintel.repository.RideStatSnapshotRepository;
+import com.careem.rideintel.rule.StreamingStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live per-(pickup city, vehicle type) baselines for the adaptive anomaly thresholds.
+ *
+ * Every completed ride feeds its fare/km and implied speed into a {@link StreamingStats}
+ * once its transaction commits. Summaries are republished every {@code publish-interval}; a key
+ * only serves as a baseline once it has {@code min-samples} rides — until then rules fall back
+ * to their static thresholds. State is snapshotted to {@code ride_stat_snapshots} every
+ * {@code snapshot-interval} and on shutdown, and restored on startup.
+ */
+@Service
+public class RideStatisticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(RideStatisticsService.class);
+    private static final Metric[] METRICS = Metric.values();
+
+    private final RideStatSnapshotRepository snapshotRepository;
+    private final long minSamples;
+
+    // city → vehicle type → stats per Metric ordinal; nested so lookups never build a composite key
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, StreamingStats[]>> stats =
+            new ConcurrentHashMap<>();
+
+    public RideStatisticsService(RideStatSnapshotRepository snapshotRepository,
+                                 @Value("${rideintel.anomaly.adaptive.min-samples:50}") long minSamples) {
+        this.snapshotRepository = snapshotRepository;
+        this.minSamples         = minSamples;
+    }
+
+    /** @return the published baseline, or null while the key has fewer than {@code min-samples} rides */
+    public StreamingStats.Summary baseline(Metric metric, String city, String vehicleType) {
+        Map<String, StreamingStats[]> byVehicle = stats.get(city);
+        if (byVehicle == null) return null;
+        StreamingStats[] metrics = byVehicle.get(vehicleType);
+        if (metrics == null) return null;
+        StreamingStats.Summary summary = metrics[metric.ordinal()].summary();
+        return summary.getCount() >= minSamples ? summary : null;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        for (Ride ride : event.getRides()) {
+            StreamingStats[] metrics = statsFor(ride.getPickupCity(), ride.getVehicleType());
+            double distanceKm = ride.getDistanceKm();
+            metrics[Metric.FARE_PER_KM.ordinal()].add(ride.getFareAmount() / distanceKm);
+            metrics[Metric.SPEED_KMH.ordinal()].add(distanceKm / (ride.getDurationMinutes() / 60.0));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rideintel.anomaly.adaptive.publish-interval:PT1S}")
+    public void publish() {
+        stats.values().forEach(byVehicle -> byVehicle.values().forEach(metrics -> {
+            for (StreamingStats metric : metrics) {
+                metric.publish();
+            }
+        }));
+    }
+
+    // ─── Snapshots ────────────────────────────────────────────────────────────
+
+    @Scheduled(fixedDelayString = "${rideintel.anomaly.adaptive.snapshot-interval:PT5M}",
+            initialDelayString = "${rideintel.anomaly.adaptive.snapshot-interval:PT5M}")
+    @EventListener(ContextClosedEvent.class)
+    public void snapshot() {
+        LocalDateTime now = LocalDateTime.now();
+        List<RideStatSnapshot> rows = new ArrayList<>();
+        stats.forEach((city, byVehicle) -> byVehicle.forEach((vehicleType, metrics) -> {
+            for (Metric metric : METRICS) {
+                StreamingStats metricStats = metrics[metric.ordinal()];
+                double[] moments = metricStats.moments();
+                rows.add(RideStatSnapshot.builder()
+                        .pickupCity(city)
+                        .vehicleType(vehicleType)
+                        .metric(metric)
+                        .sampleCount((long) moments[0])
+                        .mean(moments[1])
+                        .m2(moments[2])
+                        .histogram(metricStats.encodedHistogram())
+                        .snapshotAt(now)
+                        .build());
+            }
+        }));
+        try {
+            snapshotRepository.saveAll(rows);
+        } catch (DataAccessException e) {
+            // The baselines are relearned from new rides; losing one snapshot only delays that
+            log.warn("Could not snapshot ride statistics ({} rows): {}", rows.size(), e.getMessage());
+        }
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void restore() {
+        stats.clear();
+        for (RideStatSnapshot row : snapshotRepository.findAll()) {
+            statsFor(row.getPickupCity(), row.getVehicleType())[row.getMetric().ordinal()]
+                    .restore(row.getSampleCount(), row.getMean(), row.getM2(), row.getHistogram());
+        }
+        publish();
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private StreamingStats[] statsFor(String city, String vehicleType) {
+        return stats.computeIfAbsent(city, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(vehicleType, v -> {
+                    StreamingStats[] metrics = new StreamingStats[METRICS.length];
+                    for (int i = 0; i < metrics.length; i++) {
+                        metrics[i] = new StreamingStats();
+                    }
+                    return metrics;
+                });
+    }
+}
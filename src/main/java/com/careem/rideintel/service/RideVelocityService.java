@@ -0,0 +1,91 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.rule.SlidingWindowCounter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Sliding-window completion counts per captain, per customer and per (captain, customer) pair —
+ * the state behind the velocity rules, which catch patterns no single ride reveals.
+ *
+ * Counts are recorded when the completion is published, inside its transaction, so the ride being
+ * scored — and the rides completed with it — are already included. If the transaction rolls back, the
+ * rides are taken back out again. Each counter is a fixed-size {@link SlidingWindowCounter}: memory is
+ * set by {@code rideintel.anomaly.velocity.capacity}, not by how many distinct keys show up.
+ */
+@Service
+public class RideVelocityService {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final Duration DAY  = Duration.ofDays(1);
+
+    private final SlidingWindowCounter captainCompletions;
+    private final SlidingWindowCounter customerCompletions;
+    private final SlidingWindowCounter pairCompletions;
+
+    public RideVelocityService(@Value("${rideintel.anomaly.velocity.capacity:65536}") int capacity) {
+        this.captainCompletions  = new SlidingWindowCounter(HOUR, 12, capacity);  // 5-minute buckets
+        this.customerCompletions = new SlidingWindowCounter(HOUR, 12, capacity);
+        this.pairCompletions     = new SlidingWindowCounter(DAY, 24, capacity);   // 1-hour buckets
+    }
+
+    @EventListener
+    public void onRidesCompleted(RideEvents.RidesCompleted event) {
+        List<Ride> rides = event.getRides();
+        for (Ride ride : rides) {
+            long at = completedAt(ride);
+            captainCompletions.record(SlidingWindowCounter.key(ride.getCaptainId()), at);
+            customerCompletions.record(SlidingWindowCounter.key(ride.getCustomerId()), at);
+            pairCompletions.record(SlidingWindowCounter.key(ride.getCaptainId(), ride.getCustomerId()), at);
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    unrecord(rides);
+                }
+            }
+        });
+    }
+
+    /** Rides the captain completed in the hour up to this ride's completion */
+    public int captainRidesLastHour(Ride ride) {
+        return captainCompletions.count(SlidingWindowCounter.key(ride.getCaptainId()), completedAt(ride));
+    }
+
+    public int customerRidesLastHour(Ride ride) {
+        return customerCompletions.count(SlidingWindowCounter.key(ride.getCustomerId()), completedAt(ride));
+    }
+
+    /** Rides this captain and customer completed together in the day up to this ride's completion */
+    public int pairRidesLastDay(Ride ride) {
+        return pairCompletions.count(SlidingWindowCounter.key(ride.getCaptainId(), ride.getCustomerId()),
+                completedAt(ride));
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private void unrecord(List<Ride> rides) {
+        for (Ride ride : rides) {
+            long at = completedAt(ride);
+            captainCompletions.unrecord(SlidingWindowCounter.key(ride.getCaptainId()), at);
+            customerCompletions.unrecord(SlidingWindowCounter.key(ride.getCustomerId()), at);
+            pairCompletions.unrecord(SlidingWindowCounter.key(ride.getCaptainId(), ride.getCustomerId()), at);
+        }
+    }
+
+    private static long completedAt(Ride ride) {
+        return SlidingWindowCounter.epochMillis(ride.getCompletedAt());
+    }
+}
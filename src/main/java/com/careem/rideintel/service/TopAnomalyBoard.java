@@ -0,0 +1,176 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.repository.AnomalyFlagView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The highest-scoring anomaly flags, held in memory so "current worst K" never touches the flag table.
+ *
+ * The board keeps up to {@code capacity} flags ordered by score (ties: newest flag first) and is updated
+ * as flag writes commit. It always holds the true top {@code size} flags: a new flag that ranks below the
+ * board's last entry is dropped once other flags have been pushed off, because flags outside the board
+ * are unknown. Deletions and downgrades shrink it, so capacity is kept well above {@code max-k}; should
+ * it still fall below K, the next read reloads it with one bounded read of the score index.
+ *
+ * The board is node-local: it sees the flag writes committed on this node as they happen, and those of
+ * other nodes only when it reloads from the score index, which it does every {@code refresh-interval}.
+ * {@link #age()} tells how long ago that was, and so how stale the board can be.
+ *
+ * Writes are serialized; reads iterate a concurrent sorted set without locking.
+ */
+@Service
+public class TopAnomalyBoard {
+
+    private static final Comparator<RideDTOs.AnomalyResponse> RANK =
+            Comparator.comparing(RideDTOs.AnomalyResponse::getAnomalyScore, Comparator.reverseOrder())
+                    .thenComparing(RideDTOs.AnomalyResponse::getFlagId, Comparator.reverseOrder());
+
+    private final AnomalyFlagRepository anomalyFlagRepository;
+    private final int capacity;
+    private final int maxK;
+
+    private volatile ConcurrentSkipListSet<RideDTOs.AnomalyResponse> board = new ConcurrentSkipListSet<>(RANK);
+    private final Map<Long, RideDTOs.AnomalyResponse> byFlagId = new HashMap<>();  // guarded by this
+    private boolean complete;  // guarded by this — every flag is on the board
+    private volatile Instant loadedAt = Instant.now();
+
+    public TopAnomalyBoard(AnomalyFlagRepository anomalyFlagRepository,
+                           @Value("${rideintel.anomaly.top.capacity:1000}") int capacity,
+                           @Value("${rideintel.anomaly.top.max-k:100}") int maxK) {
+        if (maxK > capacity) {
+            throw new IllegalStateException("rideintel.anomaly.top.max-k (" + maxK
+                    + ") exceeds rideintel.anomaly.top.capacity (" + capacity + ")");
+        }
+        this.anomalyFlagRepository = anomalyFlagRepository;
+        this.capacity              = capacity;
+        this.maxK                  = maxK;
+    }
+
+    /** The {@code k} highest-scoring flags, highest first */
+    public List<RideDTOs.AnomalyResponse> top(int k) {
+        if (k < 1 || k > maxK) {
+            throw new InvalidRequestException("k must be between 1 and " + maxK);
+        }
+        ConcurrentSkipListSet<RideDTOs.AnomalyResponse> current = board;
+        if (current.size() < k) {
+            current = reloadIfIncomplete();
+        }
+        List<RideDTOs.AnomalyResponse> top = new ArrayList<>(k);
+        Iterator<RideDTOs.AnomalyResponse> ranked = current.iterator();
+        while (top.size() < k && ranked.hasNext()) {
+            top.add(ranked.next());
+        }
+        return top;
+    }
+
+    /** Time since the board was last reloaded — flags written on other nodes since then are not on it */
+    public Duration age() {
+        return Duration.between(loadedAt, Instant.now());
+    }
+
+    // ─── Event Handlers ───────────────────────────────────────────────────────
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesFlagged(RideEvents.AnomaliesFlagged event) {
+        putAll(event.getFlags());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAnomaliesRevised(RideEvents.AnomaliesRevised event) {
+        putAll(event.getFlags());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onAnomaliesCleared(RideEvents.AnomaliesCleared event) {
+        for (AnomalyFlag flag : event.getFlags()) {
+            remove(flag.getId());
+        }
+    }
+
+    /** An archived month's flags can sit anywhere on the board — reload it once they are gone */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRidesArchived(RideEvents.RidesArchived event) {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${rideintel.anomaly.top.refresh-interval:PT30S}",
+            initialDelayString = "${rideintel.anomaly.top.refresh-interval:PT30S}")
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void reload() {
+        Instant started = Instant.now();
+        ConcurrentSkipListSet<RideDTOs.AnomalyResponse> loaded = new ConcurrentSkipListSet<>(RANK);
+        byFlagId.clear();
+        List<AnomalyFlagView> flags = anomalyFlagRepository.findTopByScore(PageRequest.of(0, capacity));
+        for (AnomalyFlagView flag : flags) {
+            RideDTOs.AnomalyResponse entry = RideDTOs.AnomalyResponse.from(flag);
+            loaded.add(entry);
+            byFlagId.put(entry.getFlagId(), entry);
+        }
+        complete = flags.size() < capacity;
+        board    = loaded;
+        loadedAt = started;
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private synchronized ConcurrentSkipListSet<RideDTOs.AnomalyResponse> reloadIfIncomplete() {
+        if (!complete) {
+            reload();
+        }
+        return board;
+    }
+
+    private synchronized void putAll(List<AnomalyFlag> flags) {
+        for (AnomalyFlag flag : flags) {
+            remove(flag.getId());
+            put(RideDTOs.AnomalyResponse.from(flag));
+        }
+    }
+
+    private void put(RideDTOs.AnomalyResponse entry) {
+        ConcurrentSkipListSet<RideDTOs.AnomalyResponse> current = board;
+        boolean ranksOnBoard = current.isEmpty() || RANK.compare(entry, current.last()) < 0;
+        if (!complete && !ranksOnBoard) {
+            return;  // flags off the board may outrank it
+        }
+        if (current.size() >= capacity) {
+            if (!ranksOnBoard) {
+                complete = false;
+                return;
+            }
+            byFlagId.remove(current.pollLast().getFlagId());
+            complete = false;
+        }
+        current.add(entry);
+        byFlagId.put(entry.getFlagId(), entry);
+    }
+
+    private void remove(Long flagId) {
+        RideDTOs.AnomalyResponse entry = byFlagId.remove(flagId);
+        if (entry != null) {
+            board.remove(entry);
+        }
+    }
+}
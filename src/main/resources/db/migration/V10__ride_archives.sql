@@ -0,0 +1,11 @@
+-- One row per archive file written by RidePartitionService: the rides of one created_at month, exported as
+-- gzipped NDJSON before they were dropped from rides (a detached partition on Postgres, deleted rows on H2).
+CREATE TABLE ride_archives (
+    file            VARCHAR(1000) NOT NULL,
+    partition_month VARCHAR(7)    NOT NULL,
+    ride_count      BIGINT        NOT NULL,
+    archived_at     TIMESTAMP     NOT NULL,
+    CONSTRAINT pk_ride_archives PRIMARY KEY (file)
+);
+
+CREATE INDEX idx_ride_archives_month ON ride_archives (partition_month);
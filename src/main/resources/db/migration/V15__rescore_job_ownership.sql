@@ -0,0 +1,7 @@
+-- Re-scoring jobs are shared by every node. A node claims a job with a compare-and-set UPDATE on version,
+-- names itself in owner and refreshes heartbeat_at while the job runs. Only a RUNNING job whose heartbeat has
+-- gone stale is abandoned and may be paused or claimed by another node.
+-- (V12-V14 are taken by db/vendor/postgresql.)
+ALTER TABLE rescore_jobs ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE rescore_jobs ADD COLUMN owner VARCHAR(255);
+ALTER TABLE rescore_jobs ADD COLUMN heartbeat_at TIMESTAMP;
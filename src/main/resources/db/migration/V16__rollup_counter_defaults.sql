@@ -0,0 +1,19 @@
+-- The counters of the rollup tables default to zero, so the row for a key seen for the first time is inserted
+-- as its key alone. On H2 that insert is a MERGE ... KEY, which leaves a row inserted concurrently as it is.
+ALTER TABLE city_rollup ALTER COLUMN completed_rides SET DEFAULT 0;
+ALTER TABLE city_rollup ALTER COLUMN total_fare SET DEFAULT 0;
+ALTER TABLE city_rollup ALTER COLUMN total_distance_km SET DEFAULT 0;
+ALTER TABLE city_rollup ALTER COLUMN total_duration_minutes SET DEFAULT 0;
+ALTER TABLE city_rollup ALTER COLUMN anomaly_count SET DEFAULT 0;
+
+ALTER TABLE city_hourly_rollup ALTER COLUMN completed_rides SET DEFAULT 0;
+ALTER TABLE city_hourly_rollup ALTER COLUMN total_fare SET DEFAULT 0;
+ALTER TABLE city_hourly_rollup ALTER COLUMN total_distance_km SET DEFAULT 0;
+ALTER TABLE city_hourly_rollup ALTER COLUMN total_duration_minutes SET DEFAULT 0;
+ALTER TABLE city_hourly_rollup ALTER COLUMN anomaly_count SET DEFAULT 0;
+
+ALTER TABLE captain_totals ALTER COLUMN total_rides SET DEFAULT 0;
+ALTER TABLE captain_totals ALTER COLUMN completed_rides SET DEFAULT 0;
+ALTER TABLE captain_totals ALTER COLUMN cancelled_rides SET DEFAULT 0;
+ALTER TABLE captain_totals ALTER COLUMN total_earnings SET DEFAULT 0;
+ALTER TABLE captain_totals ALTER COLUMN anomalies SET DEFAULT 0;
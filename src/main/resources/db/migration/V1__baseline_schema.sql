@@ -0,0 +1,52 @@
+-- Baseline schema: everything Hibernate used to create via ddl-auto.
+-- Portable across H2 (dev/test) and PostgreSQL (production).
+
+CREATE SEQUENCE ride_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE anomaly_flag_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE rides (
+    id               BIGINT           NOT NULL,
+    captain_id       VARCHAR(255)     NOT NULL,
+    customer_id      VARCHAR(255)     NOT NULL,
+    pickup_city      VARCHAR(255)     NOT NULL,
+    dropoff_city     VARCHAR(255)     NOT NULL,
+    distance_km      DOUBLE PRECISION NOT NULL,
+    fare_amount      DOUBLE PRECISION NOT NULL,
+    duration_minutes INTEGER          NOT NULL,
+    status           VARCHAR(255)     NOT NULL,
+    created_at       TIMESTAMP        NOT NULL,
+    completed_at     TIMESTAMP,
+    vehicle_type     VARCHAR(255)     NOT NULL,
+    CONSTRAINT pk_rides PRIMARY KEY (id)
+);
+
+CREATE TABLE anomaly_flags (
+    id            BIGINT           NOT NULL,
+    ride_id       BIGINT           NOT NULL,
+    reason        VARCHAR(1000)    NOT NULL,
+    anomaly_score DOUBLE PRECISION NOT NULL,
+    type          VARCHAR(255)     NOT NULL,
+    flagged_at    TIMESTAMP        NOT NULL,
+    CONSTRAINT pk_anomaly_flags PRIMARY KEY (id),
+    CONSTRAINT fk_anomaly_flags_ride FOREIGN KEY (ride_id) REFERENCES rides (id)
+);
+
+CREATE TABLE city_rollup (
+    city                   VARCHAR(255)     NOT NULL,
+    completed_rides        BIGINT           NOT NULL,
+    total_fare             DOUBLE PRECISION NOT NULL,
+    total_distance_km      DOUBLE PRECISION NOT NULL,
+    total_duration_minutes BIGINT           NOT NULL,
+    anomaly_count          BIGINT           NOT NULL,
+    CONSTRAINT pk_city_rollup PRIMARY KEY (city)
+);
+
+CREATE TABLE captain_totals (
+    captain_id      VARCHAR(255)     NOT NULL,
+    total_rides     BIGINT           NOT NULL,
+    completed_rides BIGINT           NOT NULL,
+    cancelled_rides BIGINT           NOT NULL,
+    total_earnings  DOUBLE PRECISION NOT NULL,
+    anomalies       BIGINT           NOT NULL,
+    CONSTRAINT pk_captain_totals PRIMARY KEY (captain_id)
+);
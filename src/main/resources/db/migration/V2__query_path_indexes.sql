@@ -0,0 +1,29 @@
+-- One index per RideRepository / AnomalyFlagRepository access path.
+-- rides is write-heavy (bulk ingestion), so every index here has to earn its keep.
+
+-- findByCaptainId + keyset pages (ORDER BY created_at DESC, id DESC), captain stats projection
+CREATE INDEX idx_rides_captain_created ON rides (captain_id, created_at, id);
+
+-- countCompletedRidesByCaptain and other captain/status lookups
+CREATE INDEX idx_rides_captain_status ON rides (captain_id, status);
+
+-- findByCustomerId + keyset pages
+CREATE INDEX idx_rides_customer_created ON rides (customer_id, created_at, id);
+
+-- findByPickupCity
+CREATE INDEX idx_rides_pickup_city_status ON rides (pickup_city, status);
+
+-- findByStatus and the status = 'COMPLETED' aggregates (GROUP BY pickup_city / captain_id, fare ratio)
+CREATE INDEX idx_rides_status_city ON rides (status, pickup_city);
+
+-- findByDateRange
+CREATE INDEX idx_rides_created_at ON rides (created_at);
+
+-- findByRideId and every rides -> anomaly_flags join
+CREATE INDEX idx_anomaly_flags_ride ON anomaly_flags (ride_id);
+
+-- findHighScoreAnomalies (ORDER BY anomaly_score DESC)
+CREATE INDEX idx_anomaly_flags_score ON anomaly_flags (anomaly_score DESC);
+
+-- findByType
+CREATE INDEX idx_anomaly_flags_type ON anomaly_flags (type);
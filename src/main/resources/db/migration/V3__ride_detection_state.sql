@@ -0,0 +1,5 @@
+-- Tracks whether anomaly detection has run for a completed ride.
+-- PENDING rows double as the async detection backlog: they are re-queued on startup.
+ALTER TABLE rides ADD COLUMN detection_state VARCHAR(255);
+
+CREATE INDEX idx_rides_detection_state ON rides (detection_state);
@@ -0,0 +1,30 @@
+-- Typical trip distance per (pickup, dropoff) city pair, used by the ROUTE_DEVIATION rule.
+-- Seeded with straight-line (great-circle) distances between major cities; rows are replaced by
+-- the average clean-ride distance once a pair has enough completed rides (sample_count > 0).
+
+CREATE TABLE city_pair_baselines (
+    pickup_city   VARCHAR(255)     NOT NULL,
+    dropoff_city  VARCHAR(255)     NOT NULL,
+    baseline_km   DOUBLE PRECISION NOT NULL,
+    sample_count  BIGINT           NOT NULL,
+    refreshed_at  TIMESTAMP        NOT NULL,
+    CONSTRAINT pk_city_pair_baselines PRIMARY KEY (pickup_city, dropoff_city)
+);
+
+INSERT INTO city_pair_baselines (pickup_city, dropoff_city, baseline_km, sample_count, refreshed_at) VALUES
+    ('Karachi',   'Lahore',    1033.0, 0, CURRENT_TIMESTAMP),
+    ('Lahore',    'Karachi',   1033.0, 0, CURRENT_TIMESTAMP),
+    ('Karachi',   'Islamabad', 1142.0, 0, CURRENT_TIMESTAMP),
+    ('Islamabad', 'Karachi',   1142.0, 0, CURRENT_TIMESTAMP),
+    ('Karachi',   'Quetta',     591.0, 0, CURRENT_TIMESTAMP),
+    ('Quetta',    'Karachi',    591.0, 0, CURRENT_TIMESTAMP),
+    ('Karachi',   'Multan',     739.0, 0, CURRENT_TIMESTAMP),
+    ('Multan',    'Karachi',    739.0, 0, CURRENT_TIMESTAMP),
+    ('Lahore',    'Islamabad',  270.0, 0, CURRENT_TIMESTAMP),
+    ('Islamabad', 'Lahore',     270.0, 0, CURRENT_TIMESTAMP),
+    ('Lahore',    'Multan',     310.0, 0, CURRENT_TIMESTAMP),
+    ('Multan',    'Lahore',     310.0, 0, CURRENT_TIMESTAMP),
+    ('Lahore',    'Peshawar',   384.0, 0, CURRENT_TIMESTAMP),
+    ('Peshawar',  'Lahore',     384.0, 0, CURRENT_TIMESTAMP),
+    ('Islamabad', 'Peshawar',   145.0, 0, CURRENT_TIMESTAMP),
+    ('Peshawar',  'Islamabad',  145.0, 0, CURRENT_TIMESTAMP);
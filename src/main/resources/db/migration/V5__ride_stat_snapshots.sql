@@ -0,0 +1,15 @@
+-- Periodic snapshot of the in-memory per-(city, vehicle type) ride statistics behind the adaptive
+-- anomaly thresholds, so a restart resumes from learned baselines instead of the static defaults.
+-- mean/m2 are Welford accumulators; histogram is the sparse bucket:count encoding of the quantile sketch.
+
+CREATE TABLE ride_stat_snapshots (
+    pickup_city   VARCHAR(255)     NOT NULL,
+    vehicle_type  VARCHAR(255)     NOT NULL,
+    metric        VARCHAR(255)     NOT NULL,
+    sample_count  BIGINT           NOT NULL,
+    mean          DOUBLE PRECISION NOT NULL,
+    m2            DOUBLE PRECISION NOT NULL,
+    histogram     VARCHAR(8000)    NOT NULL,
+    snapshot_at   TIMESTAMP        NOT NULL,
+    CONSTRAINT pk_ride_stat_snapshots PRIMARY KEY (pickup_city, vehicle_type, metric)
+);
@@ -0,0 +1,25 @@
+-- Hourly per-(city, vehicle type) totals over completed rides, behind the analytics timeseries.
+-- Maintained incrementally on completion/cancellation/flagging; day and week views are summed from it.
+-- The key leads with bucket_hour so a time-range read is a primary-key range scan, however large rides grows.
+
+CREATE TABLE city_hourly_rollup (
+    bucket_hour            TIMESTAMP        NOT NULL,
+    city                   VARCHAR(255)     NOT NULL,
+    vehicle_type           VARCHAR(255)     NOT NULL,
+    completed_rides        BIGINT           NOT NULL,
+    total_fare             DOUBLE PRECISION NOT NULL,
+    total_distance_km      DOUBLE PRECISION NOT NULL,
+    total_duration_minutes BIGINT           NOT NULL,
+    anomaly_count          BIGINT           NOT NULL,
+    CONSTRAINT pk_city_hourly_rollup PRIMARY KEY (bucket_hour, city, vehicle_type)
+);
+
+-- One-time backfill from the rides already recorded; from here on the application keeps it current
+INSERT INTO city_hourly_rollup (bucket_hour, city, vehicle_type, completed_rides, total_fare,
+                                total_distance_km, total_duration_minutes, anomaly_count)
+SELECT DATE_TRUNC('hour', r.completed_at), r.pickup_city, r.vehicle_type, COUNT(*), SUM(r.fare_amount),
+       SUM(r.distance_km), SUM(r.duration_minutes), COUNT(a.id)
+FROM rides r
+LEFT JOIN anomaly_flags a ON a.ride_id = r.id
+WHERE r.status = 'COMPLETED' AND r.completed_at IS NOT NULL
+GROUP BY DATE_TRUNC('hour', r.completed_at), r.pickup_city, r.vehicle_type;
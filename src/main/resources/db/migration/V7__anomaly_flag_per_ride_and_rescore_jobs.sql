@@ -0,0 +1,50 @@
+-- One flag per ride. AnomalyFlag.ride is @OneToOne, but completing a ride twice used to insert a second flag.
+-- Take the extra flags back out of the hourly rollup, keep the newest flag of each ride, then let a unique
+-- index enforce it from here on (it also serves every ride_id lookup the old index did).
+UPDATE city_hourly_rollup h
+SET anomaly_count = anomaly_count - (
+    SELECT COUNT(*)
+    FROM anomaly_flags a
+    JOIN rides r ON r.id = a.ride_id
+    WHERE r.status = 'COMPLETED' AND r.completed_at IS NOT NULL
+      AND DATE_TRUNC('hour', r.completed_at) = h.bucket_hour
+      AND r.pickup_city = h.city AND r.vehicle_type = h.vehicle_type
+      AND EXISTS (SELECT 1 FROM anomaly_flags b WHERE b.ride_id = a.ride_id AND b.id > a.id))
+WHERE EXISTS (
+    SELECT 1
+    FROM anomaly_flags a
+    JOIN rides r ON r.id = a.ride_id
+    WHERE r.status = 'COMPLETED' AND r.completed_at IS NOT NULL
+      AND DATE_TRUNC('hour', r.completed_at) = h.bucket_hour
+      AND r.pickup_city = h.city AND r.vehicle_type = h.vehicle_type
+      AND EXISTS (SELECT 1 FROM anomaly_flags b WHERE b.ride_id = a.ride_id AND b.id > a.id));
+
+DELETE FROM anomaly_flags
+WHERE EXISTS (SELECT 1 FROM anomaly_flags newer WHERE newer.ride_id = anomaly_flags.ride_id AND newer.id > anomaly_flags.id);
+
+DROP INDEX idx_anomaly_flags_ride;
+CREATE UNIQUE INDEX uq_anomaly_flags_ride ON anomaly_flags (ride_id);
+
+-- Admin-triggered re-scoring of completed rides. next_ride_id is the checkpoint: every ride below it
+-- has been re-scored, so a paused, failed or interrupted job resumes from there.
+CREATE SEQUENCE rescore_job_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE rescore_jobs (
+    id                   BIGINT       NOT NULL,
+    status               VARCHAR(255) NOT NULL,
+    next_ride_id         BIGINT       NOT NULL,
+    last_ride_id         BIGINT       NOT NULL,
+    max_rides_per_second INTEGER      NOT NULL,
+    rides_scored         BIGINT       NOT NULL,
+    flags_created        BIGINT       NOT NULL,
+    flags_updated        BIGINT       NOT NULL,
+    flags_cleared        BIGINT       NOT NULL,
+    elapsed_millis       BIGINT       NOT NULL,
+    started_at           TIMESTAMP    NOT NULL,
+    updated_at           TIMESTAMP    NOT NULL,
+    finished_at          TIMESTAMP,
+    error                VARCHAR(1000),
+    CONSTRAINT pk_rescore_jobs PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_rescore_jobs_status ON rescore_jobs (status);
@@ -0,0 +1,10 @@
+-- Anomaly search: newest first, keyset on (flagged_at, id), optionally narrowed to one type.
+-- The type index is superseded by the composite one it prefixes.
+CREATE INDEX idx_anomaly_flags_flagged ON anomaly_flags (flagged_at DESC, id DESC);
+
+DROP INDEX idx_anomaly_flags_type;
+CREATE INDEX idx_anomaly_flags_type_flagged ON anomaly_flags (type, flagged_at DESC, id DESC);
+
+-- Top-K board reload: highest scores first, id breaks ties so the order is total
+DROP INDEX idx_anomaly_flags_score;
+CREATE INDEX idx_anomaly_flags_score ON anomaly_flags (anomaly_score DESC, id DESC);
@@ -0,0 +1,16 @@
+-- Optimistic locking for rides. Status transitions are compare-and-set UPDATEs that also bump the version,
+-- so an entity write based on an older read of the ride fails instead of overwriting the transition.
+ALTER TABLE rides ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+-- Idempotency-Key header of the PATCH ride endpoints: the first successful response per key, replayed to
+-- retries of the same request. request_hash is a SHA-256 of the method, path and body the key was used with.
+-- response_body is a VARCHAR (not CLOB, which Postgres lacks): a response covers at most 1000 rides.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255)     NOT NULL,
+    request_hash    VARCHAR(64)      NOT NULL,
+    response_body   VARCHAR(1000000) NOT NULL,
+    created_at      TIMESTAMP        NOT NULL,
+    CONSTRAINT pk_idempotency_keys PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_keys_created ON idempotency_keys (created_at);
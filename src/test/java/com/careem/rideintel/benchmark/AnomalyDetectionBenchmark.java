@@ -0,0 +1,118 @@
+package com.careem.rideintel.benchmark;
+
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.rule.CaptainVelocityRule;
+import com.careem.rideintel.rule.CustomerVelocityRule;
+import com.careem.rideintel.rule.DurationMismatchRule;
+import com.careem.rideintel.rule.FareSpikeRule;
+import com.careem.rideintel.rule.GhostRideRule;
+import com.careem.rideintel.rule.RepeatedPairRule;
+import com.careem.rideintel.rule.RouteDeviationRule;
+import com.careem.rideintel.service.AnomalyDetectionService;
+import com.careem.rideintel.service.CityPairBaselineService;
+import com.careem.rideintel.service.RideStatisticsService;
+import com.careem.rideintel.service.RideVelocityService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Throughput of {@link AnomalyDetectionService#analyzeRide} — scoring, flag assembly and the
+ * save/publish hand-off — with every rule registered and a stub repository in place of the database.
+ *
+ * {@code mix} selects the rides: CLEAN (no rule fires), SINGLE_RULE (fare spike only) or
+ * MULTI_RULE (fare spike and duration mismatch, so reasons are joined). Thresholds are the static
+ * fallbacks, as on a fresh node. Compare gc.alloc.rate.norm across mixes: clean rides should stay near 0 B.
+ *
+ * {@code registry} prices the rule metrics: NONE records into no-op meters, PROMETHEUS into the
+ * registry production scrapes. The gap between them should stay within a few percent — less than forks
+ * of one configuration drift on a shared host, hence the extra forks; {@link RuleMetricsOverhead} measures it
+ * as a paired ratio in one JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(5)
+public class AnomalyDetectionBenchmark {
+
+    static final int RIDES = 1024;
+    static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2026, 3, 1, 18, 0);
+
+    @Param({"CLEAN", "SINGLE_RULE", "MULTI_RULE"})
+    public String mix;
+
+    @Param({"NONE", "PROMETHEUS"})
+    public String registry;
+
+    private AnomalyDetectionService engine;
+    private Ride[] rides;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rides = new Ride[RIDES];
+        for (int i = 0; i < RIDES; i++) {
+            switch (mix) {
+                case "CLEAN":       rides[i] = ride(i, 2.0 + (i % 25), 120.0 + (i % 25) * 30.0, 8 + (i % 25) * 2); break;
+                case "SINGLE_RULE": rides[i] = ride(i, 10.0, 2500.0, 20); break;   // 250 PKR/km
+                default:            rides[i] = ride(i, 50.0, 10000.0, 5); break;   // 200 PKR/km at 600 km/h
+            }
+        }
+
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("save", args -> args[0]);
+        AnomalyFlagRepository flags = Stubs.of(AnomalyFlagRepository.class, answers);
+        RideStatisticsService statistics = new RideStatisticsService(null, 50);
+        RideVelocityService velocity = new RideVelocityService(65_536);
+        MeterRegistry meterRegistry = "NONE".equals(registry)
+                ? new CompositeMeterRegistry()  // no registries attached: every meter is a no-op
+                : new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        engine = new AnomalyDetectionService(flags, null, event -> { }, Arrays.asList(
+                new FareSpikeRule(statistics), new GhostRideRule(), new DurationMismatchRule(statistics),
+                new RouteDeviationRule(new CityPairBaselineService(null, null, null, 20)),
+                new CaptainVelocityRule(velocity, 8), new CustomerVelocityRule(velocity, 8),
+                new RepeatedPairRule(velocity, 6)), meterRegistry);
+
+        // Fail fast if a mix no longer exercises what it claims to
+        int fired = engine.evaluate(rides[0]).map(flag -> flag.getReason().split("; ").length).orElse(0);
+        if (fired != Arrays.asList("CLEAN", "SINGLE_RULE", "MULTI_RULE").indexOf(mix)) {
+            throw new IllegalStateException("Ride mix " + mix + " fires " + fired + " rules");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RIDES)
+    public void analyzeRide(Blackhole blackhole) {
+        for (Ride ride : rides) {
+            blackhole.consume(engine.analyzeRide(ride));
+        }
+    }
+
+    private static Ride ride(int i, double distanceKm, double fare, int durationMinutes) {
+        Ride ride = new Ride();
+        ride.setId((long) i);
+        ride.setCaptainId("CAP-BENCH-" + i);
+        ride.setCustomerId("CUST-BENCH-" + i);
+        ride.setPickupCity("Karachi");
+        ride.setDropoffCity("Karachi");
+        ride.setDistanceKm(distanceKm);
+        ride.setFareAmount(fare);
+        ride.setDurationMinutes(durationMinutes);
+        ride.setVehicleType("ECONOMY");
+        ride.setStatus(Ride.RideStatus.COMPLETED);
+        ride.setCompletedAt(COMPLETED_AT);
+        return ride;
+    }
+}
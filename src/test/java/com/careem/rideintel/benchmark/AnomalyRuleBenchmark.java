@@ -0,0 +1,198 @@
+package com.careem.rideintel.benchmark;
+
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.rule.CaptainVelocityRule;
+import com.careem.rideintel.rule.CustomerVelocityRule;
+import com.careem.rideintel.rule.DurationMismatchRule;
+import com.careem.rideintel.rule.FareSpikeRule;
+import com.careem.rideintel.rule.GhostRideRule;
+import com.careem.rideintel.rule.RepeatedPairRule;
+import com.careem.rideintel.service.AnomalyDetectionService;
+import com.careem.rideintel.service.RideStatisticsService;
+import com.careem.rideintel.service.RideVelocityService;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-ride cost of rule evaluation: the {@link com.careem.rideintel.rule.AnomalyRule} engine against
+ * {@link LegacyRules}, a copy of the hardcoded checks it replaced (an ArrayList and an eager
+ * String.format per rule, per ride).
+ *
+ * Run with the gc profiler (the benchmark profile's default) and compare {@code gc.alloc.rate.norm}:
+ * bytes allocated per ride. The {@code mix} parameter is the share of rides that fire a rule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnomalyRuleBenchmark {
+
+    static final int RIDES = 1024;
+    static final LocalDateTime COMPLETED_AT = LocalDateTime.of(2026, 3, 1, 18, 0);
+
+    @Param({"0.0", "0.01"})
+    public double mix;
+
+    private AnomalyDetectionService engine;
+    private Ride[] rides;
+
+    @Setup(Level.Trial)
+    public void buildRides() {
+        rides = new Ride[RIDES];
+        int anomalous = (int) Math.round(RIDES * mix);
+        for (int i = 0; i < RIDES; i++) {
+            rides[i] = i < anomalous
+                    ? ride(0.4, 900.0, 4)                              // ghost ride + fare spike
+                    : ride(2.0 + (i % 25), 120.0 + (i % 25) * 30.0, 8 + (i % 25) * 2);
+            rides[i].setCaptainId("CAP-BENCH-" + i);
+            rides[i].setCustomerId("CUST-BENCH-" + i);
+        }
+
+        // Warm baselines so the adaptive thresholds are on the measured path.
+        // Repositories are only touched when persisting, which evaluate() never does.
+        RideEvents.RidesCompleted completed = new RideEvents.RidesCompleted(Arrays.asList(rides));
+        RideStatisticsService statistics = new RideStatisticsService(null, 50);
+        statistics.onRidesCompleted(completed);
+        statistics.publish();
+        RideVelocityService velocity = new RideVelocityService(65_536);
+        velocity.onRidesCompleted(completed);
+        engine = new AnomalyDetectionService(null, null, null, Arrays.asList(
+                new FareSpikeRule(statistics), new GhostRideRule(), new DurationMismatchRule(statistics),
+                new CaptainVelocityRule(velocity, 8), new CustomerVelocityRule(velocity, 8),
+                new RepeatedPairRule(velocity, 6)), new CompositeMeterRegistry());  // metrics are priced in AnomalyDetectionBenchmark
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RIDES)
+    public void ruleEngine(Blackhole blackhole) {
+        for (Ride ride : rides) {
+            blackhole.consume(engine.evaluate(ride));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RIDES)
+    public void legacyRules(Blackhole blackhole) {
+        for (Ride ride : rides) {
+            blackhole.consume(LegacyRules.evaluate(ride));
+        }
+    }
+
+    private static Ride ride(double distanceKm, double fare, int durationMinutes) {
+        Ride ride = new Ride();
+        ride.setPickupCity("Karachi");
+        ride.setDropoffCity("Karachi");
+        ride.setDistanceKm(distanceKm);
+        ride.setFareAmount(fare);
+        ride.setDurationMinutes(durationMinutes);
+        ride.setVehicleType("ECONOMY");
+        ride.setStatus(Ride.RideStatus.COMPLETED);
+        ride.setCompletedAt(COMPLETED_AT);
+        return ride;
+    }
+
+    /** The pre-SPI evaluation, kept verbatim as the benchmark's baseline */
+    static final class LegacyRules {
+
+        private static final double FARE_PER_KM_THRESHOLD = 150.0;
+        private static final double GHOST_RIDE_DISTANCE   = 1.0;
+        private static final double GHOST_RIDE_FARE       = 500.0;
+        private static final double MIN_SPEED_KMH         = 5.0;
+        private static final double MAX_SPEED_KMH         = 200.0;
+
+        static Optional<AnomalyFlag> evaluate(Ride ride) {
+            List<RuleResult> firedRules = new ArrayList<>();
+
+            firedRules.addAll(checkFareSpike(ride));
+            firedRules.addAll(checkGhostRide(ride));
+            firedRules.addAll(checkDurationMismatch(ride));
+
+            if (firedRules.isEmpty()) {
+                return Optional.empty();
+            }
+
+            RuleResult primary = firedRules.stream()
+                    .max((a, b) -> Double.compare(a.score, b.score))
+                    .get();
+            double compositeScore = Math.min(1.0,
+                    firedRules.stream().mapToDouble(r -> r.score).average().orElse(0.0));
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < firedRules.size(); i++) {
+                if (i > 0) sb.append("; ");
+                sb.append(firedRules.get(i).reason);
+            }
+
+            return Optional.of(AnomalyFlag.builder()
+                    .ride(ride)
+                    .reason(sb.toString())
+                    .anomalyScore(compositeScore)
+                    .type(primary.type)
+                    .build());
+        }
+
+        private static List<RuleResult> checkFareSpike(Ride ride) {
+            List<RuleResult> results = new ArrayList<>();
+            double farePerKm = ride.getFareAmount() / ride.getDistanceKm();
+            if (farePerKm > FARE_PER_KM_THRESHOLD) {
+                double score = Math.min(1.0, (farePerKm - FARE_PER_KM_THRESHOLD) / FARE_PER_KM_THRESHOLD);
+                results.add(new RuleResult(AnomalyFlag.AnomalyType.FARE_SPIKE, score,
+                        String.format("Fare/km ratio %.1f PKR/km exceeds threshold of %.1f PKR/km",
+                                farePerKm, FARE_PER_KM_THRESHOLD)));
+            }
+            return results;
+        }
+
+        private static List<RuleResult> checkGhostRide(Ride ride) {
+            List<RuleResult> results = new ArrayList<>();
+            if (ride.getDistanceKm() < GHOST_RIDE_DISTANCE && ride.getFareAmount() > GHOST_RIDE_FARE) {
+                double score = Math.min(1.0, ride.getFareAmount() / (GHOST_RIDE_FARE * 2));
+                results.add(new RuleResult(AnomalyFlag.AnomalyType.GHOST_RIDE, score,
+                        String.format("Ghost ride suspected: %.2f km traveled but fare charged %.1f PKR",
+                                ride.getDistanceKm(), ride.getFareAmount())));
+            }
+            return results;
+        }
+
+        private static List<RuleResult> checkDurationMismatch(Ride ride) {
+            List<RuleResult> results = new ArrayList<>();
+            double impliedSpeedKmh = ride.getDistanceKm() / (ride.getDurationMinutes() / 60.0);
+            if (impliedSpeedKmh < MIN_SPEED_KMH) {
+                double score = Math.min(1.0, (MIN_SPEED_KMH - impliedSpeedKmh) / MIN_SPEED_KMH);
+                results.add(new RuleResult(AnomalyFlag.AnomalyType.DURATION_MISMATCH, score,
+                        String.format("Implied speed %.1f km/h is suspiciously low (min: %.1f km/h)",
+                                impliedSpeedKmh, MIN_SPEED_KMH)));
+            } else if (impliedSpeedKmh > MAX_SPEED_KMH) {
+                double score = Math.min(1.0, (impliedSpeedKmh - MAX_SPEED_KMH) / MAX_SPEED_KMH);
+                results.add(new RuleResult(AnomalyFlag.AnomalyType.DURATION_MISMATCH, score,
+                        String.format("Implied speed %.1f km/h is impossibly high (max: %.1f km/h)",
+                                impliedSpeedKmh, MAX_SPEED_KMH)));
+            }
+            return results;
+        }
+
+        private static final class RuleResult {
+            final AnomalyFlag.AnomalyType type;
+            final double score;
+            final String reason;
+
+            RuleResult(AnomalyFlag.AnomalyType type, double score, String reason) {
+                this.type   = type;
+                this.score  = score;
+                this.reason = reason;
+            }
+        }
+    }
+}
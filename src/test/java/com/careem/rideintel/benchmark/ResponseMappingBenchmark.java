@@ -0,0 +1,95 @@
+package com.careem.rideintel.benchmark;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.RideRepository;
+import com.careem.rideintel.service.CityRollupService;
+import com.careem.rideintel.service.RideService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the response-side hot paths: entity → {@link RideDTOs.RideResponse} mapping,
+ * Jackson serialization of a response list (configured like the application's ObjectMapper),
+ * and the row mapping behind {@link RideService#getCityAnalytics} fed from a stub repository.
+ *
+ * {@code size} is the number of rides per list and of city rows per analytics call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private Ride[] rides;
+    private List<RideDTOs.RideResponse> responses;
+    private ObjectMapper objectMapper;
+    private RideService rideService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 1, 18, 0);
+        rides     = new Ride[size];
+        responses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rides[i] = Ride.builder()
+                    .id((long) i)
+                    .captainId("CAP-" + (i % 100))
+                    .customerId("CUST-" + i)
+                    .pickupCity("Karachi")
+                    .dropoffCity("Lahore")
+                    .distanceKm(12.5)
+                    .fareAmount(375.0)
+                    .durationMinutes(25)
+                    .vehicleType("ECONOMY")
+                    .status(Ride.RideStatus.COMPLETED)
+                    .detectionState(Ride.DetectionState.DONE)
+                    .createdAt(createdAt)
+                    .completedAt(createdAt.plusMinutes(25))
+                    .build();
+            responses.add(RideDTOs.RideResponse.from(rides[i]));
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Object[]> cityRows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cityRows.add(new Object[]{"City-" + i, 1000L + i, 412.5, 11.2, 23.4, 17L});
+        }
+        RideRepository rideRepository = Stubs.of(RideRepository.class,
+                Collections.singletonMap("getCityAnalytics", args -> cityRows));
+        CityRollupService aggregate = new CityRollupService(null, null, null, null, null, CityRollupService.Source.AGGREGATE);
+        rideService = new RideService(rideRepository, null, null, null, aggregate, null, null, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<RideDTOs.RideResponse> rideResponseFrom() {
+        List<RideDTOs.RideResponse> mapped = new ArrayList<>(rides.length);
+        for (Ride ride : rides) {
+            mapped.add(RideDTOs.RideResponse.from(ride));
+        }
+        return mapped;
+    }
+
+    @Benchmark
+    public byte[] serializeResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public List<RideDTOs.AnalyticsResponse> cityAnalyticsMapping() {
+        return rideService.getCityAnalytics();
+    }
+}
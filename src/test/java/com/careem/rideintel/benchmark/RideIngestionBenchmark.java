@@ -0,0 +1,79 @@
+package com.careem.rideintel.benchmark;
+
+import com.careem.rideintel.RideIntelligenceApplication;
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.RideService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one-at-a-time ride creation (one transaction and one INSERT round trip per ride)
+ * against the batched ingestion path (one transaction, JDBC batches of 50).
+ *
+ * Scores are rides/second — each invocation pushes {@link #ROWS} rides through the service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RideIngestionBenchmark {
+
+    static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private RideService rideService;
+    private List<RideDTOs.CreateRideRequest> requests;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(RideIntelligenceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=WARN")
+                .run();
+        rideService = context.getBean(RideService.class);
+
+        requests = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            requests.add(RideDTOs.CreateRideRequest.builder()
+                    .captainId("CAP-BENCH-" + (i % 200))
+                    .customerId("CUST-BENCH-" + i)
+                    .pickupCity(i % 2 == 0 ? "Karachi" : "Lahore")
+                    .dropoffCity(i % 2 == 0 ? "Karachi" : "Lahore")
+                    .distanceKm(2.0 + (i % 25))
+                    .fareAmount(120.0 + (i % 25) * 30.0)
+                    .durationMinutes(8 + (i % 40))
+                    .vehicleType("ECONOMY")
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int oneAtATime() {
+        int created = 0;
+        for (RideDTOs.CreateRideRequest request : requests) {
+            rideService.createRide(request);
+            created++;
+        }
+        return created;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public RideDTOs.BatchCreateResponse batched() {
+        return rideService.createRides(requests.iterator());
+    }
+}
@@ -0,0 +1,116 @@
+package com.careem.rideintel.benchmark;
+
+import com.careem.rideintel.RideIntelligenceApplication;
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.repository.RideRepository;
+import com.careem.rideintel.service.RideService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Latency of listing a heavy captain account: the old unbounded list versus keyset pages
+ * and the NDJSON cursor stream. Run with {@code -prof gc} to compare allocation as well —
+ * the unbounded list has to hold every RideResponse at once, the stream holds one.
+ *
+ * Seeding {@code rides} rows takes a while; pass {@code -p rides=100000} for a quick run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RideListingBenchmark {
+
+    private static final String CAPTAIN = "CAP-HEAVY";
+
+    @Param({"1000000"})
+    public int rides;
+
+    private ConfigurableApplicationContext context;
+    private RideService rideService;
+    private RideRepository rideRepository;
+    private String middleCursor;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        context = new SpringApplicationBuilder(RideIntelligenceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=WARN")
+                .run();
+        rideService    = context.getBean(RideService.class);
+        rideRepository = context.getBean(RideRepository.class);
+
+        rideService.createRides(syntheticRides(rides));
+
+        // Cursor half-way down the account, to show deep pages cost the same as the first one
+        RideDTOs.RidePage page = rideService.getRidesByCaptain(CAPTAIN, null, 500);
+        for (int i = 0; i < rides / 1000 && page.getNextCursor() != null; i++) {
+            page = rideService.getRidesByCaptain(CAPTAIN, page.getNextCursor(), 500);
+        }
+        middleCursor = page.getNextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<RideDTOs.RideResponse> unboundedList() {
+        return rideRepository.findByCaptainId(CAPTAIN).stream()
+                .map(RideDTOs.RideResponse::from)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public RideDTOs.RidePage firstPage() {
+        return rideService.getRidesByCaptain(CAPTAIN, null, 50);
+    }
+
+    @Benchmark
+    public RideDTOs.RidePage deepPage() {
+        return rideService.getRidesByCaptain(CAPTAIN, middleCursor, 50);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        rideService.streamRidesByCaptain(CAPTAIN, blackhole::consume);
+    }
+
+    private static Iterator<RideDTOs.CreateRideRequest> syntheticRides(int count) {
+        return new Iterator<RideDTOs.CreateRideRequest>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public RideDTOs.CreateRideRequest next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int i = next++;
+                return RideDTOs.CreateRideRequest.builder()
+                        .captainId(CAPTAIN)
+                        .customerId("CUST-" + (i % 5000))
+                        .pickupCity("Karachi")
+                        .dropoffCity("Karachi")
+                        .distanceKm(2.0 + (i % 25))
+                        .fareAmount(120.0 + (i % 25) * 30.0)
+                        .durationMinutes(8 + (i % 40))
+                        .vehicleType("ECONOMY")
+                        .build();
+            }
+        };
+    }
+}
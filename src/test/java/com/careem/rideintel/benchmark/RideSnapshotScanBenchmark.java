@@ -0,0 +1,82 @@
+package com.careem.rideintel.benchmark;
+
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.service.RideColumnSnapshot;
+import com.careem.rideintel.service.RideScanFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan cost over a {@link RideColumnSnapshot} built in memory (no database): the fare/km outlier
+ * hunt, a city + date-range slice, one captain, and an aggregate over every row. Divide
+ * {@code rides} by the score for rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class RideSnapshotScanBenchmark {
+
+    private static final String[] CITIES   = {"Karachi", "Lahore", "Islamabad", "Rawalpindi", "Faisalabad",
+            "Multan", "Peshawar", "Quetta", "Hyderabad", "Sialkot"};
+    private static final String[] VEHICLES = {"ECONOMY", "BUSINESS", "CARPOOL"};
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Param({"10000000"})
+    public int rides;
+
+    private RideColumnSnapshot snapshot;
+    private RideScanFilter fareOutliers;
+    private RideScanFilter cityWeek;
+    private RideScanFilter captain;
+    private RideScanFilter everything;
+
+    @Setup(Level.Trial)
+    public void build() {
+        Random random = new Random(42);
+        RideColumnSnapshot.Builder builder = RideColumnSnapshot.builder(65536);
+        for (int i = 0; i < rides; i++) {
+            int roll = random.nextInt(100);
+            Ride.RideStatus status = roll < 85 ? Ride.RideStatus.COMPLETED
+                    : roll < 93 ? Ride.RideStatus.CANCELLED : Ride.RideStatus.REQUESTED;
+            String city = CITIES[Math.min(CITIES.length - 1, (int) Math.abs(random.nextGaussian() * 3))];
+            double distance = 1 + random.nextDouble() * 25;
+            double farePerKm = random.nextInt(100) < 2 ? 150 + random.nextDouble() * 150 : 20 + random.nextDouble() * 60;
+            builder.add(i + 1L, city, city, VEHICLES[random.nextInt(VEHICLES.length)], "CAP-" + random.nextInt(200_000),
+                    status, status == Ride.RideStatus.COMPLETED && random.nextInt(100) < 2,
+                    distance * farePerKm, distance, 5 + random.nextInt(60), EPOCH.plusSeconds(i * 3L));
+        }
+        snapshot = builder.build(LocalDateTime.now());
+
+        LocalDateTime middle = EPOCH.plusSeconds(rides * 3L / 2);
+        fareOutliers = RideScanFilter.builder().minFarePerKm(150.0).build();
+        cityWeek     = RideScanFilter.builder().pickupCity("Lahore").createdFrom(middle).createdTo(middle.plusDays(7)).build();
+        captain      = RideScanFilter.builder().captainId("CAP-4242").status(null).build();
+        everything   = RideScanFilter.builder().status(null).build();
+    }
+
+    @Benchmark
+    public RideColumnSnapshot.Result fareOutliers() {
+        return snapshot.scan(fareOutliers);
+    }
+
+    @Benchmark
+    public RideColumnSnapshot.Result cityWeek() {
+        return snapshot.scan(cityWeek);
+    }
+
+    @Benchmark
+    public RideColumnSnapshot.Result captain() {
+        return snapshot.scan(captain);
+    }
+
+    @Benchmark
+    public RideColumnSnapshot.Result everything() {
+        return snapshot.scan(everything);
+    }
+}
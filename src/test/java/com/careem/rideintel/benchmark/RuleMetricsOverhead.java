@@ -0,0 +1,77 @@
+package com.careem.rideintel.benchmark;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+
+/**
+ * The cost of the rule metrics as a paired ratio: {@link AnomalyDetectionBenchmark} with
+ * {@code registry=PROMETHEUS} over the same benchmark with {@code registry=NONE}, timed round by round in one JVM.
+ *
+ * JMH runs the two configurations in separate forks, and on a shared host forks of one configuration
+ * drift further apart than the few percent being measured. Here both engines share the JIT, the heap and
+ * the host's noise; each round times one pass of each, alternating which goes first, and the median of
+ * the per-round ratios is the overhead. p25/p75 show how far a single round can be trusted.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec@metrics-overhead [-Dbenchmark.rounds=20000]
+ * </pre>
+ */
+public final class RuleMetricsOverhead {
+
+    private static final int WARMUP_PASSES = 3000;
+    private static final int DEFAULT_ROUNDS = 20_000;
+
+    private RuleMetricsOverhead() {}
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        Blackhole blackhole = new Blackhole(
+                "Today's password is swordfish. I understand instantiating Blackholes directly is dangerous.");
+
+        for (String mix : Arrays.asList("CLEAN", "SINGLE_RULE", "MULTI_RULE")) {
+            AnomalyDetectionBenchmark none = benchmark(mix, "NONE");
+            AnomalyDetectionBenchmark prometheus = benchmark(mix, "PROMETHEUS");
+            for (int i = 0; i < WARMUP_PASSES; i++) {
+                none.analyzeRide(blackhole);
+                prometheus.analyzeRide(blackhole);
+            }
+
+            double[] ratios = new double[rounds];
+            long noneNanos = 0;
+            long prometheusNanos = 0;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                (round % 2 == 0 ? none : prometheus).analyzeRide(blackhole);
+                long middle = System.nanoTime();
+                (round % 2 == 0 ? prometheus : none).analyzeRide(blackhole);
+                long end = System.nanoTime();
+                long first  = middle - start;
+                long second = end - middle;
+
+                long noneRound       = round % 2 == 0 ? first : second;
+                long prometheusRound = round % 2 == 0 ? second : first;
+                ratios[round]    = (double) prometheusRound / noneRound;
+                noneNanos       += noneRound;
+                prometheusNanos += prometheusRound;
+            }
+            Arrays.sort(ratios);
+
+            double rides = (double) rounds * AnomalyDetectionBenchmark.RIDES;
+            System.out.printf("%-11s PROMETHEUS/NONE median %.4f (p25 %.4f, p75 %.4f), total %.4f; "
+                            + "ns/ride NONE %.1f, PROMETHEUS %.1f%n",
+                    mix, ratios[rounds / 2], ratios[rounds / 4], ratios[3 * rounds / 4],
+                    (double) prometheusNanos / noneNanos, noneNanos / rides, prometheusNanos / rides);
+        }
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    private static AnomalyDetectionBenchmark benchmark(String mix, String registry) {
+        AnomalyDetectionBenchmark benchmark = new AnomalyDetectionBenchmark();
+        benchmark.mix      = mix;
+        benchmark.registry = registry;
+        benchmark.setUp();
+        return benchmark;
+    }
+}
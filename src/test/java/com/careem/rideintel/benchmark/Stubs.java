@@ -0,0 +1,28 @@
+package com.careem.rideintel.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Stand-ins for Spring Data repositories, so a benchmark can drive service code without a
+ * database or an application context. Only the named methods answer; anything else throws,
+ * which keeps a benchmark honest about what it actually touches.
+ *
+ * A proxy call boxes its arguments — a few dozen bytes per call show up in gc.alloc.rate.norm.
+ */
+final class Stubs {
+
+    private Stubs() {}
+
+    static <T> T of(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Function<Object[], Object> answer = answers.get(method.getName());
+                    if (answer == null) {
+                        throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+                    }
+                    return answer.apply(args);
+                }));
+    }
+}
@@ -0,0 +1,69 @@
+package com.careem.rideintel.config;
+
+import com.careem.rideintel.dto.RideDTOs;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticRideGeneratorTest {
+
+    private static final int RIDES = 50_000;
+
+    @Test
+    @DisplayName("Same seed, same stream — and exactly the requested number of rides")
+    void stream_shouldBeDeterministic() {
+        SyntheticRideGenerator first  = new SyntheticRideGenerator(1_000, 7, 0.05);
+        SyntheticRideGenerator second = new SyntheticRideGenerator(1_000, 7, 0.05);
+
+        int count = 0;
+        while (first.hasNext()) {
+            assertEquals(first.next(), second.next());
+            assertEquals(first.lastAnomaly(), second.lastAnomaly());
+            count++;
+        }
+        assertEquals(1_000, count);
+        assertFalse(second.hasNext());
+        assertNotEquals(new SyntheticRideGenerator(1, 7, 0.05).next(), new SyntheticRideGenerator(1, 8, 0.05).next());
+    }
+
+    @Test
+    @DisplayName("Anomalies appear at the requested rate and clean rides stay inside the static rule limits")
+    void anomalies_shouldMatchRateAndRules() {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        SyntheticRideGenerator generator = new SyntheticRideGenerator(RIDES, 42, 0.02);
+        Map<SyntheticRideGenerator.Anomaly, Integer> injected = new EnumMap<>(SyntheticRideGenerator.Anomaly.class);
+
+        while (generator.hasNext()) {
+            RideDTOs.CreateRideRequest ride = generator.next();
+            assertTrue(validator.validate(ride).isEmpty(), ride.toString());
+
+            double farePerKm = ride.getFareAmount() / ride.getDistanceKm();
+            double speedKmh  = ride.getDistanceKm() / (ride.getDurationMinutes() / 60.0);
+            boolean ghost    = ride.getDistanceKm() < 1.0 && ride.getFareAmount() > 500.0;
+
+            SyntheticRideGenerator.Anomaly anomaly = generator.lastAnomaly();
+            if (anomaly == null) {
+                assertFalse(ghost, ride.toString());
+                assertTrue(farePerKm < 150.0, ride.toString());                    // FareSpikeRule static limit
+                assertTrue(speedKmh >= 5.0 && speedKmh <= 200.0, ride.toString()); // DurationMismatchRule limits
+                continue;
+            }
+            injected.merge(anomaly, 1, Integer::sum);
+            switch (anomaly) {
+                case GHOST_RIDE:        assertTrue(ghost, ride.toString()); break;
+                case FARE_SPIKE:        assertTrue(farePerKm > 150.0, ride.toString()); break;
+                case DURATION_MISMATCH: assertTrue(speedKmh > 200.0, ride.toString()); break;
+            }
+        }
+
+        int total = injected.values().stream().mapToInt(Integer::intValue).sum();
+        assertEquals(0.02, (double) total / RIDES, 0.003);
+        assertEquals(SyntheticRideGenerator.Anomaly.values().length, injected.size(), "every kind is injected");
+    }
+}
@@ -0,0 +1,171 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.service.RideService;
+import com.careem.rideintel.service.TestRides;
+import com.careem.rideintel.service.TopAnomalyBoard;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:anomalyapidb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.anomaly.top.capacity=20",  // the 1000 seeded rides carry ~15 flags — the tests push it past capacity
+        "rideintel.anomaly.top.max-k=10"
+})
+@AutoConfigureMockMvc
+class AnomalyApiIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TopAnomalyBoard topAnomalyBoard;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "ANOMALY-API").captain("CAP-ANOMALY-API")
+                .customer("CUST-ANOMALY-API");
+    }
+
+    @Test
+    @DisplayName("GET /anomalies — filtered keyset pages walk every match once, newest first")
+    void search_shouldPageThroughFilteredFlags() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            rideService.completeRide(testRides.in("Turbat").create(10.0, 2000.0 + i * 100, 20));
+        }
+        rideService.completeRide(testRides.in("Turbat").create(10.0, 300.0, 20));  // clean
+
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/v1/anomalies")
+                    .param("city", "Turbat").param("type", "fare_spike").param("limit", "2");
+            if (cursor != null) request.param("cursor", cursor);
+            JsonNode page = read(request);
+            page.get("anomalies").forEach(flag -> {
+                assertEquals("Turbat", flag.get("city").asText());
+                paged.add(flag.get("flagId").asLong());
+            });
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(jdbcTemplate.queryForList("SELECT a.id FROM anomaly_flags a JOIN rides r ON r.id = a.ride_id " +
+                "WHERE r.pickup_city = 'Turbat' ORDER BY a.flagged_at DESC, a.id DESC", Long.class), paged);
+        assertEquals(3, pages);
+
+        JsonNode highScores = read(get("/api/v1/anomalies").param("captainId", "CAP-ANOMALY-API")
+                .param("minScore", "0.9").param("maxScore", "1.0"));
+        highScores.get("anomalies").forEach(flag -> assertTrue(flag.get("anomalyScore").asDouble() >= 0.9));
+
+        mockMvc.perform(get("/api/v1/anomalies").param("type", "BOGUS")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/anomalies").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/anomalies").param("minScore", "0.8").param("maxScore", "0.2"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /anomalies/top — the in-memory board matches the table as flags are added and cleared")
+    void top_shouldTrackHighestScores() throws Exception {
+        List<Long> rides = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Long ride = testRides.in("Gilgit").create(10.0, 2000.0 + i * 250, 20);
+            rideService.completeRide(ride);
+            rides.add(ride);
+        }
+        assertEquals(topFromTable(10), topFromBoard(10));
+
+        // Corrected fares: re-scoring clears the flags, shrinking the board below K and forcing a reload
+        for (Long ride : rides) {
+            jdbcTemplate.update("UPDATE rides SET fare_amount = 300.0 WHERE id = ?", ride);
+        }
+        rescore();
+        assertEquals(topFromTable(10), topFromBoard(10));
+
+        mockMvc.perform(get("/api/v1/anomalies/top").param("k", "11")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /anomalies/top — a flag written by another node shows up at the next reload, and Age says when that was")
+    void top_shouldPickUpOtherNodesFlagsOnReload() throws Exception {
+        Long ride = testRides.in("Gwadar").create(10.0, 300.0, 20);
+        long flagId = 9_000_000_000L;
+        jdbcTemplate.update("INSERT INTO anomaly_flags (id, ride_id, reason, anomaly_score, type, flagged_at) "
+                + "VALUES (?, ?, 'Flagged on another node', 1.0, 'FARE_SPIKE', CURRENT_TIMESTAMP)", flagId, ride);
+        try {
+            assertFalse(topFromBoard(10).contains(flagId));
+
+            topAnomalyBoard.reload();   // as the refresh-interval schedule does
+            assertEquals(flagId, topFromBoard(1).get(0));
+            String age = mockMvc.perform(get("/api/v1/anomalies/top").param("k", "1"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.AGE);
+            assertNotNull(age);
+            assertTrue(Long.parseLong(age) < 5, age);
+        } finally {
+            jdbcTemplate.update("DELETE FROM anomaly_flags WHERE id = ?", flagId);
+            topAnomalyBoard.reload();
+        }
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private void rescore() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/anomaly-rescore").param("maxRidesPerSecond", "0"))
+                .andExpect(status().isAccepted());
+        long deadline = System.currentTimeMillis() + 30_000;
+        String state = read(get("/api/v1/admin/anomaly-rescore")).get("status").asText();
+        while (!"COMPLETED".equals(state) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            state = read(get("/api/v1/admin/anomaly-rescore")).get("status").asText();
+        }
+        assertEquals("COMPLETED", state);
+    }
+
+    private List<Long> topFromBoard(int k) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        read(get("/api/v1/anomalies/top").param("k", String.valueOf(k)))
+                .forEach(flag -> ids.add(flag.get("flagId").asLong()));
+        return ids;
+    }
+
+    private List<Long> topFromTable(int k) {
+        return jdbcTemplate.queryForList("SELECT id FROM anomaly_flags ORDER BY anomaly_score DESC, id DESC LIMIT ?",
+                Long.class, k);
+    }
+
+    private JsonNode read(MockHttpServletRequestBuilder request) throws Exception {
+        return objectMapper.readTree(mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+    }
+}
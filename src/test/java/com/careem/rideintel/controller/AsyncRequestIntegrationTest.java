@@ -0,0 +1,172 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.config.RequestExecutor;
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.AnomalyDetectionQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:asyncrequestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.web.execution-mode=ASYNC",
+        "rideintel.web.async.workers=2",
+        "rideintel.web.async.queue-capacity=1"
+})
+@AutoConfigureMockMvc
+class AsyncRequestIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("ASYNC mode — create, complete and read a ride through the worker pool; errors keep their status")
+    void rideLifecycle_shouldRunOnWorkers() throws Exception {
+        RideDTOs.CreateRideRequest request = RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-ASYNCREQ-1")
+                .customerId("CUST-ASYNCREQ-1")
+                .pickupCity("Sukkur")
+                .dropoffCity("Sukkur")
+                .distanceKm(10.0)
+                .fareAmount(2500.0)
+                .durationMinutes(20)
+                .vehicleType("ECONOMY")
+                .build();
+
+        MvcResult created = perform(post("/api/v1/rides")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long rideId = objectMapper.readValue(created.getResponse().getContentAsString(),
+                RideDTOs.RideResponse.class).getId();
+
+        perform(patch("/api/v1/rides/" + rideId + "/complete"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.anomalyDetected").value(true));
+        perform(get("/api/v1/rides/" + rideId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+        perform(get("/api/v1/analytics/captains/CAP-ASYNCREQ-1"))
+                .andExpect(status().isOk());
+
+        perform(get("/api/v1/rides/999999999"))
+                .andExpect(status().isNotFound());
+        perform(get("/api/v1/rides/captain/CAP-ASYNCREQ-1").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("ASYNC mode — NDJSON uploads commit on a worker and report each row; a bad line loses nothing else")
+    void ndjsonUpload_shouldCommitPerChunk() throws Exception {
+        String row = objectMapper.writeValueAsString(RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-ASYNCREQ-2")
+                .customerId("CUST-ASYNCREQ-2")
+                .pickupCity("Larkana")
+                .dropoffCity("Larkana")
+                .distanceKm(8.0)
+                .fareAmount(250.0)
+                .durationMinutes(18)
+                .vehicleType("ECONOMY")
+                .build());
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            body.append(i == 3 ? "{}" : row).append('\n');
+        }
+
+        String[] results = perform(post("/api/v1/rides/batch").contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().trim().split("\n");
+        assertEquals(60, results.length);
+        assertTrue(objectMapper.readValue(results[3], RideDTOs.RowResult.class).getErrors().containsKey("captainId"));
+
+        // A malformed line in the middle of a chunk is rejected on its own
+        body.setLength(0);
+        for (int i = 0; i < 60; i++) {
+            body.append(i == 55 ? "{not json" : row.replace("CAP-ASYNCREQ-2", "CAP-ASYNCREQ-3")).append('\n');
+        }
+        perform(post("/api/v1/rides/batch").contentType(MediaType.APPLICATION_NDJSON).content(body.toString()))
+                .andExpect(status().isOk());
+        assertEquals(59, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM rides WHERE captain_id = 'CAP-ASYNCREQ-3'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("ASYNC mode — a full request queue is rejected with 503 and Retry-After")
+    void fullQueue_shouldReturn503() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 3; i++) {   // two workers busy, one request queued
+                requestExecutor.submit(() -> {
+                    try {
+                        return release.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+
+            mockMvc.perform(get("/api/v1/analytics/cities"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("ASYNC mode refuses more workers than the connections left by the other pool users")
+    void workersBeyondConnectionPool_shouldFailStartup() {
+        // 2 workers + 4 re-scoring partitions + 4 scheduler threads fit in 10 connections...
+        assertTrue(new RequestExecutor(RequestExecutor.Mode.ASYNC, 2, 100, Duration.ofSeconds(1), 10,
+                AnomalyDetectionQueue.Mode.SYNC, 2, 4, 4).isEnabled());
+        // ...but not with 2 detection workers and each request worker counted twice for caller-runs scoring
+        assertThrows(IllegalStateException.class, () -> new RequestExecutor(RequestExecutor.Mode.ASYNC, 2, 100,
+                Duration.ofSeconds(1), 10, AnomalyDetectionQueue.Mode.ASYNC, 2, 4, 4));
+        assertThrows(IllegalStateException.class, () -> new RequestExecutor(RequestExecutor.Mode.ASYNC, 11, 100,
+                Duration.ofSeconds(1), 10, AnomalyDetectionQueue.Mode.SYNC, 2, 0, 1));
+        assertFalse(new RequestExecutor(RequestExecutor.Mode.BLOCKING, 11, 100, Duration.ofSeconds(1), 10,
+                AnomalyDetectionQueue.Mode.ASYNC, 2, 4, 4).isEnabled());
+    }
+
+    // ─── Helper ──────────────────────────────────────────────────────────────
+
+    /** Dispatches the result of a request that went async; fast calls may already have finished inline */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+        result.getAsyncResult(Duration.ofSeconds(10).toMillis());
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
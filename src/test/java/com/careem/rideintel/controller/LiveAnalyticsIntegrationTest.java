@@ -0,0 +1,90 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.service.LiveCityAnalyticsService;
+import com.careem.rideintel.service.RideService;
+import com.careem.rideintel.service.TestRides;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:liveanalyticsdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.analytics.live.push-interval=PT1H"  // pushes are driven by the test
+})
+@AutoConfigureMockMvc
+class LiveAnalyticsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private LiveCityAnalyticsService liveService;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "LIVE").in("Khuzdar");
+    }
+
+    @Test
+    @DisplayName("GET /analytics/cities/live — snapshot on connect, then a delta with only the changed city")
+    void liveStream_shouldPushSnapshotThenDeltas() throws Exception {
+        liveService.push();  // settle the changes made by the startup seeding
+
+        MvcResult result = mockMvc.perform(get("/api/v1/analytics/cities/live").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String snapshot = result.getResponse().getContentAsString();
+        assertTrue(snapshot.startsWith("event:snapshot"), snapshot);
+        assertTrue(snapshot.contains("\"city\":\"Karachi\""), "seeded cities are in the snapshot");
+        assertEquals(1, liveService.subscriberCount());
+
+        Long clean = testRides.create(10.0, 300.0, 20);
+        Long spike = testRides.create(5.0, 2000.0, 20);
+        rideService.completeRides(Arrays.asList(clean, spike));
+        liveService.push();
+
+        String delta = awaitContentBeyond(result, snapshot.length()).substring(snapshot.length());
+        assertTrue(delta.startsWith("event:delta"), delta);
+        assertTrue(delta.contains("\"city\":\"Khuzdar\",\"requestedRides\":2,\"completedRides\":2,"
+                + "\"averageFare\":1150.0,\"anomalyCount\":1,\"anomalyRate\":0.5"), delta);
+        assertFalse(delta.contains("Karachi"), "unchanged cities are not re-sent");
+
+        liveService.push();
+        Thread.sleep(100);
+        assertEquals(snapshot.length() + delta.length(), result.getResponse().getContentAsString().length(),
+                "nothing changed, nothing pushed");
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    /** Pushes are written by the fan-out pool after push() returns; waits for a whole event */
+    private static String awaitContentBeyond(MvcResult result, int length) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String content = result.getResponse().getContentAsString();
+        while ((content.length() <= length || !content.endsWith("\n\n")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+}
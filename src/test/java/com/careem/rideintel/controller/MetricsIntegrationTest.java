@@ -0,0 +1,66 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.service.RideService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metricsdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RideService rideService;
+
+    @Test
+    @DisplayName("GET /actuator/prometheus — endpoint, rule, repository, pool and cache metrics are scraped")
+    void prometheus_shouldExposeApplicationMetrics() throws Exception {
+        Long spike = rideService.createRide(RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-METRICS-1")
+                .customerId("CUST-METRICS-1")
+                .pickupCity("Gwadar")
+                .dropoffCity("Gwadar")
+                .distanceKm(10.0)
+                .fareAmount(2500.0)
+                .durationMinutes(20)
+                .vehicleType("ECONOMY")
+                .build()).getId();
+        rideService.completeRides(Arrays.asList(spike));
+        mockMvc.perform(get("/api/v1/rides/" + spike)).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertHasLine(scrape, "http_server_requests_seconds_bucket{", "uri=\"/api/v1/rides/{rideId}\"");
+        assertHasLine(scrape, "rideintel_anomaly_rule_fired_total{", "type=\"FARE_SPIKE\"");
+        assertHasLine(scrape, "rideintel_anomaly_rule_evaluation_seconds_count{", "type=\"GHOST_RIDE\"");
+        assertHasLine(scrape, "spring_data_repository_invocations_seconds_bucket{", "repository=\"RideRepository\"");
+        assertHasLine(scrape, "hikaricp_connections_active{");
+        assertHasLine(scrape, "cache_gets_total{", "cache=\"rides\"");
+    }
+
+    private static void assertHasLine(String scrape, String metric, String... labels) {
+        boolean found = Arrays.stream(scrape.split("\n"))
+                .filter(line -> line.startsWith(metric))
+                .anyMatch(line -> Arrays.stream(labels).allMatch(line::contains));
+        assertTrue(found, metric + " " + Arrays.toString(labels) + " missing from the scrape");
+    }
+}
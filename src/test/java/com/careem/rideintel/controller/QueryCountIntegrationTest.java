@@ -0,0 +1,119 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.service.RideService;
+import com.careem.rideintel.service.TestRides;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * N+1 regression test: counts the JDBC statements each read endpoint prepares (Hibernate statistics)
+ * and fails if a change makes the count depend on how many rows come back.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querycountdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class QueryCountIntegrationTest {
+
+    private static final String CAPTAIN = "CAP-QUERY-COUNT";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private AnomalyFlagRepository anomalyFlagRepository;
+
+    private Statistics statistics;
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        testRides = TestRides.of(rideService, "QUERY-COUNT").captain(CAPTAIN).customer("CUST-QUERY-COUNT")
+                .in("Hunza");
+    }
+
+    @Test
+    @DisplayName("Ride, anomaly and analytics reads prepare a fixed number of statements, whatever they return")
+    void readEndpoints_shouldNotIssuePerRowQueries() throws Exception {
+        List<Long> rides = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            rides.add(testRides.create(10.0, 2000.0 + i * 100, 20));
+        }
+        rideService.completeRides(rides);
+        Long flagged = rides.get(0);
+
+        assertStatements(1, get("/api/v1/anomalies").param("limit", "100"));
+        assertStatements(1, get("/api/v1/anomalies").param("captainId", CAPTAIN));
+        assertStatements(0, get("/api/v1/anomalies/top").param("k", "100"));
+        assertStatements(2, get("/api/v1/rides/" + flagged));                 // ride + flag on a cache miss
+        assertStatements(0, get("/api/v1/rides/" + flagged));                 // cached
+        assertStatements(2, get("/api/v1/rides/" + flagged + "/anomaly-check"));
+        assertStatements(1, get("/api/v1/rides/captain/" + CAPTAIN).param("limit", "50"));
+        assertStatements(1, get("/api/v1/analytics/captains/" + CAPTAIN));
+        assertStatements(1, get("/api/v1/analytics/cities"));
+    }
+
+    @Test
+    @DisplayName("Flag lists that go on to read the ride fetch it in the same statement")
+    void flagLists_shouldFetchRidesWithTheFlags() {
+        rideService.completeRides(Arrays.asList(testRides.create(10.0, 2500.0, 20),
+                testRides.create(10.0, 2600.0, 20), testRides.create(10.0, 2700.0, 20)));
+
+        List<AnomalyFlag> byType = assertStatements(1, () -> {
+            List<AnomalyFlag> flags = anomalyFlagRepository.findByType(AnomalyFlag.AnomalyType.FARE_SPIKE, PageRequest.of(0, 100));
+            flags.forEach(flag -> assertNotNull(flag.getRide().getPickupCity()));
+            return flags;
+        });
+        List<AnomalyFlag> highScores = assertStatements(1, () -> {
+            List<AnomalyFlag> flags = anomalyFlagRepository.findHighScoreAnomalies(0.0, PageRequest.of(0, 100));
+            flags.forEach(flag -> assertNotNull(flag.getRide().getCaptainId()));
+            return flags;
+        });
+        assertTrue(byType.size() >= 3 && highScores.size() >= 3);
+        assertStatements(1, () -> anomalyFlagRepository.countByCaptainId(CAPTAIN));
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private void assertStatements(long expected, MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        assertEquals(expected, statistics.getPrepareStatementCount(), request.buildRequest(null).getRequestURI());
+    }
+
+    private <T> T assertStatements(long expected, Supplier<T> call) {
+        statistics.clear();
+        T result = call.get();
+        assertEquals(expected, statistics.getPrepareStatementCount());
+        return result;
+    }
+}
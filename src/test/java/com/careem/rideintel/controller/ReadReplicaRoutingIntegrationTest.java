@@ -0,0 +1,190 @@
+package com.careem.rideintel.controller;
+
+import com.careem.rideintel.config.ReadYourWrites;
+import com.careem.rideintel.dto.RideDTOs;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Two H2 databases stand in for a primary and its replica. Nothing replicates on its own: the replica only
+ * catches up when a test calls {@link #replicate()}, so every replica read is visibly stale until then.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primarydb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.datasource.replica.jdbc-url=" + ReadReplicaRoutingIntegrationTest.REPLICA_URL,
+        "rideintel.datasource.replica.username=sa",
+        "rideintel.datasource.replica.maximum-pool-size=4",
+        "rideintel.web.execution-mode=ASYNC"
+})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingIntegrationTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    static {
+        // The replica has the schema before the application starts, but none of the data
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Test
+    @DisplayName("Analytics and listings read the replica; X-Read-Your-Writes reads the primary")
+    void readOnlyRequests_shouldReadReplicaUnlessReadYourWrites() throws Exception {
+        replicate();
+        Long rideId = createRide("CAP-REPLICA-1", "CUST-REPLICA-1");
+        perform(patch("/api/v1/rides/" + rideId + "/complete"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, countRides(primaryDataSource, "CAP-REPLICA-1"), "written to the primary");
+        assertEquals(0, countRides(replicaDataSource, "CAP-REPLICA-1"), "not replicated yet");
+
+        perform(get("/api/v1/analytics/captains/CAP-REPLICA-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRides").value(0));
+        perform(get("/api/v1/rides/captain/CAP-REPLICA-1"))
+                .andExpect(jsonPath("$.rides.length()").value(0));
+
+        perform(get("/api/v1/analytics/captains/CAP-REPLICA-1").header(ReadYourWrites.HEADER, "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalRides").value(1))
+                .andExpect(jsonPath("$.completedRides").value(1));
+        perform(get("/api/v1/rides/captain/CAP-REPLICA-1").header(ReadYourWrites.HEADER, "true"))
+                .andExpect(jsonPath("$.rides.length()").value(1))
+                .andExpect(jsonPath("$.rides[0].status").value("COMPLETED"));
+
+        replicate();
+        perform(get("/api/v1/analytics/captains/CAP-REPLICA-1"))
+                .andExpect(jsonPath("$.completedRides").value(1));
+    }
+
+    @Test
+    @DisplayName("NDJSON streams honour X-Read-Your-Writes on the thread that writes the body")
+    void stream_readYourWrites_shouldReadPrimary() throws Exception {
+        replicate();
+        createRide("CAP-REPLICA-2", "CUST-REPLICA-2");
+
+        assertEquals("", stream("/api/v1/rides/customer/CUST-REPLICA-2", false));
+        String line = stream("/api/v1/rides/customer/CUST-REPLICA-2", true).trim();
+        assertEquals("CAP-REPLICA-2", objectMapper.readValue(line, RideDTOs.RideResponse.class).getCaptainId());
+    }
+
+    @Test
+    @DisplayName("Idempotency keys are checked on the primary, so a retry before replication still replays")
+    void idempotentRetry_beforeReplication_shouldReplay() throws Exception {
+        replicate();
+        Long rideId = createRide("CAP-REPLICA-3", "CUST-REPLICA-3");
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            perform(patch("/api/v1/rides/" + rideId + "/cancel").header("Idempotency-Key", "replica-" + rideId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("CANCELLED"));
+        }
+    }
+
+    @Test
+    @DisplayName("Ride lookups cache what the primary holds, so a GET before replication never caches a stale ride")
+    void rideLookup_beforeReplication_shouldCachePrimaryRow() throws Exception {
+        Long rideId = createRide("CAP-REPLICA-4", "CUST-REPLICA-4");
+        replicate();
+        perform(get("/api/v1/rides/" + rideId))
+                .andExpect(jsonPath("$.status").value("REQUESTED"));
+
+        perform(patch("/api/v1/rides/" + rideId + "/complete"))
+                .andExpect(status().isOk());
+        for (int read = 0; read < 2; read++) {   // the miss, then the cached entry
+            perform(get("/api/v1/rides/" + rideId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("COMPLETED"));
+        }
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    /** Brings the replica level with the primary: a full copy, as a replica would eventually converge to */
+    private void replicate() {
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class);
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("DROP ALL OBJECTS");
+        script.forEach(replica::execute);
+    }
+
+    private static int countRides(DataSource dataSource, String captainId) {
+        return new JdbcTemplate(dataSource).queryForObject(
+                "SELECT COUNT(*) FROM rides WHERE captain_id = ?", Integer.class, captainId);
+    }
+
+    private Long createRide(String captainId, String customerId) throws Exception {
+        RideDTOs.CreateRideRequest request = RideDTOs.CreateRideRequest.builder()
+                .captainId(captainId)
+                .customerId(customerId)
+                .pickupCity("Gilgit")
+                .dropoffCity("Gilgit")
+                .distanceKm(10.0)
+                .fareAmount(300.0)
+                .durationMinutes(20)
+                .vehicleType("ECONOMY")
+                .build();
+        MvcResult created = perform(post("/api/v1/rides")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(created.getResponse().getContentAsString(), RideDTOs.RideResponse.class).getId();
+    }
+
+    private String stream(String path, boolean readYourWrites) throws Exception {
+        MvcResult started = mockMvc.perform(get(path)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(ReadYourWrites.HEADER, String.valueOf(readYourWrites)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /** Dispatches the result of a request that went async; fast calls may already have finished inline */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+        result.getAsyncResult(Duration.ofSeconds(10).toMillis());
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
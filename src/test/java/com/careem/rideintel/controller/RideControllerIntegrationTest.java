@@ -11,6 +11,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -90,10 +93,314 @@ class RideControllerIntegrationTest {
                 .andExpect(jsonPath("$.anomalyDetected").value(true));
     }
 
+    @Test
+    @DisplayName("POST /rides/batch — each row gets its ride ID, or its errors if invalid or of the wrong type")
+    void createRidesBatch_shouldReportEveryRow() throws Exception {
+        RideDTOs.CreateRideRequest valid = RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-INT-004")
+                .customerId("CUST-INT-004")
+                .pickupCity("Islamabad")
+                .dropoffCity("Islamabad")
+                .distanceKm(6.0)
+                .fareAmount(210.0)
+                .durationMinutes(14)
+                .vehicleType("ECONOMY")
+                .build();
+        RideDTOs.CreateRideRequest invalid = RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-INT-004")
+                .build();
+
+        String validRow = objectMapper.writeValueAsString(valid);
+        String wrongType = validRow.replace("\"fareAmount\":210.0", "\"fareAmount\":\"abc\"");
+
+        String body = mockMvc.perform(post("/api/v1/rides/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + validRow + "," + objectMapper.writeValueAsString(invalid) + ","
+                                + wrongType + "," + validRow + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.rows.length()").value(4))
+                .andExpect(jsonPath("$.rows[1].errors.customerId").exists())
+                .andExpect(jsonPath("$.rows[2].errors.fareAmount").exists())
+                .andExpect(jsonPath("$.rows[2].rideId").doesNotExist())
+                .andExpect(jsonPath("$.error").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+
+        RideDTOs.BatchCreateResponse response = objectMapper.readValue(body, RideDTOs.BatchCreateResponse.class);
+        for (int row : new int[] {0, 3}) {
+            mockMvc.perform(get("/api/v1/rides/" + response.getRows().get(row).getRideId()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.captainId").value("CAP-INT-004"));
+        }
+    }
+
+    @Test
+    @DisplayName("POST /rides/batch — a JSON array that breaks off returns 400 with the rows it did store")
+    void createRidesBatch_brokenArray_shouldReportStoredRows() throws Exception {
+        String row = objectMapper.writeValueAsString(RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-INT-008")
+                .customerId("CUST-INT-008")
+                .pickupCity("Multan")
+                .dropoffCity("Multan")
+                .distanceKm(7.0)
+                .fareAmount(230.0)
+                .durationMinutes(16)
+                .vehicleType("ECONOMY")
+                .build());
+
+        mockMvc.perform(post("/api/v1/rides/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + row + "," + row + ", {not json"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rows[0].rideId").exists())
+                .andExpect(jsonPath("$.rows[1].rideId").exists())
+                .andExpect(jsonPath("$.rows[2].index").value(2))
+                .andExpect(jsonPath("$.rows[2].errors.body").exists())
+                .andExpect(jsonPath("$.error").exists());
+
+        mockMvc.perform(post("/api/v1/rides/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(row))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /rides/batch — NDJSON is ingested line by line and answered with one result line per row")
+    void createRidesBatch_ndjson_shouldIngestEachLine() throws Exception {
+        RideDTOs.CreateRideRequest row = RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-INT-005")
+                .customerId("CUST-INT-005")
+                .pickupCity("Lahore")
+                .dropoffCity("Lahore")
+                .distanceKm(9.0)
+                .fareAmount(300.0)
+                .durationMinutes(20)
+                .vehicleType("BUSINESS")
+                .build();
+        String line = objectMapper.writeValueAsString(row);
+
+        MvcResult started = mockMvc.perform(post("/api/v1/rides/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(line + "\n{\"captainId\": oops}\n\n" + line + "\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.trim().split("\n");
+        assertEquals(3, lines.length);
+        RideDTOs.RowResult malformed = objectMapper.readValue(lines[1], RideDTOs.RowResult.class);
+        assertEquals(1, malformed.getIndex());
+        assertNull(malformed.getRideId());
+        assertTrue(malformed.getErrors().containsKey("row"));
+        for (int i : new int[] {0, 2}) {
+            RideDTOs.RowResult created = objectMapper.readValue(lines[i], RideDTOs.RowResult.class);
+            assertEquals(i, created.getIndex());
+            assertNotNull(created.getRideId());
+            assertNull(created.getErrors());
+        }
+    }
+
+    @Test
+    @DisplayName("PATCH /rides/complete — completes a batch and flags anomalies like the single-ride path")
+    void completeRidesBatch_shouldCompleteAndFlag() throws Exception {
+        Long clean = createRide(RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-INT-006")
+                .customerId("CUST-INT-006")
+                .pickupCity("Karachi")
+                .dropoffCity("Karachi")
+                .distanceKm(15.0)
+                .fareAmount(450.0)
+                .durationMinutes(30)
+                .vehicleType("ECONOMY")
+                .build());
+        Long ghost = createRide(RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-INT-006")
+                .customerId("CUST-INT-007")
+                .pickupCity("Karachi")
+                .dropoffCity("Karachi")
+                .distanceKm(0.4)
+                .fareAmount(900.0)
+                .durationMinutes(4)
+                .vehicleType("ECONOMY")
+                .build());
+
+        RideDTOs.CompleteRidesRequest request = RideDTOs.CompleteRidesRequest.builder()
+                .rideIds(Arrays.asList(clean, ghost))
+                .build();
+
+        mockMvc.perform(patch("/api/v1/rides/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(clean))
+                .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+                .andExpect(jsonPath("$[0].anomalyDetected").value(false))
+                .andExpect(jsonPath("$[1].id").value(ghost))
+                .andExpect(jsonPath("$[1].status").value("COMPLETED"))
+                .andExpect(jsonPath("$[1].anomalyDetected").value(true));
+
+        mockMvc.perform(get("/api/v1/rides/" + ghost))
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.anomalyDetected").value(true));
+    }
+
+    @Test
+    @DisplayName("PATCH /rides/complete — unknown ride IDs should return 404")
+    void completeRidesBatch_unknownId_shouldReturn404() throws Exception {
+        RideDTOs.CompleteRidesRequest request = RideDTOs.CompleteRidesRequest.builder()
+                .rideIds(Arrays.asList(99998L, 99999L))
+                .build();
+
+        mockMvc.perform(patch("/api/v1/rides/complete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("PATCH /rides/{id}/cancel — a retry with the same Idempotency-Key replays the first response")
+    void cancelRide_idempotencyKey_shouldReplay() throws Exception {
+        Long ride = createRide(listingRide("CAP-INT-IDEM", "CUST-INT-IDEM"));
+        Long other = createRide(listingRide("CAP-INT-IDEM", "CUST-INT-IDEM"));
+
+        mockMvc.perform(patch("/api/v1/rides/" + ride + "/cancel").header("Idempotency-Key", "cancel-" + ride))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+        mockMvc.perform(patch("/api/v1/rides/" + ride + "/cancel").header("Idempotency-Key", "cancel-" + ride))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(ride))
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+
+        // Same key, different ride
+        mockMvc.perform(patch("/api/v1/rides/" + other + "/cancel").header("Idempotency-Key", "cancel-" + ride))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/rides/" + other))
+                .andExpect(jsonPath("$.status").value("REQUESTED"));
+    }
+
+    @Test
+    @DisplayName("PATCH /rides/{id}/complete — completing a cancelled ride should return 409")
+    void completeRide_cancelled_shouldReturn409() throws Exception {
+        Long ride = createRide(listingRide("CAP-INT-CONFLICT", "CUST-INT-CONFLICT"));
+
+        mockMvc.perform(patch("/api/v1/rides/" + ride + "/cancel"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/api/v1/rides/" + ride + "/complete"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("PATCH /rides/{id}/cancel — cancelling a completed ride should return 409")
+    void cancelRide_completed_shouldReturn409() throws Exception {
+        Long ride = createRide(listingRide("CAP-INT-CONFLICT", "CUST-INT-CONFLICT"));
+
+        mockMvc.perform(patch("/api/v1/rides/" + ride + "/complete"))
+                .andExpect(status().isOk());
+        mockMvc.perform(patch("/api/v1/rides/" + ride + "/cancel"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(get("/api/v1/rides/" + ride))
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
+    @Test
+    @DisplayName("GET /rides/captain/{id} — keyset pages walk every ride exactly once")
+    void getRidesByCaptain_shouldPaginateWithCursor() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            createRide(listingRide("CAP-INT-PAGE", "CUST-INT-PAGE-" + i));
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/v1/rides/captain/CAP-INT-PAGE").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rides.length()").value(3))
+                .andExpect(jsonPath("$.nextCursor").isString())
+                .andReturn();
+        RideDTOs.RidePage page = objectMapper.readValue(
+                first.getResponse().getContentAsString(), RideDTOs.RidePage.class);
+
+        mockMvc.perform(get("/api/v1/rides/captain/CAP-INT-PAGE")
+                        .param("limit", "3")
+                        .param("cursor", page.getNextCursor()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rides.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /rides/customer/{id} — Accept: application/x-ndjson streams one ride per line")
+    void getRidesByCustomer_ndjson_shouldStreamLines() throws Exception {
+        createRide(listingRide("CAP-INT-STREAM", "CUST-INT-STREAM"));
+        createRide(listingRide("CAP-INT-STREAM", "CUST-INT-STREAM"));
+
+        MvcResult started = mockMvc.perform(get("/api/v1/rides/customer/CUST-INT-STREAM")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("CUST-INT-STREAM", objectMapper.readValue(lines[0], RideDTOs.RideResponse.class).getCustomerId());
+    }
+
+    @Test
+    @DisplayName("GET /rides/captain/{id} — garbage cursor should return 400")
+    void getRidesByCaptain_invalidCursor_shouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/v1/rides/captain/CAP-INT-PAGE").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("GET /rides/{id} — non-existent ride should return 404")
     void getRide_notFound_shouldReturn404() throws Exception {
         mockMvc.perform(get("/api/v1/rides/99999"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("GET /analytics/cities/timeseries — unknown granularity or missing range should return 400")
+    void cityTimeSeries_invalidParams_shouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/v1/analytics/cities/timeseries")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-01-02T00:00:00")
+                        .param("granularity", "fortnight"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/analytics/cities/timeseries").param("from", "2025-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/analytics/cities/timeseries")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "yesterday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private RideDTOs.CreateRideRequest listingRide(String captainId, String customerId) {
+        return RideDTOs.CreateRideRequest.builder()
+                .captainId(captainId)
+                .customerId(customerId)
+                .pickupCity("Karachi")
+                .dropoffCity("Karachi")
+                .distanceKm(7.0)
+                .fareAmount(210.0)
+                .durationMinutes(15)
+                .vehicleType("ECONOMY")
+                .build();
+    }
+
+    private Long createRide(RideDTOs.CreateRideRequest request) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/rides")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), RideDTOs.RideResponse.class).getId();
+    }
+}
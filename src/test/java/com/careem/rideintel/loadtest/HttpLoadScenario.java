@@ -0,0 +1,337 @@
+package com.careem.rideintel.loadtest;
+
+import com.careem.rideintel.config.SyntheticRideGenerator;
+import com.careem.rideintel.rule.LogHistogram;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Scripted HTTP load against a running instance: a weighted mix of create, complete, get and
+ * analytics calls from a fixed pool of closed-loop clients, reporting throughput and p50/p99
+ * latency per operation.
+ *
+ * Start the API first (with {@code rideintel.seed.rides} raised to the data volume under test),
+ * then {@code mvn -Ploadtest test-compile exec:exec [-Dloadtest.url=...] [-Dloadtest.duration=60]
+ * [-Dloadtest.threads=16] [-Dloadtest.warmup=10] [-Dloadtest.max-p99-ms=50]}.
+ * Calls made during the warm-up are not recorded. With a p99 budget set, the run exits non-zero
+ * when any operation misses it, so it can gate a pipeline.
+ */
+public class HttpLoadScenario {
+
+    enum Op {
+        // weight out of 100
+        CREATE(30), COMPLETE(20), GET(35), ANALYTICS(15);
+
+        final int weight;
+
+        Op(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final String[] CITIES = {"Karachi", "Lahore", "Islamabad", "Rawalpindi", "Faisalabad"};
+    private static final int KNOWN_IDS = 1 << 16;
+
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LogHistogram[] latencies = new LogHistogram[Op.values().length];
+    private final AtomicLongArray calls    = new AtomicLongArray(Op.values().length);
+    private final AtomicLongArray errors   = new AtomicLongArray(Op.values().length);
+
+    // Rides created by this run: those still to complete, and a ring of recent ids to read back
+    private final ConcurrentLinkedQueue<Long> requested = new ConcurrentLinkedQueue<>();
+    private final AtomicLongArray knownIds = new AtomicLongArray(KNOWN_IDS);
+    private final AtomicLong knownCount    = new AtomicLong();
+
+    private volatile boolean recording;
+
+    HttpLoadScenario(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LogHistogram();
+        }
+    }
+
+    /** Args: base URL, duration (s), threads, warm-up (s), p99 budget in ms (0 = none) */
+    public static void main(String[] args) throws Exception {
+        String baseUrl  = args.length > 0 ? args[0] : "http://localhost:8080";
+        int duration    = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int threads     = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int warmup      = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        double maxP99Ms = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        HttpLoadScenario scenario = new HttpLoadScenario(baseUrl);
+        System.out.printf("Load: %s, %d threads, %ds warm-up + %ds measured%n", baseUrl, threads, warmup, duration);
+        scenario.run(threads, warmup, duration);
+        boolean withinBudget = scenario.report(duration, maxP99Ms);
+        System.exit(withinBudget ? 0 : 1);
+    }
+
+    void run(int threads, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        long end = System.nanoTime() + (warmupSeconds + durationSeconds) * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            long seed = 1_000L + t;
+            Thread worker = new Thread(() -> {
+                try {
+                    drive(seed, end);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        recording = true;
+        done.await();
+    }
+
+    // ─── Scenario ─────────────────────────────────────────────────────────────
+
+    private void drive(long seed, long end) {
+        Random random = new Random(seed);
+        SyntheticRideGenerator rides = new SyntheticRideGenerator(Long.MAX_VALUE, seed, 0.02);
+
+        while (System.nanoTime() < end) {
+            Op op = pick(random.nextInt(100));
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = execute(op, random, rides);
+            } catch (IOException e) {
+                ok = false;
+            }
+            if (recording) {
+                latencies[op.ordinal()].add((System.nanoTime() - start) / 1_000_000.0);
+                calls.incrementAndGet(op.ordinal());
+                if (!ok) errors.incrementAndGet(op.ordinal());
+            }
+        }
+    }
+
+    private boolean execute(Op op, Random random, SyntheticRideGenerator rides) throws IOException {
+        switch (op) {
+            case COMPLETE: {
+                Long id = requested.poll();
+                if (id != null) {
+                    return call("PATCH", "/api/v1/rides/" + id + "/complete", null) != null;
+                }
+                // nothing left to complete yet — create one instead, timed as a completion
+                return create(rides);
+            }
+            case GET: {
+                long known = Math.min(knownCount.get(), KNOWN_IDS);
+                if (known == 0) return create(rides);
+                long id = knownIds.get(random.nextInt((int) known));
+                return call("GET", "/api/v1/rides/" + id, null) != null;
+            }
+            case ANALYTICS:
+                return analytics(random) != null;
+            default:
+                return create(rides);
+        }
+    }
+
+    private boolean create(SyntheticRideGenerator rides) throws IOException {
+        JsonNode ride = call("POST", "/api/v1/rides", objectMapper.writeValueAsBytes(rides.next()));
+        if (ride == null) return false;
+
+        long id = ride.get("id").asLong();
+        requested.add(id);
+        knownIds.set((int) (knownCount.getAndIncrement() % KNOWN_IDS), id);
+        return true;
+    }
+
+    private JsonNode analytics(Random random) throws IOException {
+        switch (random.nextInt(3)) {
+            case 0:
+                return call("GET", "/api/v1/analytics/cities", null);
+            case 1: {
+                LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                return call("GET", "/api/v1/analytics/cities/timeseries?granularity=hour&from=" + to.minusDays(1)
+                        + "&to=" + to + "&city=" + CITIES[random.nextInt(CITIES.length)], null);
+            }
+            default:
+                return call("GET", "/api/v1/analytics/captains/CAP-" + random.nextInt(500), null);
+        }
+    }
+
+    private static Op pick(int roll) {
+        for (Op op : Op.values()) {
+            roll -= op.weight;
+            if (roll < 0) return op;
+        }
+        return Op.ANALYTICS;
+    }
+
+    // ─── HTTP ─────────────────────────────────────────────────────────────────
+
+    /** @return the parsed body of a 2xx response, or null for any other status */
+    private JsonNode call(String method, String path, byte[] body) throws IOException {
+        Connection connection = CONNECTION.get();
+        if (connection == null || connection.closed) {
+            connection = new Connection(new URL(baseUrl));
+            CONNECTION.set(connection);
+        }
+        try {
+            Connection.Response response = connection.exchange(method, path, body);
+            if (response.status < 200 || response.status >= 300) return null;
+            return response.body.length > 0 ? objectMapper.readTree(response.body) : objectMapper.nullNode();
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    // One keep-alive connection per client thread, like a pooled client under steady load
+    private static final ThreadLocal<Connection> CONNECTION = new ThreadLocal<>();
+
+    /**
+     * Minimal HTTP/1.1 over a persistent socket. {@code HttpURLConnection} cannot send PATCH,
+     * which the completion endpoint needs, and this keeps the client out of the measurement.
+     */
+    private static final class Connection {
+        private final String host;
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private boolean closed;
+
+        Connection(URL url) throws IOException {
+            int port = url.getPort() == -1 ? 80 : url.getPort();
+            this.host   = url.getHost() + ":" + port;
+            this.socket = new Socket(url.getHost(), port);
+            this.socket.setTcpNoDelay(true);
+            this.socket.setSoTimeout(30_000);
+            this.in  = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        Response exchange(String method, String path, byte[] body) throws IOException {
+            StringBuilder head = new StringBuilder()
+                    .append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(host).append("\r\n")
+                    .append("Accept: application/json\r\n");
+            if (body != null) {
+                head.append("Content-Type: application/json\r\n");
+            }
+            head.append("Content-Length: ").append(body == null ? 0 : body.length).append("\r\n\r\n");
+            out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+            if (body != null) out.write(body);
+            out.flush();
+
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.split(" ")[1]);
+
+            long contentLength = -1;
+            boolean chunked = false;
+            for (String line; !(line = readLine()).isEmpty(); ) {
+                int colon = line.indexOf(':');
+                String name  = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = line.substring(colon + 1).trim();
+                if (name.equals("content-length"))         contentLength = Long.parseLong(value);
+                else if (name.equals("transfer-encoding")) chunked = value.equalsIgnoreCase("chunked");
+                else if (name.equals("connection"))        closed = value.equalsIgnoreCase("close");
+            }
+
+            ByteArrayOutputStream bodyOut = new ByteArrayOutputStream();
+            if (chunked) {
+                for (int size; (size = Integer.parseInt(readLine().split(";")[0].trim(), 16)) > 0; ) {
+                    copy(size, bodyOut);
+                    readLine();
+                }
+                while (!readLine().isEmpty()) { /* trailers */ }
+            } else if (contentLength > 0) {
+                copy(contentLength, bodyOut);
+            }
+            if (closed) close();
+            return new Response(status, bodyOut.toByteArray());
+        }
+
+        void close() {
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already gone
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c; (c = in.read()) != -1; ) {
+                if (c == '\n') return line.toString();
+                if (c != '\r') line.append((char) c);
+            }
+            throw new EOFException("connection closed by server");
+        }
+
+        private void copy(long length, ByteArrayOutputStream target) throws IOException {
+            byte[] buffer = new byte[8192];
+            for (long left = length; left > 0; ) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, left));
+                if (n == -1) throw new EOFException("truncated response");
+                target.write(buffer, 0, n);
+                left -= n;
+            }
+        }
+
+        static final class Response {
+            final int status;
+            final byte[] body;
+
+            Response(int status, byte[] body) {
+                this.status = status;
+                this.body   = body;
+            }
+        }
+    }
+
+    // ─── Report ───────────────────────────────────────────────────────────────
+
+    /** @return false when a p99 budget is set and some operation missed it */
+    boolean report(int durationSeconds, double maxP99Ms) {
+        boolean withinBudget = true;
+        long total = 0;
+
+        System.out.printf("%n%-10s %10s %10s %10s %10s %8s%n", "op", "calls", "ops/s", "p50 ms", "p99 ms", "errors");
+        for (Op op : Op.values()) {
+            long count = calls.get(op.ordinal());
+            double p99 = latencies[op.ordinal()].quantile(0.99);
+            total += count;
+            System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %8d%n", op.name().toLowerCase(), count,
+                    (double) count / durationSeconds, latencies[op.ordinal()].quantile(0.50), p99,
+                    errors.get(op.ordinal()));
+            if (maxP99Ms > 0 && p99 > maxP99Ms) withinBudget = false;
+        }
+        System.out.printf("%-10s %10d %10.1f%n", "total", total, (double) total / durationSeconds);
+
+        if (!withinBudget) {
+            System.out.printf("FAILED: p99 above the %.1f ms budget%n", maxP99Ms);
+        }
+        return withinBudget;
+    }
+}
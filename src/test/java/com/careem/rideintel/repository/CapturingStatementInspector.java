@@ -0,0 +1,34 @@
+package com.careem.rideintel.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Records the SQL Hibernate sends, so tests can EXPLAIN exactly what a repository method runs */
+public class CapturingStatementInspector implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    /** The query itself — anything after it is follow-up loading, such as the rides of eagerly fetched flags */
+    static String first() {
+        synchronized (STATEMENTS) {
+            if (STATEMENTS.isEmpty()) throw new IllegalStateException("No SQL captured");
+            return STATEMENTS.get(0);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Query-plan regression test: every RideRepository / AnomalyFlagRepository query is run against a
+ * realistically sized and skewed dataset, the SQL Hibernate generated is captured and EXPLAINed,
+ * and the test fails if the plan falls back to a full table scan.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplandb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.careem.rideintel.repository.CapturingStatementInspector"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RepositoryQueryPlanTest {
+
+    private static final int RIDES     = 50_000;
+    private static final int CAPTAINS  = 2_000;
+    private static final int CUSTOMERS = 20_000;
+    private static final String[] CITIES = {
+            "Karachi", "Lahore", "Islamabad", "Rawalpindi", "Faisalabad",
+            "Multan", "Peshawar", "Quetta", "Hyderabad", "Sialkot"
+    };
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private AnomalyFlagRepository anomalyFlagRepository;
+
+    @Autowired
+    private CityHourlyRollupRepository hourlyRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void seed() {
+        Random random = new Random(42);
+        List<Object[]> rides = new ArrayList<>(RIDES);
+        List<Object[]> flags = new ArrayList<>();
+        long base = 1_000_000L;  // clear of anything the sequence hands out to the demo seeder
+
+        for (int i = 0; i < RIDES; i++) {
+            long id = base + i;
+            int roll = random.nextInt(100);
+            String status = roll < 85 ? "COMPLETED" : roll < 93 ? "CANCELLED" : roll < 97 ? "IN_PROGRESS" : "REQUESTED";
+            String city = CITIES[Math.min(CITIES.length - 1, (int) Math.abs(random.nextGaussian() * 3))];
+            double distance = 1 + random.nextDouble() * 25;
+            LocalDateTime createdAt = EPOCH.plusMinutes(i * 10L);
+            rides.add(new Object[]{id, "CAP-" + random.nextInt(CAPTAINS), "CUST-" + random.nextInt(CUSTOMERS),
+                    city, city, distance, distance * 30, 5 + random.nextInt(60), status,
+                    Timestamp.valueOf(createdAt), "COMPLETED".equals(status) ? Timestamp.valueOf(createdAt.plusMinutes(30)) : null,
+                    "ECONOMY"});
+            if ("COMPLETED".equals(status) && random.nextInt(100) < 3) {
+                flags.add(new Object[]{base + flags.size(), id, "seeded", random.nextDouble(), "FARE_SPIKE",
+                        Timestamp.valueOf(createdAt.plusMinutes(30))});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("INSERT INTO rides (id, captain_id, customer_id, pickup_city, dropoff_city, " +
+                "distance_km, fare_amount, duration_minutes, status, created_at, completed_at, vehicle_type) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rides);
+        jdbcTemplate.batchUpdate("INSERT INTO anomaly_flags (id, ride_id, reason, anomaly_score, type, flagged_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", flags);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    // ─── RideRepository ──────────────────────────────────────────────────────
+
+    @Test
+    @DisplayName("Captain lookups and keyset pages use the captain indexes")
+    void captainQueries_shouldUseIndex() {
+        LocalDateTime cursor = EPOCH.plusDays(100);
+        assertIndexed("findByCaptainId", () -> rideRepository.findByCaptainId("CAP-7"), "CAP-7");
+        assertIndexed("findPageByCaptainId", () -> rideRepository.findPageByCaptainId("CAP-7", PageRequest.of(0, 50)),
+                "CAP-7", 50);
+        assertIndexed("findPageByCaptainIdBefore",
+                () -> rideRepository.findPageByCaptainIdBefore("CAP-7", cursor, 5L, PageRequest.of(0, 50)),
+                "CAP-7", cursor, cursor, 5L, 50);
+        assertIndexed("countCompletedRidesByCaptain", () -> rideRepository.countCompletedRidesByCaptain("CAP-7"), "CAP-7");
+        assertIndexed("getCaptainStats", () -> rideRepository.getCaptainStats("CAP-7"), "CAP-7");
+    }
+
+    @Test
+    @DisplayName("Customer lookups and keyset pages use the customer index")
+    void customerQueries_shouldUseIndex() {
+        LocalDateTime cursor = EPOCH.plusDays(100);
+        assertIndexed("findByCustomerId", () -> rideRepository.findByCustomerId("CUST-7"), "CUST-7");
+        assertIndexed("findPageByCustomerId", () -> rideRepository.findPageByCustomerId("CUST-7", PageRequest.of(0, 50)),
+                "CUST-7", 50);
+        assertIndexed("findPageByCustomerIdBefore",
+                () -> rideRepository.findPageByCustomerIdBefore("CUST-7", cursor, 5L, PageRequest.of(0, 50)),
+                "CUST-7", cursor, cursor, 5L, 50);
+    }
+
+    @Test
+    @DisplayName("City, status and date-range queries use their indexes")
+    void cityStatusAndDateQueries_shouldUseIndex() {
+        LocalDateTime from = EPOCH.plusDays(30);
+        LocalDateTime to   = from.plusDays(1);
+        assertIndexed("findByPickupCity", () -> rideRepository.findByPickupCity("Sialkot"), "Sialkot");
+        assertIndexed("findByStatus", () -> rideRepository.findByStatus(Ride.RideStatus.REQUESTED), "REQUESTED");
+        assertIndexed("findByDateRange", () -> rideRepository.findByDateRange(from, to), from, to);
+    }
+
+    @Test
+    @DisplayName("status = 'COMPLETED' aggregates use the (status, pickup_city) index")
+    void completedAggregates_shouldUseIndex() {
+        assertIndexed("getCityAnalytics", () -> rideRepository.getCityAnalytics());
+        assertIndexed("getCityTotals", () -> rideRepository.getCityTotals());
+        assertIndexed("getCityRideCounts", () -> rideRepository.getCityRideCounts());
+        assertIndexed("getAverageFareByCity", () -> rideRepository.getAverageFareByCity());
+        assertIndexed("getCaptainEarnings", () -> rideRepository.getCaptainEarnings());
+        assertIndexed("getCityPairDistances", () -> rideRepository.getCityPairDistances(20L), 20L);
+        assertIndexed("findHighFareRatioRides", () -> rideRepository.findHighFareRatioRides(500.0), 500.0);
+    }
+
+    @Test
+    @DisplayName("Snapshot export walks rides in primary-key order and probes flags by ride id")
+    void snapshotExport_shouldUseIndex() {
+        assertIndexed("streamSnapshotRows", () -> rideRepository.streamSnapshotRows().close());
+    }
+
+    @Test
+    @DisplayName("Re-scoring partitions are primary-key range scans")
+    void rescorePartitions_shouldUseIndex() {
+        assertIndexed("findCompletedInIdRange", () -> rideRepository.findCompletedInIdRange(1_010_000L, 1_011_000L),
+                1_010_000L, 1_011_000L);
+        assertIndexed("findMaxId", () -> rideRepository.findMaxId());
+    }
+
+    @Test
+    @DisplayName("Archival reads and deletes of a created_at month are range scans")
+    void archiveQueries_shouldUseIndex() {
+        LocalDateTime from = EPOCH.plusDays(31);
+        LocalDateTime to   = EPOCH.plusDays(59);
+        assertIndexed("findEarliestCreatedAt", () -> rideRepository.findEarliestCreatedAt());
+        assertIndexed("getCityTotalsCreatedBetween", () -> rideRepository.getCityTotalsCreatedBetween(from, to),
+                from, to);
+        assertIndexed("getCityRideCountsCreatedBetween",
+                () -> rideRepository.getCityRideCountsCreatedBetween(from, to), from, to);
+        assertIndexed("getCaptainStatsCreatedBetween", () -> rideRepository.getCaptainStatsCreatedBetween(from, to),
+                from, to);
+    }
+
+    // ─── AnomalyFlagRepository ───────────────────────────────────────────────
+
+    @Test
+    @DisplayName("Flag lookups use the ride, type and score indexes")
+    void flagQueries_shouldUseIndex() {
+        assertIndexed("findByRideId", () -> anomalyFlagRepository.findByRideId(1_000_123L), 1_000_123L);
+        assertIndexed("findByRideIdIn", () -> anomalyFlagRepository.findByRideIdIn(Arrays.asList(1_000_123L, 1_999_999L)),
+                1_000_123L, 1_999_999L);
+        assertIndexed("findByType", () -> anomalyFlagRepository.findByType(AnomalyFlag.AnomalyType.GHOST_RIDE,
+                PageRequest.of(0, 50)), "GHOST_RIDE", 50);
+        assertIndexed("findHighScoreAnomalies", () -> anomalyFlagRepository.findHighScoreAnomalies(0.99,
+                PageRequest.of(0, 50)), 0.99, 50);
+        assertIndexed("countByCaptainId", () -> anomalyFlagRepository.countByCaptainId("CAP-7"), "CAP-7");
+        assertIndexed("countByCity", () -> anomalyFlagRepository.countByCity("Sialkot"), "Sialkot");
+        assertIndexed("findTopByScore", () -> anomalyFlagRepository.findTopByScore(PageRequest.of(0, 1000)), 1000);
+    }
+
+    @Test
+    @DisplayName("Anomaly search pages seek on the flagged-at, type, score or ride indexes for every filter")
+    void anomalySearch_shouldUseIndex() {
+        LocalDateTime from = EPOCH.plusDays(100);
+        LocalDateTime to = EPOCH.plusDays(107);
+        assertIndexed("search()", () -> anomalyFlagRepository.search(AnomalySearch.builder().build(), 50), 50);
+        assertIndexed("search(cursor)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .afterFlaggedAt(to).afterId(1_000_500L).build(), 50), to, to, 1_000_500L, 50);
+        assertIndexed("search(type)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .type(AnomalyFlag.AnomalyType.FARE_SPIKE).build(), 50), "FARE_SPIKE", 50);
+        assertIndexed("search(city)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .city("Sialkot").build(), 50), "Sialkot", 50);
+        assertIndexed("search(captainId)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .captainId("CAP-7").build(), 50), "CAP-7", 50);
+        assertIndexed("search(score)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .minScore(0.95).maxScore(0.99).build(), 50), 0.95, 0.99, 50);
+        assertIndexed("search(window)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .flaggedFrom(from).flaggedTo(to).build(), 50), from, to, 50);
+        assertIndexed("search(type, city, window, cursor)", () -> anomalyFlagRepository.search(AnomalySearch.builder()
+                .type(AnomalyFlag.AnomalyType.FARE_SPIKE).city("Karachi").flaggedFrom(from).flaggedTo(to)
+                .afterFlaggedAt(to).afterId(1_000_500L).build(), 50),
+                "FARE_SPIKE", "Karachi", from, to, to, to, 1_000_500L, 50);
+    }
+
+    // ─── CityHourlyRollupRepository ──────────────────────────────────────────
+
+    @Test
+    @DisplayName("Timeseries reads are range scans over the hourly rollup primary key")
+    void hourlyRollupQueries_shouldUseIndex() {
+        LocalDateTime from = EPOCH.plusDays(30);
+        LocalDateTime to   = from.plusDays(7);
+        assertIndexed("sumByHourAndCity", () -> hourlyRollupRepository.sumByHourAndCity(from, to), from, to);
+        assertIndexed("sumByHourForCity", () -> hourlyRollupRepository.sumByHourForCity(from, to, "Sialkot"),
+                from, to, "Sialkot");
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private void assertIndexed(String method, Runnable query, Object... args) {
+        String sql = transactionTemplate.execute(status -> {
+            CapturingStatementInspector.clear();
+            query.run();
+            return CapturingStatementInspector.first();
+        });
+
+        String plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args).stream()
+                .collect(Collectors.joining("\n"));
+        assertFalse(plan.contains("tableScan"), method + " falls back to a table scan:\n" + plan);
+    }
+}
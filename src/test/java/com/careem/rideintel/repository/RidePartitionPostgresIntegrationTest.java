@@ -0,0 +1,129 @@
+package com.careem.rideintel.repository;
+
+import com.careem.rideintel.service.RidePartitionService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The Postgres migrations (db/vendor/postgresql) on a real Postgres: a created_at range reads only the
+ * partitions it covers, and a lookup by id probes each partition's primary key. Skipped without Docker.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQL10Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.careem.rideintel.repository.CapturingStatementInspector",
+        "rideintel.seed.rides=200",
+        "rideintel.rides.partitions.months-ahead=3",
+        "rideintel.rides.partitions.retention-months=24",
+        "rideintel.rides.partitions.archive-dir=target/ride-archives-postgres"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class RidePartitionPostgresIntegrationTest {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'rides_'yyyy_MM");
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14-alpine");
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+    }
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RidePartitionService ridePartitionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("findByDateRange reads only the partitions its range covers")
+    void findByDateRange_shouldPruneToItsMonths() {
+        YearMonth firstMonthly = YearMonth.now().plusMonths(2);   // V12 bounds rides_legacy there
+        LocalDateTime from = firstMonthly.atDay(2).atStartOfDay();
+        assertOnlyScans(plan(() -> rideRepository.findByDateRange(from, from.plusDays(1)), from, from.plusDays(1)),
+                PARTITION_NAME.format(firstMonthly));
+
+        LocalDateTime today = LocalDateTime.now().minusHours(1);
+        assertOnlyScans(plan(() -> rideRepository.findByDateRange(today, today.plusHours(1)), today, today.plusHours(1)),
+                "rides_legacy");
+    }
+
+    @Test
+    @DisplayName("A lookup by id probes a primary key on every partition, and retention bounds the partitions")
+    void findById_shouldProbeEachPrimaryKey() {
+        ridePartitionService.maintain();
+        List<String> partitions = partitions();
+        assertTrue(partitions.contains(PARTITION_NAME.format(YearMonth.now().plusMonths(3))), partitions.toString());
+        assertTrue(partitions.size() <= 24 + 3 + 2, partitions.toString());
+
+        List<String> withoutPrimaryKey = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = 'rides'::regclass AND NOT EXISTS ("
+                        + "SELECT 1 FROM pg_index x JOIN pg_attribute a ON a.attrelid = c.oid AND a.attname = 'id' "
+                        + "WHERE x.indrelid = c.oid AND x.indisunique AND x.indkey::text = a.attnum::text)",
+                String.class);
+        assertEquals(0, withoutPrimaryKey.size(), "Partitions without a primary key on id: " + withoutPrimaryKey);
+
+        Long rideId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM rides", Long.class);
+        jdbcTemplate.execute("ANALYZE rides");
+        String plan = plan(() -> rideRepository.findById(rideId), rideId);
+        for (String partition : partitions) {
+            assertTrue(plan.contains(" on " + partition + " "), partition + " not probed:\n" + plan);
+        }
+        assertTrue(plan.contains("pk_rides_legacy"), plan);
+        assertFalse(plan.contains("Seq Scan on rides_legacy"), plan);
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = 'rides'::regclass", String.class);
+    }
+
+    private String plan(Runnable query, Object... args) {
+        String sql = transactionTemplate.execute(status -> {
+            CapturingStatementInspector.clear();
+            query.run();
+            return CapturingStatementInspector.first();
+        });
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args).stream()
+                .collect(Collectors.joining("\n"));
+    }
+
+    private void assertOnlyScans(String plan, String partition) {
+        assertTrue(plan.contains(" on " + partition + " "), partition + " not scanned:\n" + plan);
+        for (String other : partitions()) {
+            if (!other.equals(partition)) {
+                assertFalse(plan.contains(" on " + other + " "), other + " not pruned:\n" + plan);
+            }
+        }
+    }
+}
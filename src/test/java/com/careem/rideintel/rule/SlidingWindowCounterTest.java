@@ -0,0 +1,94 @@
+package com.careem.rideintel.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long START  = 1_700_000_000_000L;
+
+    @Test
+    @DisplayName("Counts only the events inside the window and forgets them bucket by bucket")
+    void count_shouldSlideWithTime() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 12, 1024);
+        long captain = SlidingWindowCounter.key("CAP-1");
+
+        for (int i = 0; i < 6; i++) {
+            counter.record(captain, START + i * 10 * MINUTE);  // one ride every 10 minutes
+        }
+
+        assertEquals(6, counter.count(captain, START + 50 * MINUTE));
+        assertEquals(5, counter.count(captain, START + 65 * MINUTE));  // the first ride slid out
+        assertEquals(0, counter.count(captain, START + 200 * MINUTE));
+        assertEquals(1, counter.record(captain, START + 200 * MINUTE));
+        assertEquals(0, counter.count(SlidingWindowCounter.key("CAP-2"), START));
+    }
+
+    @Test
+    @DisplayName("Unrecording takes back one event while its bucket is in the window, and nothing after")
+    void unrecord_shouldTakeBackOneEvent() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 12, 1024);
+        long captain = SlidingWindowCounter.key("CAP-1");
+        counter.record(captain, START);
+        counter.record(captain, START + 10 * MINUTE);
+
+        counter.unrecord(captain, START + 10 * MINUTE);
+        assertEquals(1, counter.count(captain, START + 10 * MINUTE));
+        counter.unrecord(captain, START + 10 * MINUTE);   // nothing left in that bucket
+        assertEquals(1, counter.count(captain, START + 10 * MINUTE));
+        counter.unrecord(SlidingWindowCounter.key("CAP-2"), START);
+
+        counter.record(captain, START + 90 * MINUTE);
+        counter.unrecord(captain, START);                 // slid out long ago
+        assertEquals(1, counter.count(captain, START + 90 * MINUTE));
+    }
+
+    @Test
+    @DisplayName("Pair keys are ordered and distinct from either member")
+    void pairKey_shouldBeOrdered() {
+        long pair = SlidingWindowCounter.key("CAP-1", "CUST-1");
+        assertNotEquals(pair, SlidingWindowCounter.key("CUST-1", "CAP-1"));
+        assertNotEquals(pair, SlidingWindowCounter.key("CAP-1"));
+        assertEquals(pair, SlidingWindowCounter.key("CAP-1", "CUST-1"));
+    }
+
+    @Test
+    @DisplayName("Millions of distinct keys: table size and heap stay flat, active keys keep their counts")
+    void millionsOfKeys_shouldKeepMemoryFlat() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofHours(1), 12, 65_536);
+        long footprint = counter.footprintBytes();
+        long hot = SlidingWindowCounter.key("CAP-HOT");
+
+        long heapBefore = usedHeap();
+        int keys = 5_000_000;
+        for (int i = 0; i < keys; i++) {
+            long now = START + i;  // ~83 minutes of traffic at 1 000 completions per second
+            counter.record(SlidingWindowCounter.key("CAP-" + i), now);
+            if (i % 10_000 == 0) {
+                counter.record(hot, now);  // one captain that keeps completing rides
+            }
+        }
+        long heapAfter = usedHeap();
+
+        assertTrue(counter.size() <= counter.capacity());
+        assertEquals(footprint, counter.footprintBytes());
+        assertTrue(heapAfter - heapBefore < 16L * 1024 * 1024,
+                "heap grew by " + (heapAfter - heapBefore) / 1024 + " KiB for " + keys + " keys");
+        // The busy key survives eviction; its last hour (55-60 min at 5-minute resolution) holds ~330-360 rides
+        int hotRides = counter.count(hot, START + keys - 1);
+        assertTrue(hotRides >= 330 && hotRides <= 361, "hot key counted " + hotRides);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
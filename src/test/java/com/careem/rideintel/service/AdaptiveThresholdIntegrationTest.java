@@ -0,0 +1,86 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.model.RideStatSnapshot.Metric;
+import com.careem.rideintel.rule.StreamingStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:adaptivethresholddb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.anomaly.adaptive.min-samples=50",
+        "rideintel.anomaly.adaptive.publish-interval=PT1H"  // published explicitly below
+})
+class AdaptiveThresholdIntegrationTest {
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideStatisticsService statistics;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "ADAPT");
+    }
+
+    @Test
+    @DisplayName("A fare that passes the static limit is flagged once the city baseline is learned")
+    void fareSpike_shouldUseCityBaseline() {
+        TestRides carpool = testRides.in("Sukkur").vehicleType("CARPOOL");
+        RideDTOs.RideResponse beforeBaseline = rideService.completeRide(carpool.create(10.0, 800.0, 25));
+        assertFalse(beforeBaseline.getAnomalyDetected(), "80 PKR/km is under the static 150 PKR/km");
+
+        List<Long> regular = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            regular.add(carpool.create(10.0, 180.0 + (i % 5) * 10.0, 25));  // ~20 PKR/km
+        }
+        rideService.completeRides(regular);
+        statistics.publish();
+
+        StreamingStats.Summary baseline = statistics.baseline(Metric.FARE_PER_KM, "Sukkur", "CARPOOL");
+        assertNotNull(baseline);
+        assertEquals(61, baseline.getCount());
+        assertEquals(20.0, baseline.getMedian(), 20.0 * 0.05);
+
+        RideDTOs.RideResponse afterBaseline = rideService.completeRide(carpool.create(10.0, 800.0, 25));
+        assertTrue(afterBaseline.getAnomalyDetected());
+        assertTrue(afterBaseline.getAnomalyReason().startsWith("Fare/km ratio 80.0"), afterBaseline.getAnomalyReason());
+
+        // Other vehicle types in the same city keep the static threshold
+        assertNull(statistics.baseline(Metric.FARE_PER_KM, "Sukkur", "BUSINESS"));
+    }
+
+    @Test
+    @DisplayName("Snapshots restore the learned baselines after a restart")
+    void snapshot_shouldSurviveRestore() {
+        TestRides business = testRides.in("Larkana").vehicleType("BUSINESS");
+        List<Long> rides = new ArrayList<>();
+        for (int i = 0; i < 55; i++) {
+            rides.add(business.create(12.0, 600.0, 20 + i % 10));
+        }
+        rideService.completeRides(rides);
+        statistics.publish();
+        StreamingStats.Summary before = statistics.baseline(Metric.SPEED_KMH, "Larkana", "BUSINESS");
+        assertNotNull(before);
+
+        statistics.snapshot();
+        statistics.restore();  // drops in-memory state and reloads it from ride_stat_snapshots
+
+        StreamingStats.Summary after = statistics.baseline(Metric.SPEED_KMH, "Larkana", "BUSINESS");
+        assertEquals(before.getCount(), after.getCount());
+        assertEquals(before.getMean(), after.getMean(), 1e-9);
+        assertEquals(before.getStddev(), after.getStddev(), 1e-9);
+        assertEquals(before.getMedian(), after.getMedian(), 1e-9);
+    }
+}
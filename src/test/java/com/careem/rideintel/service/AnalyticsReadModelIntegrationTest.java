@@ -0,0 +1,101 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.repository.RideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Same properties as RideTransitionConcurrencyIntegrationTest, so the two share one context
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:readmodeldb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.analytics.city-source=ROLLUP",
+        "rideintel.analytics.captain-source=RUNNING_TOTALS",
+        "rideintel.seed.rides=0"  // Quetta and Multan only hold the rides created below
+})
+class AnalyticsReadModelIntegrationTest {
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "ROLLUP").captain("CAP-ROLLUP").customer("CUST-ROLLUP");
+    }
+
+    @Test
+    @DisplayName("Rollup stays in step with the aggregate query across complete, flag and cancel")
+    void rollup_shouldMatchAggregate() {
+        Long clean  = testRides.in("Quetta").create(10.0, 300.0, 20);
+        Long ghost  = testRides.in("Quetta").create(0.4, 900.0, 4);
+        Long spike  = testRides.in("Multan").create(10.0, 2500.0, 20);
+        rideService.cancelRide(ghost);  // a cancelled ghost ride is never scored
+        rideService.completeRides(Arrays.asList(clean));
+        rideService.completeRide(spike);
+
+        Map<String, RideDTOs.AnalyticsResponse> rollup = byCity(rideService.getCityAnalytics());
+        Map<String, Object[]> aggregate = rideRepository.getCityAnalytics().stream()
+                .collect(Collectors.toMap(row -> (String) row[0], Function.identity()));
+
+        assertEquals(aggregate.keySet(), rollup.keySet());
+        aggregate.forEach((city, row) -> {
+            RideDTOs.AnalyticsResponse fromRollup = rollup.get(city);
+            assertEquals(row[1], fromRollup.getTotalRides(), city);
+            assertEquals((Double) row[2], fromRollup.getAverageFare(), 1e-6, city);
+            assertEquals((Double) row[3], fromRollup.getAverageDistanceKm(), 1e-6, city);
+            assertEquals((Double) row[4], fromRollup.getAverageDurationMinutes(), 1e-6, city);
+            assertEquals(row[5], fromRollup.getAnomalyCount(), city);
+        });
+
+        assertEquals(1L, rollup.get("Quetta").getTotalRides());
+        assertEquals(0L, rollup.get("Quetta").getAnomalyCount());
+        assertEquals(1L, rollup.get("Multan").getAnomalyCount());
+    }
+
+    @Test
+    @DisplayName("Captain running totals match the single projection query")
+    void captainTotals_shouldMatchProjection() {
+        TestRides captain = testRides.captain("CAP-TOTALS").in("Karachi");
+        Long first  = captain.create(12.0, 360.0, 25);
+        Long second = captain.create(0.3, 950.0, 3);
+        Long third  = captain.create(8.0, 240.0, 18);
+        captain.create(5.0, 150.0, 10);  // stays REQUESTED
+        rideService.cancelRide(third);
+        rideService.completeRides(Arrays.asList(first, second));
+
+        RideDTOs.CaptainStatsResponse totals = rideService.getCaptainStats("CAP-TOTALS");
+        Object[] projection = rideRepository.getCaptainStats("CAP-TOTALS").get(0);
+
+        assertEquals(4L, totals.getTotalRides());
+        assertEquals(projection[0], totals.getTotalRides());
+        assertEquals(projection[1], totals.getCompletedRides());
+        assertEquals(projection[2], totals.getCancelledRides());
+        assertEquals((Double) projection[3], totals.getTotalEarnings(), 1e-6);
+        assertEquals(projection[4], totals.getAnomaliesDetected());
+        assertEquals(1L, totals.getAnomaliesDetected());
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private Map<String, RideDTOs.AnalyticsResponse> byCity(List<RideDTOs.AnalyticsResponse> rows) {
+        return rows.stream()
+                .sorted(Comparator.comparing(RideDTOs.AnalyticsResponse::getCity))
+                .collect(Collectors.toMap(RideDTOs.AnalyticsResponse::getCity, Function.identity()));
+    }
+}
@@ -3,20 +3,29 @@ package com.careem.rideintel.service;
 import com.careem.rideintel.model.AnomalyFlag;
 import com.careem.rideintel.model.Ride;
 import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.event.RideEvents;
 import com.careem.rideintel.repository.RideRepository;
+import com.careem.rideintel.rule.CaptainVelocityRule;
+import com.careem.rideintel.rule.DurationMismatchRule;
+import com.careem.rideintel.rule.FareSpikeRule;
+import com.careem.rideintel.rule.GhostRideRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.lenient;
 
 @ExtendWith(MockitoExtension.class)
 class AnomalyDetectionServiceTest {
@@ -27,12 +36,22 @@ class AnomalyDetectionServiceTest {
     @Mock
     private RideRepository rideRepository;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private RideStatisticsService statistics;  // no baselines yet — rules use their static thresholds
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private AnomalyDetectionService anomalyDetectionService;
 
     @BeforeEach
     void setUp() {
-        when(anomalyFlagRepository.save(any(AnomalyFlag.class)))
+        anomalyDetectionService = new AnomalyDetectionService(anomalyFlagRepository, rideRepository, eventPublisher,
+                Arrays.asList(new FareSpikeRule(statistics), new GhostRideRule(), new DurationMismatchRule(statistics)),
+                meterRegistry);
+        lenient().when(anomalyFlagRepository.save(any(AnomalyFlag.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
     }
 
@@ -58,6 +77,17 @@ class AnomalyDetectionServiceTest {
         assertTrue(result.get().getAnomalyScore() > 0.0);
     }
 
+    @Test
+    @DisplayName("Ghost ride keeps the fare spike it supersedes in its reason")
+    void ghostRide_shouldListEveryFiredRule() {
+        Ride ride = buildRide(0.3, 900.0, 5);
+
+        String reason = anomalyDetectionService.evaluate(ride).get().getReason();
+
+        assertTrue(reason.startsWith("Fare/km ratio"), reason);
+        assertTrue(reason.contains("; Ghost ride suspected"), reason);
+    }
+
     @Test
     @DisplayName("Fare spike should be detected — fare/km ratio too high")
     void fareSpikeRide_shouldBeFlagged() {
@@ -103,8 +133,43 @@ class AnomalyDetectionServiceTest {
         assertTrue(result.get().getAnomalyScore() <= 1.0);
     }
 
+    @Test
+    @DisplayName("Captain completing too many rides within an hour is flagged for velocity")
+    void captainBurst_shouldBeFlagged() {
+        RideVelocityService velocity = new RideVelocityService(1024);
+        AnomalyDetectionService engine = new AnomalyDetectionService(anomalyFlagRepository, rideRepository,
+                eventPublisher, Collections.singletonList(new CaptainVelocityRule(velocity, 8)), meterRegistry);
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 18, 0);
+
+        Ride ride = null;
+        for (int i = 0; i < 9; i++) {
+            ride = buildRide(2.0, 150.0, 6);
+            ride.setCustomerId("CUST-" + i);
+            ride.setCompletedAt(start.plusMinutes(i * 6));
+            velocity.onRidesCompleted(new RideEvents.RidesCompleted(Collections.singletonList(ride)));
+            assertEquals(i == 8, engine.evaluate(ride).isPresent(), "ride " + (i + 1));
+        }
+        assertEquals(AnomalyFlag.AnomalyType.CAPTAIN_VELOCITY, engine.evaluate(ride).get().getType());
+    }
+
+    @Test
+    @DisplayName("Every fired rule is counted under its own type, including superseded ones")
+    void firedRules_shouldBeCountedByType() {
+        anomalyDetectionService.analyzeRide(buildRide(15.0, 450.0, 30));   // clean
+        anomalyDetectionService.analyzeRide(buildRide(0.3, 900.0, 1));     // ghost ride + fare spike, 18 km/h
+
+        assertEquals(2.0, meterRegistry.get("rideintel.anomaly.rides.analyzed").counter().count());
+        assertEquals(1.0, fireCount(AnomalyFlag.AnomalyType.GHOST_RIDE));
+        assertEquals(1.0, fireCount(AnomalyFlag.AnomalyType.FARE_SPIKE));
+        assertEquals(0.0, fireCount(AnomalyFlag.AnomalyType.DURATION_MISMATCH));
+    }
+
     // ─── Helper ──────────────────────────────────────────────────────────────
 
+    private double fireCount(AnomalyFlag.AnomalyType type) {
+        return meterRegistry.get("rideintel.anomaly.rule.fired").tag("type", type.name()).counter().count();
+    }
+
     private Ride buildRide(double distanceKm, double fareAmount, int durationMinutes) {
         Ride ride = new Ride();
         ride.setId(1L);
@@ -0,0 +1,151 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.repository.RideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rescoredb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.analytics.city-source=ROLLUP",
+        "rideintel.analytics.captain-source=RUNNING_TOTALS",
+        "rideintel.anomaly.rescore.parallelism=2",
+        "rideintel.anomaly.rescore.partition-size=100"
+})
+class AnomalyRescoreIntegrationTest {
+
+    @Autowired
+    private AnomalyRescoreService anomalyRescoreService;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private AnomalyFlagRepository anomalyFlagRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "RESCORE").captain("CAP-RESCORE").customer("CUST-RESCORE")
+                .in("Larkana");
+    }
+
+    @Test
+    @DisplayName("Re-scoring creates, rewrites and clears flags to match the rides, keeping read models in step")
+    void rescore_shouldReconcileFlags() throws InterruptedException {
+        Long spike = testRides.create(10.0, 2500.0, 20);   // 250 PKR/km
+        Long ghost = testRides.create(0.4, 900.0, 4);
+        Long clean = testRides.create(10.0, 300.0, 20);
+        rideService.completeRides(Arrays.asList(spike, ghost, clean));
+        rideService.completeRide(ghost);          // completing again changes nothing — never a second flag
+        assertEquals(1, anomalyFlagRepository.findByRideIdIn(Collections.singletonList(ghost)).size());
+
+        // Corrected trip data — the stored flags no longer match the rides
+        jdbcTemplate.update("UPDATE rides SET fare_amount = 300.0 WHERE id = ?", spike);
+        jdbcTemplate.update("UPDATE rides SET fare_amount = 2500.0 WHERE id = ?", clean);
+        jdbcTemplate.update("UPDATE rides SET distance_km = 10.0, fare_amount = 2500.0, duration_minutes = 20 WHERE id = ?", ghost);
+
+        anomalyRescoreService.start(0);
+        RideDTOs.RescoreJobResponse job = await(status -> "COMPLETED".equals(status.getStatus()));
+
+        assertFalse(anomalyFlagRepository.findByRideId(spike).isPresent());
+        assertEquals(AnomalyFlag.AnomalyType.FARE_SPIKE, anomalyFlagRepository.findByRideId(clean).get().getType());
+        assertEquals(AnomalyFlag.AnomalyType.FARE_SPIKE, anomalyFlagRepository.findByRideId(ghost).get().getType());
+        assertTrue(job.getFlagsCreated() >= 1 && job.getFlagsUpdated() >= 1 && job.getFlagsCleared() >= 1, job.toString());
+        assertTrue(rideService.getRideById(clean).getAnomalyDetected());
+        assertFalse(rideService.getRideById(spike).getAnomalyDetected());
+
+        Map<String, RideDTOs.AnalyticsResponse> rollup = rideService.getCityAnalytics().stream()
+                .collect(Collectors.toMap(RideDTOs.AnalyticsResponse::getCity, Function.identity()));
+        for (Object[] row : rideRepository.getCityAnalytics()) {
+            assertEquals(row[5], rollup.get((String) row[0]).getAnomalyCount(), (String) row[0]);
+        }
+        Object[] captain = rideRepository.getCaptainStats("CAP-RESCORE").get(0);
+        assertEquals(captain[4], rideService.getCaptainStats("CAP-RESCORE").getAnomaliesDetected());
+    }
+
+    @Test
+    @DisplayName("A paused job resumes from its checkpoint and scores every completed ride exactly once")
+    void rescore_shouldResumeFromCheckpoint() throws InterruptedException {
+        anomalyRescoreService.start(200);
+        assertThrows(InvalidRequestException.class, () -> anomalyRescoreService.start(200));
+        await(status -> status.getNextRideId() > 0);
+
+        anomalyRescoreService.pause();
+        RideDTOs.RescoreJobResponse paused = await(status -> "PAUSED".equals(status.getStatus()));
+        assertTrue(paused.getNextRideId() <= paused.getLastRideId(), paused.toString());
+        assertTrue(paused.getRidesScored() > 0);
+
+        anomalyRescoreService.start(0);
+        RideDTOs.RescoreJobResponse done = await(status -> "COMPLETED".equals(status.getStatus()));
+
+        assertEquals(paused.getJobId(), done.getJobId());
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rides WHERE status = 'COMPLETED' AND id <= ?",
+                Long.class, done.getLastRideId()), done.getRidesScored());
+        assertEquals(1.0, done.getProgress());
+        assertTrue(done.getRidesPerSecond() > 0);
+    }
+
+    @Test
+    @DisplayName("A job running on another node is left alone until its heartbeat goes stale, then claimed")
+    void rescore_shouldClaimOnlyAbandonedJobs() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO rescore_jobs (id, status, next_ride_id, last_ride_id, max_rides_per_second, " +
+                        "rides_scored, flags_created, flags_updated, flags_cleared, elapsed_millis, started_at, " +
+                        "updated_at, owner, heartbeat_at, version) " +
+                        "VALUES (1000000, 'RUNNING', 0, (SELECT COALESCE(MAX(id), 0) FROM rides), 0, 0, 0, 0, 0, 0, " +
+                        "?, ?, 'other-node', ?, 3)",
+                Timestamp.valueOf(now), Timestamp.valueOf(now), Timestamp.valueOf(now));
+        InvalidRequestException running = assertThrows(InvalidRequestException.class,
+                () -> anomalyRescoreService.start(0));
+        assertTrue(running.getMessage().contains("other-node"), running.getMessage());
+
+        jdbcTemplate.update("UPDATE rescore_jobs SET heartbeat_at = ? WHERE id = 1000000",
+                Timestamp.valueOf(now.minusMinutes(5)));
+        RideDTOs.RescoreJobResponse claimed = anomalyRescoreService.start(0);
+        assertEquals(1000000L, claimed.getJobId());
+        assertNotEquals("other-node", claimed.getOwner());
+        RideDTOs.RescoreJobResponse done = await(status -> "COMPLETED".equals(status.getStatus()));
+        assertEquals(1000000L, done.getJobId());
+        assertNull(done.getOwner());
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private RideDTOs.RescoreJobResponse await(Predicate<RideDTOs.RescoreJobResponse> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        RideDTOs.RescoreJobResponse status = anomalyRescoreService.latest();
+        while (!condition.test(status) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = anomalyRescoreService.latest();
+        }
+        assertTrue(condition.test(status), status.toString());
+        return status;
+    }
+}
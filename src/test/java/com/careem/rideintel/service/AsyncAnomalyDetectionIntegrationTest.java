@@ -0,0 +1,189 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.RideIntelligenceApplication;
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.model.AnomalyFlag;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.repository.RideRepository;
+import com.careem.rideintel.rule.AnomalyRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:asyncdetectiondb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.anomaly.detection-mode=ASYNC",
+        "rideintel.anomaly.async.retry-backoff=50ms"
+})
+class AsyncAnomalyDetectionIntegrationTest {
+
+    // Fare that makes PoisonRule throw, while it has failures left
+    private static final double POISON_FARE = 777.0;
+
+    /** A rule that blows up on the poison fare a set number of times, then finds nothing */
+    @TestConfiguration
+    static class PoisonRuleConfig {
+        static final AtomicInteger failuresLeft = new AtomicInteger();
+
+        @Bean
+        AnomalyRule poisonRule() {
+            return new AnomalyRule() {
+                @Override
+                public AnomalyFlag.AnomalyType type() {
+                    return AnomalyFlag.AnomalyType.FARE_SPIKE;
+                }
+
+                @Override
+                public double score(Ride ride) {
+                    if (ride.getFareAmount() == POISON_FARE && failuresLeft.getAndDecrement() > 0) {
+                        throw new IllegalStateException("poisoned ride " + ride.getId());
+                    }
+                    return 0.0;
+                }
+
+                @Override
+                public String reason(Ride ride) {
+                    return "";
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private AnomalyFlagRepository anomalyFlagRepository;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "ASYNC").in("Peshawar");
+    }
+
+    @Test
+    @DisplayName("Completion returns before scoring; polling reports PENDING, then FLAGGED or CLEAN")
+    void completeRide_shouldScoreInBackground() throws InterruptedException {
+        Long ghost = testRides.create(0.4, 900.0, 4);
+        Long clean = testRides.create(10.0, 300.0, 20);
+
+        RideDTOs.RideResponse completed = rideService.completeRide(ghost);
+        assertEquals("PENDING", completed.getDetectionState());
+        assertFalse(completed.getAnomalyDetected());
+        rideService.completeRides(Arrays.asList(clean));
+
+        assertEquals("FLAGGED", awaitSettled(ghost).getState());
+        assertNotNull(rideService.getDetectionStatus(ghost).getAnomalyScore());
+        assertEquals("CLEAN", awaitSettled(clean).getState());
+        assertEquals(Ride.DetectionState.DONE, rideRepository.findById(clean).get().getDetectionState());
+    }
+
+    @Test
+    @DisplayName("A ride that fails to score does not hold back its batch, and is retried until it succeeds")
+    void failingRide_shouldBeIsolatedAndRetried() throws InterruptedException {
+        PoisonRuleConfig.failuresLeft.set(3);   // fewer than max-attempts, however the rides are batched
+        List<Long> ghosts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ghosts.add(testRides.create(0.4, 900.0, 4));
+        }
+        Long poisoned = testRides.create(10.0, POISON_FARE, 20);
+        List<Long> ids = new ArrayList<>(ghosts);
+        ids.add(5, poisoned);
+
+        rideService.completeRides(ids);
+
+        for (Long ghost : ghosts) {
+            assertEquals("FLAGGED", awaitSettled(ghost).getState());
+        }
+        assertEquals("CLEAN", awaitSettled(poisoned).getState());
+        assertTrue(PoisonRuleConfig.failuresLeft.get() <= 0);
+    }
+
+    @Test
+    @DisplayName("Rides that were never completed are not applicable")
+    void requestedRide_shouldBeNotApplicable() {
+        Long requested = testRides.create(10.0, 300.0, 20);
+        assertEquals("NOT_APPLICABLE", rideService.getDetectionStatus(requested).getState());
+        assertFalse(anomalyFlagRepository.findByRideId(requested).isPresent());
+    }
+
+    @Test
+    @DisplayName("Closing the context drains the queue; overflow beyond capacity is scored inline")
+    void shutdown_shouldDrainQueue() throws Exception {
+        // File-backed so the rows outlive the embedded database shutdown on context close
+        Files.deleteIfExists(Paths.get("target/asyncdraindb.mv.db"));
+        String url = "jdbc:h2:file:./target/asyncdraindb;DB_CLOSE_ON_EXIT=FALSE";
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(RideIntelligenceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url,
+                        "--rideintel.anomaly.detection-mode=ASYNC",
+                        "--rideintel.anomaly.async.queue-capacity=8",
+                        "--rideintel.anomaly.async.workers=1",
+                        "--rideintel.anomaly.async.batch-size=4",
+                        "--rideintel.anomaly.async.offer-timeout=0ms");
+
+        List<Long> ids = new ArrayList<>();
+        try {
+            RideService service = context.getBean(RideService.class);
+            TestRides drained = TestRides.of(service, "ASYNC").captain("CAP-ASYNC").in("Peshawar");
+            for (int i = 0; i < 60; i++) {
+                ids.add(drained.create(0.4, 900.0, 4));  // every ride is a ghost ride
+            }
+            service.completeRides(ids);
+        } finally {
+            context.close();
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            assertEquals(0L, count(statement, "SELECT COUNT(*) FROM rides WHERE detection_state <> 'DONE'"));
+            // Scoped to this test's captain — DataSeeder rides carry flags of their own
+            assertEquals(60L, count(statement, "SELECT COUNT(*) FROM anomaly_flags f " +
+                    "JOIN rides r ON r.id = f.ride_id WHERE r.captain_id = 'CAP-ASYNC'"));
+        }
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private RideDTOs.DetectionStatusResponse awaitSettled(Long rideId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        RideDTOs.DetectionStatusResponse status = rideService.getDetectionStatus(rideId);
+        while ("PENDING".equals(status.getState()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            status = rideService.getDetectionStatus(rideId);
+        }
+        return status;
+    }
+
+    private static long count(Statement statement, String sql) throws Exception {
+        try (ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.ConflictException;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.CityHourlyRollup;
+import com.careem.rideintel.repository.CityHourlyRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Same properties as RideResponseCacheIntegrationTest, so the two share one context
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:servicedb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+class CityTimeSeriesIntegrationTest {
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private CityTimeSeriesService timeSeriesService;
+
+    @Autowired
+    private CityHourlyRollupRepository hourlyRollupRepository;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "SERIES");
+    }
+
+    @Test
+    @DisplayName("Completions, flags and cancellations are reflected in the hourly and daily series")
+    void timeSeries_shouldTrackRideChanges() {
+        Long economy = testRides.in("Gwadar").create(10.0, 300.0, 20);
+        Long premium = testRides.in("Gwadar").vehicleType("PREMIUM").create(20.0, 700.0, 40);
+        Long spike   = testRides.in("Gwadar").create(5.0, 2000.0, 15);
+        Long other   = testRides.in("Turbat").create(10.0, 300.0, 20);
+        LocalDateTime hour = rideService.completeRides(Arrays.asList(economy, premium, spike, other))
+                .get(0).getCompletedAt().truncatedTo(ChronoUnit.HOURS);
+        CityHourlyRollup row = hourlyRollupRepository
+                .findById(new CityHourlyRollup.Key(hour, "Gwadar", "ECONOMY"))
+                .orElseThrow(AssertionError::new);
+        assertEquals(2L, row.getCompletedRides());
+        assertEquals(1L, row.getAnomalyCount());
+
+        RideDTOs.TimeSeriesPoint hourly = onlyPoint(timeSeriesService.getCityTimeSeries(
+                hour.minusHours(1), hour.plusHours(1), "hour", "Gwadar"));
+        assertEquals(hour, hourly.getBucketStart());
+        assertEquals(3L, hourly.getTotalRides());
+        assertEquals(1000.0, hourly.getAverageFare(), 1e-9);
+        assertEquals(1L, hourly.getAnomalyCount());
+
+        // Completed rides cannot be cancelled, and a cancelled one never reaches the series
+        assertThrows(ConflictException.class, () -> rideService.cancelRide(spike));
+        rideService.cancelRide(testRides.in("Gwadar").create(10.0, 300.0, 20));
+
+        RideDTOs.CityTimeSeriesResponse daily = timeSeriesService.getCityTimeSeries(
+                hour.minusDays(1), hour.plusHours(1), "DAY", "Gwadar");
+        assertEquals(hour.truncatedTo(ChronoUnit.DAYS).plusDays(1), daily.getTo());
+        RideDTOs.TimeSeriesPoint today = daily.getSeries().get(0).getPoints().get(daily.getSeries().get(0).getPoints().size() - 1);
+        assertEquals(hour.truncatedTo(ChronoUnit.DAYS), today.getBucketStart());
+        assertEquals(3L, today.getTotalRides());
+        assertEquals(1000.0, today.getAverageFare(), 1e-9);
+        assertEquals(1L, today.getAnomalyCount());
+    }
+
+    @Test
+    @DisplayName("Concurrent bulk completions opening the same new buckets in opposite orders all land")
+    void concurrentCompletions_shouldNotDeadlockOrLoseDeltas() throws Exception {
+        List<String> cities = Arrays.asList("Hub", "Kalat", "Khuzdar", "Zhob");
+        int batches = 8;
+        List<List<Long>> rides = new ArrayList<>();
+        for (int batch = 0; batch < batches; batch++) {
+            List<Long> ids = new ArrayList<>();
+            for (String city : cities) {
+                ids.add(testRides.in(city).create(10.0, 300.0, 20));
+            }
+            if (batch % 2 == 1) Collections.reverse(ids);
+            rides.add(ids);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(batches);
+        try {
+            List<Future<?>> completions = new ArrayList<>();
+            for (List<Long> ids : rides) {
+                completions.add(pool.submit(() -> rideService.completeRides(ids)));
+            }
+            for (Future<?> completion : completions) {
+                completion.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (String city : cities) {
+            RideDTOs.CityTimeSeriesResponse series =
+                    timeSeriesService.getCityTimeSeries(now.minusDays(1), now.plusHours(1), "day", city);
+            long total = series.getSeries().get(0).getPoints().stream()
+                    .mapToLong(RideDTOs.TimeSeriesPoint::getTotalRides).sum();
+            assertEquals(batches, total, city);
+        }
+    }
+
+    @Test
+    @DisplayName("Ranges are validated: from before to, and a bounded number of buckets")
+    void timeSeries_shouldRejectBadRanges() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(InvalidRequestException.class, () -> timeSeriesService.getCityTimeSeries(now, now, "hour", null));
+        assertThrows(InvalidRequestException.class,
+                () -> timeSeriesService.getCityTimeSeries(now.minusYears(1), now, "hour", null));
+        assertNotNull(timeSeriesService.getCityTimeSeries(now.minusYears(1), now, "week", null));
+    }
+
+    private RideDTOs.TimeSeriesPoint onlyPoint(RideDTOs.CityTimeSeriesResponse response) {
+        assertEquals(1, response.getSeries().size());
+        List<RideDTOs.TimeSeriesPoint> points = response.getSeries().get(0).getPoints();
+        assertEquals(1, points.size());
+        return points.get(0);
+    }
+}
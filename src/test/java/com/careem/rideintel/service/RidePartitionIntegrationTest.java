@@ -0,0 +1,146 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.ResourceNotFoundException;
+import com.careem.rideintel.model.RideArchive;
+import com.careem.rideintel.repository.RideArchiveRepository;
+import com.careem.rideintel.repository.RideRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * H2 fallback of the monthly partitioning: no partitions to create, but months past the retention are still
+ * archived to gzipped NDJSON and deleted with their flags.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:partitiondb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.rides.partitions.retention-months=2",
+        "rideintel.rides.partitions.archive-dir=target/ride-archives",
+        "rideintel.rides.partitions.maintenance-interval=PT1H",
+        "rideintel.analytics.city-source=ROLLUP",
+        "rideintel.analytics.captain-source=RUNNING_TOTALS"
+})
+class RidePartitionIntegrationTest {
+
+    @Autowired
+    private RidePartitionService ridePartitionService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideArchiveRepository rideArchiveRepository;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private CityRollupService cityRollupService;
+
+    @Autowired
+    private CaptainTotalsService captainTotalsService;
+
+    @Autowired
+    private TopAnomalyBoard topAnomalyBoard;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Months past the retention are archived with their flags and removed; newer months stay")
+    void maintain_shouldArchiveExpiredMonths() throws Exception {
+        YearMonth expired = YearMonth.now().minusMonths(4);
+        LocalDateTime old = expired.atDay(10).atTime(8, 30);
+        long ridesBefore = rideRepository.count();
+        insertRide(900_000_001L, old);
+        insertRide(900_000_002L, old.plusDays(1));
+        insertRide(900_000_003L, old.plusDays(2));
+        insertRide(900_000_004L, LocalDateTime.now().minusMonths(1));   // inside the retention
+        jdbcTemplate.update("INSERT INTO anomaly_flags (id, ride_id, reason, anomaly_score, type, flagged_at) " +
+                "VALUES (900000001, 900000002, 'Fare spike', 0.99, 'FARE_SPIKE', ?)", Timestamp.valueOf(old));
+        // The rows went in behind the services' backs — bring the read models level, as a restart would
+        cityRollupService.rebuild();
+        captainTotalsService.rebuild();
+        topAnomalyBoard.reload();
+        assertTrue(onBoard(900_000_001L));
+        assertEquals(4L, captainTotalsService.getCaptainStats("CAP-ARCHIVE").getTotalRides());
+        rideService.getRideById(900_000_002L);   // cached
+
+        ridePartitionService.maintain();
+        ridePartitionService.maintain();   // nothing left to archive — a no-op
+
+        assertEquals(ridesBefore + 1, rideRepository.count());
+        assertTrue(rideRepository.existsById(900_000_004L));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM anomaly_flags WHERE ride_id = 900000002", Integer.class));
+
+        // The read models drop the month as the archive commits, and agree with a rebuild from what is left
+        assertFalse(onBoard(900_000_001L));
+        assertThrows(ResourceNotFoundException.class, () -> rideService.getRideById(900_000_002L));
+        RideDTOs.CaptainStatsResponse captain = captainTotalsService.getCaptainStats("CAP-ARCHIVE");
+        assertEquals(1L, captain.getTotalRides());
+        assertEquals(0L, captain.getAnomaliesDetected());
+        List<RideDTOs.AnalyticsResponse> cities = cityRollupService.getCityAnalytics();
+        cityRollupService.rebuild();
+        assertEquals(cities, cityRollupService.getCityAnalytics());
+
+        List<RideArchive> archives = rideArchiveRepository.findByPartitionMonth(expired.toString());
+        assertEquals(1, archives.size());
+        assertEquals(3L, archives.get(0).getRideCount());
+
+        List<JsonNode> rides;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(Paths.get(archives.get(0).getFile()))), StandardCharsets.UTF_8))) {
+            rides = in.lines().map(this::parse).collect(Collectors.toList());
+        }
+        assertEquals(3, rides.size());
+        assertEquals(900_000_001L, rides.get(0).get("id").asLong());
+        assertEquals(old.toString(), LocalDateTime.parse(rides.get(0).get("created_at").asText()).toString());
+        assertFalse(rides.get(0).has("flag_type"));
+        assertEquals("FARE_SPIKE", rides.get(1).get("flag_type").asText());
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private void insertRide(long id, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO rides (id, captain_id, customer_id, pickup_city, dropoff_city, distance_km, " +
+                        "fare_amount, duration_minutes, status, created_at, completed_at, vehicle_type, detection_state) " +
+                        "VALUES (?, 'CAP-ARCHIVE', 'CUST-ARCHIVE', 'Quetta', 'Quetta', 10.0, 300.0, 20, 'COMPLETED', ?, ?, " +
+                        "'ECONOMY', 'DONE')",
+                id, Timestamp.valueOf(createdAt), Timestamp.valueOf(createdAt.plusMinutes(20)));
+    }
+
+    private boolean onBoard(long flagId) {
+        return topAnomalyBoard.top(100).stream().anyMatch(flag -> flag.getFlagId() == flagId);
+    }
+
+    private JsonNode parse(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Same properties as CityTimeSeriesIntegrationTest, so the two share one context
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:servicedb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+class RideResponseCacheIntegrationTest {
+
+    @Autowired
+    private RideService rideService;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "CACHE").route("Quetta", "Ziarat");
+    }
+
+    @Test
+    @DisplayName("Repeated lookups are served from the cache and completion invalidates the entry")
+    void lookups_shouldHitCacheUntilRideChanges() {
+        Long rideId = testRides.create(10.0, 250.0, 25);
+        RideDTOs.CacheStatsResponse before = rideService.getRideCacheStats();
+
+        assertEquals("REQUESTED", rideService.getRideById(rideId).getStatus());
+        assertEquals("REQUESTED", rideService.getRideById(rideId).getStatus());
+        RideDTOs.CacheStatsResponse afterReads = rideService.getRideCacheStats();
+        assertEquals(before.getMissCount() + 1, afterReads.getMissCount());
+        assertEquals(before.getHitCount() + 1, afterReads.getHitCount());
+
+        rideService.completeRide(rideId);
+        assertEquals("COMPLETED", rideService.getRideById(rideId).getStatus());
+        assertEquals(afterReads.getMissCount() + 1, rideService.getRideCacheStats().getMissCount());
+    }
+
+    @Test
+    @DisplayName("A flag raised on completion is visible on the next lookup, and cancellation too")
+    void flagAndCancel_shouldInvalidate() {
+        Long rideId = testRides.create(5.0, 2000.0, 15);
+        assertFalse(rideService.getRideById(rideId).getAnomalyDetected());
+
+        rideService.completeRide(rideId);
+        assertTrue(rideService.getRideById(rideId).getAnomalyDetected());
+
+        Long cancelled = testRides.create(10.0, 250.0, 25);
+        assertEquals("REQUESTED", rideService.getRideById(cancelled).getStatus());
+        rideService.cancelRide(cancelled);
+        assertEquals("CANCELLED", rideService.getRideById(cancelled).getStatus());
+    }
+
+    @Test
+    @DisplayName("Callers get copies — mutating a response does not leak into the cache")
+    void cachedResponse_shouldNotBeShared() {
+        Long rideId = testRides.create(10.0, 250.0, 25);
+        rideService.getRideById(rideId).setStatus("TAMPERED");
+        assertEquals("REQUESTED", rideService.getRideById(rideId).getStatus());
+    }
+
+    @Test
+    @DisplayName("Unknown rides still 404 and are not cached")
+    void unknownRide_shouldNotBeCached() {
+        assertThrows(ResourceNotFoundException.class, () -> rideService.getRideById(999_999L));
+        assertThrows(ResourceNotFoundException.class, () -> rideService.getRideById(999_999L));
+    }
+
+    @Test
+    @DisplayName("An invalidation on one node evicts the entry from every node on the channel")
+    void invalidation_shouldReachOtherNodes() {
+        InProcessInvalidationChannel channel = new InProcessInvalidationChannel();
+        RideResponseCache nodeA = new RideResponseCache(channel, 100, Duration.ofMinutes(5));
+        RideResponseCache nodeB = new RideResponseCache(channel, 100, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        nodeA.get(1L, id -> RideDTOs.RideResponse.builder().id(id).status("REQUESTED").build());
+        nodeB.get(1L, id -> RideDTOs.RideResponse.builder().id(id).status("REQUESTED").build());
+
+        nodeA.invalidate(Collections.singletonList(1L));
+
+        RideDTOs.RideResponse reloaded = nodeB.get(1L, id -> {
+            loads.incrementAndGet();
+            return RideDTOs.RideResponse.builder().id(id).status("COMPLETED").build();
+        });
+        assertEquals(1, loads.get());
+        assertEquals("COMPLETED", reloaded.getStatus());
+        assertEquals(1L, nodeA.stats().getInvalidationCount());
+        assertEquals(0L, nodeB.stats().getInvalidationCount());
+    }
+}
@@ -0,0 +1,160 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.InvalidRequestException;
+import com.careem.rideintel.model.Ride;
+import com.careem.rideintel.repository.AnomalyFlagRepository;
+import com.careem.rideintel.repository.RideRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ridesnapshotdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.analytics.snapshot.enabled=true",
+        "rideintel.analytics.snapshot.block-rows=100",  // the 1000 seeded rides span several blocks
+        "rideintel.analytics.snapshot.max-off-heap=4MB"
+})
+class RideSnapshotIntegrationTest {
+
+    @Autowired
+    private RideSnapshotService rideSnapshotService;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private AnomalyFlagRepository anomalyFlagRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Fare/km scan over the snapshot returns what the JPQL outlier query returns")
+    void fareRatioScan_shouldMatchJpql() {
+        rideSnapshotService.refresh();
+
+        List<Long> expected = transactionTemplate.execute(status -> rideRepository.findHighFareRatioRides(150.0)
+                .stream().map(Ride::getId).sorted().collect(Collectors.toList()));
+        RideDTOs.RideScanResponse scan = rideSnapshotService.scan(RideScanFilter.builder()
+                .minFarePerKm(150.0)
+                .limit(1000)
+                .build());
+
+        assertFalse(expected.isEmpty(), "the seeded data holds fare spikes");
+        assertEquals(expected.size(), scan.getMatchedRides());
+        assertEquals(expected, scan.getRideIds());
+    }
+
+    @Test
+    @DisplayName("Combined filters and aggregates agree with the same filter applied to every entity")
+    void combinedFilters_shouldMatchEntities() {
+        rideSnapshotService.refresh();
+        List<Ride> rides = rideRepository.findAll();
+        Set<Long> flaggedIds = anomalyFlagRepository.findAll().stream()
+                .map(flag -> flag.getRide().getId()).collect(Collectors.toSet());
+        LocalDateTime from = rides.stream().map(Ride::getCreatedAt).min(LocalDateTime::compareTo).get();
+        LocalDateTime to   = rides.stream().map(Ride::getCreatedAt).max(LocalDateTime::compareTo).get();
+        String city = rides.get(0).getPickupCity();
+
+        assertScanMatches(rides, RideScanFilter.builder().pickupCity(city).limit(5).build(),
+                ride -> ride.getStatus() == Ride.RideStatus.COMPLETED && ride.getPickupCity().equals(city));
+        assertScanMatches(rides, RideScanFilter.builder().status(null).flagged(false).vehicleType("BUSINESS")
+                        .createdFrom(from).createdTo(to).limit(50).build(),
+                ride -> !flaggedIds.contains(ride.getId()) && ride.getVehicleType().equals("BUSINESS")
+                        && !ride.getCreatedAt().isBefore(from) && ride.getCreatedAt().isBefore(to));
+        assertScanMatches(rides, RideScanFilter.builder().flagged(true).maxFarePerKm(1000.0).build(),
+                ride -> ride.getStatus() == Ride.RideStatus.COMPLETED && flaggedIds.contains(ride.getId())
+                        && ride.getFareAmount() / ride.getDistanceKm() <= 1000.0);
+        assertScanMatches(rides, RideScanFilter.builder().status(Ride.RideStatus.CANCELLED).build(),
+                ride -> ride.getStatus() == Ride.RideStatus.CANCELLED);
+
+        assertEquals(0L, rideSnapshotService.scan(RideScanFilter.builder().captainId("CAP-UNKNOWN").build())
+                .getMatchedRides());
+    }
+
+    @Test
+    @DisplayName("New rides only show up after the next refresh; bad parameters are rejected")
+    void snapshot_shouldTrailWritesUntilRefresh() {
+        rideSnapshotService.refresh();
+        Long rideId = rideService.createRide(RideDTOs.CreateRideRequest.builder()
+                .captainId("CAP-SNAPSHOT-1")
+                .customerId("CUST-SNAPSHOT-1")
+                .pickupCity("Chitral")
+                .dropoffCity("Chitral")
+                .distanceKm(10.0)
+                .fareAmount(300.0)
+                .durationMinutes(20)
+                .vehicleType("ECONOMY")
+                .build()).getId();
+        rideService.completeRides(Collections.singletonList(rideId));
+        RideScanFilter chitral = RideScanFilter.builder().pickupCity("Chitral").build();
+
+        assertEquals(0L, rideSnapshotService.scan(chitral).getMatchedRides());
+        rideSnapshotService.refresh();
+        RideDTOs.RideScanResponse scan = rideSnapshotService.scan(chitral);
+        assertEquals(1L, scan.getMatchedRides());
+        assertEquals(Collections.singletonList(rideId), scan.getRideIds());
+        assertEquals(30.0, scan.getAverageFarePerKm(), 1e-9);
+
+        assertThrows(InvalidRequestException.class,
+                () -> rideSnapshotService.scan(RideScanFilter.builder().limit(1001).build()));
+        assertThrows(InvalidRequestException.class, () -> RideSnapshotService.parseStatus("FINISHED"));
+        assertNull(RideSnapshotService.parseStatus("any"));
+    }
+
+    @Test
+    @DisplayName("A refresh that would go past the off-heap budget keeps the current snapshot; scans can be turned off")
+    void refresh_overBudget_shouldKeepCurrentSnapshot() {
+        rideSnapshotService.refresh();
+        // Room for one snapshot of the rides, not for a second one beside it
+        RideSnapshotService tight = new RideSnapshotService(rideRepository, transactionManager, 100, true,
+                DataSize.ofBytes(rideSnapshotService.snapshot().offHeapBytes() * 3 / 2));
+        tight.refresh();
+        RideColumnSnapshot first = tight.snapshot();
+        assertEquals(rideRepository.count(), first.size());
+
+        tight.refresh();
+        assertSame(first, tight.snapshot());
+
+        RideSnapshotService off = new RideSnapshotService(rideRepository, transactionManager, 100, false,
+                DataSize.ofMegabytes(4));
+        off.refresh();
+        assertSame(RideColumnSnapshot.EMPTY, off.snapshot());
+        assertThrows(InvalidRequestException.class, () -> off.scan(RideScanFilter.builder().build()));
+    }
+
+    // ─── Helper ──────────────────────────────────────────────────────────────
+
+    private void assertScanMatches(List<Ride> rides, RideScanFilter filter, Predicate<Ride> predicate) {
+        List<Ride> expected = rides.stream().filter(predicate)
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId())).collect(Collectors.toList());
+        RideDTOs.RideScanResponse scan = rideSnapshotService.scan(filter);
+
+        assertEquals(expected.size(), scan.getMatchedRides(), filter.toString());
+        assertEquals(expected.stream().mapToDouble(Ride::getFareAmount).sum(), scan.getTotalFare(), 1e-6);
+        assertEquals(expected.stream().mapToInt(Ride::getDurationMinutes).average().orElse(Double.NaN),
+                scan.getAverageDurationMinutes() != null ? scan.getAverageDurationMinutes() : Double.NaN, 1e-9);
+        assertEquals(expected.stream().limit(filter.getLimit()).map(Ride::getId).collect(Collectors.toList()),
+                scan.getRideIds(), filter.toString());
+    }
+}
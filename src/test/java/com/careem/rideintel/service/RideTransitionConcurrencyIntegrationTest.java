@@ -0,0 +1,184 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import com.careem.rideintel.exception.ConflictException;
+import com.careem.rideintel.repository.RideRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stress test for the compare-and-set status transitions: many threads complete and cancel the same rides
+ * at once, and every ride must be completed, scored and counted exactly once.
+ */
+// Same properties as AnalyticsReadModelIntegrationTest, so the two share one context
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:readmodeldb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.analytics.city-source=ROLLUP",
+        "rideintel.analytics.captain-source=RUNNING_TOTALS",
+        "rideintel.seed.rides=0"
+})
+class RideTransitionConcurrencyIntegrationTest {
+
+    // Below the 20-connection pool, so the threads contend for rows rather than connections
+    private static final int THREADS = 8;
+    private static final int RIDES   = 25;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Racing completions — single and batched — score and flag each ride exactly once")
+    void concurrentCompletions_shouldFlagExactlyOnce() throws Exception {
+        List<Long> rides = createSpikes("CAP-CONTENTION", "Chitral");
+        double analyzedBefore = analyzed();
+        AtomicInteger batchConflicts = new AtomicInteger();
+
+        race(thread -> {
+            List<Long> order = shuffled(rides, thread);
+            for (int i = 0; i < order.size(); i++) {
+                if (thread % 4 == 0 && i + 3 <= order.size()) {
+                    try {
+                        rideService.completeRides(order.subList(i, i + 3))
+                                .forEach(ride -> assertTrue(ride.getAnomalyDetected(), ride.toString()));
+                    } catch (ConflictException e) {
+                        batchConflicts.incrementAndGet();  // lost a race mid-batch — rolled back whole, safe to retry
+                    }
+                } else {
+                    RideDTOs.RideResponse ride = rideService.completeRide(order.get(i));
+                    assertEquals("COMPLETED", ride.getStatus());
+                    assertTrue(ride.getAnomalyDetected(), ride.toString());
+                }
+            }
+        });
+
+        assertEquals(RIDES, analyzed() - analyzedBefore, 0.0, "rides scored");
+        for (Long ride : rides) {
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM anomaly_flags WHERE ride_id = ?",
+                    Integer.class, ride));
+            assertEquals(1L, jdbcTemplate.queryForObject("SELECT version FROM rides WHERE id = ?", Long.class, ride),
+                    "ride " + ride + " was completed more than once");
+        }
+        RideDTOs.CaptainStatsResponse totals = rideService.getCaptainStats("CAP-CONTENTION");
+        assertEquals(RIDES, totals.getCompletedRides());
+        assertEquals(RIDES, totals.getAnomaliesDetected());
+        assertReadModelsMatch("CAP-CONTENTION");
+    }
+
+    @Test
+    @DisplayName("Racing completions and cancellations leave each ride in one state, counted once")
+    void completionsRacingCancellations_shouldStayConsistent() throws Exception {
+        List<Long> rides = createSpikes("CAP-RACE", "Kalash");
+
+        race(thread -> {
+            for (Long ride : shuffled(rides, thread)) {
+                try {
+                    if (thread % 2 == 0) {
+                        rideService.completeRide(ride);
+                    } else {
+                        rideService.cancelRide(ride);
+                    }
+                } catch (ConflictException e) {
+                    // The other transition got there first
+                }
+            }
+        });
+
+        for (Long ride : rides) {
+            String status = rideService.getRideById(ride).getStatus();
+            assertTrue(status.equals("COMPLETED") || status.equals("CANCELLED"), status);
+        }
+        assertReadModelsMatch("CAP-RACE");
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private void race(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> done = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                done.add(pool.submit((Callable<Void>) () -> {
+                    start.await();
+                    worker.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : done) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void assertReadModelsMatch(String captainId) {
+        Map<String, RideDTOs.AnalyticsResponse> rollup = rideService.getCityAnalytics().stream()
+                .collect(Collectors.toMap(RideDTOs.AnalyticsResponse::getCity, Function.identity()));
+        for (Object[] row : rideRepository.getCityAnalytics()) {
+            RideDTOs.AnalyticsResponse city = rollup.get((String) row[0]);
+            assertEquals(row[1], city.getTotalRides(), (String) row[0]);
+            assertEquals(row[5], city.getAnomalyCount(), (String) row[0]);
+        }
+        Object[] projection = rideRepository.getCaptainStats(captainId).get(0);
+        RideDTOs.CaptainStatsResponse totals = rideService.getCaptainStats(captainId);
+        assertEquals(projection[1], totals.getCompletedRides());
+        assertEquals(projection[2], totals.getCancelledRides());
+        assertEquals(projection[4], totals.getAnomaliesDetected());
+    }
+
+    private double analyzed() {
+        return meterRegistry.get("rideintel.anomaly.rides.analyzed").counter().count();
+    }
+
+    private static List<Long> shuffled(List<Long> rides, int seed) {
+        List<Long> order = new ArrayList<>(rides);
+        Collections.shuffle(order, new Random(seed));
+        return order;
+    }
+
+    private List<Long> createSpikes(String captainId, String city) {
+        TestRides spikes = TestRides.of(rideService, captainId).captain(captainId).in(city);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < RIDES; i++) {
+            ids.add(spikes.create(10.0, 2500.0, 20));   // 250 PKR/km
+        }
+        return ids;
+    }
+}
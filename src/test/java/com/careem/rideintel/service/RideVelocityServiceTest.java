@@ -0,0 +1,69 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.event.RideEvents;
+import com.careem.rideintel.model.Ride;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RideVelocityServiceTest {
+
+    private final RideVelocityService velocity = new RideVelocityService(1024);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Completions count from the moment they are published, and come back out if the transaction rolls back")
+    void rolledBackCompletions_shouldNotCount() {
+        LocalDateTime at = LocalDateTime.of(2026, 3, 1, 12, 0);
+        Ride first = ride(at.minusMinutes(5));
+        Ride second = ride(at);
+
+        complete(Arrays.asList(first), TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1, velocity.captainRidesLastHour(second));
+
+        TransactionSynchronizationManager.initSynchronization();
+        velocity.onRidesCompleted(new RideEvents.RidesCompleted(Arrays.asList(second)));
+        assertEquals(2, velocity.captainRidesLastHour(second));   // seen while the transaction scores it
+        finish(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(1, velocity.captainRidesLastHour(second));
+        assertEquals(1, velocity.customerRidesLastHour(second));
+        assertEquals(1, velocity.pairRidesLastDay(second));
+    }
+
+    // ─── Helpers ─────────────────────────────────────────────────────────────
+
+    private void complete(List<Ride> rides, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        velocity.onRidesCompleted(new RideEvents.RidesCompleted(rides));
+        finish(status);
+    }
+
+    private static void finish(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static Ride ride(LocalDateTime completedAt) {
+        return Ride.builder()
+                .captainId("CAP-VELOCITY")
+                .customerId("CUST-VELOCITY")
+                .completedAt(completedAt)
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routedeviationdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "rideintel.anomaly.route-baseline.min-samples=10"
+})
+class RouteDeviationIntegrationTest {
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private CityPairBaselineService baselineService;
+
+    private TestRides testRides;
+
+    @BeforeEach
+    void setUp() {
+        testRides = TestRides.of(rideService, "ROUTE").route("Hyderabad", "Kotri");
+    }
+
+    @Test
+    @DisplayName("Seeded straight-line baselines are loaded at startup")
+    void seededBaselines_shouldBeLoaded() {
+        assertEquals(270.0, baselineService.index().baselineKm("Lahore", "Islamabad"), 1e-9);
+        assertTrue(Double.isNaN(baselineService.index().baselineKm("Lahore", "Atlantis")));
+    }
+
+    @Test
+    @DisplayName("A ride far beyond the learned city-pair baseline is flagged as ROUTE_DEVIATION")
+    void detour_shouldBeFlaggedAfterRefresh() {
+        List<Long> regular = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            regular.add(testRides.create(8.0 + i % 3, 240.0 + (i % 3) * 30.0, 20));
+        }
+        rideService.completeRides(regular);
+
+        assertTrue(Double.isNaN(baselineService.index().baselineKm("Hyderabad", "Kotri")), "learned on refresh only");
+
+        baselineService.refresh();
+        assertEquals(8.9, baselineService.index().baselineKm("Hyderabad", "Kotri"), 1e-9);
+
+        RideDTOs.RideResponse detour = rideService.completeRide(testRides.create(45.0, 1200.0, 70));
+        assertTrue(detour.getAnomalyDetected());
+        assertTrue(detour.getAnomalyReason().contains("baseline for Hyderabad to Kotri"), detour.getAnomalyReason());
+    }
+}
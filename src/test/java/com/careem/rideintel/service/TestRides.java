@@ -0,0 +1,77 @@
+package com.careem.rideintel.service;
+
+import com.careem.rideintel.dto.RideDTOs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates rides through {@link RideService} for integration tests.
+ *
+ * Unless pinned with {@link #captain} or {@link #customer}, every ride gets a captain and a customer
+ * of its own ({@code CAP-<tag>-<n>}, {@code CUST-<tag>-<n>}), numbered across the whole test run, so
+ * the velocity rules stay quiet even when test classes share a context. The settings are immutable:
+ * each one returns a new fixture, so a test can derive variants from a shared one.
+ */
+public final class TestRides {
+
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    private final RideService rideService;
+    private final String tag;
+    private final String captainId;    // null: one per ride
+    private final String customerId;   // null: one per ride
+    private final String pickupCity;
+    private final String dropoffCity;
+    private final String vehicleType;
+
+    private TestRides(RideService rideService, String tag, String captainId, String customerId,
+                      String pickupCity, String dropoffCity, String vehicleType) {
+        this.rideService = rideService;
+        this.tag         = tag;
+        this.captainId   = captainId;
+        this.customerId  = customerId;
+        this.pickupCity  = pickupCity;
+        this.dropoffCity = dropoffCity;
+        this.vehicleType = vehicleType;
+    }
+
+    /** ECONOMY rides within Karachi */
+    public static TestRides of(RideService rideService, String tag) {
+        return new TestRides(rideService, tag, null, null, "Karachi", "Karachi", "ECONOMY");
+    }
+
+    public TestRides in(String city) {
+        return route(city, city);
+    }
+
+    public TestRides route(String pickupCity, String dropoffCity) {
+        return new TestRides(rideService, tag, captainId, customerId, pickupCity, dropoffCity, vehicleType);
+    }
+
+    public TestRides vehicleType(String vehicleType) {
+        return new TestRides(rideService, tag, captainId, customerId, pickupCity, dropoffCity, vehicleType);
+    }
+
+    public TestRides captain(String captainId) {
+        return new TestRides(rideService, tag, captainId, customerId, pickupCity, dropoffCity, vehicleType);
+    }
+
+    public TestRides customer(String customerId) {
+        return new TestRides(rideService, tag, captainId, customerId, pickupCity, dropoffCity, vehicleType);
+    }
+
+    /** @return the ID of a new REQUESTED ride */
+    public Long create(double distanceKm, double fare, int durationMinutes) {
+        int n = sequence.getAndIncrement();
+        return rideService.createRide(RideDTOs.CreateRideRequest.builder()
+                .captainId(captainId != null ? captainId : "CAP-" + tag + "-" + n)
+                .customerId(customerId != null ? customerId : "CUST-" + tag + "-" + n)
+                .pickupCity(pickupCity)
+                .dropoffCity(dropoffCity)
+                .distanceKm(distanceKm)
+                .fareAmount(fare)
+                .durationMinutes(durationMinutes)
+                .vehicleType(vehicleType)
+                .build()).getId();
+    }
+}